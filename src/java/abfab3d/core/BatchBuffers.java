@@ -0,0 +1,101 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.core;
+
+
+/**
+   scratch buffers used by batch calculations of single node of DataSource tree
+
+   each node keeps its own buffers for each calculating thread, so nested nodes do not share them
+   buffers are allocated on first use and grow only when larger block is requested
+   content of returned buffers is not cleared
+ */
+public class BatchBuffers {
+
+    VecArray m_vecArrays[] = new VecArray[0];
+    double m_doubles[][] = new double[0][];
+    int m_ints[][] = new int[0][];
+
+    /**
+       @return per thread buffers holder
+     */
+    public static ThreadLocal<BatchBuffers> makeThreadLocal(){
+        return new ThreadLocal<BatchBuffers>() {
+            @Override
+            protected BatchBuffers initialValue() {
+                return new BatchBuffers();
+            }
+        };
+    }
+
+    /**
+       @param index index of the buffer
+       @param dimension dimension of block
+       @param size count of elements in block
+       @return block of given dimension and size with reset scale factors and result codes
+     */
+    public VecArray getVecArray(int index, int dimension, int size){
+
+        if(index >= m_vecArrays.length){
+            VecArray va[] = new VecArray[index+1];
+            System.arraycopy(m_vecArrays, 0, va, 0, m_vecArrays.length);
+            m_vecArrays = va;
+        }
+        VecArray va = m_vecArrays[index];
+        if(va == null || va.getDimension() != dimension || va.getCapacity() < size){
+            int capacity = (va == null)? size: Math.max(size, va.getCapacity());
+            va = new VecArray(dimension, capacity);
+            m_vecArrays[index] = va;
+        }
+        va.setSize(size);
+        va.setVoxelSize(1);
+        return va;
+    }
+
+    /**
+       @return array of at least given size
+     */
+    public double[] getDoubles(int index, int size){
+
+        if(index >= m_doubles.length){
+            double d[][] = new double[index+1][];
+            System.arraycopy(m_doubles, 0, d, 0, m_doubles.length);
+            m_doubles = d;
+        }
+        double d[] = m_doubles[index];
+        if(d == null || d.length < size){
+            d = new double[size];
+            m_doubles[index] = d;
+        }
+        return d;
+    }
+
+    /**
+       @return array of at least given size
+     */
+    public int[] getInts(int index, int size){
+
+        if(index >= m_ints.length){
+            int d[][] = new int[index+1][];
+            System.arraycopy(m_ints, 0, d, 0, m_ints.length);
+            m_ints = d;
+        }
+        int d[] = m_ints[index];
+        if(d == null || d.length < size){
+            d = new int[size];
+            m_ints[index] = d;
+        }
+        return d;
+    }
+
+} // class BatchBuffers
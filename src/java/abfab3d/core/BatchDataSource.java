@@ -0,0 +1,31 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.core;
+
+/**
+   optional interface for DataSource which can calculate data values for a block of points in one call 
+
+   results should be the same as results of getDataValue() called for each point of the block 
+   data sources which do not implement this interface are evaluated via BatchUtil.getDataValues() 
+ */
+public interface BatchDataSource extends DataSource {
+
+    /**
+       data values at the block of points 
+       @param pnts block of points where the data is calculated. Points may be modified in the process of calculation 
+       @param data storage for calculated data. data.result[i] stores result code for the i-th point
+       @return result code 
+     */
+    public int getDataValues(VecArray pnts, VecArray data);
+
+}
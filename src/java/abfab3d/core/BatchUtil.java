@@ -0,0 +1,115 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.core;
+
+/**
+   batch calculations for DataSource and VecTransform
+
+   sources and transforms which implement BatchDataSource or BatchVecTransform are called directly
+   legacy ones are evaluated point by point
+ */
+public class BatchUtil {
+
+    /**
+       calculates data values of arbitrary DataSource on the block of points
+       @param source data source to evaluate
+       @param pnts block of points. Points may be modified in the process of calculation
+       @param data storage for calculated data. data.result[i] stores result code for the i-th point
+     */
+    public static int getDataValues(DataSource source, VecArray pnts, VecArray data){
+
+        if(source instanceof BatchDataSource)
+            return ((BatchDataSource)source).getDataValues(pnts, data);
+        else
+            return getDataValuesPointwise(source, pnts, data);
+    }
+
+    /**
+       fallback for data sources without batch calculation
+     */
+    public static int getDataValuesPointwise(DataSource source, VecArray pnts, VecArray data){
+
+        int n = pnts.size;
+        data.size = n;
+        data.voxelSize = pnts.voxelSize;
+        Vec pnt = new Vec(pnts.getDimension());
+        Vec value = new Vec(data.getDimension());
+        for(int i = 0; i < n; i++){
+            pnts.get(i, pnt);
+            data.result[i] = source.getDataValue(pnt, value);
+            data.set(i, value);
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
+    /**
+       inverse transform of block of vectors by arbitrary VecTransform
+       vin and vout may be the same
+     */
+    public static int inverse_transform(VecTransform trans, VecArray vin, VecArray vout){
+
+        if(trans instanceof BatchVecTransform)
+            return ((BatchVecTransform)trans).inverse_transform(vin, vout);
+        else
+            return inverse_transformPointwise(trans, vin, vout);
+    }
+
+    /**
+       direct transform of block of vectors by arbitrary VecTransform
+       vin and vout may be the same
+     */
+    public static int transform(VecTransform trans, VecArray vin, VecArray vout){
+
+        if(trans instanceof BatchVecTransform)
+            return ((BatchVecTransform)trans).transform(vin, vout);
+        else
+            return transformPointwise(trans, vin, vout);
+    }
+
+    /**
+       fallback for transforms without batch calculation
+     */
+    public static int inverse_transformPointwise(VecTransform trans, VecArray vin, VecArray vout){
+
+        int n = vin.size;
+        vout.size = n;
+        vout.voxelSize = vin.voxelSize;
+        Vec in = new Vec(vin.getDimension());
+        Vec out = new Vec(vout.getDimension());
+        for(int i = 0; i < n; i++){
+            vin.get(i, in);
+            vout.result[i] = trans.inverse_transform(in, out);
+            vout.set(i, out);
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
+    /**
+       fallback for transforms without batch calculation
+     */
+    public static int transformPointwise(VecTransform trans, VecArray vin, VecArray vout){
+
+        int n = vin.size;
+        vout.size = n;
+        vout.voxelSize = vin.voxelSize;
+        Vec in = new Vec(vin.getDimension());
+        Vec out = new Vec(vout.getDimension());
+        for(int i = 0; i < n; i++){
+            vin.get(i, in);
+            vout.result[i] = trans.transform(in, out);
+            vout.set(i, out);
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
+} // class BatchUtil
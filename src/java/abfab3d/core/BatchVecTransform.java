@@ -0,0 +1,33 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.core;
+
+/**
+   optional interface for VecTransform which can transform a block of vectors in one call 
+
+   vin and vout may be the same object 
+   vout.result[i] stores result code of transformation of the i-th vector
+ */
+public interface BatchVecTransform extends VecTransform {
+
+    /**
+       direct transform from vin to vout        
+     */
+    public int transform(VecArray vin, VecArray vout);
+
+    /**
+       inverse transform from vin to vout        
+     */
+    public int inverse_transform(VecArray vin, VecArray vout);
+    
+}
@@ -28,6 +28,9 @@ public class CacheConfig {
     public final static boolean GPU_CACHE;
     public final static String DISK_CACHE_PROPERTY = "abfab3d.core.diskCacheEnabled";
     public final static boolean DISK_CACHE;
+    /** Size of off heap cache in megabytes, 0 to disable.  Disabled by default, evicted data is freed only by GC */
+    public final static String OFF_HEAP_CACHE_SIZE_PROPERTY = "abfab3d.core.offHeapCacheSize";
+    public final static long OFF_HEAP_CACHE_SIZE;
 
     private static CacheConfig instance;
 
@@ -36,6 +39,7 @@ public class CacheConfig {
         CPU_CACHE = parseProperty(CPU_CACHE_PROPERTY,true);
         GPU_CACHE = parseProperty(GPU_CACHE_PROPERTY,true);
         DISK_CACHE = parseProperty(DISK_CACHE_PROPERTY,true);
+        OFF_HEAP_CACHE_SIZE = parseLongProperty(OFF_HEAP_CACHE_SIZE_PROPERTY,0) * 1024 * 1024;
 
         printf("Cache Config.  CPU: %b  GPU: %b  Disk: %b\n",CPU_CACHE,GPU_CACHE,DISK_CACHE);
     }
@@ -56,6 +60,22 @@ public class CacheConfig {
         return ret;
     }
 
+    private static long parseLongProperty(String prop, long defVal) {
+        long ret = defVal;
+
+        String propVal = System.getProperty(prop);
+
+        if (propVal == null) return ret;
+
+        try {
+            ret = Long.parseLong(propVal);
+        } catch(Exception e) {
+            e.printStackTrace();
+        }
+
+        return ret;
+    }
+
     public static CacheConfig getInstance() {
         if (instance == null) {
             instance = new CacheConfig();
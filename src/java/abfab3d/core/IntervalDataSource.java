@@ -0,0 +1,33 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.core;
+
+/**
+   optional interface for DataSource which can estimate the range of its values over a region of space 
+
+   it is used to skip calculation of data values in regions where the value is known to be constant 
+   (far inside or far outside of the shape)
+ */
+public interface IntervalDataSource extends DataSource {
+
+    /**
+       calculates conservative interval of data value in channel 0 over the ball of given radius  
+
+       @param pnt center of the ball. The point may be modified in the process of calculation 
+       @param radius radius of the ball in units of pnt before any transformation is applied 
+       @param interval storage for the interval. interval[0] <= value <= interval[1] for every point of the ball 
+       @return RESULT_OK if the interval is calculated and RESULT_ERROR if interval can not be estimated 
+     */
+    public int getValueInterval(Vec pnt, double radius, double interval[]);
+
+}
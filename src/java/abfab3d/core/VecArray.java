@@ -0,0 +1,184 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.core;
+
+
+/**
+   block of Vec values stored as structure of arrays
+
+   v[k][i] is k-th component of i-th vector in the block
+   it is used as values holder for batch calculation of transformations using BatchVecTransform
+   and batch calculation of data values using BatchDataSource
+ */
+public class VecArray {
+
+    // v[dimension][capacity] holder for the data
+    public double v[][];
+    // per element accumulated scale factor of all applied transforms
+    public double scaleFactor[];
+    // per element result code of the last calculation
+    public int result[];
+    // size of voxel in physical units, it is common for all elements of the block
+    public double voxelSize = 1;
+    // count of elements currently used in the block
+    public int size;
+
+    /**
+       @param dimension dimension of each vector
+       @param capacity max count of vectors in the block
+     */
+    public VecArray(int dimension, int capacity){
+
+        v = new double[dimension][capacity];
+        scaleFactor = new double[capacity];
+        result = new int[capacity];
+        setSize(capacity);
+    }
+
+    /**
+       makes new block of the same dimension and capacity as given
+     */
+    public VecArray(VecArray in){
+        this(in.getDimension(), in.getCapacity());
+        set(in);
+    }
+
+    public final int getDimension(){
+        return v.length;
+    }
+
+    public final int getCapacity(){
+        return scaleFactor.length;
+    }
+
+    public final int size(){
+        return size;
+    }
+
+    /**
+       set count of used elements and resets their scale factors and result codes
+     */
+    public final void setSize(int size){
+
+        if(size > scaleFactor.length)
+            throw new IllegalArgumentException(Output.fmt("size: %d exceeds capacity: %d", size, scaleFactor.length));
+        this.size = size;
+        for(int i = 0; i < size; i++){
+            scaleFactor[i] = 1;
+            result[i] = ResultCodes.RESULT_OK;
+        }
+    }
+
+    public final void setVoxelSize(double value){
+        voxelSize = value;
+    }
+
+    public final double getVoxelSize(){
+        return voxelSize;
+    }
+
+    /**
+       set i-th element to the point (x,y,z)
+     */
+    public final void set(int i, double x, double y, double z){
+        v[0][i] = x;
+        v[1][i] = y;
+        v[2][i] = z;
+    }
+
+    /**
+       copy values from another block
+       only common components are copied
+     */
+    public final void set(VecArray in){
+
+        if(in == this)
+            return;
+        int dim = Math.min(v.length, in.v.length);
+        int n = in.size;
+        for(int k = 0; k < dim; k++){
+            System.arraycopy(in.v[k], 0, v[k], 0, n);
+        }
+        System.arraycopy(in.scaleFactor, 0, scaleFactor, 0, n);
+        System.arraycopy(in.result, 0, result, 0, n);
+        voxelSize = in.voxelSize;
+        size = n;
+    }
+
+    /**
+       copy selected elements of another block into this block
+       j-th element of this block becomes index[j]-th element of the input block 
+       @param in block to copy from 
+       @param index indices of elements to copy 
+       @param count count of elements to copy 
+     */
+    public final void gather(VecArray in, int index[], int count){
+        
+        int dim = Math.min(v.length, in.v.length);
+        for(int k = 0; k < dim; k++){
+            double vin[] = in.v[k];
+            double vout[] = v[k];
+            for(int j = 0; j < count; j++){
+                vout[j] = vin[index[j]];
+            }
+        }
+        for(int j = 0; j < count; j++){
+            int i = index[j];
+            scaleFactor[j] = in.scaleFactor[i];
+            result[j] = in.result[i];
+        }
+        voxelSize = in.voxelSize;
+        size = count;
+    }
+
+    /**
+       copy i-th element of this block into Vec
+     */
+    public final void get(int i, Vec out){
+
+        double vv[] = out.v;
+        int dim = Math.min(v.length, vv.length);
+        for(int k = 0; k < dim; k++){
+            vv[k] = v[k][i];
+        }
+        out.voxelSize = voxelSize;
+        out.scaleFactor = scaleFactor[i];
+    }
+
+    /**
+       copy Vec into the i-th element of this block
+     */
+    public final void set(int i, Vec in){
+
+        double vv[] = in.v;
+        int dim = Math.min(v.length, vv.length);
+        for(int k = 0; k < dim; k++){
+            v[k][i] = vv[k];
+        }
+        scaleFactor[i] = in.scaleFactor;
+    }
+
+    /**
+       copy all components of i-th element of another block into j-th element of this block
+     */
+    public final void set(int j, VecArray in, int i){
+
+        int dim = Math.min(v.length, in.v.length);
+        for(int k = 0; k < dim; k++){
+            v[k][j] = in.v[k][i];
+        }
+        scaleFactor[j] = in.scaleFactor[i];
+        result[j] = in.result[i];
+    }
+
+} // class VecArray
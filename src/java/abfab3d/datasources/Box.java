@@ -13,12 +13,15 @@
 package abfab3d.datasources;
 
 
+import abfab3d.core.BatchDataSource;
+import abfab3d.core.IntervalDataSource;
 import abfab3d.core.ResultCodes;
 import abfab3d.param.DoubleParameter;
 import abfab3d.param.Parameter;
 import abfab3d.param.Vector3dParameter;
 import abfab3d.core.Bounds;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 
 import javax.vecmath.Vector3d;
 
@@ -37,7 +40,7 @@ import static abfab3d.core.Units.MM;
 
  * @author Vladimir Bulatov
  */
-public class Box extends TransformableDataSource {
+public class Box extends TransformableDataSource implements BatchDataSource, IntervalDataSource {
     static final boolean DEBUG = false;
     private static final double DEFAULT_WIDTH = 0.1;
     private static final double DEFAULT_HEIGHT = 0.1;
@@ -324,6 +327,53 @@ public class Box extends TransformableDataSource {
         
     }
 
+    /**
+     * batch version of getBaseValue()
+     *
+     * @noRefGuide
+     */
+    public int getBaseValues(VecArray pnts, VecArray data) {
+
+        int n = pnts.size;
+        double 
+            px[] = pnts.v[0],
+            py[] = pnts.v[1],
+            pz[] = pnts.v[2],
+            dist[] = data.v[0];
+        double 
+            cx = m_centerX, cy = m_centerY, cz = m_centerZ,
+            hx = m_halfSizeX, hy = m_halfSizeY, hz = m_halfSizeZ,
+            rounding = m_rounding;
+
+        for(int i = 0; i < n; i++){
+            double 
+                dx = abs(px[i] - cx) - hx,
+                dy = abs(py[i] - cy) - hy,
+                dz = abs(pz[i] - cz) - hz;
+            dist[i] = blendMax(dx, blendMax(dy, dz, rounding), rounding);
+        }
+        getShapeValues(dist, pnts);
+        setResults(data, n);
+
+        return ResultCodes.RESULT_OK;
+    }
+
+    /**
+     * interval version of getBaseValue()
+     *
+     * @noRefGuide
+     */
+    public int getBaseValueInterval(Vec pnt, double radius, double interval[]) {
+
+        double v[] = pnt.v;
+        double 
+            dx = abs(v[0] - m_centerX) - m_halfSizeX,
+            dy = abs(v[1] - m_centerY) - m_halfSizeY,
+            dz = abs(v[2] - m_centerZ) - m_halfSizeZ;
+        double dist = blendMax(dx, blendMax(dy, dz, m_rounding), m_rounding);
+        return getShapeValueInterval(dist, pnt, radius, interval);
+    }
+
     
     /**
        obsolete 
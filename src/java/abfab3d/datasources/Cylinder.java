@@ -13,11 +13,14 @@
 package abfab3d.datasources;
 
 
+import abfab3d.core.BatchDataSource;
+import abfab3d.core.IntervalDataSource;
 import abfab3d.core.ResultCodes;
 import abfab3d.param.DoubleParameter;
 import abfab3d.param.Parameter;
 import abfab3d.param.Vector3dParameter;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 
 import javax.vecmath.AxisAngle4d;
 import javax.vecmath.Matrix3d;
@@ -37,7 +40,7 @@ import static abfab3d.core.MathUtil.blendMax;
    <embed src="doc-files/Cylinder.svg" type="image/svg+xml"/> 
  * @author Vladimir Bulatov
  */
-public class Cylinder extends TransformableDataSource {
+public class Cylinder extends TransformableDataSource implements BatchDataSource, IntervalDataSource {
 
     static final double EPSILON = 1.e-8;
 
@@ -258,6 +261,17 @@ public class Cylinder extends TransformableDataSource {
         return ResultCodes.RESULT_OK;
     }
 
+    /**
+     * interval version of getBaseValue()
+     @noRefGuide
+     */
+    public int getBaseValueInterval(Vec pnt, double radius, double interval[]) {
+        
+        Vec data = new Vec(1);
+        getDistanceValue(pnt, data);
+        return getShapeValueInterval(data.v[0], pnt, radius, interval);
+    }
+
     public int getDistanceValue(Vec pnt, Vec data) {
 
         double v[] = pnt.v;
@@ -277,6 +291,40 @@ public class Cylinder extends TransformableDataSource {
         return ResultCodes.RESULT_OK;
     }
 
+    /**
+     * batch version of getBaseValue()
+     @noRefGuide
+     */
+    public int getBaseValues(VecArray pnts, VecArray data) {
+
+        int n = pnts.size;
+        double 
+            px[] = pnts.v[0],
+            py[] = pnts.v[1],
+            pz[] = pnts.v[2],
+            dist[] = data.v[0];
+        double 
+            cx = m_centerX, cy = m_centerY, cz = m_centerZ,
+            ax = m_ax, ay = m_ay, az = m_az,
+            r01 = m_R01, normalO = m_normalO, normalA = m_normalA, 
+            halfHeight = m_halfHeight, rounding = m_rounding;
+
+        for(int i = 0; i < n; i++){
+            double 
+                x = px[i] - cx,
+                y = py[i] - cy,
+                z = pz[i] - cz;
+            double pa = x*ax + y*ay + z*az; 
+            double po = sqrt(max(0,x*x + y*y + z*z - pa*pa));
+            double dside =  (po - r01)*normalO + pa * normalA; 
+            double dbase = abs(pa) - halfHeight;
+            dist[i] = blendMax(dside, dbase, rounding);
+        }
+        getShapeValues(dist, pnts);
+        setResults(data, n);
+        return ResultCodes.RESULT_OK;
+    }
+
 
     /**
      * @noRefGuide
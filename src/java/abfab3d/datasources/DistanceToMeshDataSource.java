@@ -192,7 +192,7 @@ public class DistanceToMeshDataSource extends TransformableDataSource {
         
         if(DEBUG) printf("%s.initialize()\n",this);
         super.initialize();
-        m_currentParamString = getLocalParamString();
+        m_currentParamString = getLocalParamHash();
         if(!paramChanged()){
             // avoid multiple initialization 
             if(false)printf("initialize() - no change\n"); 
@@ -290,6 +290,14 @@ public class DistanceToMeshDataSource extends TransformableDataSource {
         return getParamString(getClass().getSimpleName(), m_aparams);
     } 
 
+    /**
+       hash of local params without transforms to be used as cache key
+     */
+    public String getLocalParamHash(){
+
+        return ParamHash.getHash(getClass().getSimpleName(), m_aparams);
+    } 
+
     protected int initPlainMesh(TriangleProducer producer){
 
         int threadCount = 8;
@@ -385,6 +393,7 @@ public class DistanceToMeshDataSource extends TransformableDataSource {
 
         // triangles rasterizer         
         TriangleMeshSurfaceBuilder surfaceBuilder = new TriangleMeshSurfaceBuilder(surfaceBounds);        
+        surfaceBuilder.setThreadCount(threadCount);
         
         surfaceBuilder.initialize();
 
@@ -401,6 +410,7 @@ public class DistanceToMeshDataSource extends TransformableDataSource {
         
         // builder of shell around rasterized points 
         PointSetShellBuilder shellBuilder = new PointSetShellBuilder(); 
+        shellBuilder.setThreadCount(threadCount);
         shellBuilder.setShellHalfThickness(shellHalfThickness);
         shellBuilder.setPoints(new PointSetCoordArrays(pnts[0], pnts[1], pnts[2]));
         shellBuilder.setShellHalfThickness(shellHalfThickness);
@@ -575,6 +585,7 @@ public class DistanceToMeshDataSource extends TransformableDataSource {
 
         // triangles rasterizer         
         TriangleMeshSurfaceBuilder surfaceBuilder = new TriangleMeshSurfaceBuilder(surfaceBounds);        
+        surfaceBuilder.setThreadCount(threadCount);
         
         surfaceBuilder.initialize();
         
@@ -588,6 +599,7 @@ public class DistanceToMeshDataSource extends TransformableDataSource {
         
         // builder of shell around rasterized points 
         PointSetShellBuilder shellBuilder = new PointSetShellBuilder(); 
+        shellBuilder.setThreadCount(threadCount);
         shellBuilder.setShellHalfThickness(shellHalfThickness);
         shellBuilder.setPoints(new PointSetCoordArrays(pnts[0], pnts[1], pnts[2]));
         shellBuilder.setShellHalfThickness(shellHalfThickness);
@@ -665,6 +677,7 @@ public class DistanceToMeshDataSource extends TransformableDataSource {
         
         // builder of shell around rasterized points 
         PointSetShellBuilder shellBuilder = new PointSetShellBuilder(); 
+        shellBuilder.setThreadCount(threadCount);
         shellBuilder.setShellHalfThickness(shellHalfThickness);
         shellBuilder.setPoints(new PointSetCoordArrays(pnts[0], pnts[1], pnts[2]));
         shellBuilder.setShellHalfThickness(shellHalfThickness);
@@ -44,6 +44,7 @@ import abfab3d.datasources.TransformableDataSource;
 
 import abfab3d.param.SNodeParameter;
 import abfab3d.param.ParamCache;
+import abfab3d.param.ParamHash;
 import abfab3d.param.Parameter;
 import abfab3d.param.DoubleParameter;
 import abfab3d.param.ObjectParameter;
@@ -169,7 +170,7 @@ public class DistanceToPointsDataSource extends TransformableDataSource {
         
         if(DEBUG) printf("%s.initialize()\n",this);
         super.initialize();
-        m_currentParamString = getLocalParamString();
+        m_currentParamString = getLocalParamHash();
         if(!paramChanged()){
             // avoid multiple initialization 
             if(false)printf("initialize() - no change\n"); 
@@ -226,6 +227,14 @@ public class DistanceToPointsDataSource extends TransformableDataSource {
         return getParamString(getClass().getSimpleName(), m_aparams);
     } 
 
+    /**
+       hash of local params without transforms to be used as cache key
+     */
+    public String getLocalParamHash(){
+
+        return ParamHash.getHash(getClass().getSimpleName(), m_aparams);
+    } 
+
     protected int initPlainPoints(PointSet points){
 
         int threadCount = 8;
@@ -52,6 +52,7 @@ import abfab3d.datasources.TransformableDataSource;
 
 import abfab3d.param.SNodeParameter;
 import abfab3d.param.ParamCache;
+import abfab3d.param.ParamHash;
 import abfab3d.param.Parameter;
 import abfab3d.param.DoubleParameter;
 import abfab3d.param.ObjectParameter;
@@ -179,7 +180,7 @@ public class DistanceToSurface extends TransformableDataSource {
         super.initialize();
 
         
-        String label = getLocalParamString();
+        String label = getLocalParamHash();
         
         // try to get CachedData 
         if(m_cachingEnabled){
@@ -229,6 +230,14 @@ public class DistanceToSurface extends TransformableDataSource {
         return getParamString(getClass().getSimpleName(), m_aparams);
     } 
 
+    /**
+       hash of local params without transforms to be used as cache key
+     */
+    public String getLocalParamHash(){
+
+        return ParamHash.getHash(getClass().getSimpleName(), m_aparams);
+    } 
+
     protected PointSet getSurfacePoints(){
 
         SurfacePointsFinderDS finder = new SurfacePointsFinderDS();
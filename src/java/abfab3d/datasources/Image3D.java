@@ -32,6 +32,7 @@ import abfab3d.param.BooleanParameter;
 import abfab3d.param.DoubleParameter;
 import abfab3d.param.IntParameter;
 import abfab3d.param.ParamCache;
+import abfab3d.param.ParamHash;
 import abfab3d.param.Parameter;
 import abfab3d.param.SNodeParameter;
 import abfab3d.param.Vector3dParameter;
@@ -704,6 +705,13 @@ public class Image3D extends TransformableDataSource {
         return getParamString(getClass().getSimpleName(), m_imageParams);
     }
 
+    /**
+     * Get a hash of the data label suitable for caching.
+     */
+    public String getDataHash() {
+        return ParamHash.getHash(getClass().getSimpleName(), m_imageParams);
+    }
+
     /**
      * @noRefGuide
      */
@@ -764,7 +772,7 @@ public class Image3D extends TransformableDataSource {
                 break;
         }
 
-        String label = getDataLabel();
+        String label = getDataHash();
 
         Object co = null;
         if (CACHING_ENABLED) {
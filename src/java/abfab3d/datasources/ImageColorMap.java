@@ -20,6 +20,7 @@ import abfab3d.core.Grid2DProducer;
 import abfab3d.core.ImageProducer;
 
 import abfab3d.param.ParamCache;
+import abfab3d.param.ParamHash;
 import abfab3d.param.Parameter;
 import abfab3d.param.BooleanParameter;
 import abfab3d.param.Vector3dParameter;
@@ -252,6 +253,13 @@ public class ImageColorMap extends TransformableDataSource {
         return getParamString(getClass().getSimpleName(), m_imageParams);
     }
 
+    /**
+     * Get a hash of the data label suitable for caching.
+     */
+    public String getDataHash() {
+        return ParamHash.getHash(getClass().getSimpleName(), m_imageParams);
+    }
+
     /**
      * @noRefGuide
      */
@@ -259,7 +267,7 @@ public class ImageColorMap extends TransformableDataSource {
         super.initialize();
 
 
-        String label = getDataLabel();
+        String label = getDataHash();
 
         Object co = ParamCache.getInstance().get(label);
         if (co == null) {
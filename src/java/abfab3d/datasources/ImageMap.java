@@ -36,6 +36,7 @@ import abfab3d.param.Vector3dParameter;
 import abfab3d.param.BooleanParameter;
 import abfab3d.param.Parameter;
 import abfab3d.param.ParamCache;
+import abfab3d.param.ParamHash;
 
 import abfab3d.grid.op.ImageLoader;
 import abfab3d.grid.op.ImageToGrid2D;
@@ -389,6 +390,13 @@ public class ImageMap extends TransformableDataSource {
         return getParamString(getClass().getSimpleName(), m_imageParams);
     }
 
+    /**
+     * Get a hash of the data label suitable for caching.
+     */
+    public String getDataHash() {
+        return ParamHash.getHash(getClass().getSimpleName(), m_imageParams);
+    }
+
     /**
      * @noRefGuide
      */
@@ -463,7 +471,7 @@ public class ImageMap extends TransformableDataSource {
         }
         long t0 = System.currentTimeMillis();
 
-        String label = getDataLabel();
+        String label = getDataHash();
 
         Object co = null;
         if(CACHING_ENABLED)co = ParamCache.getInstance().get(label);
@@ -23,7 +23,12 @@ import abfab3d.param.Parameter;
 import abfab3d.param.SNode;
 import abfab3d.param.SNodeListParameter;
 import abfab3d.param.DoubleParameter;
+import abfab3d.core.BatchDataSource;
+import abfab3d.core.IntervalDataSource;
+import abfab3d.core.BatchBuffers;
+import abfab3d.core.BatchUtil;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 import abfab3d.core.DataSource;
 import abfab3d.core.Initializable;
 
@@ -37,7 +42,7 @@ import static abfab3d.core.MathUtil.blendMax;
 
    @author Vladimir Bulatov
 */ 
-public class Intersection extends TransformableDataSource implements SNode {
+public class Intersection extends TransformableDataSource implements SNode, BatchDataSource, IntervalDataSource {
     
     Vector<DataSource> dataSources = new Vector<DataSource>();
 
@@ -231,6 +236,107 @@ public class Intersection extends TransformableDataSource implements SNode {
         return ResultCodes.RESULT_OK;
     }   
 
+    /**
+     * batch version of getBaseValue() 
+     *
+     * @noRefGuide
+     */
+    public int getBaseValues(VecArray pnts, VecArray data) {
+        switch(m_dataType){
+        default:
+        case DATA_TYPE_DENSITY:
+            getDensityData(pnts, data);
+            break;
+        case DATA_TYPE_DISTANCE:
+            getDistanceData(pnts, data);
+            break;
+        }
+        return ResultCodes.RESULT_OK;        
+    }
+
+    /**
+     * batch version of getDensityData() 
+     *
+     * @noRefGuide
+     */
+    public int getDensityData(VecArray pnts, VecArray data) {
+        
+        int n = pnts.size;
+        DataSource dss[] = vDataSources;
+        int len = dss.length;
+
+        BatchBuffers bb = m_batchBuffers.get();
+        VecArray pnt1 = bb.getVecArray(0, pnts.getDimension(), n);
+        VecArray data1 = bb.getVecArray(1, data.getDimension(), n);
+        double value[] = bb.getDoubles(0, n);
+        // indices of points which have non zero density 
+        int active[] = bb.getInts(0, n);
+        for(int i = 0; i < n; i++){
+            value[i] = 1;
+            active[i] = i;
+        }
+        int activeCount = n;
+        
+        for(int k = 0; k < len && activeCount > 0; k++){
+            
+            pnt1.gather(pnts, active, activeCount);
+            BatchUtil.getDataValues(dss[k], pnt1, data1);
+            double v1[] = data1.v[0];
+            int count = 0;
+
+            for(int j = 0; j < activeCount; j++){
+                int i = active[j];
+                data.set(i, data1, j);
+                double v = v1[j];
+                if(v <= 0.){
+                    value[i] = 0;
+                } else {
+                    if(v < value[i]) value[i] = v;
+                    active[count++] = i;
+                }
+            }
+            activeCount = count;
+        }
+        System.arraycopy(value, 0, data.v[0], 0, n);
+        setResults(data, n);
+        
+        return ResultCodes.RESULT_OK;
+    }
+    
+    /**
+     * batch version of getDistanceData() 
+     *
+     * @noRefGuide
+     */
+    public int getDistanceData(VecArray pnts, VecArray data) {
+
+        int n = pnts.size;
+        int len = vDataSources.length;
+        DataSource dss[] = vDataSources;
+        
+        BatchBuffers bb = m_batchBuffers.get();
+        double value[] = bb.getDoubles(0, n);
+        for(int i = 0; i < n; i++)
+            value[i] = -Double.MAX_VALUE;
+
+        VecArray pnt1 = bb.getVecArray(0, pnts.getDimension(), n);
+        double blendWidth = m_blendWidth;
+
+        for(int k = 0; k < len; k++){
+            
+            pnt1.set(pnts);
+            BatchUtil.getDataValues(dss[k], pnt1, data);
+            double v1[] = data.v[0];
+            for(int i = 0; i < n; i++){
+                value[i] = blendMax(value[i], v1[i], blendWidth);            
+            }
+        }
+        System.arraycopy(value, 0, data.v[0], 0, n);
+        setResults(data, n);
+        
+        return ResultCodes.RESULT_OK;
+    }   
+
     /**
      * @noRefGuide
      */
@@ -243,4 +349,47 @@ public class Intersection extends TransformableDataSource implements SNode {
 
     }
     
+    /**
+     * interval version of getBaseValue() 
+     * intersection is monotone function of values of children, 
+     * therefore its interval is intersection of lower and upper bounds of children intervals 
+     *
+     * @noRefGuide
+     */
+    public int getBaseValueInterval(Vec pnt, double radius, double interval[]) {
+
+        DataSource dss[] = vDataSources;
+        int len = dss.length;
+        double lo = -Double.MAX_VALUE, hi = -Double.MAX_VALUE;
+        if(m_dataType != DATA_TYPE_DISTANCE) 
+            lo = hi = 1;
+
+        Vec pnt1 = new Vec(pnt);
+        double in[] = new double[2];
+
+        for(int i = 0; i < len; i++){
+            
+            if(!(dss[i] instanceof IntervalDataSource))
+                return ResultCodes.RESULT_ERROR;
+            pnt1.set(pnt);
+            int res = ((IntervalDataSource)dss[i]).getValueInterval(pnt1, radius, in);
+            if(res != ResultCodes.RESULT_OK)
+                return res;
+            if(m_dataType == DATA_TYPE_DISTANCE){
+                lo = blendMax(lo, in[0], m_blendWidth);
+                hi = blendMax(hi, in[1], m_blendWidth);
+            } else {
+                lo = Math.min(lo, in[0]);
+                hi = Math.min(hi, in[1]);
+            }
+        }
+        if(m_dataType != DATA_TYPE_DISTANCE){
+            lo = Math.max(lo, 0);
+            hi = Math.max(hi, 0);
+        }
+        interval[0] = lo;
+        interval[1] = hi;
+        return ResultCodes.RESULT_OK;
+    }
+
 } // class Intersection
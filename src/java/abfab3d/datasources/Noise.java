@@ -14,7 +14,9 @@ package abfab3d.datasources;
 
 import javax.vecmath.Vector3d;
 
+import abfab3d.core.BatchDataSource;
 import abfab3d.core.ResultCodes;
+import abfab3d.core.VecArray;
 import abfab3d.param.*;
 
 
@@ -31,7 +33,7 @@ import static abfab3d.core.Units.MM;
    noise value between grid nodes is smoothly interpolated from values and gradients 
    the values are periodicaly replicated to the whole space
  */
-public class Noise extends TransformableDataSource {  // Periodic noise in 3D 
+public class Noise extends TransformableDataSource implements BatchDataSource {  // Periodic noise in 3D 
 
     protected double 
         m_scaleX,
@@ -54,6 +56,7 @@ public class Noise extends TransformableDataSource {  // Periodic noise in 3D
     DoubleParameter mp_offset = new DoubleParameter("offset","offset in (result = value*factor+offset) ",0.);
     DoubleParameter mp_factor = new DoubleParameter("factor","factor in (result = value*factor+offset)",1.);
     Vector3dParameter mp_size = new Vector3dParameter("size","Physical size of grid",new Vector3d(10*MM,10*MM,10*MM));
+    IntParameter mp_tableResolution = new IntParameter("tableResolution","samples per grid cell in table of precalculated values, 0 - no table",0);
 
     Parameter m_aparam[] = new Parameter[]{
         mp_nx,
@@ -64,6 +67,16 @@ public class Noise extends TransformableDataSource {  // Periodic noise in 3D
         mp_factor,
         mp_offset,
         mp_periodic,
+        mp_tableResolution,
+    };
+
+    // params which define the noise values 
+    Parameter m_noiseParams[] = new Parameter[]{
+        mp_nx,
+        mp_ny,
+        mp_nz,
+        mp_seed,
+        mp_tableResolution,
     };
 
     public Noise(){
@@ -94,6 +107,15 @@ public class Noise extends TransformableDataSource {  // Periodic noise in 3D
         mp_size.setValue(val);
     }
 
+    /**
+       noise values are interpolated from periodic table with given count of samples per grid cell
+       interpolation error is about 0.03 for 8 samples per cell and decreases as square of samples count
+       @param val count of samples per grid cell, 0 - no table 
+     */
+    public void setTableResolution(int val) {
+        mp_tableResolution.setValue(val);
+    }
+
     public Noise(Vector3d size, int nx,int ny,int nz, double gradients[]){
         super.addParams(m_aparam);
 
@@ -138,11 +160,21 @@ public class Noise extends TransformableDataSource {  // Periodic noise in 3D
 
         int seed = mp_seed.getValue();
         
-        if(m_gradients != null)
+        if(m_gradients != null) {
             m_noise = new PerlinNoise3D(nx, ny, nz, m_gradients);
-        else 
-            m_noise = new PerlinNoise3D(nx, ny, nz, seed);
-        
+            m_noise.setTableResolution(mp_tableResolution.getValue());
+        } else {
+            // noise with table is expensive to make, it is shared by nodes with the same noise params
+            String label = ParamHash.getHash(getClass().getSimpleName(), m_noiseParams);
+            Object co = ParamCache.getInstance().get(label);
+            if(co == null){
+                m_noise = new PerlinNoise3D(nx, ny, nz, seed);
+                m_noise.setTableResolution(mp_tableResolution.getValue());
+                ParamCache.getInstance().put(label, m_noise);
+            } else {
+                m_noise = (PerlinNoise3D)co;
+            }
+        }
         
         return ResultCodes.RESULT_OK;
 
@@ -167,5 +199,20 @@ public class Noise extends TransformableDataSource {  // Periodic noise in 3D
         return ResultCodes.RESULT_OK;
     }
 
+    /**
+       batch version of getBaseValue() 
+     */
+    public int getBaseValues(VecArray pnts, VecArray data){
+
+        int n = pnts.size;
+        double px[] = pnts.v[0], py[] = pnts.v[1], pz[] = pnts.v[2], value[] = data.v[0];
+        PerlinNoise3D noise = m_noise;
+        for(int i = 0; i < n; i++){
+            value[i] = (noise.get(px[i]*m_scaleX,py[i]*m_scaleY,pz[i]*m_scaleZ)*m_factor + m_offset);
+        }
+        setResults(data, n);
+        return ResultCodes.RESULT_OK;
+    }
+
 }
 
@@ -15,12 +15,15 @@ package abfab3d.datasources;
 
 import javax.vecmath.Vector3d;
 
+import abfab3d.core.BatchDataSource;
+import abfab3d.core.IntervalDataSource;
 import abfab3d.core.ResultCodes;
 import abfab3d.param.DoubleParameter;
 import abfab3d.param.Parameter;
 import abfab3d.param.Vector3dParameter;
 import abfab3d.core.Bounds;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 
 import static abfab3d.core.Output.printf;
 
@@ -43,7 +46,7 @@ import static abfab3d.core.Units.MM;
 
  */
 
-public class Sphere extends TransformableDataSource {
+public class Sphere extends TransformableDataSource implements BatchDataSource, IntervalDataSource {
     
 
     Vector3dParameter mp_center = new Vector3dParameter("center","Center",new Vector3d(0,0,0));
@@ -206,6 +209,50 @@ public class Sphere extends TransformableDataSource {
         return ResultCodes.RESULT_OK;        
         
     }
+
+    /**
+     * batch version of getBaseValue()
+     *
+     * @noRefGuide
+     */
+    public int getBaseValues(VecArray pnts, VecArray data) {
+
+        int n = pnts.size;
+        double 
+            px[] = pnts.v[0],
+            py[] = pnts.v[1],
+            pz[] = pnts.v[2],
+            dist[] = data.v[0];
+        double cx = x0, cy = y0, cz = z0, r = R, s = sign;
+
+        for(int i = 0; i < n; i++){
+            double 
+                x = px[i] - cx,
+                y = py[i] - cy,
+                z = pz[i] - cz;
+            dist[i] = s*(Math.sqrt(x*x + y*y + z*z)-r);
+        }
+        getShapeValues(dist, pnts);
+        setResults(data, n);
+
+        return ResultCodes.RESULT_OK;        
+    }
+
+    /**
+     * interval version of getBaseValue()
+     *
+     * @noRefGuide
+     */
+    public int getBaseValueInterval(Vec pnt, double radius, double interval[]) {
+        
+        double v[] = pnt.v;
+        double 
+            x = v[0] - x0,
+            y = v[1] - y0,
+            z = v[2] - z0;
+        double dist = sign*(Math.sqrt(x*x + y*y + z*z)-R);
+        return getShapeValueInterval(dist, pnt, radius, interval);
+    }
     
 }  // class Sphere
 
@@ -22,7 +22,12 @@ import abfab3d.param.SNode;
 import abfab3d.param.SNodeParameter;
 import abfab3d.param.DoubleParameter;
 
+import abfab3d.core.BatchDataSource;
+import abfab3d.core.IntervalDataSource;
+import abfab3d.core.BatchBuffers;
+import abfab3d.core.BatchUtil;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 import abfab3d.core.DataSource;
 import abfab3d.core.Initializable;
 
@@ -46,7 +51,7 @@ import static abfab3d.core.MathUtil.blendMax;
    @author Vladimir Bulatov
 
  */
-public class Subtraction extends TransformableDataSource implements SNode {
+public class Subtraction extends TransformableDataSource implements SNode, BatchDataSource, IntervalDataSource {
     
     private DataSource m_dataSource1;
     private DataSource m_dataSource2;
@@ -171,6 +176,130 @@ public class Subtraction extends TransformableDataSource implements SNode {
     }
 
 
+    /**
+     * batch version of getBaseValue() 
+     * @noRefGuide
+     */
+    public int getBaseValues(VecArray pnts, VecArray data) {
+        switch(m_dataType){
+        default:
+        case DATA_TYPE_DENSITY:
+            getDensityValue(pnts, data);
+            break;
+        case DATA_TYPE_DISTANCE:
+            getDistanceValue(pnts, data);
+            break;
+        }
+        return ResultCodes.RESULT_OK;        
+    }
+
+    /**
+     * batch version of getDistanceValue() 
+     * @noRefGuide
+     */
+    public int getDistanceValue(VecArray pnts, VecArray data) {
+
+        int n = pnts.size;
+        BatchBuffers bb = m_batchBuffers.get();
+        VecArray p = bb.getVecArray(0, pnts.getDimension(), n);
+        p.set(pnts);
+
+        BatchUtil.getDataValues(m_dataSource1, p, data);
+        double d1[] = bb.getDoubles(0, n);
+        System.arraycopy(data.v[0], 0, d1, 0, n);
+
+        // pnts are not used after that 
+        BatchUtil.getDataValues(m_dataSource2, pnts, data);
+        double d[] = data.v[0];
+        double blend = m_blend;
+        for(int i = 0; i < n; i++){
+            d[i] = blendMax(d1[i], -d[i], blend);
+        }
+        setResults(data, n);
+        return ResultCodes.RESULT_OK;        
+        
+    }
+
+    /**
+     * batch version of getDensityValue() 
+     * @noRefGuide
+     */
+    public int getDensityValue(VecArray pnts, VecArray data) {
+        
+        int n = pnts.size;
+        BatchBuffers bb = m_batchBuffers.get();
+        VecArray p = bb.getVecArray(0, pnts.getDimension(), n);
+        p.set(pnts);
+
+        BatchUtil.getDataValues(m_dataSource1, p, data);
+
+        double d[] = data.v[0];
+        // second shape is evaluated only at points where first shape is not empty  
+        int active[] = bb.getInts(0, n);
+        int activeCount = 0;
+        for(int i = 0; i < n; i++){
+            if(d[i] <= 0.)
+                d[i] = 0.0;
+            else 
+                active[activeCount++] = i;
+        }
+        if(activeCount > 0){
+
+            p.gather(pnts, active, activeCount);
+            VecArray data2 = bb.getVecArray(1, data.getDimension(), activeCount);
+            BatchUtil.getDataValues(m_dataSource2, p, data2);
+            double d2[] = data2.v[0];
+
+            for(int j = 0; j < activeCount; j++){
+                int i = active[j];
+                double v1 = d[i];
+                data.set(i, data2, j);
+                double v2 = d2[j];
+                if(v2 >= 1.){
+                    d[i] = 0.;
+                } else {
+                    d[i] = v1*(1-v2);
+                }
+            }
+        }
+        setResults(data, n);
+        return ResultCodes.RESULT_OK;
+    }
+
+    /**
+     * interval version of getBaseValue() 
+     * subtraction is increasing function of the first value and decreasing function of the second value 
+     * @noRefGuide
+     */
+    public int getBaseValueInterval(Vec pnt, double radius, double interval[]) {
+
+        if(!(m_dataSource1 instanceof IntervalDataSource) || !(m_dataSource2 instanceof IntervalDataSource))
+            return ResultCodes.RESULT_ERROR;
+
+        double in1[] = new double[2];
+        double in2[] = new double[2];
+
+        int res = ((IntervalDataSource)m_dataSource1).getValueInterval(new Vec(pnt), radius, in1);
+        if(res != ResultCodes.RESULT_OK)
+            return res;
+        res = ((IntervalDataSource)m_dataSource2).getValueInterval(new Vec(pnt), radius, in2);
+        if(res != ResultCodes.RESULT_OK)
+            return res;
+
+        switch(m_dataType){
+        default:
+        case DATA_TYPE_DENSITY:
+            interval[0] = Math.max(0, in1[0])*Math.max(0, 1 - in2[1]);
+            interval[1] = Math.max(0, in1[1])*Math.max(0, 1 - in2[0]);
+            break;
+        case DATA_TYPE_DISTANCE:
+            interval[0] = blendMax(in1[0], -in2[1], m_blend);
+            interval[1] = blendMax(in1[1], -in2[0], m_blend);
+            break;
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
     /**
      * @override
      * @noRefGuide
@@ -41,6 +41,7 @@ import abfab3d.core.ImageProducer;
 import abfab3d.core.FontProducer;
 
 import abfab3d.param.ParamCache;
+import abfab3d.param.ParamHash;
 import abfab3d.param.BaseParameterizable;
 import abfab3d.param.ColorParameter;
 import abfab3d.param.BooleanParameter;
@@ -492,7 +493,7 @@ public class Text2D extends BaseParameterizable implements ImageProducer {
 
         if(DEBUG) printf("Text2D.initialize()\n");
 
-        String label = getParamString(getClass().getSimpleName(), m_param);
+        String label = ParamHash.getHash(getClass().getSimpleName(), m_param);
         Object co = null;
         if(CACHING_ENABLED)co = ParamCache.getInstance().get(label);
         if (co == null) {
@@ -15,12 +15,15 @@ package abfab3d.datasources;
 
 import javax.vecmath.Vector3d;
 
+import abfab3d.core.BatchDataSource;
+import abfab3d.core.IntervalDataSource;
 import abfab3d.core.ResultCodes;
 import abfab3d.param.DoubleParameter;
 import abfab3d.param.Vector3dParameter;
 import abfab3d.param.Parameter;
 import abfab3d.core.Bounds;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 
 import static abfab3d.core.MathUtil.step10;
 
@@ -37,7 +40,7 @@ import static abfab3d.core.Units.MM;
 
  */
 
-public class Torus extends TransformableDataSource {
+public class Torus extends TransformableDataSource implements BatchDataSource, IntervalDataSource {
     
     private double R, r;
     private double x0, y0, z0;
@@ -212,7 +215,25 @@ public class Torus extends TransformableDataSource {
        @noRefGuide
      */
     public final int getBaseValue(Vec pnt, Vec data) {
-        
+
+        data.v[0] = getShapeValue(getDistance(pnt), pnt);        
+        return ResultCodes.RESULT_OK;        
+    }
+
+    /**
+     * interval version of getBaseValue()
+       @noRefGuide
+     */
+    public int getBaseValueInterval(Vec pnt, double radius, double interval[]) {
+
+        return getShapeValueInterval(getDistance(pnt), pnt, radius, interval);
+    }
+
+    /**
+       signed distance from point to the torus surface 
+     */
+    final double getDistance(Vec pnt){
+
         double
                 x = pnt.v[0] - x0,
                 y = pnt.v[1] - y0,
@@ -229,8 +250,43 @@ public class Torus extends TransformableDataSource {
         double v = Math.sqrt(ppx*ppx + ppy*ppy +ppz*ppz); // dist of point to axis 
         v -= R;
         // distance to torus surface 
-        double dist = Math.sqrt(v*v + u*u) - r;
-        data.v[0] = getShapeValue(dist, pnt);        
+        return Math.sqrt(v*v + u*u) - r;
+    }
+
+    /**
+     * batch version of getBaseValue()
+       @noRefGuide
+     */
+    public int getBaseValues(VecArray pnts, VecArray data) {
+
+        int n = pnts.size;
+        double 
+            px[] = pnts.v[0],
+            py[] = pnts.v[1],
+            pz[] = pnts.v[2],
+            dist[] = data.v[0];
+        double 
+            cx = x0, cy = y0, cz = z0,
+            nx = ax, ny = ay, nz = az,
+            rout = R, rin = r;
+
+        for(int i = 0; i < n; i++){
+            double
+                x = px[i] - cx,
+                y = py[i] - cy,
+                z = pz[i] - cz;
+
+            double u =  x*nx + y*ny + z*nz; 
+            double 
+                ppx = x - u*nx,
+                ppy = y - u*ny,
+                ppz = z - u*nz;       
+
+            double v = Math.sqrt(ppx*ppx + ppy*ppy +ppz*ppz) - rout;
+            dist[i] = Math.sqrt(v*v + u*u) - rin;
+        }
+        getShapeValues(dist, pnts);
+        setResults(data, n);
         return ResultCodes.RESULT_OK;        
     }
 }  // class Torus
@@ -26,16 +26,20 @@ import abfab3d.param.Parameterizable;
 import abfab3d.param.BaseSNodeFactory;
 
 
+import abfab3d.transforms.BaseTransform;
 import abfab3d.transforms.Rotation;
 import abfab3d.transforms.Scale;
 import abfab3d.transforms.Translation;
 import abfab3d.transforms.CompositeTransform;
 import abfab3d.transforms.TransformsFactory;
 
+import abfab3d.core.BatchBuffers;
+import abfab3d.core.BatchUtil;
 import abfab3d.core.DataSource;
 import abfab3d.core.Initializable;
 import abfab3d.core.VecTransform;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 import abfab3d.core.Bounds;
 import abfab3d.core.MathUtil;
 
@@ -58,6 +62,12 @@ import static abfab3d.core.Output.printf;
    }
    
 
+   subclasses which implement BatchDataSource get getDataValues() from this class 
+   and are expected to override getBaseValues() with efficient batch calculation 
+
+   subclasses which implement IntervalDataSource get getValueInterval() from this class 
+   and are expected to override getBaseValueInterval() 
+
    @author Vladimir Bulatov
 
  */
@@ -69,6 +79,8 @@ public abstract class TransformableDataSource extends BaseParameterizable implem
     static final boolean DEBUG = false;
     // transformation which is applied to the data point before the calculation of data value
     protected VecTransform m_transform = null; 
+    // true if m_transform preserves 1-Lipschitz property of distance function 
+    protected boolean m_similarityTransform = true;
     // count of data channels 
 
     protected int m_channelsCount = 1;
@@ -88,6 +100,9 @@ public abstract class TransformableDataSource extends BaseParameterizable implem
     /** Is this datasource printable */
     protected boolean m_printable = true;
 
+    /** per thread scratch buffers of batch calculations */
+    protected ThreadLocal<BatchBuffers> m_batchBuffers = BatchBuffers.makeThreadLocal();
+
     SNodeListParameter mp_transform = new SNodeListParameter("transform", new BaseSNodeFactory(TransformsFactory.getNames(), TransformsFactory.getClassNames()));
 
     private Parameter m_aparam[] = new Parameter[]{
@@ -350,6 +365,7 @@ public abstract class TransformableDataSource extends BaseParameterizable implem
         if(m_transform != null && m_transform  instanceof Initializable){
             res = ((Initializable)m_transform).initialize();
         }
+        m_similarityTransform = BaseTransform.isSimilarity(m_transform);
 
 
         if(m_material != null){
@@ -372,6 +388,17 @@ public abstract class TransformableDataSource extends BaseParameterizable implem
         return ResultCodes.RESULT_OK;
     }
     
+    /**
+       batch version of transform(Vec) 
+     * @noRefGuide
+     */
+    protected final int transform(VecArray pnts){
+        if(m_transform != null){
+            return BatchUtil.inverse_transform(m_transform, pnts, pnts);
+        }
+        return ResultCodes.RESULT_OK;
+    }
+    
     /**
      *  @return number of channes this data source generates 
      *  
@@ -429,6 +456,26 @@ public abstract class TransformableDataSource extends BaseParameterizable implem
     }
 
 
+    /**
+       batch version of getMaterialDataValue() 
+     * @noRefGuide
+     */
+    protected int getMaterialDataValues(VecArray pnts, VecArray data){
+
+        if(m_material == null)
+            return ResultCodes.RESULT_OK;
+
+        int n = pnts.size;
+        // base values are calculated already and their buffers are free  
+        VecArray mdata = m_batchBuffers.get().getVecArray(0, m_materialChannelsCount, n);
+        BatchUtil.getDataValues(m_material, pnts, mdata);
+        int count = Math.min(m_materialChannelsCount, data.getDimension() - m_channelsCount);
+        for(int k = 0; k < count; k++){
+            System.arraycopy(mdata.v[k], 0, data.v[m_channelsCount + k], 0, n);
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
     /**
        calculates data value from base value and combines it with material 
      */
@@ -443,11 +490,70 @@ public abstract class TransformableDataSource extends BaseParameterizable implem
         return result;
     }
 
+    /**
+       batch version of getDataValue() 
+       it is used by subclasses which implement BatchDataSource
+     */
+    public int getDataValues(VecArray pnts, VecArray data) {
+        
+        transform(pnts);
+
+        int result = getBaseValues(pnts, data);
+
+        getMaterialDataValues(pnts, data);
+
+        return result;
+    }
+
+    /**
+       calculates interval of values over the ball 
+       it is used by subclasses which implement IntervalDataSource 
+     */
+    public int getValueInterval(Vec pnt, double radius, double interval[]) {
+        
+        if(!m_similarityTransform) 
+            return ResultCodes.RESULT_ERROR;
+
+        if(transform(pnt) != ResultCodes.RESULT_OK)
+            return ResultCodes.RESULT_ERROR;
+
+        return getBaseValueInterval(pnt, radius, interval);
+    }
+
+    /**
+       interval version of getBaseValue() 
+       default implementation can not estimate the interval 
+       @param pnt center of the ball in the local coordinates of the shape 
+       @param radius radius of the ball before the transform. Radius in local coordinates is radius*pnt.scaleFactor 
+     */
+    public int getBaseValueInterval(Vec pnt, double radius, double interval[]){
+        return ResultCodes.RESULT_ERROR;
+    }
+
     /**
        method to override to calculate base shape value without material mixing 
      */
     abstract public int getBaseValue(Vec pnt, Vec data);
 
+    /**
+       batch version of getBaseValue() 
+       default implementation calls getBaseValue() for each point 
+     */
+    public int getBaseValues(VecArray pnts, VecArray data){
+
+        int n = pnts.size;
+        data.size = n;
+        data.voxelSize = pnts.voxelSize;
+        Vec pnt = new Vec(pnts.getDimension());
+        Vec value = new Vec(data.getDimension());
+        for(int i = 0; i < n; i++){
+            pnts.get(i, pnt);
+            data.result[i] = getBaseValue(pnt, value);
+            data.set(i, value);
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
     //data.v[0] = 1;
     //    return 1;
     //}
@@ -474,6 +580,68 @@ public abstract class TransformableDataSource extends BaseParameterizable implem
         return result;
     }
 
+    /**
+       batch version of getShapeValue() 
+       converts first pnts.size values of the array in place 
+     */
+    protected final void getShapeValues(double value[], VecArray pnts){
+        
+        int n = pnts.size;
+        switch(m_dataType) {
+        default: 
+        case DATA_TYPE_DENSITY: 
+            {
+                double vs = pnts.voxelSize;
+                for(int i = 0; i < n; i++)
+                    value[i] = toDensity(value[i], vs);
+            }
+            break;
+        case DATA_TYPE_DISTANCE:            
+            {
+                double scale[] = pnts.scaleFactor;
+                for(int i = 0; i < n; i++)
+                    value[i] /= scale[i];
+            }
+            break;
+        }            
+    }
+
+    /**
+       interval version of getShapeValue() for shapes with 1-Lipschitz distance function 
+       @param distance distance at the center of the ball in local coordinates 
+       @param pnt center of the ball 
+       @param radius radius of the ball before the transform 
+       @param interval storage for the interval of shape values 
+     */
+    protected final int getShapeValueInterval(double distance, Vec pnt, double radius, double interval[]){
+        
+        double r = radius*pnt.scaleFactor;
+        switch(m_dataType) {
+        default: 
+        case DATA_TYPE_DENSITY: 
+            // density is decreasing function of distance 
+            interval[0] = toDensity(distance + r, pnt.voxelSize);
+            interval[1] = toDensity(distance - r, pnt.voxelSize);
+            break;
+        case DATA_TYPE_DISTANCE:            
+            interval[0] = (distance - r) / pnt.scaleFactor;
+            interval[1] = (distance + r) / pnt.scaleFactor;
+            break;
+        }            
+        return ResultCodes.RESULT_OK;
+    }
+
+    /**
+       sets size of data block and marks results of batch calculation as successful 
+     */
+    protected static final void setResults(VecArray data, int size){
+        
+        data.size = size;
+        int res[] = data.result;
+        for(int i = 0; i < size; i++)
+            res[i] = ResultCodes.RESULT_OK;
+    }
+
     /**
        convert distance into density 
      */
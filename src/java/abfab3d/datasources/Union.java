@@ -24,7 +24,12 @@ import abfab3d.param.SNode;
 import abfab3d.param.SNodeListParameter;
 import abfab3d.param.DoubleParameter;
 
+import abfab3d.core.BatchDataSource;
+import abfab3d.core.IntervalDataSource;
+import abfab3d.core.BatchBuffers;
+import abfab3d.core.BatchUtil;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 import abfab3d.core.DataSource;
 import abfab3d.core.Initializable;
 
@@ -48,7 +53,7 @@ import static abfab3d.core.MathUtil.blendMin;
 
  */
 
-public class Union  extends TransformableDataSource implements SNode {
+public class Union  extends TransformableDataSource implements SNode, BatchDataSource, IntervalDataSource {
     
     Vector<DataSource> dataSources = new Vector<DataSource>();
 
@@ -268,6 +273,152 @@ public class Union  extends TransformableDataSource implements SNode {
         return ResultCodes.RESULT_OK;
     }   
 
+    /**
+     * batch version of getBaseValue() 
+       @noRefGuide
+     */
+    public int getBaseValues(VecArray pnts, VecArray data) {
+        switch(m_dataType){
+        default:
+        case DATA_TYPE_DENSITY:
+            getDensityData(pnts, data);
+            break;
+        case DATA_TYPE_DISTANCE:
+            getDistanceData(pnts, data);
+            break;
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
+    /**
+       batch version of getDensityData() 
+       @noRefGuide
+     */
+    public int getDensityData(VecArray pnts, VecArray data) {
+
+        int n = pnts.size;
+        int len = vDataSources.length;
+        DataSource dss[] = vDataSources;
+
+        BatchBuffers bb = m_batchBuffers.get();
+        VecArray pnt1 = bb.getVecArray(0, pnts.getDimension(), n);
+        VecArray data1 = bb.getVecArray(1, data.getDimension(), n);
+        double value[] = bb.getDoubles(0, n);
+        // indices of points which have not reached max density yet 
+        int active[] = bb.getInts(0, n);
+        for(int i = 0; i < n; i++){
+            value[i] = 0;
+            active[i] = i;
+        }
+        int activeCount = n;
+
+        for(int k = 0; k < len && activeCount > 0; k++){
+
+            pnt1.gather(pnts, active, activeCount);
+            BatchUtil.getDataValues(dss[k], pnt1, data1);
+            double v1[] = data1.v[0];
+            int res[] = data1.result;
+            int count = 0;
+
+            for(int j = 0; j < activeCount; j++){
+                int i = active[j];
+                data.set(i, data1, j);
+                if(res[j] != ResultCodes.RESULT_OK){
+                    // outside of domain
+                    active[count++] = i;
+                    continue;
+                }
+                double v = v1[j];
+                if(v >= 1.){
+                    value[i] = 1;
+                } else {
+                    if(v > value[i]) value[i] = v;
+                    active[count++] = i;
+                }
+            }
+            activeCount = count;
+        }
+        System.arraycopy(value, 0, data.v[0], 0, n);
+        setResults(data, n);
+
+        return ResultCodes.RESULT_OK;
+    }
+
+    /**
+       batch version of getDistanceData() 
+       @noRefGuide
+     */
+    public int getDistanceData(VecArray pnts, VecArray data) {
+
+        int n = pnts.size;
+        int len = vDataSources.length;
+        DataSource dss[] = vDataSources;
+
+        BatchBuffers bb = m_batchBuffers.get();
+        double value[] = bb.getDoubles(0, n);
+        for(int i = 0; i < n; i++)
+            value[i] = Double.MAX_VALUE;
+
+        VecArray pnt1 = bb.getVecArray(0, pnts.getDimension(), n);
+        double blendWidth = m_blendWidth;
+
+        for(int k = 0; k < len; k++){
+
+            pnt1.set(pnts);
+            BatchUtil.getDataValues(dss[k], pnt1, data);
+            double v1[] = data.v[0];
+            for(int i = 0; i < n; i++){
+                value[i] = blendMin(value[i], v1[i], blendWidth);            
+            }
+        }
+        System.arraycopy(value, 0, data.v[0], 0, n);
+        setResults(data, n);
+
+        return ResultCodes.RESULT_OK;
+    }   
+
+    /**
+     * interval version of getBaseValue() 
+     * union is monotone function of values of children, 
+     * therefore its interval is union of lower and upper bounds of children intervals 
+       @noRefGuide
+     */
+    public int getBaseValueInterval(Vec pnt, double radius, double interval[]) {
+
+        DataSource dss[] = vDataSources;
+        int len = dss.length;
+        double lo = Double.MAX_VALUE, hi = Double.MAX_VALUE;
+        if(m_dataType != DATA_TYPE_DISTANCE) 
+            lo = hi = 0;
+
+        Vec pnt1 = new Vec(pnt);
+        double in[] = new double[2];
+
+        for(int i = 0; i < len; i++){
+            
+            if(!(dss[i] instanceof IntervalDataSource))
+                return ResultCodes.RESULT_ERROR;
+            pnt1.set(pnt);
+            int res = ((IntervalDataSource)dss[i]).getValueInterval(pnt1, radius, in);
+            if(res != ResultCodes.RESULT_OK)
+                return res;
+            if(m_dataType == DATA_TYPE_DISTANCE){
+                lo = blendMin(lo, in[0], m_blendWidth);
+                hi = blendMin(hi, in[1], m_blendWidth);
+            } else {
+                lo = Math.max(lo, in[0]);
+                hi = Math.max(hi, in[1]);
+            }
+        }
+        if(m_dataType != DATA_TYPE_DISTANCE){
+            lo = Math.min(lo, 1);
+            hi = Math.min(hi, 1);
+        }
+        interval[0] = lo;
+        interval[1] = hi;
+        return ResultCodes.RESULT_OK;
+    }
+
     /**
      * @noRefGuide
      */
@@ -13,11 +13,14 @@
 package abfab3d.datasources;
 
 
+import abfab3d.core.BatchDataSource;
 import abfab3d.core.ResultCodes;
+import abfab3d.core.VecArray;
 import abfab3d.param.DoubleParameter;
 import abfab3d.param.Parameter;
 import abfab3d.param.Vector3dParameter;
 import abfab3d.core.Vec;
+import abfab3d.util.FastTrig;
 
 
 import javax.vecmath.Vector3d;
@@ -25,7 +28,6 @@ import javax.vecmath.Vector3d;
 import static java.lang.Math.PI;
 import static java.lang.Math.abs;
 import static java.lang.Math.sin;
-import static java.lang.Math.cos;
 
 import static abfab3d.core.MathUtil.step10;
 import static abfab3d.core.Output.printf;
@@ -34,13 +36,13 @@ import static abfab3d.core.Units.MM;
 
 public class VolumePatterns {
 
-    static final boolean DEBUG = true;
+    static final boolean DEBUG = false;
     static int debugCount = 100;
 
     /**
        approximation to Gyroid 
     */
-    public static class Gyroid  extends TransformableDataSource{
+    public static class Gyroid  extends TransformableDataSource implements BatchDataSource {
         
 
         // member variables should be initialized 
@@ -143,29 +145,46 @@ public class VolumePatterns {
          * @return
          */
         public int getBaseValue(Vec pnt, Vec data){
-            double x = pnt.v[0] - m_centerX;
-            double y = pnt.v[1] - m_centerY;
-            double z = pnt.v[2] - m_centerZ;
-            
-            x *= m_factor;
-            y *= m_factor;
-            z *= m_factor;
-            
-            // gyroid 
-            double dist = abs(( sin(x)*cos(y) + sin(y)*cos(z) + sin(z) * cos(x) - m_level)/m_factor) - (m_thickness);
+
+            double dist = getDistance(pnt.v[0], pnt.v[1], pnt.v[2]);
             
             data.v[0] = getShapeValue(dist, pnt);
 
             if(DEBUG)printf("gyroid.getBaseValue: %s->%s\n", pnt.toString("%8.4f"),data.toString("%8.4f")) ;
             return ResultCodes.RESULT_OK;
         }
+
+        /**
+         * @noRefGuide
+         */
+        public int getBaseValues(VecArray pnts, VecArray data){
+
+            int n = pnts.size;
+            double px[] = pnts.v[0], py[] = pnts.v[1], pz[] = pnts.v[2], dist[] = data.v[0];
+            for(int i = 0; i < n; i++){
+                dist[i] = getDistance(px[i], py[i], pz[i]);
+            }
+            getShapeValues(dist, pnts);
+            setResults(data, n);
+            return ResultCodes.RESULT_OK;
+        }
+
+        final double getDistance(double x, double y, double z){
+
+            x = (x - m_centerX)*m_factor;
+            y = (y - m_centerY)*m_factor;
+            z = (z - m_centerZ)*m_factor;
+            
+            // gyroid 
+            return abs(( FastTrig.sin(x)*FastTrig.cos(y) + FastTrig.sin(y)*FastTrig.cos(z) + FastTrig.sin(z) * FastTrig.cos(x) - m_level)/m_factor) - (m_thickness);
+        }
         
     } // Gyroid 
 
     /**
        http://en.wikipedia.org/wiki/Lidinoid
     */
-    public static class Lidinoid extends TransformableDataSource{
+    public static class Lidinoid extends TransformableDataSource implements BatchDataSource {
 
         private double m_thickness;
         private double m_level;
@@ -214,37 +233,52 @@ public class VolumePatterns {
          */
         public int getBaseValue(Vec pnt, Vec data){
 
-            double x = pnt.v[0];
-            double y = pnt.v[1];
-            double z = pnt.v[2];
+            double dist = getDistance(pnt.v[0], pnt.v[1], pnt.v[2]);
+            
+            data.v[0] = getShapeValue(dist, pnt);
+
+            return ResultCodes.RESULT_OK;
+        }
+
+        /**
+         * @noRefGuide
+         */
+        public int getBaseValues(VecArray pnts, VecArray data){
+
+            int n = pnts.size;
+            double px[] = pnts.v[0], py[] = pnts.v[1], pz[] = pnts.v[2], dist[] = data.v[0];
+            for(int i = 0; i < n; i++){
+                dist[i] = getDistance(px[i], py[i], pz[i]);
+            }
+            getShapeValues(dist, pnts);
+            setResults(data, n);
+            return ResultCodes.RESULT_OK;
+        }
+
+        final double getDistance(double x, double y, double z){
 
             x *= m_factor;
             y *= m_factor;
             z *= m_factor;
 
             double 
-                s2x = sin(2*x),
-                s2y = sin(2*y),
-                s2z = sin(2*z),
-                c2x = cos(2*x),
-                c2y = cos(2*y),
-                c2z = cos(2*z),
-                sx = sin(x),
-                sy = sin(y),
-                sz = sin(z),
-                cx = cos(x),
-                cy = cos(y),
-                cz = cos(z);
-
-
-
-            double dist = abs(((s2x * cy * sz + s2y * cz * sx + s2z * cx * sy) -
-                            (c2x * c2y + c2y * c2z + c2z * c2x) 
-                            - m_level)/(4*m_factor))  - m_thickness;
-            
-            data.v[0] = getShapeValue(dist, pnt);
-
-            return ResultCodes.RESULT_OK;
+                sx = FastTrig.sin(x),
+                sy = FastTrig.sin(y),
+                sz = FastTrig.sin(z),
+                cx = FastTrig.cos(x),
+                cy = FastTrig.cos(y),
+                cz = FastTrig.cos(z),
+                // double angles 
+                s2x = 2*sx*cx,
+                s2y = 2*sy*cy,
+                s2z = 2*sz*cz,
+                c2x = (cx - sx)*(cx + sx),
+                c2y = (cy - sy)*(cy + sy),
+                c2z = (cz - sz)*(cz + sz);
+
+            return abs(((s2x * cy * sz + s2y * cz * sx + s2z * cx * sy) -
+                        (c2x * c2y + c2y * c2z + c2z * c2x) 
+                        - m_level)/(4*m_factor))  - m_thickness;
         }
 
     } // Lidinoid
@@ -254,7 +288,7 @@ public class VolumePatterns {
      *
      * @author Alan Hudson
      */
-    public static class SchwarzP extends TransformableDataSource{
+    public static class SchwarzP extends TransformableDataSource implements BatchDataSource {
 
 
         private double m_thickness;
@@ -304,19 +338,35 @@ public class VolumePatterns {
          */
         public int getBaseValue(Vec pnt, Vec data){
 
-            double x = pnt.v[0];
-            double y = pnt.v[1];
-            double z = pnt.v[2];
+            double dist = getDistance(pnt.v[0], pnt.v[1], pnt.v[2]);
+
+            data.v[0] = getShapeValue(dist, pnt);
+
+            return ResultCodes.RESULT_OK;
+        }
+
+        /**
+         * @noRefGuide
+         */
+        public int getBaseValues(VecArray pnts, VecArray data){
+
+            int n = pnts.size;
+            double px[] = pnts.v[0], py[] = pnts.v[1], pz[] = pnts.v[2], dist[] = data.v[0];
+            for(int i = 0; i < n; i++){
+                dist[i] = getDistance(px[i], py[i], pz[i]);
+            }
+            getShapeValues(dist, pnts);
+            setResults(data, n);
+            return ResultCodes.RESULT_OK;
+        }
+
+        final double getDistance(double x, double y, double z){
 
             x *= m_factor;
             y *= m_factor;
             z *= m_factor;
 
-            double dist = abs(cos(x) + cos(y) + cos(z)-m_level)/m_factor - m_thickness;
-
-            data.v[0] = getShapeValue(dist, pnt);
-
-            return ResultCodes.RESULT_OK;
+            return abs(FastTrig.cos(x) + FastTrig.cos(y) + FastTrig.cos(z)-m_level)/m_factor - m_thickness;
         }
     }
 
@@ -325,7 +375,7 @@ public class VolumePatterns {
      *
      * @author Alan Hudson
      */
-    public static class SchwarzD extends TransformableDataSource {
+    public static class SchwarzD extends TransformableDataSource implements BatchDataSource {
         
         double m_thickness;
         double m_level;
@@ -373,19 +423,43 @@ public class VolumePatterns {
          */
         public int getBaseValue(Vec pnt, Vec data){
 
-            double x = pnt.v[0];
-            double y = pnt.v[1];
-            double z = pnt.v[2];
+            double dist = getDistance(pnt.v[0], pnt.v[1], pnt.v[2]);
+            
+            data.v[0] = getShapeValue(dist, pnt);
+
+            return ResultCodes.RESULT_OK;
+        }
+
+        /**
+         * @noRefGuide
+         */
+        public int getBaseValues(VecArray pnts, VecArray data){
+
+            int n = pnts.size;
+            double px[] = pnts.v[0], py[] = pnts.v[1], pz[] = pnts.v[2], dist[] = data.v[0];
+            for(int i = 0; i < n; i++){
+                dist[i] = getDistance(px[i], py[i], pz[i]);
+            }
+            getShapeValues(dist, pnts);
+            setResults(data, n);
+            return ResultCodes.RESULT_OK;
+        }
+
+        final double getDistance(double x, double y, double z){
 
             x *= m_factor;
             y *= m_factor;
             z *= m_factor;
 
-            double dist = abs(sin(x) * sin(y) * sin(z) + sin(x) * cos(y) * cos(z) + cos(x) * sin(x) * cos(z) + cos(x) * cos(y) * sin(z) - m_level)/m_factor - m_thickness;
-            
-            data.v[0] = getShapeValue(dist, pnt);
-
-            return ResultCodes.RESULT_OK;
+            double 
+                sx = FastTrig.sin(x),
+                sy = FastTrig.sin(y),
+                sz = FastTrig.sin(z),
+                cx = FastTrig.cos(x),
+                cy = FastTrig.cos(y),
+                cz = FastTrig.cos(z);
+
+            return abs(sx * sy * sz + sx * cy * cz + cx * sx * cz + cx * cy * sz - m_level)/m_factor - m_thickness;
         }
     }
 
@@ -17,6 +17,9 @@ import abfab3d.core.TriangleCollector;
 import abfab3d.core.TriangleProducer;
 import abfab3d.distance.DistanceDataHalfSpace;
 import abfab3d.mesh.AreaCalculator;
+import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.SliceManager;
+import abfab3d.util.TileScheduler;
 
 
 
@@ -43,6 +46,11 @@ public class TriangleMeshSlicer {
     static final boolean DEBUG = false;
 
     static final boolean DEBUG_SLICE = false;
+    // stored triangles are kept in blocks of 2^BLOCK_BITS triangles 
+    static final int BLOCK_BITS = 12;
+    static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+    // max count of triangles stored for MT slicing, larger meshes are sliced in single thread 
+    static final int MAX_STORED_TRIS = 1 << 21;
 
     boolean m_printStat = false;
 
@@ -52,6 +60,8 @@ public class TriangleMeshSlicer {
     int m_interTriCount = 0;
     // which alg to use 
     int m_sliceVersion = 2; 
+    int m_threadCount = 0;
+    int m_maxStoredTris = MAX_STORED_TRIS;
 
     double m_minSliceArea;
     double m_maxSliceArea;
@@ -77,6 +87,13 @@ public class TriangleMeshSlicer {
     }
 
 
+    /**
+       set count of threads used to build slices, 0 - use all available processors
+     */
+    public void setThreadCount(int threadCount){
+        m_threadCount = threadCount;
+    }
+
     public int getTriCount(){
         return m_triCount;
     }
@@ -150,13 +167,18 @@ public class TriangleMeshSlicer {
             
         }                        
         */
-        TriangleSlicer triSlicer = new TriangleSlicer(m_slicingParam.sliceShift);
-
-        SlicesCalculator  sc = new SlicesCalculator(plane1,triSlicer, m_slices);
-        producer.getTriangles(sc);        
-        if(DEBUG)printf("segments: %d\n", sc.intersectCount);
-        
-        cleanUp();
+        int threads = min(m_slices.length, AbFab3DGlobals.getThreadCount(m_threadCount));
+        if(threads <= 1){
+            TriangleSlicer triSlicer = new TriangleSlicer(m_slicingParam.sliceShift);
+            
+            SlicesCalculator  sc = new SlicesCalculator(plane1,triSlicer, m_slices);
+            producer.getTriangles(sc);        
+            if(DEBUG)printf("segments: %d\n", sc.intersectCount);
+            
+            cleanUp();
+        } else {
+            makeSlicesMT(producer, plane1, threads);
+        }
 
         m_segmentsCount = calcSegmentsCount();
         
@@ -167,6 +189,30 @@ public class TriangleMeshSlicer {
 
     }
     
+    /**
+       triangles are bucketed into slices in single pass over the mesh 
+       slices are calculated and their contours are built in parallel 
+       each slice receives the segments in the same order as in single thread version 
+       if the mesh has too many triangles to store, slices are calculated in single thread 
+     */
+    private void makeSlicesMT(TriangleProducer producer, DistanceDataHalfSpace plane, int threads){
+
+        TriangleBucketer bucketer = new TriangleBucketer(plane, m_slices.length);
+        producer.getTriangles(bucketer);        
+        if(bucketer.calculator != null){
+            cleanUp();
+            return;
+        }
+
+        SliceManager manager = new SliceManager(m_slices.length, 1);
+        Runnable workers[] = new Runnable[threads];
+        for(int i = 0; i < threads; i++){
+            workers[i] = new SliceBuilder(manager, plane, bucketer);
+        }
+        TileScheduler.runWorkers(workers);
+
+    }
+
     private NumberStat calcSegmentsStat(){
 
         int count = getSliceCount();
@@ -549,6 +595,186 @@ public class TriangleMeshSlicer {
         }
     } //     class SlicesCalculator 
 
+    /**
+       class which stores incoming triangles and buckets them into slices they may intersect
+       after m_maxStoredTris triangles it passes all triangles to single thread SlicesCalculator 
+     */
+    class TriangleBucketer implements TriangleCollector {
+
+        // plane of first slice 
+        DistanceDataHalfSpace plane;
+        // blocks of coordinates, storage grows without copying the stored triangles 
+        double coord[][] = new double[16][];
+        int triCount = 0;
+        IntArray buckets[];
+        // calculator of slices used when too many triangles were stored 
+        SlicesCalculator calculator;
+
+        TriangleBucketer(DistanceDataHalfSpace plane, int sliceCount){
+
+            this.plane = plane;
+            buckets = new IntArray[sliceCount];
+            for(int i = 0; i < sliceCount; i++){
+                buckets[i] = new IntArray();
+            }
+        }
+
+        public boolean addTri(Vector3d p0,Vector3d p1,Vector3d p2){
+
+            if(calculator == null && triCount >= m_maxStoredTris)
+                startCalculator();
+            if(calculator != null)
+                return calculator.addTri(p0, p1, p2);
+
+            m_areaCalculator.addTri(p0, p1, p2);
+
+            m_triCount++;
+            double d0 = plane.getDistance(p0.x,p0.y,p0.z);
+            double d1 = plane.getDistance(p1.x,p1.y,p1.z);
+            double d2 = plane.getDistance(p2.x,p2.y,p2.z);
+
+            int sliceIndex0 = (int)floor(min3(d0,d1,d2)/m_slicingParam.sliceStep);
+            int sliceIndex1 = (int)ceil(max3(d0,d1,d2)/m_slicingParam.sliceStep);
+            if(sliceIndex0 >= buckets.length || sliceIndex1 < 0){
+                m_emptyTriCount++;
+                return true;
+            } else {
+                m_interTriCount++;
+            }
+            sliceIndex0 = min(buckets.length-1, max(0,sliceIndex0));
+            sliceIndex1 = min(buckets.length-1, max(0,sliceIndex1));
+
+            int block = triCount >> BLOCK_BITS;
+            if(block == coord.length){
+                double c[][] = new double[2*coord.length][];
+                System.arraycopy(coord, 0, c, 0, coord.length);
+                coord = c;
+            }
+            if(coord[block] == null)
+                coord[block] = new double[9 << BLOCK_BITS];
+            double c[] = coord[block];
+            int offset = 9*(triCount & BLOCK_MASK);
+            c[offset  ] = p0.x; c[offset+1] = p0.y; c[offset+2] = p0.z;
+            c[offset+3] = p1.x; c[offset+4] = p1.y; c[offset+5] = p1.z;
+            c[offset+6] = p2.x; c[offset+7] = p2.y; c[offset+8] = p2.z;
+
+            for(int i = sliceIndex0; i <= sliceIndex1; i++){
+                buckets[i].add(triCount);
+            }
+            triCount++;
+            return true;
+        }
+
+        /**
+           gets coordinates of stored triangle 
+         */
+        final void getTri(int index, Vector3d p0,Vector3d p1,Vector3d p2){
+
+            double c[] = coord[index >> BLOCK_BITS];
+            int offset = 9*(index & BLOCK_MASK);
+            p0.set(c[offset  ], c[offset+1], c[offset+2]);
+            p1.set(c[offset+3], c[offset+4], c[offset+5]);
+            p2.set(c[offset+6], c[offset+7], c[offset+8]);
+        }
+
+        /**
+           passes stored triangles to single thread calculator in the original order and releases the storage 
+           empty triangles were not stored, they add no segments 
+         */
+        void startCalculator(){
+
+            calculator = new SlicesCalculator(plane, new TriangleSlicer(m_slicingParam.sliceShift), m_slices);
+            // stored triangles are already counted 
+            AreaCalculator areaCalculator = m_areaCalculator;
+            int tcount = m_triCount, icount = m_interTriCount, ecount = m_emptyTriCount;
+            m_areaCalculator = new AreaCalculator();
+
+            Vector3d p0 = new Vector3d();
+            Vector3d p1 = new Vector3d();
+            Vector3d p2 = new Vector3d();
+            for(int t = 0; t < triCount; t++){
+                getTri(t, p0, p1, p2);
+                calculator.addTri(p0, p1, p2);
+            }
+            m_areaCalculator = areaCalculator;
+            m_triCount = tcount;
+            m_interTriCount = icount;
+            m_emptyTriCount = ecount;
+            coord = null;
+            buckets = null;
+            if(DEBUG) printf("TriangleMeshSlicer: %d triangles stored, slicing in single thread\n", triCount);
+        }
+    } // class TriangleBucketer
+
+    /**
+       MT runner which calculates slices from their buckets of triangles and builds slices contours
+     */
+    class SliceBuilder implements Runnable {
+
+        SliceManager manager;
+        DistanceDataHalfSpace plane;
+        TriangleBucketer bucketer;
+        TriangleSlicer triSlicer;
+
+        SliceBuilder(SliceManager manager, DistanceDataHalfSpace plane, TriangleBucketer bucketer){
+            this.manager = manager;
+            this.plane = plane;
+            this.bucketer = bucketer;
+            this.triSlicer = new TriangleSlicer(m_slicingParam.sliceShift);
+        }
+
+        public void run(){
+
+            Vector3d p0 = new Vector3d();
+            Vector3d p1 = new Vector3d();
+            Vector3d p2 = new Vector3d();
+            Vector3d q0 = new Vector3d();
+            Vector3d q1 = new Vector3d();
+
+            while(true){
+                abfab3d.util.Slice range = manager.getNextSlice();
+                if(range == null)
+                    break;
+                for(int i = range.smin; i < range.smax; i++){
+
+                    TileScheduler.checkCancelled();
+                    double sliceD = i*m_slicingParam.sliceStep;
+                    IntArray bucket = bucketer.buckets[i];
+                    for(int k = 0; k < bucket.size; k++){
+                        bucketer.getTri(bucket.data[k], p0, p1, p2);
+                        double d0 = plane.getDistance(p0.x,p0.y,p0.z);
+                        double d1 = plane.getDistance(p1.x,p1.y,p1.z);
+                        double d2 = plane.getDistance(p2.x,p2.y,p2.z);
+                        int res = triSlicer.getIntersection(p0, p1, p2, d0-sliceD, d1-sliceD, d2-sliceD, q0, q1);                
+                        if(res == TriangleSlicer.INTERSECT){
+                            m_slices[i].addSegment(q0, q1);
+                        }
+                    }
+                    bucketer.buckets[i] = null;
+                    m_slices[i].buildContours();
+                }
+            }
+        }
+    } // class SliceBuilder
+
+    /**
+       growable array of ints 
+     */
+    static class IntArray {
+
+        int data[] = new int[8];
+        int size = 0;
+
+        void add(int value){
+            if(size == data.length){
+                int d[] = new int[2*size];
+                System.arraycopy(data, 0, d, 0, size);
+                data = d;
+            }
+            data[size++] = value;
+        }
+    }
+
 
 
     static final double min3(double x,double y,double z){
@@ -0,0 +1,389 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.grid;
+
+// External Imports
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import abfab3d.core.Bounds;
+import abfab3d.core.Grid;
+import abfab3d.core.VoxelData;
+
+import static abfab3d.core.Output.fmt;
+import static abfab3d.core.Output.printf;
+
+/**
+ * A grid backed by memory mapped file.
+ *
+ * The grid data are stored outside of heap in a file mapped into memory by segments of 1GB.
+ * Voxels are indexed via long, so grid size is limited only by available disk space and address space.
+ * Pages of the file are loaded and flushed by OS as needed, which allows grids larger than physical memory.
+ *
+ * Attributes can be 1, 2 or 4 bytes per voxel.
+ * By default the grid uses temporary file which is deleted on close() or on exit.
+ *
+ * Voxels order is the same as in ArrayAttributeGridByte: y * sliceSize + x * depth + z
+ *
+ * Uses the X3D coordinate system.  Y-up.  Grid is located
+ * on positive right side octant.
+ */
+public class MappedAttributeGrid extends BaseAttributeGrid {
+
+    static final long serialVersionUID = 1L;
+
+    static final boolean DEBUG = false;
+
+    // log2 of segment size
+    static final int SEGMENT_BITS = 30;
+    static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    // count of bytes per voxel: 1, 2 or 4
+    protected int m_bytesPerVoxel;
+    // log2 of m_bytesPerVoxel
+    protected int m_voxelShift;
+    // mask of attribute bits
+    protected long m_attributeMask;
+
+    protected File m_file;
+    // file is temporary and should be deleted on close
+    protected boolean m_tempFile;
+    protected RandomAccessFile m_raf;
+    protected FileChannel m_channel;
+    protected MappedByteBuffer m_segments[];
+
+    /**
+     * Constructor.
+     *
+     * @param w The number of voxels in width
+     * @param h The number of voxels in height
+     * @param d The number of voxels in depth
+     * @param pixel The size of the pixels
+     * @param sheight The slice height in meters
+     * @param bytesPerVoxel count of bytes to store attribute: 1, 2 or 4
+     */
+    public MappedAttributeGrid(int w, int h, int d, double pixel, double sheight, int bytesPerVoxel) {
+        this(w,h,d,pixel,sheight,bytesPerVoxel,null,null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bounds The grid bounds in world coords
+     * @param pixel The size of the pixels
+     * @param sheight The slice height in meters
+     * @param bytesPerVoxel count of bytes to store attribute: 1, 2 or 4
+     */
+    public MappedAttributeGrid(Bounds bounds, double pixel, double sheight, int bytesPerVoxel) {
+        this(bounds, pixel, sheight, bytesPerVoxel, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bounds The grid bounds in world coords
+     * @param pixel The size of the pixels
+     * @param sheight The slice height in meters
+     * @param bytesPerVoxel count of bytes to store attribute: 1, 2 or 4
+     * @param file file to store grid data. If file is null, temporary file is used.
+     *             Existing file of matching size keeps its content and is not deleted on close
+     */
+    public MappedAttributeGrid(Bounds bounds, double pixel, double sheight, int bytesPerVoxel, File file) {
+        super(bounds, pixel, sheight);
+        allocateData(bytesPerVoxel, file);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param w The number of voxels in width
+     * @param h The number of voxels in height
+     * @param d The number of voxels in depth
+     * @param pixel The size of the pixels
+     * @param sheight The slice height in meters
+     * @param bytesPerVoxel count of bytes to store attribute: 1, 2 or 4
+     * @param file file to store grid data. If file is null, temporary file is used
+     * @param ioFunc inside outside function
+     */
+    public MappedAttributeGrid(int w, int h, int d, double pixel, double sheight, int bytesPerVoxel, File file, InsideOutsideFunc ioFunc) {
+        super(w,h,d,pixel,sheight,ioFunc);
+        allocateData(bytesPerVoxel, file);
+    }
+
+    /**
+     * Copy Constructor.
+     *
+     * @param grid The grid
+     */
+    public MappedAttributeGrid(MappedAttributeGrid grid) {
+        this(grid.getWidth(), grid.getHeight(), grid.getDepth(),
+             grid.getVoxelSize(), grid.getSliceHeight(), grid.m_bytesPerVoxel, null, grid.ioFunc);
+
+        for(int i = 0; i < m_segments.length; i++){
+            // duplicates have own positions 
+            m_segments[i].duplicate().put(grid.m_segments[i].duplicate());
+        }
+    }
+
+    protected void allocateData(int bytesPerVoxel, File file){
+
+        switch(bytesPerVoxel){
+        case 1: m_voxelShift = 0; m_attributeMask = 0xFFL; break;
+        case 2: m_voxelShift = 1; m_attributeMask = 0xFFFFL; break;
+        case 4: m_voxelShift = 2; m_attributeMask = 0xFFFFFFFFL; break;
+        default:
+            throw new IllegalArgumentException(fmt("unsupported bytesPerVoxel: %d, should be 1, 2 or 4", bytesPerVoxel));
+        }
+        m_bytesPerVoxel = bytesPerVoxel;
+
+        long dataLength = ((long)height * width * depth) << m_voxelShift;
+
+        try {
+            if(file == null){
+                m_file = File.createTempFile("abfab3d_grid_", ".dat");
+                m_file.deleteOnExit();
+                m_tempFile = true;
+            } else {
+                m_file = file;
+                m_tempFile = false;
+            }
+            m_raf = new RandomAccessFile(m_file, "rw");
+            // new space of the file is filled with zeros
+            m_raf.setLength(dataLength);
+            m_channel = m_raf.getChannel();
+
+            int segCount = (int)((dataLength + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+            m_segments = new MappedByteBuffer[segCount];
+            for(int i = 0; i < segCount; i++){
+                long pos = (long)i << SEGMENT_BITS;
+                long size = Math.min(SEGMENT_SIZE, dataLength - pos);
+                m_segments[i] = m_channel.map(FileChannel.MapMode.READ_WRITE, pos, size);
+                m_segments[i].order(ByteOrder.nativeOrder());
+            }
+            if(DEBUG)printf("MappedAttributeGrid: %s length:%d segments:%d\n", m_file, dataLength, segCount);
+        } catch(IOException e){
+            close();
+            throw new RuntimeException(fmt("failed to map grid file: %s", m_file), e);
+        }
+    }
+
+    /**
+       writes modified data to the file
+     */
+    public void flush(){
+        if(m_segments == null)
+            return;
+        for(int i = 0; i < m_segments.length; i++){
+            m_segments[i].force();
+        }
+    }
+
+    /**
+       releases the file. Temporary file is deleted.
+       The grid can not be used after close.
+       Mapped memory is released when the grid is garbage collected
+     */
+    public void close(){
+
+        try {
+            if(m_channel != null) m_channel.close();
+            if(m_raf != null) m_raf.close();
+        } catch(IOException e){
+            printf("failed to close %s: %s\n", m_file, e.getMessage());
+        }
+        m_channel = null;
+        m_raf = null;
+        m_segments = null;
+        if(m_tempFile && m_file != null)
+            m_file.delete();
+    }
+
+    /**
+       @return file which stores the grid data
+     */
+    public File getFile(){
+        return m_file;
+    }
+
+    /**
+       @return count of bytes used to store voxel attribute
+     */
+    public int getBytesPerVoxel(){
+        return m_bytesPerVoxel;
+    }
+
+    /**
+       @return encoded voxel data at given index
+     */
+    protected final long get(long index){
+
+        long pos = index << m_voxelShift;
+        MappedByteBuffer seg = m_segments[(int)(pos >>> SEGMENT_BITS)];
+        int offset = (int)(pos & SEGMENT_MASK);
+        switch(m_voxelShift){
+        case 0: return seg.get(offset) & 0xFFL;
+        case 1: return seg.getShort(offset) & 0xFFFFL;
+        default: return seg.getInt(offset) & 0xFFFFFFFFL;
+        }
+    }
+
+    /**
+       stores encoded voxel data at given index
+     */
+    protected final void set(long index, long value){
+
+        long pos = index << m_voxelShift;
+        MappedByteBuffer seg = m_segments[(int)(pos >>> SEGMENT_BITS)];
+        int offset = (int)(pos & SEGMENT_MASK);
+        switch(m_voxelShift){
+        case 0: seg.put(offset, (byte)value); break;
+        case 1: seg.putShort(offset, (short)value); break;
+        default: seg.putInt(offset, (int)value); break;
+        }
+    }
+
+    protected final long getIndex(int x, int y, int z){
+        return (long)y * sliceSize + (long)x * depth + z;
+    }
+
+    /**
+     * Create an empty grid of the specified size.  Reuses
+     * the grid type and attribute size.
+     *
+     * @param w The number of voxels in width
+     * @param h The number of voxels in height
+     * @param d The number of voxels in depth
+     * @param pixel The size of the pixels
+     * @param sheight The slice height in meters
+     */
+    public Grid createEmpty(int w, int h, int d, double pixel, double sheight) {
+        return new MappedAttributeGrid(w,h,d,pixel,sheight,m_bytesPerVoxel,null,ioFunc);
+    }
+
+    /**
+     * Get a new instance of voxel data.  Returns this grids specific sized voxel data.
+     *
+     * @return The voxel data
+     */
+    public VoxelData getVoxelData() {
+        switch(m_bytesPerVoxel){
+        case 1: return new VoxelDataByte();
+        case 2: return new VoxelDataShort();
+        default: return new VoxelDataInt();
+        }
+    }
+
+    /**
+     * Get the data of the voxel
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     */
+    public void getData(int x, int y, int z, VoxelData vd) {
+
+        long encoded = get(getIndex(x,y,z));
+        vd.setData(ioFunc.getState(encoded), ioFunc.getAttribute(encoded));
+    }
+
+    /**
+     * Get the state of the voxel.
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     */
+    public byte getState(int x, int y, int z) {
+        return ioFunc.getState(get(getIndex(x,y,z)));
+    }
+
+    /**
+     * Get the attribute of the voxel.
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     */
+    public long getAttribute(int x, int y, int z) {
+        return ioFunc.getAttribute(get(getIndex(x,y,z)));
+    }
+
+    /**
+     * Set the value of a voxel.
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     * @param state The voxel state
+     * @param attribute The attribute
+     */
+    public void setData(int x, int y, int z, byte state, long attribute) {
+        set(getIndex(x,y,z), ioFunc.combineStateAndAttribute(state, attribute) & m_attributeMask);
+    }
+
+    /**
+     * Set the attribute value of a voxel.  Leaves the state unchanged.
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     * @param attribute The attribute
+     */
+    public void setAttribute(int x, int y, int z, long attribute) {
+        long index = getIndex(x,y,z);
+        set(index, ioFunc.updateAttribute(get(index), attribute) & m_attributeMask);
+    }
+
+    /**
+     * Set the state value of a voxel.  Leaves the attribute unchanged.
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     * @param state The value
+     */
+    public void setState(int x, int y, int z, byte state) {
+        long index = getIndex(x,y,z);
+        long att = ioFunc.getAttribute(get(index));
+        set(index, ioFunc.combineStateAndAttribute(state, att) & m_attributeMask);
+    }
+
+    /**
+       fill the grid with the specified value
+     */
+    public void fill(long value){
+
+        long count = (long)height * width * depth;
+        for(long i = 0; i < count; i++){
+            set(i, value);
+        }
+    }
+
+    /**
+     * Clone the object. Clone uses new temporary file
+     */
+    public Object clone() {
+
+        MappedAttributeGrid ret_val = new MappedAttributeGrid(this);
+        BaseGrid.copyBounds(this, ret_val);
+        return ret_val;
+    }
+
+}
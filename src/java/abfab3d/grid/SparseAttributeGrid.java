@@ -0,0 +1,633 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.grid;
+
+// External Imports
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import abfab3d.core.Bounds;
+import abfab3d.core.Grid;
+import abfab3d.core.VoxelData;
+
+import static abfab3d.core.Output.fmt;
+
+/**
+ * Sparse grid made of bricks.
+ *
+ * Voxels are stored in leaves of 8x8x8 voxels. Leaves are grouped into nodes of 8x8x8 leaves (64x64x64 voxels).
+ * Leaf which has all voxels with the same value is not allocated, it is represented by a single tile value stored in the node.
+ * Node which has all voxels with the same value is not allocated either.
+ * Grids with large constant regions (like density or distance grids of solid shapes) need memory only for leaves near the surface.
+ *
+ * Writing of tile value into unallocated leaf does not allocate the leaf.
+ * Leaves and nodes are allocated atomically, so different threads may write different voxels concurrently.
+ * fill() of region and compress() should not run concurrently with writes into the same leaves.
+ *
+ * Attributes can be 1, 2 or 4 bytes per voxel.
+ *
+ * Uses the X3D coordinate system.  Y-up.  Grid is located
+ * on positive right side octant.
+ */
+public class SparseAttributeGrid extends BaseAttributeGrid {
+
+    static final long serialVersionUID = 1L;
+
+    // log2 of leaf size
+    static final int LEAF_BITS = 3;
+    static final int LEAF_SIZE = 1 << LEAF_BITS;
+    static final int LEAF_MASK = LEAF_SIZE - 1;
+    static final int LEAF_VOXELS = LEAF_SIZE*LEAF_SIZE*LEAF_SIZE;
+    // log2 of node size in leaves
+    static final int NODE_BITS = 3;
+    static final int NODE_SIZE = 1 << NODE_BITS;
+    static final int NODE_MASK = NODE_SIZE - 1;
+    static final int NODE_LEAVES = NODE_SIZE*NODE_SIZE*NODE_SIZE;
+    // log2 of node size in voxels
+    static final int NODE_VOXEL_BITS = LEAF_BITS + NODE_BITS;
+
+    // count of bytes per voxel: 1, 2 or 4
+    protected int m_bytesPerVoxel;
+    protected long m_attributeMask;
+
+    // count of nodes in each direction
+    protected int m_nodesX, m_nodesY, m_nodesZ;
+    protected AtomicReferenceArray<Node> m_nodes;
+    // values of unallocated nodes
+    protected int m_nodeValues[];
+
+    /**
+     * Constructor.
+     *
+     * @param w The number of voxels in width
+     * @param h The number of voxels in height
+     * @param d The number of voxels in depth
+     * @param pixel The size of the pixels
+     * @param sheight The slice height in meters
+     * @param bytesPerVoxel count of bytes to store attribute: 1, 2 or 4
+     */
+    public SparseAttributeGrid(int w, int h, int d, double pixel, double sheight, int bytesPerVoxel) {
+        this(w,h,d,pixel,sheight,bytesPerVoxel,null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bounds The grid bounds in world coords
+     * @param pixel The size of the pixels
+     * @param sheight The slice height in meters
+     * @param bytesPerVoxel count of bytes to store attribute: 1, 2 or 4
+     */
+    public SparseAttributeGrid(Bounds bounds, double pixel, double sheight, int bytesPerVoxel) {
+        super(bounds, pixel, sheight);
+        allocateData(bytesPerVoxel);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param w The number of voxels in width
+     * @param h The number of voxels in height
+     * @param d The number of voxels in depth
+     * @param pixel The size of the pixels
+     * @param sheight The slice height in meters
+     * @param bytesPerVoxel count of bytes to store attribute: 1, 2 or 4
+     * @param ioFunc inside outside function
+     */
+    public SparseAttributeGrid(int w, int h, int d, double pixel, double sheight, int bytesPerVoxel, InsideOutsideFunc ioFunc) {
+        super(w,h,d,pixel,sheight,ioFunc);
+        allocateData(bytesPerVoxel);
+    }
+
+    /**
+     * Copy Constructor.
+     *
+     * @param grid The grid
+     */
+    public SparseAttributeGrid(SparseAttributeGrid grid) {
+        this(grid.getWidth(), grid.getHeight(), grid.getDepth(),
+             grid.getVoxelSize(), grid.getSliceHeight(), grid.m_bytesPerVoxel, grid.ioFunc);
+
+        System.arraycopy(grid.m_nodeValues, 0, m_nodeValues, 0, m_nodeValues.length);
+        for(int i = 0; i < m_nodeValues.length; i++){
+            Node node = grid.m_nodes.get(i);
+            if(node != null)
+                m_nodes.set(i, new Node(node));
+        }
+    }
+
+    protected void allocateData(int bytesPerVoxel){
+
+        switch(bytesPerVoxel){
+        case 1: m_attributeMask = 0xFFL; break;
+        case 2: m_attributeMask = 0xFFFFL; break;
+        case 4: m_attributeMask = 0xFFFFFFFFL; break;
+        default:
+            throw new IllegalArgumentException(fmt("unsupported bytesPerVoxel: %d, should be 1, 2 or 4", bytesPerVoxel));
+        }
+        m_bytesPerVoxel = bytesPerVoxel;
+
+        m_nodesX = (width + (1 << NODE_VOXEL_BITS) - 1) >> NODE_VOXEL_BITS;
+        m_nodesY = (height + (1 << NODE_VOXEL_BITS) - 1) >> NODE_VOXEL_BITS;
+        m_nodesZ = (depth + (1 << NODE_VOXEL_BITS) - 1) >> NODE_VOXEL_BITS;
+        int count = m_nodesX*m_nodesY*m_nodesZ;
+        m_nodes = new AtomicReferenceArray<Node>(count);
+        m_nodeValues = new int[count];
+    }
+
+    /**
+       @return count of bytes used to store voxel attribute
+     */
+    public int getBytesPerVoxel(){
+        return m_bytesPerVoxel;
+    }
+
+    final int getNodeIndex(int x, int y, int z){
+        return ((y >> NODE_VOXEL_BITS)*m_nodesX + (x >> NODE_VOXEL_BITS))*m_nodesZ + (z >> NODE_VOXEL_BITS);
+    }
+
+    static final int getLeafIndex(int x, int y, int z){
+        return ((((y >> LEAF_BITS) & NODE_MASK) << NODE_BITS | ((x >> LEAF_BITS) & NODE_MASK)) << NODE_BITS) | ((z >> LEAF_BITS) & NODE_MASK);
+    }
+
+    static final int getVoxelIndex(int x, int y, int z){
+        return (((y & LEAF_MASK) << LEAF_BITS | (x & LEAF_MASK)) << LEAF_BITS) | (z & LEAF_MASK);
+    }
+
+    /**
+       @return encoded value of the voxel
+     */
+    protected final long get(int x, int y, int z){
+
+        int ni = getNodeIndex(x,y,z);
+        Node node = m_nodes.get(ni);
+        if(node == null)
+            return m_nodeValues[ni] & m_attributeMask;
+        int li = getLeafIndex(x,y,z);
+        Object leaf = node.leaves.get(li);
+        if(leaf == null)
+            return node.tiles[li] & m_attributeMask;
+        return getLeafValue(leaf, getVoxelIndex(x,y,z));
+    }
+
+    /**
+       stores encoded value of the voxel
+     */
+    protected final void set(int x, int y, int z, long value){
+
+        int ni = getNodeIndex(x,y,z);
+        Node node = m_nodes.get(ni);
+        if(node == null){
+            if(((m_nodeValues[ni] ^ value) & m_attributeMask) == 0)
+                return;
+            node = allocateNode(ni);
+        }
+        int li = getLeafIndex(x,y,z);
+        Object leaf = node.leaves.get(li);
+        if(leaf == null){
+            if(((node.tiles[li] ^ value) & m_attributeMask) == 0)
+                return;
+            leaf = allocateLeaf(node, li);
+        }
+        setLeafValue(leaf, getVoxelIndex(x,y,z), value);
+    }
+
+    final long getLeafValue(Object leaf, int index){
+        switch(m_bytesPerVoxel){
+        case 1: return ((byte[])leaf)[index] & 0xFFL;
+        case 2: return ((short[])leaf)[index] & 0xFFFFL;
+        default: return ((int[])leaf)[index] & 0xFFFFFFFFL;
+        }
+    }
+
+    final void setLeafValue(Object leaf, int index, long value){
+        switch(m_bytesPerVoxel){
+        case 1: ((byte[])leaf)[index] = (byte)value; break;
+        case 2: ((short[])leaf)[index] = (short)value; break;
+        default: ((int[])leaf)[index] = (int)value; break;
+        }
+    }
+
+    /**
+       atomically allocates node filled with its current value
+     */
+    final Node allocateNode(int ni){
+
+        Node node = new Node(m_nodeValues[ni]);
+        if(m_nodes.compareAndSet(ni, null, node))
+            return node;
+        // other thread was first
+        return m_nodes.get(ni);
+    }
+
+    /**
+       atomically allocates leaf filled with the tile value
+     */
+    final Object allocateLeaf(Node node, int li){
+
+        Object leaf = makeLeaf(node.tiles[li]);
+        if(node.leaves.compareAndSet(li, null, leaf))
+            return leaf;
+        // other thread was first
+        return node.leaves.get(li);
+    }
+
+    final Object makeLeaf(int value){
+        switch(m_bytesPerVoxel){
+        case 1: { byte a[] = new byte[LEAF_VOXELS]; Arrays.fill(a, (byte)value); return a; }
+        case 2: { short a[] = new short[LEAF_VOXELS]; Arrays.fill(a, (short)value); return a; }
+        default: { int a[] = new int[LEAF_VOXELS]; Arrays.fill(a, value); return a; }
+        }
+    }
+
+    /**
+       @return true if all voxels of the leaf have the same value
+     */
+    final boolean isLeafConstant(Object leaf){
+
+        switch(m_bytesPerVoxel){
+        case 1: { byte a[] = (byte[])leaf; byte v = a[0]; for(int i = 1; i < a.length; i++) if(a[i] != v) return false; return true; }
+        case 2: { short a[] = (short[])leaf; short v = a[0]; for(int i = 1; i < a.length; i++) if(a[i] != v) return false; return true; }
+        default: { int a[] = (int[])leaf; int v = a[0]; for(int i = 1; i < a.length; i++) if(a[i] != v) return false; return true; }
+        }
+    }
+
+    /**
+       replaces leaves and nodes which have all voxels with the same value by single value
+       It should be called after all writes are completed
+     */
+    public void compress(){
+
+        for(int ni = 0; ni < m_nodeValues.length; ni++){
+            Node node = m_nodes.get(ni);
+            if(node == null)
+                continue;
+            boolean nodeConstant = true;
+            for(int li = 0; li < NODE_LEAVES; li++){
+                Object leaf = node.leaves.get(li);
+                if(leaf != null){
+                    if(isLeafConstant(leaf)){
+                        node.tiles[li] = (int)getLeafValue(leaf, 0);
+                        node.leaves.set(li, null);
+                    } else {
+                        nodeConstant = false;
+                    }
+                }
+                if(nodeConstant && node.tiles[li] != node.tiles[0])
+                    nodeConstant = false;
+            }
+            if(nodeConstant){
+                m_nodeValues[ni] = node.tiles[0];
+                m_nodes.set(ni, null);
+            }
+        }
+    }
+
+    /**
+       @return count of allocated leaves
+     */
+    public int getLeafCount(){
+
+        int count = 0;
+        for(int ni = 0; ni < m_nodeValues.length; ni++){
+            Node node = m_nodes.get(ni);
+            if(node == null)
+                continue;
+            for(int li = 0; li < NODE_LEAVES; li++){
+                if(node.leaves.get(li) != null)
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+       @return approximate size of allocated data in bytes
+     */
+    public long getDataSize(){
+
+        long size = 4L*m_nodeValues.length + 8L*m_nodeValues.length;
+        for(int ni = 0; ni < m_nodeValues.length; ni++){
+            if(m_nodes.get(ni) != null)
+                size += 12L*NODE_LEAVES;
+        }
+        return size + (long)getLeafCount()*LEAF_VOXELS*m_bytesPerVoxel;
+    }
+
+    /**
+       fill the grid with the specified value
+     */
+    public void fill(long value){
+
+        int v = (int)(value & m_attributeMask);
+        for(int ni = 0; ni < m_nodeValues.length; ni++){
+            m_nodes.set(ni, null);
+            m_nodeValues[ni] = v;
+        }
+    }
+
+    /**
+       fills region of the grid with the specified value.
+       Whole leaves inside of the region are replaced by tiles
+       @param xmin min x coordinate (inclusive)
+       @param xmax max x coordinate (inclusive)
+       @param ymin min y coordinate (inclusive)
+       @param ymax max y coordinate (inclusive)
+       @param zmin min z coordinate (inclusive)
+       @param zmax max z coordinate (inclusive)
+       @param value value to fill
+     */
+    public void fill(int xmin, int xmax, int ymin, int ymax, int zmin, int zmax, long value){
+
+        long attValue = value & m_attributeMask;
+        // iterate over leaves
+        for(int ly = ymin >> LEAF_BITS; ly <= (ymax >> LEAF_BITS); ly++){
+            int y0 = Math.max(ymin, ly << LEAF_BITS), y1 = Math.min(ymax, (ly << LEAF_BITS) + LEAF_MASK);
+            for(int lx = xmin >> LEAF_BITS; lx <= (xmax >> LEAF_BITS); lx++){
+                int x0 = Math.max(xmin, lx << LEAF_BITS), x1 = Math.min(xmax, (lx << LEAF_BITS) + LEAF_MASK);
+                for(int lz = zmin >> LEAF_BITS; lz <= (zmax >> LEAF_BITS); lz++){
+                    int z0 = Math.max(zmin, lz << LEAF_BITS), z1 = Math.min(zmax, (lz << LEAF_BITS) + LEAF_MASK);
+                    if(y1 - y0 == LEAF_MASK && x1 - x0 == LEAF_MASK && z1 - z0 == LEAF_MASK){
+                        fillLeaf(x0, y0, z0, attValue);
+                    } else {
+                        for(int y = y0; y <= y1; y++)
+                            for(int x = x0; x <= x1; x++)
+                                for(int z = z0; z <= z1; z++)
+                                    set(x, y, z, attValue);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+       sets attribute of voxels in the region
+       Whole leaves inside of the region are replaced by tiles if attribute does not depend on the voxel state
+     */
+    public void fillAttribute(int xmin, int xmax, int ymin, int ymax, int zmin, int zmax, long attribute){
+
+        if(ioFunc instanceof DefaultInsideOutsideFunc){
+            fill(xmin, xmax, ymin, ymax, zmin, zmax, attribute);
+        } else {
+            for(int y = ymin; y <= ymax; y++)
+                for(int x = xmin; x <= xmax; x++)
+                    for(int z = zmin; z <= zmax; z++)
+                        setAttribute(x, y, z, attribute);
+        }
+    }
+
+    /**
+       replaces whole leaf containing voxel (x,y,z) by tile
+     */
+    final void fillLeaf(int x, int y, int z, long value){
+
+        int ni = getNodeIndex(x,y,z);
+        Node node = m_nodes.get(ni);
+        if(node == null){
+            if(m_nodeValues[ni] == (int)value)
+                return;
+            node = allocateNode(ni);
+        }
+        int li = getLeafIndex(x,y,z);
+        node.tiles[li] = (int)value;
+        node.leaves.set(li, null);
+    }
+
+    /**
+       checks if region of the grid has the same value
+       The check uses tiles and nodes values, it does not scan allocated leaves,
+       so it may return false for constant region of allocated leaves.
+       Region has to be inside of the grid
+       @param value storage for the value of constant region
+       @return true if all voxels of the region are known to have the same value
+     */
+    public boolean isConstant(int xmin, int xmax, int ymin, int ymax, int zmin, int zmax, long value[]){
+
+        boolean first = true;
+        long v0 = 0;
+        for(int ly = ymin >> LEAF_BITS; ly <= (ymax >> LEAF_BITS); ly++){
+            for(int lx = xmin >> LEAF_BITS; lx <= (xmax >> LEAF_BITS); lx++){
+                for(int lz = zmin >> LEAF_BITS; lz <= (zmax >> LEAF_BITS); lz++){
+                    int x = lx << LEAF_BITS, y = ly << LEAF_BITS, z = lz << LEAF_BITS;
+                    int ni = getNodeIndex(x,y,z);
+                    Node node = m_nodes.get(ni);
+                    long v;
+                    if(node == null){
+                        v = m_nodeValues[ni];
+                    } else {
+                        int li = getLeafIndex(x,y,z);
+                        if(node.leaves.get(li) != null)
+                            return false;
+                        v = node.tiles[li];
+                    }
+                    if(first){
+                        v0 = v;
+                        first = false;
+                    } else if(v != v0){
+                        return false;
+                    }
+                }
+            }
+        }
+        value[0] = v0 & m_attributeMask;
+        return true;
+    }
+
+    /**
+     * Create an empty grid of the specified size.  Reuses
+     * the grid type and attribute size.
+     *
+     * @param w The number of voxels in width
+     * @param h The number of voxels in height
+     * @param d The number of voxels in depth
+     * @param pixel The size of the pixels
+     * @param sheight The slice height in meters
+     */
+    public Grid createEmpty(int w, int h, int d, double pixel, double sheight) {
+        return new SparseAttributeGrid(w,h,d,pixel,sheight,m_bytesPerVoxel,ioFunc);
+    }
+
+    /**
+     * Get a new instance of voxel data.  Returns this grids specific sized voxel data.
+     *
+     * @return The voxel data
+     */
+    public VoxelData getVoxelData() {
+        switch(m_bytesPerVoxel){
+        case 1: return new VoxelDataByte();
+        case 2: return new VoxelDataShort();
+        default: return new VoxelDataInt();
+        }
+    }
+
+    /**
+     * Get the data of the voxel
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     */
+    public void getData(int x, int y, int z, VoxelData vd) {
+
+        long encoded = get(x,y,z);
+        vd.setData(ioFunc.getState(encoded), ioFunc.getAttribute(encoded));
+    }
+
+    /**
+     * Get the state of the voxel.
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     */
+    public byte getState(int x, int y, int z) {
+        return ioFunc.getState(get(x,y,z));
+    }
+
+    /**
+     * Get the attribute of the voxel.
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     */
+    public long getAttribute(int x, int y, int z) {
+        return ioFunc.getAttribute(get(x,y,z));
+    }
+
+    /**
+     * Set the value of a voxel.
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     * @param state The voxel state
+     * @param attribute The attribute
+     */
+    public void setData(int x, int y, int z, byte state, long attribute) {
+        set(x,y,z, ioFunc.combineStateAndAttribute(state, attribute) & m_attributeMask);
+    }
+
+    /**
+     * Set the attribute value of a voxel.  Leaves the state unchanged.
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     * @param attribute The attribute
+     */
+    public void setAttribute(int x, int y, int z, long attribute) {
+        set(x,y,z, ioFunc.updateAttribute(get(x,y,z), attribute) & m_attributeMask);
+    }
+
+    /**
+     * Set the state value of a voxel.  Leaves the attribute unchanged.
+     *
+     * @param x The x grid coordinate
+     * @param y The y grid coordinate
+     * @param z The z grid coordinate
+     * @param state The value
+     */
+    public void setState(int x, int y, int z, byte state) {
+        long att = ioFunc.getAttribute(get(x,y,z));
+        set(x,y,z, ioFunc.combineStateAndAttribute(state, att) & m_attributeMask);
+    }
+
+    /**
+     * Clone the object.
+     */
+    public Object clone() {
+
+        SparseAttributeGrid ret_val = new SparseAttributeGrid(this);
+        BaseGrid.copyBounds(this, ret_val);
+        return ret_val;
+    }
+
+    /**
+       @return new accessor for fast reading of neighbor voxels
+     */
+    public Accessor getAccessor(){
+        return new Accessor();
+    }
+
+    /**
+       reads voxels with caching of the last used leaf.
+       It makes access to neighbor voxels as fast as to the dense array.
+       Accessor is not thread safe, each thread should use its own accessor.
+       Accessor should not be used while the grid is modified
+     */
+    public class Accessor {
+
+        // origin of cached leaf
+        int cx = -1, cy = -1, cz = -1;
+        // cached leaf or null for tile
+        Object cleaf;
+        // value of cached tile
+        long cvalue;
+
+        /**
+           @return attribute of the voxel
+         */
+        public long getAttribute(int x, int y, int z){
+
+            int lx = x & ~LEAF_MASK, ly = y & ~LEAF_MASK, lz = z & ~LEAF_MASK;
+            if(lx != cx || ly != cy || lz != cz){
+                cx = lx; cy = ly; cz = lz;
+                int ni = getNodeIndex(x,y,z);
+                Node node = m_nodes.get(ni);
+                if(node == null){
+                    cleaf = null;
+                    cvalue = m_nodeValues[ni] & m_attributeMask;
+                } else {
+                    int li = getLeafIndex(x,y,z);
+                    cleaf = node.leaves.get(li);
+                    cvalue = node.tiles[li] & m_attributeMask;
+                }
+            }
+            if(cleaf == null)
+                return ioFunc.getAttribute(cvalue);
+            return ioFunc.getAttribute(getLeafValue(cleaf, getVoxelIndex(x,y,z)));
+        }
+    } // class Accessor
+
+    /**
+       node of 8x8x8 leaves
+     */
+    static class Node {
+
+        // leaves as byte[], short[] or int[], null for tiles
+        AtomicReferenceArray<Object> leaves;
+        // values of tiles
+        int tiles[];
+
+        Node(int value){
+            leaves = new AtomicReferenceArray<Object>(NODE_LEAVES);
+            tiles = new int[NODE_LEAVES];
+            Arrays.fill(tiles, value);
+        }
+
+        Node(Node node){
+            leaves = new AtomicReferenceArray<Object>(NODE_LEAVES);
+            tiles = node.tiles.clone();
+            for(int i = 0; i < NODE_LEAVES; i++){
+                Object leaf = node.leaves.get(i);
+                if(leaf instanceof byte[]) leaf = ((byte[])leaf).clone();
+                else if(leaf instanceof short[]) leaf = ((short[])leaf).clone();
+                else if(leaf instanceof int[]) leaf = ((int[])leaf).clone();
+                leaves.set(i, leaf);
+            }
+        }
+    } // class Node
+
+}
@@ -13,11 +13,6 @@
 
 package abfab3d.grid.op;
 
-
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors; 
-import java.util.concurrent.TimeUnit;
-
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.Math.abs;
@@ -28,6 +23,7 @@ import abfab3d.core.Grid2D;
 import abfab3d.core.Bounds;
 import abfab3d.util.SliceManager;
 import abfab3d.util.Slice;
+import abfab3d.util.TileScheduler;
 import abfab3d.core.DataSource;
 
 import static abfab3d.core.Output.printf;
@@ -297,19 +293,13 @@ public class ClosestPointIndexerMT {
         
         //if(DEBUG) printf("threads: %d slices: %d \n", threadCount, slicer.getSliceCount());
 
-        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        Runnable workers[] = new Runnable[threadCount];
         
         for(int i = 0; i < threadCount; i++){
             SliceProcessorSweeper sliceProcessor = new SliceProcessorSweeper(i, direction, slicer,coordx,coordy,coordz, maxDistance, indexGrid);
-            executor.submit(sliceProcessor);
-        }
-        executor.shutdown();
-        
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = sliceProcessor;
         }
+        TileScheduler.runWorkers(workers);
                 
         if(DEBUG_TIMING) printf("DT3sweep_MT(%d) done %d ms\n", direction, (time() - t0));
 
@@ -412,19 +402,13 @@ public class ClosestPointIndexerMT {
         SliceManager slicer = new SliceManager(grid1.getHeight(),sliceThickness);        
         //if(DEBUG) printf("threads: %d slices: %d \n", threadCount, slicer.getSliceCount());
         
-        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        Runnable workers[] = new Runnable[threadCount];
         
         for(int i = 0; i < threadCount; i++){
             SliceProcessorCombine sliceProcessor = new SliceProcessorCombine(i, slicer, grid1, grid2, pntx, pnty, pntz);
-            executor.submit(sliceProcessor);
-        }
-        executor.shutdown();
-        
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = sliceProcessor;
         }
+        TileScheduler.runWorkers(workers);
                 
     }
 
@@ -456,21 +440,15 @@ public class ClosestPointIndexerMT {
         
         if(DEBUG) printf("threads: %d slices: %d \n", threadCount, slicer.getSliceCount());
         
-        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        Runnable workers[] = new Runnable[threadCount];
         
         for(int i = 0; i < threadCount; i++){
             SliceProcessorDistance sliceProcessor = new SliceProcessorDistance(i, slicer,
                                                                                indexGrid, pntx, pnty, pntz, 
                                                                                interiorGrid, distanceGrid, minDistance,maxDistance);
-            executor.submit(sliceProcessor);
-        }
-        executor.shutdown();
-        
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = sliceProcessor;
         }
+        TileScheduler.runWorkers(workers);
         
         //if(DEBUG_TIMING) printf("makeDistanceGrid_MT() done %d ms\n", (time() - t0));
 
@@ -495,19 +473,13 @@ public class ClosestPointIndexerMT {
         
         if(DEBUG) printf("threads: %d slices: %d \n", threadCount, slicer.getSliceCount());
         
-        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        Runnable workers[] = new Runnable[threadCount];
         
         for(int ind = 0; ind < threadCount; ind++){
             SliceProcessorAttributedDistance sliceProcessor = new SliceProcessorAttributedDistance(ind, slicer,indexGrid, pnts, interiorGrid, minDistance,maxDistance, attColorizer, outGrid);
-            executor.submit(sliceProcessor);
-        }
-        executor.shutdown();
-        
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[ind] = sliceProcessor;
         }
+        TileScheduler.runWorkers(workers);
         if(DEBUG) printf("makeAttributedDistanceGrid_MT() done\n");
         
     }
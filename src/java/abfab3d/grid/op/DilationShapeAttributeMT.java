@@ -20,10 +20,8 @@ import abfab3d.core.VoxelClasses;
 import abfab3d.core.VoxelData;
 import abfab3d.grid.*;
 import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.TileScheduler;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static abfab3d.core.Grid.OUTSIDE;
@@ -143,19 +141,13 @@ public class DilationShapeAttributeMT implements Operation, AttributeOperation {
 
         m_slicesIdx = new AtomicInteger(0);
 
-        ExecutorService executor = Executors.newFixedThreadPool(m_threadCount);
+        Runnable workers[] = new Runnable[m_threadCount];
         for(int i = 0; i < m_threadCount; i++){
 
             Runnable runner = new SurfaceFinderRunner(grid, surface);
-            executor.submit(runner);
-        }
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = runner;
         }
+        TileScheduler.runWorkers(workers);
         
         printf("surface: %d ms\n", (time()-t0));
         t0 = time();
@@ -175,19 +167,13 @@ public class DilationShapeAttributeMT implements Operation, AttributeOperation {
 
         m_dsIdx = new AtomicInteger(0);
 
-        executor = Executors.newFixedThreadPool(m_threadCount);
+        workers = new Runnable[m_threadCount];
         for(int i = 0; i < m_threadCount; i++){
 
             Runnable runner = new ShapeDilaterRunner(surface, grid, m_voxelShape, m_voxelChecker);
-            executor.submit(runner);
-        }
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = runner;
         }
+        TileScheduler.runWorkers(workers);
         
 
         printf("dilation: %d ms\n", (time()-t0));
@@ -199,10 +185,11 @@ public class DilationShapeAttributeMT implements Operation, AttributeOperation {
 
     
     Slice getNextSlice(){
-        if(m_slicesIdx.intValue() >= m_slices.length)
+        int idx = m_slicesIdx.getAndIncrement();
+        if(idx >= m_slices.length)
             return null;
         
-        return m_slices[m_slicesIdx.getAndIncrement()];
+        return m_slices[idx];
         
     }
     
@@ -213,10 +200,13 @@ public class DilationShapeAttributeMT implements Operation, AttributeOperation {
 
     int getNextDilationSlice(Slice slice){
         
-        if(m_dsIdx.intValue() >= m_dilationSlices.length)
+        int idx = m_dsIdx.getAndIncrement();
+        if(idx >= m_dilationSlices.length)
             return RESULT_EMPTY;
 
-        Slice s = m_dilationSlices[m_dsIdx.getAndIncrement()];
+        Slice s = m_dilationSlices[idx];
+        if(s == null) // unused tail of slices array 
+            return RESULT_EMPTY;
 
         slice.ymin = s.ymin;
         slice.ymax = s.ymax;
@@ -12,10 +12,6 @@
 
 package abfab3d.grid.op;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors; 
-import java.util.concurrent.TimeUnit;
-
 import java.util.concurrent.atomic.AtomicInteger;
 
 import abfab3d.core.AttributeGrid;
@@ -25,6 +21,7 @@ import abfab3d.core.ResultCodes;
 import abfab3d.core.VoxelClasses;
 import abfab3d.grid.*;
 import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.TileScheduler;
 
 import static abfab3d.core.Output.printf;
 import static abfab3d.core.Output.time;
@@ -132,19 +129,13 @@ public class DilationShapeMT implements Operation, AttributeOperation {
 
         m_slicesIdx = new AtomicInteger(0);
 
-        ExecutorService executor = Executors.newFixedThreadPool(m_threadCount);
+        Runnable workers[] = new Runnable[m_threadCount];
         for(int i = 0; i < m_threadCount; i++){
 
             Runnable runner = new SurfaceFinderRunner(grid, surface);
-            executor.submit(runner);
-        }
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = runner;
         }
+        TileScheduler.runWorkers(workers);
 
         printf("surface: %d ms\n", (time()-t0));
         if (STATS) {
@@ -167,19 +158,13 @@ public class DilationShapeMT implements Operation, AttributeOperation {
 
         m_dsIdx = new AtomicInteger(0);
 
-        executor = Executors.newFixedThreadPool(m_threadCount);
+        workers = new Runnable[m_threadCount];
         for(int i = 0; i < m_threadCount; i++){
 
             Runnable runner = new ShapeDilaterRunner(surface, grid, m_voxelShape, m_voxelChecker);
-            executor.submit(runner);
-        }
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = runner;
         }
+        TileScheduler.runWorkers(workers);
 
 
         printf("dilation: %d ms\n", (time()-t0));
@@ -223,19 +208,13 @@ public class DilationShapeMT implements Operation, AttributeOperation {
 
         m_slicesIdx = new AtomicInteger(0);
 
-        ExecutorService executor = Executors.newFixedThreadPool(m_threadCount);
+        Runnable workers[] = new Runnable[m_threadCount];
         for(int i = 0; i < m_threadCount; i++){
 
             Runnable runner = new SurfaceFinderRunner(grid, surface);
-            executor.submit(runner);
-        }
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = runner;
         }
+        TileScheduler.runWorkers(workers);
         
         printf("surface: %d ms\n", (time()-t0));
         if (STATS) {
@@ -258,19 +237,13 @@ public class DilationShapeMT implements Operation, AttributeOperation {
 
         m_dsIdx = new AtomicInteger(0);
 
-        executor = Executors.newFixedThreadPool(m_threadCount);
+        workers = new Runnable[m_threadCount];
         for(int i = 0; i < m_threadCount; i++){
 
             Runnable runner = new ShapeDilaterRunner(surface, grid, m_voxelShape, m_voxelChecker);
-            executor.submit(runner);
-        }
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = runner;
         }
+        TileScheduler.runWorkers(workers);
         
 
         printf("dilation: %d ms\n", (time()-t0));
@@ -282,10 +255,11 @@ public class DilationShapeMT implements Operation, AttributeOperation {
 
     
     Slice getNextSlice(){
-        if(m_slicesIdx.intValue() >= m_slices.length)
+        int idx = m_slicesIdx.getAndIncrement();
+        if(idx >= m_slices.length)
             return null;
         
-        return m_slices[m_slicesIdx.getAndIncrement()];
+        return m_slices[idx];
         
     }
     
@@ -296,10 +270,13 @@ public class DilationShapeMT implements Operation, AttributeOperation {
 
     int getNextDilationSlice(Slice slice){
 
-        if(m_dsIdx.intValue() >= m_dilationSlices.length)
+        int idx = m_dsIdx.getAndIncrement();
+        if(idx >= m_dilationSlices.length)
             return RESULT_EMPTY;
 
-        Slice s = m_dilationSlices[m_dsIdx.getAndIncrement()];
+        Slice s = m_dilationSlices[idx];
+        if(s == null) // unused tail of slices array 
+            return RESULT_EMPTY;
 
         slice.ymin = s.ymin;
         slice.ymax = s.ymax;
@@ -16,7 +16,7 @@ import abfab3d.core.Grid;
 import abfab3d.core.AttributeGrid;
 import abfab3d.grid.Operation;
 import abfab3d.grid.AttributeOperation;
-import abfab3d.grid.util.ExecutionStoppedException;
+import abfab3d.util.TileScheduler;
 
 import static abfab3d.core.Output.printf;
 import static abfab3d.core.Output.fmt;
@@ -225,9 +225,7 @@ public class DistanceTransformExact extends DistanceTransform implements Operati
                 }
             }
 
-            if (Thread.currentThread().isInterrupted()) {
-                throw new ExecutionStoppedException();
-            }
+            TileScheduler.checkCancelled();
         }
     }
 
@@ -22,11 +22,11 @@ import abfab3d.core.AttributeGrid;
 import abfab3d.core.Grid;
 import abfab3d.grid.*;
 
-import abfab3d.grid.util.ExecutionStoppedException;
 
 import abfab3d.util.AbFab3DGlobals;
 import abfab3d.util.PointSet;
 import abfab3d.util.PointSetArray;
+import abfab3d.util.TileScheduler;
 import abfab3d.core.MathUtil;
 
 
@@ -361,9 +361,7 @@ public class DistanceTransformLayered extends DistanceTransform implements Opera
                 }
             }
 
-            if (Thread.currentThread().isInterrupted()) {
-                throw new ExecutionStoppedException();
-            }
+            TileScheduler.checkCancelled();
         }
         if(false)printf("slice [%3d x %3d] surface point count: %d\n",ymin, ymax,(pnts.size()-count0));
 
@@ -18,7 +18,7 @@ import abfab3d.grid.Operation;
 import abfab3d.grid.AttributeOperation;
 import abfab3d.grid.GridMask;
 import abfab3d.grid.GridBit;
-import abfab3d.grid.util.ExecutionStoppedException;
+import abfab3d.util.TileScheduler;
 
 import static abfab3d.core.Output.printf;
 import static abfab3d.core.Output.fmt;
@@ -184,9 +184,7 @@ public class DistanceTransformMultiStep  extends DistanceTransform implements Op
             if(k+1 < m_inSteps)
                 boundary.clear();
 
-            if (Thread.currentThread().isInterrupted()) {
-                throw new ExecutionStoppedException();
-            }
+            TileScheduler.checkCancelled();
         }     
         return distanceGrid;
 
@@ -0,0 +1,544 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.grid.op;
+
+import java.util.Arrays;
+
+import abfab3d.core.AttributeGrid;
+import abfab3d.core.Grid;
+import abfab3d.grid.Operation;
+import abfab3d.grid.AttributeOperation;
+
+import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.Slice;
+import abfab3d.util.SliceManager;
+import abfab3d.util.TileScheduler;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.fmt;
+import static abfab3d.core.Output.time;
+import static abfab3d.core.Units.MM;
+
+import static java.lang.Math.sqrt;
+import static java.lang.Math.round;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+
+ calculates Distance Transform on the given AttributeGrid to a specified distance inside and outside of shape
+
+ input and output conventions are the same as in DistanceTransformLayered
+ outside voxels of input grid should have values 0
+ inside voxels should have values subvoxelResolution
+ the surface of the shape is isosurface with value ((double)subvoxelResolution/2.)
+
+ output distances are normalized to subvoxelResolution, inside distances are negative
+ inside voxels farther than maxInDistance are initialized to m_defaultInValue
+ outside voxels farther than maxOutDistance are initialized to m_defaultOutValue
+
+ algorithm works as follows
+ - voxels adjacent to isosurface (seeds) get squared distance to the local plane of isosurface
+   estimated from linear crossings of isosurface with grid edges
+ - all other voxels get infinite value
+ - exact squared euclidean distance transform of that function is calculated
+   as 3 passes of 1D lower envelope of parabolas (Felzenszwalb and Huttenlocher) along x, y and z
+   index of the closest seed is carried along with the distance
+ - final distance is calculated to the surface points (point on the local plane and edge crossings)
+   of the closest seeds of the voxel and its 26 neighbors, this corrects errors of the seed selection
+ - voxels which are certainly outside of distance range get default values without search
+ - each pass processes independent rows in parallel
+
+ running time is linear in the number of voxels and does not depend on distance range
+ accuracy is similar to DistanceTransformLayered
+ */
+public class DistanceTransformSeparable extends DistanceTransform implements Operation, AttributeOperation {
+
+    public static boolean DEBUG = false;
+    public static boolean DEBUG_TIMING = false;
+
+    static final float INF = Float.MAX_VALUE;
+    // size of per thread cache of seeds surface points
+    static final int CACHE_SIZE = 1 << 12;
+    static final int MAX_SEED_POINTS = 4;
+
+    long m_defaultInValue = -Short.MAX_VALUE;
+    long m_defaultOutValue = Short.MAX_VALUE;
+
+    int nx, ny, nz;
+    // number of threads to use in MT processing
+    int m_threadCount = 1;
+
+    /**
+     @param subvoxelResolution sub voxel resolution
+     @param inDistance maximal distance to calculate transform inside of the shape. Measured in meters
+     @param outDistance maximal distance to calculate transform outside of the shape. Measured in meters
+    */
+    public DistanceTransformSeparable(int subvoxelResolution, double inDistance, double outDistance) {
+
+        m_subvoxelResolution = subvoxelResolution;
+        m_inDistance = inDistance;
+        m_outDistance = outDistance;
+
+        m_threadCount = ((Number)AbFab3DGlobals.get(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY)).intValue();
+    }
+
+    public void setThreadCount(int count) {
+        if (count < 1) {
+            count = Runtime.getRuntime().availableProcessors();
+        }
+
+        int max_threads = ((Number)AbFab3DGlobals.get(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY)).intValue();
+        if (count > max_threads)
+            count = max_threads;
+
+        m_threadCount = count;
+    }
+
+    /**
+     * Execute an operation on a grid.  If the operation changes the grid
+     * dimensions then a new one will be returned from the call.
+     *
+     * @param grid The grid to use for grid A.
+     * @return new grid with distance transform data
+     */
+    public Grid execute(Grid grid) {
+        throw new IllegalArgumentException(fmt("DistanceTransformSeparable.execute(%s) not implemented!\n", grid));
+    }
+
+    public AttributeGrid execute(AttributeGrid grid) {
+
+        long t0 = time();
+        if(DEBUG)printf("DistanceTransformSeparable.execute(%s)\n", grid);
+        if(DEBUG)printf("threadCount: %d\n", m_threadCount);
+        if(DEBUG)printf("  m_inDistance: %7.3f mm  m_outDistance: %7.3f mm \n", m_inDistance/MM, m_outDistance/MM);
+
+        nx = grid.getWidth();
+        ny = grid.getHeight();
+        nz = grid.getDepth();
+        double vs = grid.getVoxelSize();
+        m_defaultInValue = -(long)((m_inDistance/vs)*m_subvoxelResolution);
+        m_defaultOutValue = (long)((m_outDistance/vs)*m_subvoxelResolution);
+
+        AttributeGrid distanceGrid = createDistanceGrid(grid);
+
+        if((long)nx*ny*nz >= Integer.MAX_VALUE)
+            throw new IllegalArgumentException(fmt("grid [%d x %d x %d] is too large for DistanceTransformSeparable", nx, ny, nz));
+
+        // squared distances in voxels and indices of closest seed voxels
+        // stored in the same order as in ArrayAttributeGrid (y*nx + x)*nz + z
+        int size = nx*ny*nz;
+        float dist[] = new float[size];
+        int feature[] = new int[size];
+
+        runPass(Pass.INIT, ny, grid, dist, feature, null);
+        if(DEBUG_TIMING)printf("init: %d ms\n",(time()-t0));
+        runPass(Pass.Z, ny, grid, dist, feature, null);
+        runPass(Pass.X, ny, grid, dist, feature, null);
+        runPass(Pass.Y, nx, grid, dist, feature, null);
+        if(DEBUG_TIMING)printf("edt: %d ms\n",(time()-t0));
+        runPass(Pass.OUTPUT, ny, grid, dist, feature, distanceGrid);
+        if(DEBUG_TIMING)printf("DistanceTransformSeparable done: %d ms\n",(time()-t0));
+
+        return distanceGrid;
+
+    }
+
+    /**
+     * Get the default value for distances inside the object.  The value will remain this for voxels past the maximal
+     * inside distance
+     */
+    public long getInsideDefault() {
+        return m_defaultInValue;
+    }
+
+    public void setInsideDefault(long value) {
+        m_defaultInValue = value;
+    }
+
+    /**
+     * Get the default value for distances outside the object.  The value will remain this for voxels past the maximal
+     * outside distance
+     */
+    public long getOutsideDefault() {
+        return m_defaultOutValue;
+    }
+
+    public void setOutsideDefault(long value) {
+        m_defaultOutValue = value;
+    }
+
+    enum Pass {INIT, X, Y, Z, OUTPUT};
+
+    /**
+       runs one pass over slices of the grid
+     */
+    void runPass(Pass pass, int sliceCount, AttributeGrid grid, float dist[], int feature[], AttributeGrid distanceGrid){
+
+        SliceManager slicer = new SliceManager(sliceCount, 1);
+        int threadCount = Math.min(m_threadCount, sliceCount);
+        if(threadCount < 1) threadCount = 1;
+
+        Runnable workers[] = new Runnable[threadCount];
+        for(int i = 0; i < threadCount; i++){
+            workers[i] = new SliceProcessor(pass, slicer, grid, dist, feature, distanceGrid);
+        }
+        TileScheduler.runWorkers(workers);
+    }
+
+    /**
+       processes slices of the grid for single pass
+     */
+    class SliceProcessor implements Runnable {
+
+        Pass pass;
+        SliceManager slicer;
+        AttributeGrid grid;
+        AttributeGrid distanceGrid;
+        float dist[];
+        int feature[];
+        double surfaceValue;
+        double voxelDistance;
+        int sliceSize;
+        // work arrays
+        double f[];
+        double d[];
+        double z[];
+        int v[];
+        int fin[];
+        int fout[];
+        double pnt[] = new double[3];
+        double cross[] = new double[3];
+        // cache of surface points of seeds
+        int cacheSeed[];
+        int cacheCount[];
+        double cachePnt[];
+
+        SliceProcessor(Pass pass, SliceManager slicer, AttributeGrid grid, float dist[], int feature[], AttributeGrid distanceGrid){
+
+            this.pass = pass;
+            this.slicer = slicer;
+            this.grid = grid;
+            this.dist = dist;
+            this.feature = feature;
+            this.distanceGrid = distanceGrid;
+            this.surfaceValue = m_subvoxelResolution/2.;
+            this.voxelDistance = grid.getVoxelSize();
+            this.sliceSize = nx*nz;
+
+            int n = Math.max(nx, Math.max(ny, nz));
+            f = new double[n];
+            d = new double[n];
+            z = new double[n+1];
+            v = new int[n];
+            fin = new int[n];
+            fout = new int[n];
+            if(pass == Pass.OUTPUT){
+                cacheSeed = new int[CACHE_SIZE];
+                cacheCount = new int[CACHE_SIZE];
+                cachePnt = new double[CACHE_SIZE*MAX_SEED_POINTS*3];
+                Arrays.fill(cacheSeed, -1);
+            }
+        }
+
+        public void run(){
+
+            while(true){
+                Slice slice = slicer.getNextSlice();
+                if(slice == null)
+                    break;
+                for(int s = slice.smin; s < slice.smax; s++){
+                    switch(pass){
+                    case INIT: initSlice(s); break;
+                    case X: passX(s); break;
+                    case Y: passY(s); break;
+                    case Z: passZ(s); break;
+                    case OUTPUT: outputSlice(s); break;
+                    }
+                }
+                TileScheduler.checkCancelled();
+            }
+        }
+
+        /**
+           rows along z in xz slice y
+         */
+        void passZ(int y){
+
+            for(int x = 0; x < nx; x++){
+                processRow(y*sliceSize + x*nz, 1, nz);
+            }
+        }
+
+        /**
+           rows along x in xz slice y
+         */
+        void passX(int y){
+
+            for(int zz = 0; zz < nz; zz++){
+                processRow(y*sliceSize + zz, nz, nx);
+            }
+        }
+
+        /**
+           rows along y in yz slice x
+         */
+        void passY(int x){
+
+            for(int zz = 0; zz < nz; zz++){
+                processRow(x*nz + zz, sliceSize, ny);
+            }
+        }
+
+        /**
+           1D transform of single row of data
+         */
+        void processRow(int offset, int stride, int n){
+
+            for(int k = 0, ind = offset; k < n; k++, ind += stride){
+                f[k] = dist[ind];
+                fin[k] = feature[ind];
+            }
+            if(lowerEnvelope(f, fin, n, d, fout, v, z)){
+                for(int k = 0, ind = offset; k < n; k++, ind += stride){
+                    dist[ind] = (float)d[k];
+                    feature[ind] = fout[k];
+                }
+            }
+        }
+
+        /**
+           initializes squared distances in voxels for voxels adjacent to isosurface
+         */
+        void initSlice(int y){
+
+            for(int x = 0; x < nx; x++){
+                for(int zz = 0; zz < nz; zz++){
+                    int ind = y*sliceSize + x*nz + zz;
+                    double d2 = getSurfacePoint(x, y, zz, pnt, cross);
+                    if(d2 < INF){
+                        dist[ind] = (float)d2;
+                        feature[ind] = ind;
+                    } else {
+                        dist[ind] = INF;
+                        feature[ind] = -1;
+                    }
+                }
+            }
+        }
+
+        /**
+           calculates closest point on the local plane of isosurface passing via crossings of isosurface with grid edges
+           adjacent to the voxel
+
+           @param pnt closest point relative to the voxel center in voxel units
+           @param cross inverse signed distances to crossings along axes
+           @return squared distance to the point or INF if voxel is not adjacent to isosurface
+         */
+        double getSurfacePoint(int x, int y, int z, double pnt[], double cross[]){
+
+            double a = grid.getAttribute(x, y, z) - surfaceValue;
+            // normal to the plane is (sign/t) for each axis
+            double gx = crossing(a, x, y, z, 1, 0, 0);
+            double gy = crossing(a, x, y, z, 0, 1, 0);
+            double gz = crossing(a, x, y, z, 0, 0, 1);
+            cross[0] = gx;
+            cross[1] = gy;
+            cross[2] = gz;
+            if(Double.isInfinite(gx) || Double.isInfinite(gy) || Double.isInfinite(gz)){
+                // voxel is on isosurface
+                pnt[0] = 0; pnt[1] = 0; pnt[2] = 0;
+                return 0;
+            }
+            double n2 = gx*gx + gy*gy + gz*gz;
+            if(n2 == 0.)
+                return INF;
+            pnt[0] = gx/n2;
+            pnt[1] = gy/n2;
+            pnt[2] = gz/n2;
+            return 1./n2;
+        }
+
+        /**
+           @return (sign/t) for the closest crossing of isosurface along given axis at distance t in given direction,
+           0 if there is no crossing, infinity if voxel is on isosurface
+         */
+        double crossing(double a, int x, int y, int z, int dx, int dy, int dz){
+
+            double tmin = 2.;
+            int smin = 0;
+            for(int sign = -1; sign <= 1; sign += 2){
+                int x1 = x + sign*dx, y1 = y + sign*dy, z1 = z + sign*dz;
+                if(x1 < 0 || y1 < 0 || z1 < 0 || x1 >= nx || y1 >= ny || z1 >= nz)
+                    continue;
+                double a1 = grid.getAttribute(x1, y1, z1) - surfaceValue;
+                if((a >= 0.) != (a1 >= 0.)){
+                    double t = a/(a - a1);
+                    if(t < tmin) {
+                        tmin = t;
+                        smin = sign;
+                    }
+                }
+            }
+            if(tmin > 1.) return 0;
+            if(tmin <= 0.) return Double.POSITIVE_INFINITY;
+            return smin/tmin;
+        }
+
+        /**
+           @return squared distance from voxel to the closest surface point of given seed
+         */
+        double getSeedDistance2(int seed, int x, int y, int z){
+
+            if(seed < 0)
+                return Double.MAX_VALUE;
+            int slot = getSeedSlot(seed);
+            double d2 = Double.MAX_VALUE;
+            for(int k = 0, o = slot*MAX_SEED_POINTS*3; k < cacheCount[slot]; k++, o += 3){
+                d2 = min(d2, dist2(cachePnt[o] - x, cachePnt[o+1] - y, cachePnt[o+2] - z));
+            }
+            return d2;
+        }
+
+        /**
+           @return cache slot with surface points of the seed in grid coordinates
+           points are the point on the local plane and crossings on the grid edges
+         */
+        int getSeedSlot(int seed){
+
+            int slot = (seed ^ (seed >>> 12)) & (CACHE_SIZE-1);
+            if(cacheSeed[slot] == seed)
+                return slot;
+
+            cacheSeed[slot] = seed;
+            int sy = seed / sliceSize;
+            int sx = (seed % sliceSize) / nz;
+            int sz = seed % nz;
+            int o = slot*MAX_SEED_POINTS*3;
+            int count = 0;
+            if(getSurfacePoint(sx, sy, sz, pnt, cross) == 0.){
+                o = setPoint(o, sx, sy, sz);
+                count = 1;
+            } else {
+                o = setPoint(o, sx + pnt[0], sy + pnt[1], sz + pnt[2]);
+                count = 1;
+                if(cross[0] != 0.) { o = setPoint(o, sx + 1/cross[0], sy, sz); count++; }
+                if(cross[1] != 0.) { o = setPoint(o, sx, sy + 1/cross[1], sz); count++; }
+                if(cross[2] != 0.) { o = setPoint(o, sx, sy, sz + 1/cross[2]); count++; }
+            }
+            cacheCount[slot] = count;
+            return slot;
+        }
+
+        final int setPoint(int offset, double x, double y, double z){
+            cachePnt[offset] = x;
+            cachePnt[offset+1] = y;
+            cachePnt[offset+2] = z;
+            return offset + 3;
+        }
+
+        /**
+           converts distances to closest surface points in xz slice y into signed distance values
+         */
+        void outputSlice(int y){
+
+            double svr = m_subvoxelResolution;
+            double maxIn = m_inDistance/voxelDistance;
+            double maxOut = m_outDistance/voxelDistance;
+
+            for(int x = 0; x < nx; x++){
+                for(int zz = 0; zz < nz; zz++){
+                    int ind = y*sliceSize + x*nz + zz;
+                    boolean inside = (grid.getAttribute(x, y, zz) >= surfaceValue);
+                    // surface points are within 1 voxel from seeds, which gives lower bound of distance
+                    if(sqrt(max(dist[ind] - 1., 0.)) - 1. > (inside? maxIn: maxOut)){
+                        distanceGrid.setAttribute(x, y, zz, (inside? m_defaultInValue: m_defaultOutValue));
+                        continue;
+                    }
+                    // closest seeds of neighbors are also checked to correct errors of seed selection
+                    double d2 = Double.MAX_VALUE;
+                    int last = -1;
+                    for(int iy = max(y-1,0); iy <= min(y+1,ny-1); iy++){
+                        for(int ix = max(x-1,0); ix <= min(x+1,nx-1); ix++){
+                            for(int iz = max(zz-1,0); iz <= min(zz+1,nz-1); iz++){
+                                int seed = feature[iy*sliceSize + ix*nz + iz];
+                                if(seed != last){
+                                    d2 = min(d2, getSeedDistance2(seed, x, y, zz));
+                                    last = seed;
+                                }
+                            }
+                        }
+                    }
+                    double dd = sqrt(d2);
+                    long value;
+                    if(inside){
+                        value = (dd > maxIn)? m_defaultInValue: -round(dd*svr);
+                    } else {
+                        value = (dd > maxOut)? m_defaultOutValue: round(dd*svr);
+                    }
+                    distanceGrid.setAttribute(x, y, zz, value);
+                }
+            }
+        }
+    } // class SliceProcessor
+
+    static final double dist2(double x, double y, double z){
+        return x*x + y*y + z*z;
+    }
+
+    /**
+       1D squared distance transform of sampled function f via lower envelope of parabolas
+       d[q] = min_p((q-p)^2 + f[p])
+
+       @param f input function, values >= INF are ignored
+       @param fin input features (indices of closest seeds)
+       @param n length of data
+       @param d output
+       @param fout output features
+       @param v work array of length n for locations of parabolas
+       @param z work array of length n+1 for boundaries between parabolas
+       @return false if all values of f are infinite and output was not calculated
+     */
+    static boolean lowerEnvelope(double f[], int fin[], int n, double d[], int fout[], int v[], double z[]){
+
+        int k = -1;
+        for(int q = 0; q < n; q++){
+            double fq = f[q];
+            if(fq >= INF)
+                continue;
+            double s = 0;
+            while(k >= 0){
+                int vk = v[k];
+                s = ((fq + (double)q*q) - (f[vk] + (double)vk*vk))/(2.*(q - vk));
+                if(s > z[k])
+                    break;
+                k--;
+            }
+            k++;
+            v[k] = q;
+            z[k] = (k == 0)? -Double.MAX_VALUE: s;
+        }
+        if(k < 0)
+            return false;
+
+        z[k+1] = Double.MAX_VALUE;
+        int j = 0;
+        for(int q = 0; q < n; q++){
+            while(z[j+1] < q) j++;
+            int vj = v[j];
+            d[q] = (double)(q - vj)*(q - vj) + f[vj];
+            fout[q] = fin[vj];
+        }
+        return true;
+    }
+}
@@ -13,9 +13,6 @@
 package abfab3d.grid.op;
 
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors; 
-import java.util.concurrent.TimeUnit;
 
 import abfab3d.core.AttributeGrid;
 import abfab3d.core.ClassTraverser;
@@ -23,6 +20,7 @@ import abfab3d.core.Grid;
 import abfab3d.core.VoxelClasses;
 import abfab3d.grid.*;
 import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.TileScheduler;
 
 import static abfab3d.core.Output.printf;
 import static abfab3d.core.Output.fmt;
@@ -133,19 +131,13 @@ public class ErosionShapeMT implements Operation, AttributeOperation {
             }
         }
         
-        ExecutorService executor = Executors.newFixedThreadPool(m_threadCount);
+        Runnable workers[] = new Runnable[m_threadCount];
         for(int i = 0; i < m_threadCount; i++){
 
             Runnable runner = new SurfaceFinderRunner(grid, surface);
-            executor.submit(runner);
-        }
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = runner;
         }
+        TileScheduler.runWorkers(workers);
 
         //grid.find(VoxelClasses.INSIDE, new SurfaceFinder(grid, m_surface));
         printf("surface: %d ms\n", (time()-t0));
@@ -164,19 +156,13 @@ public class ErosionShapeMT implements Operation, AttributeOperation {
             }
         }
 
-        executor = Executors.newFixedThreadPool(m_threadCount);
+        workers = new Runnable[m_threadCount];
         for(int i = 0; i < m_threadCount; i++){
 
             Runnable runner = new ShapeEroderRunner(surface, grid, m_voxelShape, m_voxelChecker);
-            executor.submit(runner);
-        }
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+            workers[i] = runner;
         }
+        TileScheduler.runWorkers(workers);
 
 
         //surface.find(VoxelClasses.INSIDE, new ShapeEroder(grid, m_voxelShape, m_voxelChecker));
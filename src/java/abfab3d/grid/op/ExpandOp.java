@@ -98,7 +98,7 @@ public class ExpandOp extends BaseParameterizable implements Operation, Operatio
         long attribute = mp_attribute.getValue();
         int[] distances = mp_distances.getValue((int[])null);
 
-        String vhash = getDataLabel();
+        String vhash = getDataHash();
         Object co = ParamCache.getInstance().get(vhash);
         if (DEBUG) printf("ExpandOp vhash: %s cached: %b\n",vhash,co!=null);
 
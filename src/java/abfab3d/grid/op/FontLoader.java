@@ -62,7 +62,7 @@ public class FontLoader extends BaseParameterizable implements FontProducer {
         Object co = null;
         String label = null;
         if (CACHING_ENABLED) {
-            label = getDataLabel();
+            label = getDataHash();
             co = ParamCache.getInstance().get(label);
         }
         if (co == null) {
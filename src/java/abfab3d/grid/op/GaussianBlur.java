@@ -12,20 +12,19 @@
 
 package abfab3d.grid.op;
 
-import java.util.Arrays;
-
 import abfab3d.core.Bounds;
 import abfab3d.core.Grid2D;
 import abfab3d.core.GridDataChannel;
 import abfab3d.core.MathUtil;
 
 import abfab3d.param.BaseParameterizable;
+import abfab3d.param.BooleanParameter;
 import abfab3d.param.DoubleParameter;
+import abfab3d.param.IntParameter;
 import abfab3d.param.Parameter;
 import abfab3d.grid.Operation2D;
 
 
-import static abfab3d.core.MathUtil.clamp;
 import static abfab3d.core.Units.MM;
 
 public class GaussianBlur extends BaseParameterizable  implements Operation2D {
@@ -33,11 +32,17 @@ public class GaussianBlur extends BaseParameterizable  implements Operation2D {
     
     DoubleParameter mp_blurWidth = new DoubleParameter("blurWidth", 0.1*MM);
     DoubleParameter mp_threshold = new DoubleParameter("threshold", "threshold for gaussian kernel", 0.001);
+    BooleanParameter mp_boxFilter = new BooleanParameter("boxFilter", "approximate gaussian by box filters", false);
+    IntParameter mp_threadCount = new IntParameter("threadCount", "count of threads, 0 - all processors", 0);
 
+    // passes of box filter used to approximate gaussian 
+    static final int BOX_PASSES = 3;
     
     Parameter m_aprarm[] = new Parameter[]{
         mp_blurWidth,
-        mp_threshold
+        mp_threshold,
+        mp_boxFilter,
+        mp_threadCount
     };
 
     public GaussianBlur(double blurWidth){
@@ -59,78 +64,32 @@ public class GaussianBlur extends BaseParameterizable  implements Operation2D {
         return grid;
     }
 
-    private int m_nx, m_ny;
-        
-    public void convolute(Grid2D grid, GridDataChannel channel, double kernel[]){
-        
-        m_nx = grid.getWidth();
-        m_ny = grid.getHeight();
-        int s = Math.max(m_nx, m_ny);
-        
-        double row[] = new double[s];
-        
-        convoluteX(grid, channel, kernel, row);
-        convoluteY(grid, channel, kernel, row);
-        
+    /**
+       set count of threads to use, 0 - use all available processors 
+     */
+    public void setThreadCount(int count){
+        mp_threadCount.setValue(count);
     }
 
-    void convoluteX(Grid2D grid, GridDataChannel channel, double kernel[], double row[]){
-                
-        int w = m_nx;
-        int h = m_ny;
-        
-        int ksize = kernel.length/2;
-        int w1 = w-1;
-
-        for(int y = 0; y < h; y++){
-            
-            // init accumulator array 
-            Arrays.fill(row, 0, w, 0.);
-            int offsety = y*w;
-
-            for(int x = 0; x < w; x++){
-                
-                for(int k = 0; k < kernel.length; k++){
-
-                    //int kx = x + k - ksize;
-                    int xx = x - (k-ksize); //offsety + x + k;
-
-                    xx = clamp(xx, 0, w1); // boundary conditions 
-                    row[x] += kernel[k] * channel.getValue(grid.getAttribute(xx,y)); 
-                }
-            }             
-            for(int x = 0; x < w; x++){
-                grid.setAttribute(x,y,channel.makeAtt(row[x]));
-            }                            
-        }
+    /**
+       if true, gaussian kernel is approximated by 3 passes of box filter, which cost does not depend on blur width
+     */
+    public void setBoxFilter(boolean value){
+        mp_boxFilter.setValue(value);
     }
-    
-    void convoluteY(Grid2D grid,  GridDataChannel channel, double kernel[], double row[]){
 
-        int w = m_nx;
-        int h = m_ny;
-        int ksize = kernel.length/2;
-        int h1 = h-1;
-
-        for(int x = 0; x < w; x++){
-            // init accumulator array 
-            Arrays.fill(row, 0, h, 0.);
-
-            for(int y = 0; y < h; y++){                
-                
-                for(int k = 0; k < kernel.length; k++){
-                    int yy = y - (k-ksize); 
-                    yy = clamp(yy, 0, h1); // boundary conditions 
-                    row[y] += kernel[k] * channel.getValue(grid.getAttribute(x,yy)); 
-                }
-            } 
-            
-            for(int y = 0; y < h; y++){
-                grid.setAttribute(x,y,channel.makeAtt(row[y]));
-            }                    
+    public void convolute(Grid2D grid, GridDataChannel channel, double kernel[]){
+        
+        SeparableFilter filter;
+        if(mp_boxFilter.getValue()){
+            double sigma = mp_blurWidth.getValue()/grid.getVoxelSize();
+            filter = SeparableFilter.makeBoxGaussian(sigma, BOX_PASSES);
+        } else {
+            filter = new SeparableFilter(kernel);
         }
-    } // convolute y 
-
-
+        filter.setThreadCount(mp_threadCount.getValue());
+        filter.execute(grid, channel);
+        
+    }
 
 }
\ No newline at end of file
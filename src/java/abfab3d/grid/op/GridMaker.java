@@ -12,33 +12,32 @@
 
 package abfab3d.grid.op;
 
-import java.util.Stack;
-
-
-import java.util.concurrent.ExecutorService; 
-import java.util.concurrent.Executors; 
-import java.util.concurrent.TimeUnit;
-
 import abfab3d.core.VecTransform;
 import abfab3d.core.AttributePacker;
 import abfab3d.core.Grid;
 import abfab3d.core.AttributeGrid;
+import abfab3d.core.BatchUtil;
 import abfab3d.core.DataSource;
+import abfab3d.core.IntervalDataSource;
+import abfab3d.core.ResultCodes;
 import abfab3d.core.Bounds;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 import abfab3d.core.Units;
 import abfab3d.core.GridDataDesc;
 import abfab3d.core.Initializable;
-import abfab3d.core.Output;
 
 import abfab3d.grid.Operation;
 import abfab3d.grid.AttributeOperation;
 import abfab3d.grid.AttributePackerDensity;
+import abfab3d.grid.SparseAttributeGrid;
 
-import abfab3d.grid.util.ExecutionStoppedException;
 
 import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.Tile;
+import abfab3d.util.TileScheduler;
 
+import abfab3d.transforms.BaseTransform;
 import abfab3d.transforms.Identity;
 
 import static abfab3d.core.Output.time;
@@ -54,6 +53,10 @@ import static abfab3d.core.Output.fmt;
    This allows calculation of multi color and multimaterial grids with custom meaning and 
    resolution of each AttributeChannel.
 
+   If DataSource implements IntervalDataSource the grid is processed in blocks. 
+   Blocks where all voxels are known to have the same attribute are filled without evaluation 
+   of individual voxels and other blocks are recursively subdivided. 
+
    @author Vladimir Bulatov
    
  */
@@ -65,6 +68,14 @@ public class GridMaker implements Operation, AttributeOperation {
     static final boolean DEBUG = true;
     static int debugCount = 0;
     static final int MAX_DATA_CHANNELS_COUNT = 4;
+    // size of top level blocks used for interval culling 
+    static final int CULLING_BLOCK_SIZE = 16;
+    // size of tiles in x direction 
+    static final int TILE_SIZE_X = 32;
+    // blocks of that size or smaller are evaluated voxel by voxel 
+    static final int CULLING_MIN_BLOCK_SIZE = 4;
+    // results of block test 
+    static final int BLOCK_CONSTANT = 0, BLOCK_VARYING = 1, BLOCK_UNKNOWN = 2;
 
     protected VecTransform m_transform;
     protected DataSource m_dataSource;
@@ -76,6 +87,12 @@ public class GridMaker implements Operation, AttributeOperation {
     protected int m_margin = 0; 
     // threads count to use 
     protected int m_threadCount = 0;
+    // use batch evaluation of whole z-columns of voxels 
+    protected boolean m_batchEvaluation = true;
+    // skip evaluation of blocks of voxels with constant attribute 
+    protected boolean m_intervalCulling = true;
+    // interval culling is used in current calculation 
+    private boolean m_useCulling = false;
 
     private double voxelX, voxelY, voxelZ, offsetX, offsetY, offsetZ;
     private int m_slizeSize = 2;
@@ -129,6 +146,24 @@ public class GridMaker implements Operation, AttributeOperation {
         m_threadCount = count;
     }
 
+    /**
+       sets whether data source is evaluated for the whole column of voxels in one call 
+       or for each voxel separately 
+       sources which do not implement BatchDataSource are evaluated point by point in both cases 
+     */
+    public void setBatchEvaluation(boolean value){
+        m_batchEvaluation = value;
+    }
+
+    /**
+       sets whether blocks of voxels with constant attribute are filled without evaluation of each voxel. 
+       Culling is used only if data source implements IntervalDataSource, the transform is similarity 
+       and the attribute packer depends on the first data channel only. 
+     */
+    public void setIntervalCulling(boolean value){
+        m_intervalCulling = value;
+    }
+
     /**
        set width of transitional surface area for shape calculations.
        it is obsolete and the value is ignored 
@@ -252,9 +287,7 @@ public class GridMaker implements Operation, AttributeOperation {
         
         voxelSize = grid.getVoxelSize() * voxelScale;
         if(DEBUG)printf("gridMaker voxelSize: %7.3f mm\n", voxelSize/ Units.MM);
-        if (Thread.currentThread().isInterrupted()) {
-            throw new ExecutionStoppedException();
-        }
+        TileScheduler.checkCancelled();
 
         
         m_grid = grid;
@@ -301,33 +334,61 @@ public class GridMaker implements Operation, AttributeOperation {
         }
         if(DEBUG)printf("GridMaker uses %d threads\n",m_threadCount);
 
+        m_useCulling = canUseCulling();
+        if(DEBUG)printf("GridMaker uses interval culling: %s\n",m_useCulling);
+
         t0 = time();
-        if(m_threadCount > 1)
+        if(m_threadCount > 1 || m_useCulling)
             makeGridMT();
         else 
             makeGridST();
+        if(m_grid instanceof SparseAttributeGrid)
+            ((SparseAttributeGrid)m_grid).compress();
         if(DEBUG) printf("GridMaker grid rendering: %d ms\n", (time() - t0));
     } 
 
+    /**
+       @return true if blocks of voxels can be tested for constant attribute 
+     */
+    boolean canUseCulling(){
+
+        if(!m_intervalCulling) 
+            return false;
+        if(!(m_dataSource instanceof IntervalDataSource))
+            return false;
+        if(!BaseTransform.isSimilarity(m_transform))
+            return false;
+        // packer has to be monotone function of the first channel 
+        if(!(m_attributePacker instanceof GridDataDesc.SingleChannelAttributePacker || 
+             m_attributePacker instanceof AttributePackerDensity))
+            return false;
+        // some sources in the tree may be unable to calculate intervals 
+        Vec pnt = new Vec(POINT_DIMENSION);
+        pnt.set(m_centerX, m_centerY, m_centerZ);
+        pnt.setVoxelSize(voxelSize);
+        if(m_transform.inverse_transform(pnt, pnt) != ResultCodes.RESULT_OK)
+            return false;
+        double interval[] = new double[2];
+        return (((IntervalDataSource)m_dataSource).getValueInterval(pnt, voxelSize, interval) == ResultCodes.RESULT_OK);
+    }
+
     /**
        multi thread version of makeGrid()
+       grid is split into tiles which are processed in the shared TileScheduler 
      */
     void makeGridMT(){
 
-        SliceSet slices = new SliceSet(m_margin, m_grid.getHeight()-m_margin, m_slizeSize);
-
-        ExecutorService executor = Executors.newFixedThreadPool(m_threadCount);
-        for(int i = 0; i < m_threadCount; i++){
-            executor.submit(new SliceMaker(slices));
-        }
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        
+        int margin = m_margin;
+        Tile domain = new Tile(margin, m_nx - margin - 1, margin, m_ny - margin - 1, margin, m_nz - margin - 1);
+        TileScheduler.TileProcessorFactory factory = new TileScheduler.TileProcessorFactory(){
+                public TileScheduler.TileProcessor makeProcessor(){
+                    return new TileMaker();
+                }
+            };
+        if(m_useCulling)
+            TileScheduler.runTiles(domain, CULLING_BLOCK_SIZE, CULLING_BLOCK_SIZE, CULLING_BLOCK_SIZE, m_threadCount, factory);
+        else 
+            TileScheduler.runTiles(domain, TILE_SIZE_X, m_slizeSize, m_nz, m_threadCount, factory);
     }
 
     /**
@@ -379,90 +440,232 @@ public class GridMaker implements Operation, AttributeOperation {
                 }
             }
 
-            if (Thread.currentThread().isInterrupted()) {
-                throw new ExecutionStoppedException();
-            }
+            TileScheduler.checkCancelled();
         }
 
     }
     
 
     /**
-       processof of single slice of grid 
+       processor of tiles of grid. Each thread has its own TileMaker 
      */
-    class SliceMaker implements Runnable{
+    class TileMaker implements TileScheduler.TileProcessor {
         
-        SliceSet slices;
-
         Vec // storage for calculations 
             pntGrid = new Vec(POINT_DIMENSION),
             pntWorld = new Vec(POINT_DIMENSION),            
             pntData = new Vec(POINT_DIMENSION),
             dataValue = new Vec(m_dataChannelsCount);
 
-        SliceMaker(SliceSet slices ){
+        // storage for batch calculations 
+        VecArray columnWorld, columnData, columnValue;
+        int transformResult[];
+        // storage for interval calculations 
+        double interval[] = new double[2];
 
-            this.slices = slices; 
+        TileMaker(){
 
+            if(m_batchEvaluation){
+                columnWorld = new VecArray(POINT_DIMENSION, m_nz);
+                columnData = new VecArray(POINT_DIMENSION, m_nz);
+                columnValue = new VecArray(m_dataChannelsCount, m_nz);
+                transformResult = new int[m_nz];
+            }
         }
         
-        public void run(){
-            try {
-                while(true){
-                    
-                    Slice slice = slices.getNextSlice();
-                    if(slice == null)
-                        break;
-                    makeSlice(slice);
-                    
-                }
-            } catch(Exception e){
-                e.printStackTrace(Output.out);
-            } 
+        /**
+           exception cancels the whole job and is passed to the caller of makeGrid()
+         */
+        public void processTile(Tile tile){
+            if(m_useCulling)
+                makeBlock(tile.xmin, tile.xmax, tile.ymin, tile.ymax, tile.zmin, tile.zmax);
+            else 
+                makeTile(tile);
         }
 
-        void makeSlice(Slice slice){
+        void makeTile(Tile tile){
             
-            int margin = m_margin; 
-            int nx = m_nx, ny = m_ny, nz = m_nz;
+            for(int iy = tile.ymin; iy <= tile.ymax; iy++){
+                for(int ix = tile.xmin; ix <= tile.xmax; ix++){
+                    if(m_batchEvaluation)
+                        makeColumnBatch(ix, iy, tile.zmin, tile.zmax);
+                    else 
+                        makeColumnPointwise(ix, iy, tile.zmin, tile.zmax);
+                }
+            }              
+        }
+
+        /**
+           calculates block of voxels [xmin,xmax]x[ymin,ymax]x[zmin,zmax] 
+           block with constant attribute is filled without evaluation of voxels, 
+           otherwise the block is subdivided into octants 
+         */
+        void makeBlock(int xmin, int xmax, int ymin, int ymax, int zmin, int zmax){
+
+            int res = testBlock(xmin, xmax, ymin, ymax, zmin, zmax);
+            switch(res){
+            case BLOCK_CONSTANT: 
+                fillBlock(xmin, xmax, ymin, ymax, zmin, zmax, blockAttribute);
+                return;
+            case BLOCK_UNKNOWN:
+                makeBlockVoxels(xmin, xmax, ymin, ymax, zmin, zmax);
+                return;
+            }
+            int size = Math.max(xmax - xmin, Math.max(ymax - ymin, zmax - zmin)) + 1;
+            if(size <= CULLING_MIN_BLOCK_SIZE){
+                makeBlockVoxels(xmin, xmax, ymin, ymax, zmin, zmax);
+                return;
+            }
+            int 
+                xm = (xmin + xmax) >> 1,
+                ym = (ymin + ymax) >> 1,
+                zm = (zmin + zmax) >> 1;
+
+            for(int i = 0; i < 2; i++){
+                int x0 = (i == 0)? xmin: xm+1, x1 = (i == 0)? xm: xmax;
+                if(x0 > x1) continue;
+                for(int j = 0; j < 2; j++){
+                    int y0 = (j == 0)? ymin: ym+1, y1 = (j == 0)? ym: ymax;
+                    if(y0 > y1) continue;
+                    for(int k = 0; k < 2; k++){
+                        int z0 = (k == 0)? zmin: zm+1, z1 = (k == 0)? zm: zmax;
+                        if(z0 > z1) continue;
+                        makeBlock(x0, x1, y0, y1, z0, z1);
+                    }
+                }
+            }
+        }
+
+        // attribute of the last tested block 
+        long blockAttribute;
+
+        /**
+           tests whether all voxels of the block have the same attribute 
+           @return BLOCK_CONSTANT, BLOCK_VARYING or BLOCK_UNKNOWN if interval can not be calculated
+         */
+        int testBlock(int xmin, int xmax, int ymin, int ymax, int zmin, int zmax){
+
+            double 
+                dx = (xmax - xmin)*voxelX,
+                dy = (ymax - ymin)*voxelY,
+                dz = (zmax - zmin)*voxelZ;
+            // ball which contains centers of all voxels of the block 
+            double radius = 0.5*Math.sqrt(dx*dx + dy*dy + dz*dz);
+
+            pntWorld.set(0.5*(xmin + xmax)*voxelX + offsetX, 
+                         0.5*(ymin + ymax)*voxelY + offsetY, 
+                         0.5*(zmin + zmax)*voxelZ + offsetZ);
+            pntWorld.setVoxelSize(voxelSize);
+            pntWorld.setScaleFactor(1);
             
-            int nx1 = nx-margin;
-            int ny1 = ny-margin;
-            int nz1 = nz-margin;
-            int ymin = slice.ymin;
-            int ymax = slice.ymax;
+            if(m_transform.inverse_transform(pntWorld, pntData) != ResultCodes.RESULT_OK)
+                return BLOCK_UNKNOWN;
+            if(((IntervalDataSource)m_dataSource).getValueInterval(pntData, radius, interval) != ResultCodes.RESULT_OK)
+                return BLOCK_UNKNOWN;
+
+            double v[] = dataValue.v;
+            for(int k = 1; k < v.length; k++)
+                v[k] = 0;
+            v[0] = interval[0];
+            long att0 = m_attributePacker.makeAttribute(dataValue);
+            v[0] = interval[1];
+            long att1 = m_attributePacker.makeAttribute(dataValue);
+            if(att0 != att1) 
+                return BLOCK_VARYING;
+            blockAttribute = att0;
+            return BLOCK_CONSTANT;
+        }
 
+        void fillBlock(int xmin, int xmax, int ymin, int ymax, int zmin, int zmax, long att){
+
+            if(m_grid instanceof SparseAttributeGrid){
+                // whole leaves of sparse grid become constant tiles
+                ((SparseAttributeGrid)m_grid).fillAttribute(xmin, xmax, ymin, ymax, zmin, zmax, att);
+                return;
+            }
             for(int iy = ymin; iy <= ymax; iy++){
-                
-                for(int ix = margin; ix < nx1; ix++){
-                    
-                    for(int iz = nz1-1; iz >= margin; iz--){ // this z-order to speed up creation of GridIntervals
-                        //TODO make grid.setData() in one call 
-
-                        pntGrid.set(ix, iy, iz);
-                        transformToWorldSpace(pntGrid, pntWorld);
-
-                        pntWorld.setVoxelSize(voxelSize);
-                        
-                        int res = m_transform.inverse_transform(pntWorld, pntData);
-                        if(false){
-                            double s = pntData.getScaleFactor();
-                            if(s != 1.0 &&  debugCount-- > 0) {
-                                printf("scale: %10.5f\n", s);
-                            }
-                        }
-                        if(res != VecTransform.RESULT_OK)
-                            continue;                        
-                        res = m_dataSource.getDataValue(pntData, dataValue);
-
-                        if(res != VecTransform.RESULT_OK)
-                            continue;
-
-                        long vd = m_attributePacker.makeAttribute(dataValue);
-                        m_grid.setAttribute(ix, iy, iz, vd);
+                for(int ix = xmin; ix <= xmax; ix++){
+                    for(int iz = zmax; iz >= zmin; iz--){
+                        m_grid.setAttribute(ix, iy, iz, att);
                     }
                 }
-            }              
+            }
+        }
+
+        void makeBlockVoxels(int xmin, int xmax, int ymin, int ymax, int zmin, int zmax){
+            
+            for(int iy = ymin; iy <= ymax; iy++){
+                for(int ix = xmin; ix <= xmax; ix++){
+                    if(m_batchEvaluation)
+                        makeColumnBatch(ix, iy, zmin, zmax);
+                    else 
+                        makeColumnPointwise(ix, iy, zmin, zmax);
+                }
+            }
+        }
+
+        /**
+           calculates voxels (ix, iy, iz) for iz in [zmin, zmax] one by one 
+         */
+        void makeColumnPointwise(int ix, int iy, int zmin, int zmax){
+
+            for(int iz = zmax; iz >= zmin; iz--){ // this z-order to speed up creation of GridIntervals
+                
+                pntGrid.set(ix, iy, iz);
+                transformToWorldSpace(pntGrid, pntWorld);
+                
+                pntWorld.setVoxelSize(voxelSize);
+                
+                int res = m_transform.inverse_transform(pntWorld, pntData);
+                if(res != VecTransform.RESULT_OK)
+                    continue;                        
+                res = m_dataSource.getDataValue(pntData, dataValue);
+                
+                if(res != VecTransform.RESULT_OK)
+                    continue;
+                
+                long vd = m_attributePacker.makeAttribute(dataValue);
+                m_grid.setAttribute(ix, iy, iz, vd);
+            }
+        }
+
+        /**
+           calculates voxels (ix, iy, iz) for iz in [zmin, zmax] in one batch 
+         */
+        void makeColumnBatch(int ix, int iy, int zmin, int zmax){
+            
+            int count = zmax - zmin + 1;
+            if(count <= 0) 
+                return;
+
+            VecArray world = columnWorld, data = columnData, value = columnValue;
+            double wx[] = world.v[0], wy[] = world.v[1], wz[] = world.v[2];
+            int tres[] = transformResult;
+            double x = ix*voxelX + offsetX;
+            double y = iy*voxelY + offsetY;
+
+            world.setSize(count);
+            world.setVoxelSize(voxelSize);
+            // same z-order as in makeColumnPointwise()
+            for(int k = 0, iz = zmax; k < count; k++, iz--){
+                wx[k] = x;
+                wy[k] = y;
+                wz[k] = iz*voxelZ + offsetZ;
+            }
+            
+            BatchUtil.inverse_transform(m_transform, world, data);
+            // data source may modify data points 
+            System.arraycopy(data.result, 0, tres, 0, count);
+            BatchUtil.getDataValues(m_dataSource, data, value);
+            
+            int vres[] = value.result;
+            for(int k = 0, iz = zmax; k < count; k++, iz--){
+                if(tres[k] != VecTransform.RESULT_OK || vres[k] != VecTransform.RESULT_OK)
+                    continue;
+                value.get(k, dataValue);
+                long vd = m_attributePacker.makeAttribute(dataValue);
+                m_grid.setAttribute(ix, iy, iz, vd);
+            }
         }
     }
 
@@ -504,49 +707,4 @@ public class GridMaker implements Operation, AttributeOperation {
         offsetZ = m_centerZ - m_sizeZ/2 + voxelZ/2;
 
     }
-
-    
-    static class SliceSet {
-
-        Stack<Slice> slices;
-        
-        SliceSet(int start, int end, int size){
-
-            slices = new Stack<Slice>();
-            
-            for(int y = start; y < end; y+= size){
-                int ymax = y + size;
-                if(ymax > end)
-                    ymax = end;
-                if(ymax > y){
-                    // non zero slice 
-                    slices.push(new Slice(y, ymax-1));
-                }
-            }                
-        }
-
-        public synchronized Slice getNextSlice(){
-            if(slices.empty())
-                return null;            
-            return slices.pop();
-            
-        }
-    }
-
-    static class Slice {
-
-        int ymin;
-        int ymax;
-        Slice(){
-            ymin = 0;
-            ymax = -1;
-
-        }
-        Slice(int ymin, int ymax){
-
-            this.ymin = ymin;
-            this.ymax = ymax;
-            
-        }        
-    }
 }
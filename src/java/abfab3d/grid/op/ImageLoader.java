@@ -111,7 +111,7 @@ public class ImageLoader extends BaseParameterizable implements ImageProducer {
         Object co = null;
         String label = null;
         if(CACHING_ENABLED){
-            label = getDataLabel();
+            label = getDataHash();
             co = ParamCache.getInstance().get(label);
         }
         if (co == null) {
@@ -14,20 +14,24 @@ package abfab3d.grid.op;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
+import java.util.Arrays;
+
+import abfab3d.core.BatchDataSource;
 import abfab3d.core.Initializable;
 import abfab3d.core.Bounds;
 import abfab3d.core.DataSource;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 import abfab3d.core.Color;
 import abfab3d.core.ImageProducer;
 import abfab3d.core.ResultCodes;
 
 import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.Tile;
+import abfab3d.util.TileScheduler;
+
+import abfab3d.grid.util.ExecutionStoppedException;
 
 import abfab3d.param.BaseParameterizable;
 import abfab3d.param.IntParameter;
@@ -56,14 +60,32 @@ import static abfab3d.util.ImageUtil.makeARGB;
  */
 public class ImageMaker extends BaseParameterizable implements ImageProducer {
     private static final boolean DEBUG = false;
+    // size of image tiles for multithreaded rendering 
+    static final int TILE_SIZE = 32;
+    // max size of pixel blocks of the first level of progressive rendering 
+    static final int MAX_PROGRESSIVE_STEP = TILE_SIZE;
+    // size of blocks of pixels evaluated together by BatchDataSource renderers 
+    static final int BLOCK_SIZE = 8;
 
     protected int m_imgType = BufferedImage.TYPE_INT_ARGB;
 
-    private Slice[] m_slices;
-    private AtomicInteger m_slicesIdx;
-    
     private BufferedImage m_image;
 
+    private volatile boolean m_cancelled = false;
+
+    /**
+       listener of progressive rendering 
+     */
+    public interface ProgressListener {
+        /**
+           called after each level of progressive rendering is completed 
+           @param imageData image data of the whole image. Each pixel of level is replicated into block of step x step pixels 
+           @param step size of pixel blocks of the level. The last level has step 1 
+           @return true to continue rendering, false to stop it 
+         */
+        public boolean levelRendered(int imageData[], int step);
+    }
+
     
     IntParameter mp_width = new IntParameter("width", 100);
     IntParameter mp_height = new IntParameter("height", 100);
@@ -132,14 +154,6 @@ public class ImageMaker extends BaseParameterizable implements ImageProducer {
     }
 
 
-    Slice getNextSlice(){
-        int idx = m_slicesIdx.getAndIncrement();
-        if(idx >= m_slices.length) {
-            return null;
-        }
-        return m_slices[idx];
-    }
-
     
     /**
        creates and renders in default TYPE_INT_ARGB format 
@@ -159,15 +173,9 @@ public class ImageMaker extends BaseParameterizable implements ImageProducer {
     }
 
     public void renderImage(int[] imageData) {
-        int threadCount = mp_threadCount.getValue();
-        if (threadCount == 0) {
-            threadCount = Runtime.getRuntime().availableProcessors();
-        }
+        int threadCount = getThreadCount();
 
-        int max = (int) AbFab3DGlobals.get(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY);
-        if (threadCount > max) threadCount = max;
-
-        if (threadCount == 1) {
+        if (threadCount == 1 && !(mp_imgRenderer.getValue() instanceof BatchDataSource)) {
             renderImage(mp_width.getValue(), mp_height.getValue(), getBounds(), (DataSource) mp_imgRenderer.getValue(), imageData);
         } else {
             renderImageMT(mp_width.getValue(), mp_height.getValue(), getBounds(), (DataSource) mp_imgRenderer.getValue(), imageData, threadCount);
@@ -187,18 +195,13 @@ public class ImageMaker extends BaseParameterizable implements ImageProducer {
         DataBufferInt db = (DataBufferInt)image.getRaster().getDataBuffer();
         int[] imageData = db.getData();
         
-        int threadCount = mp_threadCount.getValue();
-        if (threadCount == 0) {
-            threadCount = Runtime.getRuntime().availableProcessors();
-        }
-
-        int max = (int) AbFab3DGlobals.get(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY);
-        if (threadCount > max) threadCount = max;
+        int threadCount = getThreadCount();
 
         if (DEBUG) {
             printf("ImageMaker.threads: %d\n",threadCount);
         }
-        if (threadCount == 1) {
+        // batch renderers are evaluated by tiles in any case 
+        if (threadCount == 1 && !(imgRenderer instanceof BatchDataSource)) {
             renderImage(width, height, bounds, imgRenderer, imageData);
         } else {
             renderImageMT(width, height, bounds, imgRenderer, imageData, threadCount);
@@ -208,6 +211,92 @@ public class ImageMaker extends BaseParameterizable implements ImageProducer {
         m_image = image;
     }
 
+    /**
+       @return count of threads to use for rendering 
+     */
+    protected int getThreadCount(){
+
+        int threadCount = mp_threadCount.getValue();
+        if (threadCount == 0) {
+            threadCount = Runtime.getRuntime().availableProcessors();
+        }
+
+        int max = (int) AbFab3DGlobals.get(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY);
+        if (threadCount > max) threadCount = max;
+        return threadCount;
+    }
+
+    /**
+       stops multithreaded rendering by this ImageMaker. 
+       Current and all subsequent renderings throw ExecutionStoppedException. 
+       It is safe to call from any thread 
+     */
+    public void cancel(){
+        m_cancelled = true;
+    }
+
+    public boolean isCancelled(){
+        return m_cancelled;
+    }
+
+    /**
+       renders image progressively from coarse to fine levels 
+       
+       the first level evaluates each initialStep-th pixel in both directions and replicates it into block of initialStep x initialStep pixels. 
+       Each next level halves the step and evaluates only pixels which were not evaluated before. 
+       The last level (step 1) gives the same image as renderImage() and total count of evaluated pixels is the same.
+       Renderers which use the whole block of points for calculation (like cone tracing in SceneImageDataSource) may give slightly different pixels. 
+       
+       Rendering stops if listener returns false. 
+       If rendering is cancelled via cancel() or calling thread is interrupted ExecutionStoppedException is thrown 
+
+       @param imageData image data of size at least width*height 
+       @param initialStep size of pixel blocks of the first level. It is rounded down to power of 2 not exceeding 32 
+       @param listener listener to receive result of each level, may be null 
+     */
+    public void renderImageProgressive(final int[] imageData, int initialStep, ProgressListener listener){
+
+        final int width = mp_width.getValue();
+        final int height = mp_height.getValue();
+        final Bounds bounds = getBounds();
+        final DataSource imgRenderer = (DataSource)mp_imgRenderer.getValue();
+
+        if (width * height > imageData.length) {
+            throw new IllegalArgumentException(fmt("ImageData is too small.  w: %d  h: %d  size: %d id.size: %d\n",width,height,width*height,imageData.length));
+        }
+        if(imgRenderer instanceof Initializable) {
+            ((Initializable)imgRenderer).initialize();
+        }
+
+        int step = 1;
+        while(2*step <= initialStep && 2*step <= MAX_PROGRESSIVE_STEP)
+            step *= 2;
+        int prevStep = 0;
+        int threadCount = getThreadCount();
+        
+        while(true){
+
+            final int levelStep = step, levelPrevStep = prevStep;
+            TileScheduler.runTiles(new Tile(0, width-1, 0, height-1, 0, 0), TILE_SIZE, TILE_SIZE, 1, threadCount, 
+                                   new TileScheduler.TileProcessorFactory(){
+                                       public TileScheduler.TileProcessor makeProcessor(){
+                                           return new ProgressiveRunner(width,height,bounds,imgRenderer,imageData, levelStep, levelPrevStep);
+                                       }
+                                   });
+            if(m_cancelled)
+                throw new ExecutionStoppedException();
+            if (DEBUG) {
+                printf("ImageMaker level: %d done\n",step);
+            }
+            if(listener != null && !listener.levelRendered(imageData, step))
+                return;
+            if(step == 1)
+                return;
+            prevStep = step;
+            step /= 2;
+        }
+    }
+
     public void renderImage(int width, int height, Bounds bounds, DataSource imgRenderer, int [] imageData){
         
 
@@ -251,35 +340,29 @@ public class ImageMaker extends BaseParameterizable implements ImageProducer {
         }
     }
 
-    protected void renderImageMT(int width, int height, Bounds bounds, DataSource imgRenderer, int [] imageData, int threadCount){
+    protected void renderImageMT(final int width, final int height, final Bounds bounds, final DataSource imgRenderer, final int [] imageData, int threadCount){
 
         if(imgRenderer instanceof Initializable) {
             ((Initializable)imgRenderer).initialize();
         }
-
-        m_slices = new Slice[height];
-        for(int v = 0; v < height; v++) {
-            m_slices[v] = new Slice(v);
-        }
-
-        m_slicesIdx = new AtomicInteger(0);
-
-        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
-        for(int i = 0; i < threadCount; i++){
-            Runnable runner = new ImageRunner(width,height,bounds,imgRenderer,imageData);
-            executor.submit(runner);
+        if (width * height > imageData.length) {
+            throw new IllegalArgumentException(fmt("ImageData is too small.  w: %d  h: %d  size: %d id.size: %d\n",width,height,width*height,imageData.length));
         }
-        executor.shutdown();
 
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        TileScheduler.runTiles(new Tile(0, width-1, 0, height-1, 0, 0), TILE_SIZE, TILE_SIZE, 1, threadCount, 
+                               new TileScheduler.TileProcessorFactory(){
+                                   public TileScheduler.TileProcessor makeProcessor(){
+                                       return new ImageRunner(width,height,bounds,imgRenderer,imageData);
+                                   }
+                               });
 
     }
 
-    class ImageRunner implements Runnable {
+    /**
+       renders tiles of the image 
+       renderers which implement BatchDataSource are evaluated in blocks of BLOCK_SIZE x BLOCK_SIZE pixels 
+     */
+    class ImageRunner implements TileScheduler.TileProcessor {
 
         int width;
         int height;
@@ -287,6 +370,17 @@ public class ImageMaker extends BaseParameterizable implements ImageProducer {
         DataSource imgRenderer;
         int[] imageData;
 
+        Vec pnt = new Vec(3);
+        Vec data = new Vec(4);
+        double du, dv, umin, vmin, wmin;
+        int dataDim;
+        // batch evaluation data, null for non batch renderers
+        BatchDataSource batchRenderer;
+        VecArray pnts;
+        VecArray values;
+        // colors of evaluated pixels of the block 
+        int colors[] = new int[BLOCK_SIZE*BLOCK_SIZE];
+
         public ImageRunner(int width, int height, Bounds bounds, DataSource imgRenderer, int[] imageData) {
             this.width = width;
             this.height = height;
@@ -294,66 +388,164 @@ public class ImageMaker extends BaseParameterizable implements ImageProducer {
             this.imgRenderer = imgRenderer;
             this.imageData = imageData;
 
-            if (width * height > imageData.length) {
-                throw new IllegalArgumentException(fmt("ImageData is too small.  w: %d  h: %d  size: %d id.size: %d\n",width,height,width*height,imageData.length));
+            du = bounds.getSizeX()/width;
+            dv = bounds.getSizeY()/height;
+
+            umin = bounds.xmin + du/2; // half pixel shift
+            vmin = bounds.ymin + dv/2;
+            // take w plane in the middle of bounds, or shall it be at zmin ?
+            wmin = (bounds.zmin + bounds.zmax)/2;
+            dataDim = imgRenderer.getChannelsCount();
+            if(imgRenderer instanceof BatchDataSource){
+                batchRenderer = (BatchDataSource)imgRenderer;
+                pnts = new VecArray(3, BLOCK_SIZE*BLOCK_SIZE);
+                values = new VecArray(4, BLOCK_SIZE*BLOCK_SIZE);
             }
         }
 
-        public void run(){
-            Vec pnt = new Vec(3);
-            Vec data = new Vec(4);
-            double du = bounds.getSizeX()/width;
-            double dv = bounds.getSizeY()/height;
-
-            double umin = bounds.xmin + du/2; // half pixel shift
-            double vmin = bounds.ymin + dv/2;
-            // take w plane in the middle of bounds, or shall it be at zmin ?
-            double wmin = (bounds.zmin + bounds.zmax)/2;
+        /**
+           @return ARGB color of pixel (u,v)
+         */
+        final int renderPixel(int u, int v){
 
-            int dataDim = imgRenderer.getChannelsCount();
             double datav[] = data.v;
+            pnt.set(umin + u * du, vmin + v * dv, wmin);
+            data.set(0, 0, 0, 0); // init data
 
-            int v = -1;
-            int offset = -1;
-            try {
-                //printf("%s:.run()\n", Thread.currentThread());
+            imgRenderer.getDataValue(pnt, data);
+            return makeColor(datav[0], datav[1], datav[2], datav[3]);
+        }
+
+        /**
+           @return ARGB color from data values 
+         */
+        final int makeColor(double d0, double d1, double d2, double d3){
+
+            switch (dataDim) {
+            default:
+            case 4:
+                return makeARGB(d0, d1, d2, d3);
+            case 3:
+                return makeARGB(d0, d1, d2, 1.);
+            case 2:
+                return makeARGB(d0, 0, d1, 1.);
+            case 1:
+                return makeARGB(d0, d0, d0, 1.);
+            }
+        }
 
-                while (true) {
+        /**
+           renders pixels of the tile with coordinates divisible by step and replicates them into blocks of step x step pixels 
+           pixels with coordinates divisible by prevStep are not evaluated, their colors are taken from the image 
+           prevStep = 0 means there is no previous level 
+         */
+        final void renderTile(Tile tile, int step, int prevStep){
+
+            // tiles are aligned to TILE_SIZE which is multiple of step 
+            // blocks are clipped to the tile to keep tiles independent 
+            int u0 = ((tile.xmin + step - 1)/step)*step;
+            int v0 = ((tile.ymin + step - 1)/step)*step;
+            int blockSize = BLOCK_SIZE*step;
+
+            for(int bv = v0; bv <= tile.ymax; bv += blockSize){
+                int bvmax = Math.min(bv + blockSize - 1, tile.ymax);
+                for(int bu = u0; bu <= tile.xmax; bu += blockSize){
+                    renderBlock(bu, bv, Math.min(bu + blockSize - 1, tile.xmax), bvmax, step, prevStep);
+                }
+            }
+        }
 
-                    Slice slice = getNextSlice();
-                    if (slice == null) {
-                        return;
+        /**
+           renders block of up to BLOCK_SIZE x BLOCK_SIZE pixels with given step 
+         */
+        final void renderBlock(int bumin, int bvmin, int bumax, int bvmax, int step, int prevStep){
+
+            // collect pixels to evaluate 
+            int count = 0;
+            for(int v = bvmin; v <= bvmax; v += step){
+                for(int u = bumin; u <= bumax; u += step){
+                    if(prevStep > 0 && (u % prevStep) == 0 && (v % prevStep) == 0)
+                        continue;
+                    if(batchRenderer != null) 
+                        pnts.set(count, umin + u * du, vmin + v * dv, wmin);
+                    else 
+                        colors[count] = renderPixel(u, v);
+                    count++;
+                }
+            }
+            if(batchRenderer != null && count > 0)
+                renderBatch(count);
+
+            // fill the pixels 
+            int k = 0;
+            for(int v = bvmin; v <= bvmax; v += step){
+                int vmax = Math.min(v + step - 1, bvmax);
+                for(int u = bumin; u <= bumax; u += step){
+                    int color;
+                    if(prevStep > 0 && (u % prevStep) == 0 && (v % prevStep) == 0){
+                        // pixel was evaluated on the previous level 
+                        color = imageData[u + width * (height - 1 - v)];
+                    } else {
+                        color = colors[k++];
+                    }
+                    int umax = Math.min(u + step - 1, bumax);
+                    for(int y = v; y <= vmax; y++){
+                        //in images y-axis pointing down
+                        int offy = width * (height - 1 - y);
+                        for(int x = u; x <= umax; x++){
+                            imageData[x + offy] = color;
+                        }
                     }
+                }
+            }
+        }
 
-                    v = slice.getHeight();
+        /**
+           evaluates colors of first count points of the block
+         */
+        final void renderBatch(int count){
+
+            pnts.setSize(count);
+            double vv[][] = values.v;
+            for(int c = 0; c < vv.length; c++){
+                // init data 
+                Arrays.fill(vv[c], 0, count, 0.);
+            }
+            batchRenderer.getDataValues(pnts, values);
+            for(int i = 0; i < count; i++){
+                colors[i] = makeColor(vv[0][i], vv[1][i], vv[2][i], vv[3][i]);
+            }
+        }
+
+        final void checkCancelled(){
+            if(m_cancelled)
+                throw new ExecutionStoppedException();
+            TileScheduler.checkCancelled();
+        }
+
+        public void processTile(Tile tile){
+
+            checkCancelled();
+
+            int v = -1;
+            int offset = -1;
+            try {
+
+                if(batchRenderer != null){
+                    renderTile(tile, 1, 0);
+                    return;
+                }
+                for(v = tile.ymin; v <= tile.ymax; v++){
 
                     //in images y-axis pointing down
                     int offy = width * (height - 1 - v);
-                    double vvalue = vmin + v * dv;
-                    for (int u = 0; u < width; u++) {
+                    for (int u = tile.xmin; u <= tile.xmax; u++) {
                         offset = u + offy;
-
-                        pnt.set(umin + u * du, vvalue, wmin);
-                        data.set(0, 0, 0, 0); // init data
-
-                        imgRenderer.getDataValue(pnt, data);
-                        switch (dataDim) {
-                            default:
-                            case 4:
-                                imageData[offset] = makeARGB(datav[0], datav[1], datav[2], datav[3]);
-                                break;
-                            case 3:
-                                imageData[offset] = makeARGB(datav[0], datav[1], datav[2], 1.);
-                                break;
-                            case 2:
-                                imageData[offset] = makeARGB(datav[0], 0, datav[1], 1.);
-                                break;
-                            case 1:
-                                imageData[offset] = makeARGB(datav[0], datav[0], datav[0], 1.);
-                                break;
-                        }
+                        imageData[offset] = renderPixel(u, v);
                     }
                 }
+            } catch(ExecutionStoppedException e) {
+                throw e;
             } catch(Throwable t) {
                 t.printStackTrace();
                 System.out.flush();
@@ -362,19 +554,30 @@ public class ImageMaker extends BaseParameterizable implements ImageProducer {
         }
     } //class ImageRunner
 
+    /**
+       renders tiles of one level of progressive rendering 
+       evaluates pixels with coordinates divisible by step and replicates them into blocks of step x step pixels 
+       pixels evaluated on the previous level (coordinates divisible by prevStep) are reused 
+     */
+    class ProgressiveRunner extends ImageRunner {
 
-    static class Slice {
-
-        private int h;
+        int step;
+        int prevStep;
 
-        Slice(int h){
-            this.h = h;
+        ProgressiveRunner(int width, int height, Bounds bounds, DataSource imgRenderer, int[] imageData, int step, int prevStep) {
+            super(width, height, bounds, imgRenderer, imageData);
+            this.step = step;
+            this.prevStep = prevStep;
         }
 
-        public int getHeight() {
-            return h;
+        public void processTile(Tile tile){
+
+            checkCancelled();
+            renderTile(tile, step, prevStep);
+
         }
-    }
+    } // class ProgressiveRunner
+
 
     static class SolidColor extends BaseParameterizable implements DataSource {
         
@@ -38,6 +38,7 @@ import abfab3d.core.ImageStackProducer;
 
 
 import abfab3d.param.BaseParameterizable;
+import abfab3d.param.ParamHash;
 import abfab3d.param.URIParameter;
 import abfab3d.param.ColorParameter;
 import abfab3d.param.DoubleParameter;
@@ -138,7 +139,10 @@ public class ImageStackLoader extends BaseParameterizable implements ImageStackP
 
     protected String getLabel(int index){
 
-        return getDataLabel() + ","+String.valueOf(index);
+        ParamHash hash = new ParamHash();
+        hash.putParams(getClass().getSimpleName(), getParams());
+        hash.putLong(index);
+        return hash.getValue();
 
     }
     /**
@@ -122,7 +122,7 @@ public class ImageStackToGrid extends BaseParameterizable implements GridProduce
         Object co = null;
         String label = null;
 
-        label = getDataLabel();
+        label = getDataHash();
 
         if (CACHING_ENABLED) {
             co = ParamCache.getInstance().get(label);
@@ -107,7 +107,7 @@ public class ImageToGrid2D extends BaseParameterizable implements Grid2DProducer
         Object co = null;
         String label = null;
 
-        label = getDataLabel();
+        label = getDataHash();
 
         if (CACHING_ENABLED) {
             co = ParamCache.getInstance().get(label);
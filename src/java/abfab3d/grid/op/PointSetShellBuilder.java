@@ -21,6 +21,9 @@ import abfab3d.grid.ArrayAttributeGridByte;
 import abfab3d.core.Bounds;
 import abfab3d.util.PointSet;
 import abfab3d.util.PointSetArray;
+import abfab3d.util.Slice;
+import abfab3d.util.SliceManager;
+import abfab3d.util.TileScheduler;
 
 import static java.lang.Math.sqrt;
 import static java.lang.Math.max;
@@ -38,6 +41,12 @@ import static abfab3d.core.MathUtil.clamp;
 
    indices of points closest to given grid point are stored in the indexGrid
 
+   If thread count is more than 1, the grid is split into z-slabs processed in parallel. 
+   Each slab receives indices of all points whose neighborhood intersects the slab in increasing order 
+   and writes only to its own voxels, so the result is the same as in single thread case. 
+   Binning of points into slabs is done in parallel too.
+   Grids have to allow concurrent writes into different voxels (array grids do). 
+
 
    @author Vladimir Bulatov
  */
@@ -65,6 +74,7 @@ public class PointSetShellBuilder implements AttributeOperation {
     // grid to store current shortest distances 
     AttributeGrid m_distanceGrid; 
 
+    protected int m_threadCount = 1;
     
     public PointSetShellBuilder(){
 
@@ -93,6 +103,12 @@ public class PointSetShellBuilder implements AttributeOperation {
         m_layerThickness = shellHalfThickness;
 
     }
+
+    public void setThreadCount(int threadCount){
+
+        m_threadCount = threadCount;
+
+    }
    
     public AttributeGrid execute(AttributeGrid indexGrid) {
         
@@ -200,6 +216,10 @@ public class PointSetShellBuilder implements AttributeOperation {
 
     protected void calculateShell(){
 
+        if(m_threadCount > 1 && m_nz > 1){
+            calculateShellMT();
+            return;
+        }
         int npnt = m_points.size();
         Vector3d pnt = new Vector3d();
         
@@ -208,14 +228,155 @@ public class PointSetShellBuilder implements AttributeOperation {
         for(int i = 1; i < npnt; i++){// start from 1. Index 0 means undefined
             
             m_points.getPoint(i, pnt);
-            processNeighborhood(i, (pnt.x-x0)*scale, (pnt.y-y0)*scale, (pnt.z-z0)*scale);
+            processNeighborhood(i, (pnt.x-x0)*scale, (pnt.y-y0)*scale, (pnt.z-z0)*scale, 0, m_nz);
+        }
+    }
+
+    /**
+       bins points into z-slabs and processes slabs in parallel 
+     */
+    protected void calculateShellMT(){
+
+        long t0 = time();
+        int npnt = m_points.size();
+
+        // max z-offset of neighbors 
+        int radius = 0;
+        for(int i = 2; i < m_neighbors.length; i += 3)
+            radius = max(radius, abs(m_neighbors[i]));
+
+        int slabThickness = max(radius+1, (m_nz + 4*m_threadCount - 1)/(4*m_threadCount));
+        SliceManager slabs = new SliceManager(m_nz, slabThickness);
+        int slabCount = slabs.getSliceCount();
+
+        // chunks of points to bin in parallel 
+        int chunkSize = max(1000, (npnt + m_threadCount - 1)/m_threadCount);
+        SliceManager chunks = new SliceManager(npnt, chunkSize);
+        int chunkCount = chunks.getSliceCount();
+        int counts[][] = new int[chunkCount][slabCount];
+        
+        Runnable workers[] = new Runnable[min(m_threadCount, chunkCount)];
+        for(int i = 0; i < workers.length; i++)
+            workers[i] = new PointBinner(chunks, chunkSize, counts, null, radius, slabThickness);
+        TileScheduler.runWorkers(workers);
+
+        // counts are replaced by offsets of chunks in slabs 
+        int slabStart[] = new int[slabCount+1];
+        int offset = 0;
+        for(int s = 0; s < slabCount; s++){
+            slabStart[s] = offset;
+            for(int c = 0; c < chunkCount; c++){
+                int cnt = counts[c][s];
+                counts[c][s] = offset;
+                offset += cnt;
+            }
         }
+        slabStart[slabCount] = offset;
+
+        int slabPoints[] = new int[offset];
+        chunks = new SliceManager(npnt, chunkSize);
+        for(int i = 0; i < workers.length; i++)
+            workers[i] = new PointBinner(chunks, chunkSize, counts, slabPoints, radius, slabThickness);
+        TileScheduler.runWorkers(workers);
+        if(DEBUG) printf("PointSetShellBuilder binning: %d ms points: %d entries: %d slabs: %d\n", time() - t0, npnt, offset, slabCount);
+
+        workers = new Runnable[min(m_threadCount, slabCount)];
+        for(int i = 0; i < workers.length; i++)
+            workers[i] = new SlabProcessor(slabs, slabThickness, slabPoints, slabStart);
+        TileScheduler.runWorkers(workers);
+        if(DEBUG) printf("PointSetShellBuilder.calculateShellMT() %d ms\n", time() - t0);
     }
 
+    /**
+       counts points in each slab (if slabPoints == null) or writes indices of points into slabs 
+     */
+    class PointBinner implements Runnable {
+
+        SliceManager chunks;
+        int chunkSize;
+        int counts[][];
+        int slabPoints[];
+        int radius;
+        int slabThickness;
+
+        PointBinner(SliceManager chunks, int chunkSize, int counts[][], int slabPoints[], int radius, int slabThickness){
+            this.chunks = chunks;
+            this.chunkSize = chunkSize;
+            this.counts = counts;
+            this.slabPoints = slabPoints;
+            this.radius = radius;
+            this.slabThickness = slabThickness;
+        }
+
+        public void run(){
+
+            Vector3d pnt = new Vector3d();
+            int maxSlab = (m_nz-1)/slabThickness;
+            while(true){
+                Slice chunk = chunks.getNextSlice();
+                if(chunk == null)
+                    break;
+                int cnt[] = counts[chunk.smin/chunkSize];
+                // point 0 is unused 
+                for(int i = max(1, chunk.smin); i < chunk.smax; i++){
+                    m_points.getPoint(i, pnt);
+                    int z0 = (int)((pnt.z - m_zmin)*m_scale);
+                    int zmin = z0 - radius, zmax = z0 + radius;
+                    if(zmax < 0 || zmin >= m_nz) 
+                        continue;
+                    int s1 = max(zmin, 0)/slabThickness;
+                    int s2 = min(zmax/slabThickness, maxSlab);
+                    for(int s = s1; s <= s2; s++){
+                        if(slabPoints != null) 
+                            slabPoints[cnt[s]] = i;
+                        cnt[s]++;
+                    }
+                }
+            }
+        }
+    } // class PointBinner 
+
+    /**
+       processes points of slabs 
+     */
+    class SlabProcessor implements Runnable {
+
+        SliceManager slabs;
+        int slabThickness;
+        int slabPoints[];
+        int slabStart[];
+
+        SlabProcessor(SliceManager slabs, int slabThickness, int slabPoints[], int slabStart[]){
+            this.slabs = slabs;
+            this.slabThickness = slabThickness;
+            this.slabPoints = slabPoints;
+            this.slabStart = slabStart;
+        }
+
+        public void run(){
+
+            Vector3d pnt = new Vector3d();
+            final double y0 = m_ymin, x0 = m_xmin, z0 = m_zmin,scale = m_scale;
+            while(true){
+                Slice slab = slabs.getNextSlice();
+                if(slab == null)
+                    break;
+                TileScheduler.checkCancelled();
+                int s = slab.smin/slabThickness;
+                for(int k = slabStart[s]; k < slabStart[s+1]; k++){
+                    int i = slabPoints[k];
+                    m_points.getPoint(i, pnt);
+                    processNeighborhood(i, (pnt.x-x0)*scale, (pnt.y-y0)*scale, (pnt.z-z0)*scale, slab.smin, slab.smax);
+                }
+            }
+        }
+    } // class SlabProcessor 
+
     //
     // point cordinates are in voxels
+    // only voxels with zmin <= z < zmax are processed 
     //
-    final void processNeighborhood(int pointIndex, double x, double y, double z){
+    final void processNeighborhood(int pointIndex, double x, double y, double z, int zmin, int zmax){
         
         int 
             x0 = (int)x,
@@ -233,8 +394,8 @@ public class PointSetShellBuilder implements AttributeOperation {
                 vz = z0 + m_neighbors[i+2];  
             
             //  printf("(%2d %2d %2d )\n", vx, vy, vz);
-            if( vx >= 0 && vy >= 0 && vz >= 0 && 
-                vx < m_nx && vy < m_ny && vz < m_nz){
+            if( vx >= 0 && vy >= 0 && vz >= zmin && 
+                vx < m_nx && vy < m_ny && vz < zmax){
                 // center of voxels have coordinates shifted by HALF
                 double 
                     dx = (vx - x)+HALF,
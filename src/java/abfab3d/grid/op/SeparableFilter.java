@@ -0,0 +1,287 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.grid.op;
+
+import abfab3d.core.Grid2D;
+import abfab3d.core.GridDataChannel;
+import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.SliceManager;
+import abfab3d.util.Slice;
+import abfab3d.util.TileScheduler;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+import static java.lang.Math.floor;
+import static java.lang.Math.round;
+
+
+/**
+   separable filters of 2D grids
+
+   each pass reads grid rows (or tiles of columns) into primitive buffers,
+   filters the buffers and writes them back. Rows and tiles are processed by several threads
+
+   boundary condition is clamp to edge
+ */
+public class SeparableFilter {
+
+    static final boolean DEBUG = false;
+
+    // count of columns processed together in Y pass
+    static final int TILE_WIDTH = 16;
+    // count of rows processed by a thread at once
+    static final int ROWS_CHUNK = 8;
+
+    double m_kernel[];
+    int m_boxRadius[];
+    int m_threadCount = 0;
+
+    /**
+       filter with given symmetric convolution kernel
+     */
+    public SeparableFilter(double kernel[]){
+        m_kernel = kernel;
+    }
+
+    /**
+       filter made of several passes of box filters with given radii
+     */
+    public SeparableFilter(int boxRadius[]){
+        m_boxRadius = boxRadius;
+    }
+
+    /**
+       filter which approximates gaussian with several passes of box filter
+       @param sigma width of gaussian in pixels
+       @param passes count of box filter passes
+     */
+    public static SeparableFilter makeBoxGaussian(double sigma, int passes){
+        return new SeparableFilter(getBoxRadii(sigma, passes));
+    }
+
+    /**
+       @param count threads count, 0 - use all available processors
+     */
+    public void setThreadCount(int count){
+        m_threadCount = count;
+    }
+
+    /**
+       filters given channel of the grid in place
+     */
+    public void execute(Grid2D grid, GridDataChannel channel){
+
+        int nx = grid.getWidth();
+        int ny = grid.getHeight();
+        int threads = AbFab3DGlobals.getThreadCount(m_threadCount);
+
+        SliceManager rows = new SliceManager(ny, ROWS_CHUNK);
+        runPass(new RowsFilter(grid, channel, rows), threads);
+
+        SliceManager columns = new SliceManager(nx, TILE_WIDTH);
+        runPass(new ColumnsFilter(grid, channel, columns), threads);
+    }
+
+    void runPass(PassFilter worker, int threads){
+
+        Runnable workers[] = new Runnable[max(1, threads)];
+        workers[0] = worker;
+        for(int i = 1; i < workers.length; i++){
+            workers[i] = worker.copy();
+        }
+        TileScheduler.runWorkers(workers);
+    }
+
+    /**
+       filters single row of data
+       @param data  row of data, it is replaced with filtered data
+       @param len length of data
+       @param buffer work buffer of size at least len
+     */
+    void filterRow(double data[], int len, double buffer[]){
+
+        if(m_kernel != null){
+            convolve(data, buffer, len, m_kernel);
+            System.arraycopy(buffer, 0, data, 0, len);
+        } else {
+            for(int i = 0; i < m_boxRadius.length; i++){
+                boxFilter(data, buffer, len, m_boxRadius[i]);
+                System.arraycopy(buffer, 0, data, 0, len);
+            }
+        }
+    }
+
+    /**
+       convolution of row of data with symmetric kernel
+       @param in input data
+       @param out output data
+       @param len length of data
+     */
+    public static void convolve(double in[], double out[], int len, double kernel[]){
+
+        int ksize = kernel.length/2;
+        int klen = kernel.length;
+        int len1 = len-1;
+        for(int x = 0; x < len; x++){
+            double sum = 0;
+            if(x >= ksize && x + ksize < len){
+                int x0 = x + ksize;
+                for(int k = 0; k < klen; k++){
+                    sum += kernel[k] * in[x0 - k];
+                }
+            } else {
+                for(int k = 0; k < klen; k++){
+                    int xx = x - (k-ksize);
+                    xx = (xx < 0)? 0 : ((xx > len1)? len1: xx); // boundary conditions
+                    sum += kernel[k] * in[xx];
+                }
+            }
+            out[x] = sum;
+        }
+    }
+
+    /**
+       box filter of row of data
+       @param in input data
+       @param out output data
+       @param len length of data
+       @param radius radius of box, box width is (2*radius+1)
+     */
+    public static void boxFilter(double in[], double out[], int len, int radius){
+
+        int len1 = len-1;
+        double norm = 1./(2*radius+1);
+        double sum = 0;
+        for(int x = -radius; x <= radius; x++){
+            sum += in[min(len1, max(0, x))];
+        }
+        for(int x = 0; x < len; x++){
+            out[x] = sum*norm;
+            sum += in[min(len1, x + radius + 1)] - in[max(0, x - radius)];
+        }
+    }
+
+    /**
+       @return radii of box filters which approximate gaussian with given sigma
+     */
+    public static int[] getBoxRadii(double sigma, int passes){
+
+        double wIdeal = sqrt(12*sigma*sigma/passes + 1);
+        int wl = (int)floor(wIdeal);
+        if(wl % 2 == 0) wl--;
+        int wu = wl + 2;
+        double mIdeal = (12*sigma*sigma - passes*wl*wl - 4*passes*wl - 3*passes)/(-4*wl - 4);
+        long m = round(mIdeal);
+        int radius[] = new int[passes];
+        for(int i = 0; i < passes; i++){
+            radius[i] = max(0, ((i < m)? wl : wu)/2);
+        }
+        return radius;
+    }
+
+    abstract class PassFilter implements Runnable {
+
+        Grid2D grid;
+        GridDataChannel channel;
+        SliceManager manager;
+
+        PassFilter(Grid2D grid, GridDataChannel channel, SliceManager manager){
+            this.grid = grid;
+            this.channel = channel;
+            this.manager = manager;
+        }
+        abstract PassFilter copy();
+    }
+
+    /**
+       filters chunks of rows
+     */
+    class RowsFilter extends PassFilter {
+
+        RowsFilter(Grid2D grid, GridDataChannel channel, SliceManager manager){
+            super(grid, channel, manager);
+        }
+
+        PassFilter copy(){
+            return new RowsFilter(grid, channel, manager);
+        }
+
+        public void run(){
+
+            int nx = grid.getWidth();
+            double row[] = new double[nx];
+            double buffer[] = new double[nx];
+
+            while(true){
+                Slice slice = manager.getNextSlice();
+                if(slice == null)
+                    break;
+                TileScheduler.checkCancelled();
+                for(int y = slice.smin; y < slice.smax; y++){
+                    for(int x = 0; x < nx; x++){
+                        row[x] = channel.getValue(grid.getAttribute(x,y));
+                    }
+                    filterRow(row, nx, buffer);
+                    for(int x = 0; x < nx; x++){
+                        grid.setAttribute(x,y,channel.makeAtt(row[x]));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+       filters tiles of columns
+       the tile is read and written row by row to keep memory access local
+     */
+    class ColumnsFilter extends PassFilter {
+
+        ColumnsFilter(Grid2D grid, GridDataChannel channel, SliceManager manager){
+            super(grid, channel, manager);
+        }
+
+        PassFilter copy(){
+            return new ColumnsFilter(grid, channel, manager);
+        }
+
+        public void run(){
+
+            int ny = grid.getHeight();
+            double tile[][] = new double[TILE_WIDTH][ny];
+            double buffer[] = new double[ny];
+
+            while(true){
+                Slice slice = manager.getNextSlice();
+                if(slice == null)
+                    break;
+                TileScheduler.checkCancelled();
+                int x0 = slice.smin;
+                int width = slice.smax - x0;
+                for(int y = 0; y < ny; y++){
+                    for(int i = 0; i < width; i++){
+                        tile[i][y] = channel.getValue(grid.getAttribute(x0 + i,y));
+                    }
+                }
+                for(int i = 0; i < width; i++){
+                    filterRow(tile[i], ny, buffer);
+                }
+                for(int y = 0; y < ny; y++){
+                    for(int i = 0; i < width; i++){
+                        grid.setAttribute(x0 + i,y,channel.makeAtt(tile[i][y]));
+                    }
+                }
+            }
+        }
+    }
+}
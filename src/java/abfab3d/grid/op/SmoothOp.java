@@ -16,13 +16,10 @@ package abfab3d.grid.op;
 
 // Internal Imports
 
-import abfab3d.core.GridDataChannel;
 import abfab3d.core.Grid2D;
 import abfab3d.grid.Operation2D;
 import abfab3d.core.MathUtil;
 
-import static abfab3d.core.MathUtil.clamp;
-
 /**
  * Smooth a grid
  *
@@ -32,11 +29,32 @@ public class SmoothOp implements Operation2D {
     private static final boolean DEBUG = false;
 
     private double distance;  // distance in meters
+    private int threadCount = 0;
+    private boolean boxFilter = false;
 
     public SmoothOp(double distance) {
         this.distance = distance;
     }
 
+    /**
+     * Set the number of threads to use.
+     *
+     * @param count The number of threads, 0 to use all processors
+     */
+    public void setThreadCount(int count) {
+        threadCount = count;
+    }
+
+    /**
+     * Approximate the gaussian kernel with 3 box filter passes.  Speed does
+     * not depend on the smoothing distance.
+     *
+     * @param value true to use box filters
+     */
+    public void setBoxFilter(boolean value) {
+        boxFilter = value;
+    }
+
     /**
      * Execute an operation on a grid.  If the operation changes the grid
      * dimensions then a new one will be returned from the call.
@@ -47,75 +65,16 @@ public class SmoothOp implements Operation2D {
     public Grid2D execute(Grid2D src) {
 
         double pdistance = distance / src.getVoxelSize();
-        double[] kernel = MathUtil.getGaussianKernel(pdistance, 0.001);
-
-        int s = Math.max(src.getWidth(), src.getHeight());
 
-        convoluteX(src, kernel, s);
-        convoluteY(src,kernel, s);
+        SeparableFilter filter;
+        if (boxFilter) {
+            filter = SeparableFilter.makeBoxGaussian(pdistance, 3);
+        } else {
+            filter = new SeparableFilter(MathUtil.getGaussianKernel(pdistance, 0.001));
+        }
+        filter.setThreadCount(threadCount);
+        filter.execute(src, src.getDataDesc().getDefaultChannel());
 
         return src;
     }
-
-
-    private void convoluteX(Grid2D src, double kernel[],int rlen){
-        GridDataChannel channel = src.getDataDesc().getDefaultChannel();
-        int w = src.getWidth();
-        int h = src.getHeight();
-
-        int ksize = kernel.length/2;
-        int w1 = w-1;
-        int len = kernel.length;
-
-        double[] crow = new double[rlen];
-        double sum;
-
-        for(int y = 0; y < h; y++){
-
-            for(int x = 0; x < w; x++) {
-                crow[x] = channel.getValue(src.getAttribute(x, y));
-            }
-
-            for(int x = 0; x < w; x++){
-                sum = 0;
-                for(int k = 0; k < len; k++){
-
-                    int xx = x - (k-ksize); //offsety + x + k;
-
-                    xx = clamp(xx, 0, w1); // boundary conditions
-                    sum += (kernel[k] * crow[xx]);
-                }
-                src.setAttribute(x,y,channel.makeAtt(sum));
-            }
-        }
-    }
-
-    private void convoluteY(Grid2D src,double kernel[],int rlen){
-        GridDataChannel channel = src.getDataDesc().getDefaultChannel();
-
-        int w = src.getWidth();
-        int h = src.getHeight();
-        int ksize = kernel.length/2;
-        int h1 = h-1;
-        int len = kernel.length;
-
-        double[] crow = new double[rlen];
-        double sum;
-
-        for(int x = 0; x < w; x++){
-            for(int y = 0; y < h; y++) {
-                crow[y] = channel.getValue(src.getAttribute(x, y));
-            }
-
-            for(int y = 0; y < h; y++){
-                sum = 0;
-                for(int k = 0; k < len; k++){
-                    int yy = y - (k-ksize);
-                    yy = clamp(yy, 0, h1);
-                    sum += (kernel[k] * crow[yy]);
-                }
-                src.setAttribute(x,y,channel.makeAtt(sum));
-            }
-        }
-    } // convolute y
 }
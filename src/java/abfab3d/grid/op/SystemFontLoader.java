@@ -72,7 +72,7 @@ public class SystemFontLoader extends BaseParameterizable implements FontProduce
         Object co = null;
         String label = null;
         if(CACHING_ENABLED){
-            label = getDataLabel();
+            label = getDataHash();
             co = ParamCache.getInstance().get(label);
         }
         if (co == null) {
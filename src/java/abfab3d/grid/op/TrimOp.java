@@ -337,7 +337,7 @@ public class TrimOp extends BaseParameterizable implements Operation, AttributeO
 
         double threshold = mp_threshold.getValue();
 
-        String vhash = getDataLabel();
+        String vhash = getDataHash();
 
         Object co = ParamCache.getInstance().get(vhash);
         if (DEBUG) printf("TrimOp vhash: %s cached: %b\n",vhash,co!=null);
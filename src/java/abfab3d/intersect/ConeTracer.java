@@ -0,0 +1,150 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.intersect;
+
+import javax.vecmath.Vector3d;
+
+import abfab3d.core.DataSource;
+import abfab3d.core.Vec;
+
+import static abfab3d.core.Output.printf;
+
+/**
+   conservative sphere tracing of a cone against signed distance data source
+
+   The cone is bundle of rays around axis. Cross section of the cone at axial distance t is disk of radius r0 + t*tanAngle.
+   Cone with r0 = 0 encloses rays of a pixel tile going from the camera eye.
+   Cone with tanAngle = 0 is a cylinder enclosing parallel rays.
+
+   getSafeDistance() marches along the axis and returns axial distance up to which the cone has no intersection with the surface.
+   Each ray of the bundle can start its own tracing from that distance.
+   One march of the cone replaces the initial steps of all rays of the bundle.
+
+   The data source has to return signed distance in channel 0 which does not overestimate the actual distance by more than 1/factor
+
+   Instance keeps scratch data and should be used by single thread
+ */
+public class ConeTracer {
+
+    static final boolean DEBUG = false;
+
+    DataSource m_source;
+    // safety factor to account for inexact distance
+    double m_factor = 0.9;
+    // cone stops when the step becomes smaller than minStep
+    double m_minStep = 1.e-3;
+    // max step to make 
+    double m_maxStep = Double.MAX_VALUE;
+    // distance to keep from the surface
+    double m_margin = 0.;
+    int m_maxSteps = 200;
+
+    // count of data source evaluations of last march
+    int m_evaluations;
+
+    Vec m_pnt = new Vec(3);
+    Vec m_data;
+
+    /**
+       @param source data source which returns signed distance in channel 0. Data source should be initialized
+     */
+    public ConeTracer(DataSource source){
+        m_source = source;
+        m_data = new Vec(Math.max(1,source.getChannelsCount()));
+    }
+
+    /**
+       @param factor safety factor to multiply the distance, 0 < factor <= 1
+     */
+    public void setFactor(double factor){
+        m_factor = factor;
+    }
+
+    /**
+       @param minStep cone marching stops if next step is smaller than minStep
+     */
+    public void setMinStep(double minStep){
+        m_minStep = minStep;
+    }
+
+    /**
+       @param maxStep maximal step of marching. It may be used for data sources with inexact distance far from the surface
+     */
+    public void setMaxStep(double maxStep){
+        m_maxStep = maxStep;
+    }
+
+    /**
+       @param margin distance to the surface to keep. Points of the cone before returned safe distance have distance to surface at least margin
+     */
+    public void setMargin(double margin){
+        m_margin = margin;
+    }
+
+    public void setMaxSteps(int maxSteps){
+        m_maxSteps = maxSteps;
+    }
+
+    public DataSource getSource(){
+        return m_source;
+    }
+
+    /**
+       @return count of data source evaluations made during last call to getSafeDistance()
+     */
+    public int getEvaluationsCount(){
+        return m_evaluations;
+    }
+
+    /**
+       march the cone along its axis
+
+       @param origin origin of the cone axis
+       @param direction unit vector of axis direction
+       @param r0 radius of cone at the origin
+       @param tanAngle tangent of the cone half angle
+       @param tStart axial distance to start from
+       @param tEnd axial distance to stop at
+       @return axial distance t in [tStart, tEnd] such that part of the cone between tStart and t has no intersection with the surface
+     */
+    public double getSafeDistance(Vector3d origin, Vector3d direction, double r0, double tanAngle, double tStart, double tEnd){
+
+        double t = tStart;
+        double scale = 1 + tanAngle;
+        m_evaluations = 0;
+
+        for(int i = 0; i < m_maxSteps; i++){
+
+            if(t >= tEnd)
+                return tEnd;
+
+            m_pnt.set(origin.x + t*direction.x, origin.y + t*direction.y, origin.z + t*direction.z);
+            m_pnt.voxelSize = 1;
+            m_pnt.scaleFactor = 1;
+            m_source.getDataValue(m_pnt, m_data);
+            m_evaluations++;
+
+            // disk of cone at t+step is inside of the ball of radius factor*dist centered at axis point
+            double step = (m_factor*m_data.v[0] - m_margin - (r0 + t*tanAngle))/scale;
+            if(DEBUG) printf("t:%8.5f dist:%8.5f step:%8.5f\n", t, m_data.v[0], step);
+
+            if(step < m_minStep)
+                return t;
+            if(step > m_maxStep)
+                step = m_maxStep;
+            t += step;
+        }
+        return Math.min(t, tEnd);
+    }
+
+} // class ConeTracer
@@ -21,6 +21,7 @@ import abfab3d.util.PointSetArray;
 
 import abfab3d.param.Parameter;
 import abfab3d.param.IntParameter;
+import abfab3d.param.BooleanParameter;
 import abfab3d.param.DoubleParameter;
 import abfab3d.param.BaseParameterizable;
 
@@ -56,6 +57,8 @@ public class DataSourceIntersector extends BaseParameterizable{
     DoubleParameter mp_voxelSize = new DoubleParameter("voxelSize",0.5*MM);
     IntParameter mp_maxSteps = new IntParameter("maxStepsCount",1000);
     IntParameter mp_dimension = new IntParameter("dimension",3);
+    // skip empty space via conservative sphere tracing before the fixed steps 
+    BooleanParameter mp_coneTracing = new BooleanParameter("coneTracing",false);
 
     
     Parameter m_params[] = {
@@ -64,7 +67,8 @@ public class DataSourceIntersector extends BaseParameterizable{
         mp_maxDistance,
         mp_voxelSize,
         mp_dimension,
-        mp_maxSteps
+        mp_maxSteps,
+        mp_coneTracing
     };
 
     
@@ -99,8 +103,27 @@ public class DataSourceIntersector extends BaseParameterizable{
             return new Result(RESULT_INITIAL_INTERSECTION, start,start);
         }
         Vector3d dir = new Vector3d();
+        int i0 = 0;
+        if(mp_coneTracing.getValue()){
+            // ray is traced with unit direction
+            double len = direction.length();
+            dir.set(direction);
+            dir.scale(1./len);
+            double tSafe = new ConeTracer(dataSource).getSafeDistance(start, dir, 0., 0., 0., maxDistance*len)/len;
+            // skip steps which have no intersection 
+            i0 = Math.min((int)(tSafe/step), maxSteps);
+            if(i0 > 0){
+                dist0 = i0*step;
+                dir.set(direction);
+                dir.scale(dist0);
+                pnt.set(start);
+                pnt.addSet(dir);
+                dataSource.getDataValue(pnt, value);            
+                value0 = value.v[dataChannelIndex];
+            }
+        }
 
-        for(int i = 1; i < maxSteps; i++){
+        for(int i = i0+1; i < maxSteps; i++){
 
             double dist1 = i * step;                
             
@@ -261,10 +284,22 @@ public class DataSourceIntersector extends BaseParameterizable{
         Vector3d dir = new Vector3d();
         Vector3d pnt = new Vector3d();
         Vector3d minValuePoint1 = new Vector3d();
+        int i0 = 0;
+        if(mp_coneTracing.getValue()){
+            i0 = Math.min((int)(getSafeDistance(shape, frontPoints, start, direction, maxDistance)/step), maxSteps);
+            if(i0 > 0){
+                dist0 = i0*step;
+                dir.set(direction);
+                dir.scale(dist0);
+                pnt.set(start);
+                pnt.add(dir);
+                value0 = getMinValue(shape, frontPoints, pnt, minValuePoint0);
+            }
+        }
         //
         // find first intersection of moving front surface with the shape
         //
-        for(int i = 1; i < maxSteps; i++){
+        for(int i = i0+1; i < maxSteps; i++){
 
             double dist1 = i * step;                
             
@@ -297,6 +332,34 @@ public class DataSourceIntersector extends BaseParameterizable{
         
     }
 
+    /**
+       traces cylinder which encloses moving point set 
+       @return distance in units of direction length which point set can be moved without intersection with the shape 
+     */
+    double getSafeDistance(DataSource shape, PointSetArray points, Vector3d translation, Vector3d direction, double maxDistance){
+
+        Vector3d center = new Vector3d();
+        Vector3d pp = new Vector3d();
+        int count = points.size();
+        for(int k = 0; k < count; k++){
+            points.getPoint(k, pp);
+            center.add(pp);
+        }
+        center.scale(1./count);
+        double r2 = 0;
+        for(int k = 0; k < count; k++){
+            points.getPoint(k, pp);
+            pp.sub(center);
+            r2 = Math.max(r2, pp.lengthSquared());
+        }
+        center.add(translation);
+        // cylinder is traced with unit direction
+        double len = direction.length();
+        Vector3d dir = new Vector3d(direction);
+        dir.scale(1./len);
+        return new ConeTracer(shape).getSafeDistance(center, dir, Math.sqrt(r2), 0., 0., maxDistance*len)/len;
+    }
+
     /**
        return minimal distance from shape of point set
      */
@@ -201,6 +201,7 @@ public class AttributedDistanceRasterizer implements AttributedTriangleCollector
         m_surfaceBuilder.initialize();
 
         m_shellBuilder = new PointSetShellBuilder();
+        m_shellBuilder.setThreadCount(m_threadCount);
         
         m_shellBuilder.setShellHalfThickness(m_shellHalfThickness);
 
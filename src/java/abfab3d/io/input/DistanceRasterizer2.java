@@ -184,10 +184,12 @@ public class DistanceRasterizer2 implements TriangleCollector {
         }
         m_surfaceBuilder = new TriangleMeshSurfaceBuilder(surfaceBounds);        
         m_surfaceBuilder.setSortPoints(m_sortSurfacePoints);
+        m_surfaceBuilder.setThreadCount(m_threadCount);
 
         m_surfaceBuilder.initialize();
 
         m_shellBuilder = new PointSetShellBuilder();
+        m_shellBuilder.setThreadCount(m_threadCount);
         
         m_shellBuilder.setShellHalfThickness(m_shellHalfThickness);
 
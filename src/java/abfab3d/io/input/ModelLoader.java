@@ -415,12 +415,14 @@ public class ModelLoader extends BaseParameterizable implements GridProducer {
                 barr[5] = gbounds.zmax;
                 barr[6] = gbounds.getVoxelSize();
 
+                // each of these needs the grid to be loaded again 
+                long cost = System.currentTimeMillis() - t0;
                 LabeledBuffer<double[]> boundsBuffer = new LabeledBuffer<double[]>(bhash, barr);
-                CPUCache.getInstance().put(boundsBuffer,true);
+                CPUCache.getInstance().put(boundsBuffer,true,cost);
                 LabeledBuffer<byte[]> materialTypeBuffer = new LabeledBuffer<byte[]>(mhash, m_materialType.toString().getBytes());
-                CPUCache.getInstance().put(materialTypeBuffer,true);
+                CPUCache.getInstance().put(materialTypeBuffer,true,cost);
                 LabeledBuffer<byte[]> channelCountBuffer = new LabeledBuffer<byte[]>(cchash, new byte[] {(byte)grid.getDataDesc().size()});
-                CPUCache.getInstance().put(channelCountBuffer,true);
+                CPUCache.getInstance().put(channelCountBuffer,true,cost);
             }
 
         } catch (Exception e) {
@@ -19,14 +19,25 @@ import abfab3d.core.AttributedTriangleProducer;
 import abfab3d.core.Vec;
 import abfab3d.core.VecTransform;
 import abfab3d.core.Transformer;
+import abfab3d.grid.util.ExecutionStoppedException;
 
 import org.j3d.loaders.InvalidFormatException;
 import org.j3d.loaders.stl.STLFileReader;
 import org.web3d.vrml.lang.VRMLException;
 
+import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.TileScheduler;
+
 import javax.vecmath.Vector3d;
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 
 import static abfab3d.core.Output.fmt;
@@ -62,41 +73,22 @@ public class STLReader implements TriangleProducer, AttributedTriangleProducer,
     private String m_path;
     private InputStream m_is;
 
-    public void setScale(double scale) {
-        this.scale = scale;
-    }
-
-    private int readInt(DataInputStream data) throws IOException {
-
-        int i = data.readUnsignedByte() | (data.readUnsignedByte() << 8) |
-                (data.readUnsignedByte() << 16) | (data.readUnsignedByte() << 24);
-
-        return i;
-    }
-
-    private float readFloat(DataInputStream data) throws IOException {
-
-        //return data.readFloat();
-        int i = data.readUnsignedByte() | (data.readUnsignedByte() << 8) |
-                (data.readUnsignedByte() << 16) | (data.readUnsignedByte() << 24);
-        return Float.intBitsToFloat(i);
-
-    }
-
-    private void readVector3Df(DataInputStream data, Vec v) throws IOException {
+    private int m_threadCount = 0;
 
-        double x = readFloat(data) * scale;
-        double y = readFloat(data) * scale;
-        double z = readFloat(data) * scale;
+    static final int HEADER_SIZE = 84;
+    static final int FACET_SIZE = 50;
+    // count of triangles parsed by one task
+    static final int BATCH_SIZE = 1 << 14;
 
-        v.set(x, y, z);
+    public void setScale(double scale) {
+        this.scale = scale;
     }
 
-    private void readVector3Df(DataInputStream data, Vector3d v) throws IOException {
-
-        v.x = readFloat(data) * scale;
-        v.y = readFloat(data) * scale;
-        v.z = readFloat(data) * scale;
+    /**
+     * Set count of threads used to parse binary files, 0 - use all available processors
+     */
+    public void setThreadCount(int threadCount) {
+        m_threadCount = threadCount;
     }
 
     public STLReader() {
@@ -142,12 +134,12 @@ public class STLReader implements TriangleProducer, AttributedTriangleProducer,
             if (ascii) {
                 readAscii(path, out);            
             } else { // binary 
-                readBinary(makeInputStream(path), out);
+                readBinary(path, out, null);
             }
         } catch(InvalidFormatException ife) {
             if (ascii) {
                 // try binary as some binary files have solid in their header
-                readBinary(makeInputStream(path), out);
+                readBinary(path, out, null);
             }
         }
     }
@@ -180,11 +172,13 @@ public class STLReader implements TriangleProducer, AttributedTriangleProducer,
 
             } else {
                 
-                readBinary(makeInputStream(m_path), out);
+                readBinary(m_path, out, null);
             }
 
             return true;
 
+        } catch (ExecutionStoppedException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(fmt("Exception while reading STL file:%s\n", m_path), e);
         }
@@ -202,11 +196,13 @@ public class STLReader implements TriangleProducer, AttributedTriangleProducer,
 
             } else {
 
-                readBinary(makeInputStream(m_path), out);
+                readBinary(m_path, null, out);
             }
 
             return true;
 
+        } catch (ExecutionStoppedException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(fmt("Exception while reading STL file:%s\n", m_path), e);
         }
@@ -232,132 +228,225 @@ public class STLReader implements TriangleProducer, AttributedTriangleProducer,
     }
 
     /**
-     * Read in a file and apply the specified transform.
+     * Read binary file.  Uncompressed files are memory mapped and parsed in parallel, gzipped files are read as stream.
+     * One of collectors should be null.
+     */
+    private void readBinary(String path, TriangleCollector tout, AttributedTriangleCollector aout) throws IOException {
+
+        if (path.lastIndexOf(".gz") > -1) {
+            readBinary(makeInputStream(path), tout, aout);
+        } else {
+            readMapped(path, tout, aout);
+        }
+    }
+
+    private void readBinary(InputStream bis, TriangleCollector out) throws IOException {
+        readBinary(bis, out, null);
+    }
+
+    private void readBinary(InputStream bis, AttributedTriangleCollector out) throws IOException {
+        readBinary(bis, null, out);
+    }
+
+    /**
+     * Read triangles from stream and apply the specified transform.  Triangles are read until end of stream.
      *
      * @param bis File to read
-     * @param out  Destination
+     * @param tout  Destination
+     * @param aout  Destination
      * @throws IOException
      */
-    private void readBinary(InputStream bis, TriangleCollector out) throws IOException {
-        long t0;
+    private void readBinary(InputStream bis, TriangleCollector tout, AttributedTriangleCollector aout) throws IOException {
+        long t0 = 0;
 
         if (DEBUG) {
-            printf("STLReader.read(%s, %s)\n", bis, out);
+            printf("STLReader.read(%s)\n", bis);
             t0 = currentTimeMillis();
         }
 
         DataInputStream data = new DataInputStream(bis);
-
-        data.skip(80);
-
-        int fcount = readInt(data);
-        if (DEBUG)
-            printf("fcount: %d\n", fcount);
+        byte[] facets = new byte[FACET_SIZE * 1024];
+        ByteBuffer bb = ByteBuffer.wrap(facets).order(ByteOrder.LITTLE_ENDIAN);
+        double coord[] = new double[9 * 1024];
+        TriangleSender sender = new TriangleSender();
         int faces = 0;
 
-        Vec
-                v0 = new Vec(3),
-                v1 = new Vec(3),
-                v2 = new Vec(3);
-
-        Vector3d
-                dv0 = new Vector3d(),
-                dv1 = new Vector3d(),
-                dv2 = new Vector3d();
-
         try {
-            while (true) {
-                // ignore normal
-                data.skip(3 * 4);
-                readVector3Df(data, dv0);
-                readVector3Df(data, dv1);
-                readVector3Df(data, dv2);
+            data.readFully(facets, 0, HEADER_SIZE);
+            if (DEBUG)
+                printf("fcount: %d\n", bb.getInt(HEADER_SIZE - 4));
 
-                if(transform != null){
-                    v0.set(dv0);
-                    v1.set(dv1);
-                    v2.set(dv2);
-                    transform.transform(v0, v0);
-                    transform.transform(v1, v1);
-                    transform.transform(v2, v2);
-                    v0.get(dv0);
-                    v1.get(dv1);
-                    v2.get(dv2);
+            while (true) {
+                // read whole facets until end of stream
+                int len = 0;
+                while (len < facets.length) {
+                    int n = data.read(facets, len, facets.length - len);
+                    if (n < 0) break;
+                    len += n;
                 }
+                int count = len / FACET_SIZE;
+                if (count == 0) break;
 
-                out.addTri(dv0, dv1, dv2);
-
-                data.skip(2); // unsused stuff
-                faces++;
+                parseFacets(bb, 0, count, coord);
+                sender.send(coord, count, tout, aout);
+                faces += count;
+                if (len < facets.length) break;
             }
-        } catch (Exception e) {
+        } catch (EOFException e) {
+            // empty file
+        } finally {
             data.close();
-
-            if (DEBUG)
-                printf("faces read: %d\n", faces);
         }
-        if (DEBUG)
-            printf("STLReader.read() done in %d ms\n", (currentTimeMillis() - t0));
 
+        if (DEBUG)
+            printf("STLReader.read() faces: %d done in %d ms\n", faces, (currentTimeMillis() - t0));
     }
 
     /**
-     * Read in a file and apply the specified transform.
-     *
-     * @param bis File to read
-     * @param out  Destination
-     * @throws IOException
+     * Read memory mapped file.  Batches of triangles are parsed and transformed in the shared pool of TileScheduler
+     * and passed to the collector in the file order from the calling thread.
      */
-    private void readBinary(InputStream bis, AttributedTriangleCollector out) throws IOException {
-        long t0;
+    private void readMapped(String path, TriangleCollector tout, AttributedTriangleCollector aout) throws IOException {
+        long t0 = 0;
 
         if (DEBUG) {
-            printf("STLReader.read(%s, %s)\n", bis, out);
+            printf("STLReader.readMapped(%s)\n", path);
             t0 = currentTimeMillis();
         }
 
-        DataInputStream data = new DataInputStream(bis);
-
-        data.skip(80);
-
-        int fcount = readInt(data);
-        if (DEBUG)
-            printf("fcount: %d\n", fcount);
-        int faces = 0;
-
-        Vec
-                v0 = new Vec(3),
-                v1 = new Vec(3),
-                v2 = new Vec(3);
+        FileInputStream fis = new FileInputStream(path);
+        FileChannel fc = fis.getChannel();
 
         try {
-            while (true) {
-                // ignore normal
-                data.skip(3 * 4);
-                readVector3Df(data, v0);
-                readVector3Df(data, v1);
-                readVector3Df(data, v2);
-
-                if(transform != null){
-                    transform.transform(v0, v0);
-                    transform.transform(v1, v1);
-                    transform.transform(v2, v2);
+            // header count is often wrong, use file size
+            long size = fc.size();
+            int faces = (size < HEADER_SIZE) ? 0 : (int) ((size - HEADER_SIZE) / FACET_SIZE);
+            int batches = (faces + BATCH_SIZE - 1) / BATCH_SIZE;
+            int threads = Math.min(batches, AbFab3DGlobals.getThreadCount(m_threadCount));
+
+            TriangleSender sender = new TriangleSender();
+
+            if (threads <= 1) {
+                for (int i = 0; i < batches; i++) {
+                    FacetParser parser = new FacetParser(fc, i, faces);
+                    sender.send(parser.call(), parser.count, tout, aout);
+                }
+            } else {
+                ForkJoinPool pool = TileScheduler.getPool();
+                // count of batches parsed at the same time is limited by count of threads
+                ArrayDeque<Future<double[]>> queue = new ArrayDeque<Future<double[]>>();
+                ArrayDeque<FacetParser> parsers = new ArrayDeque<FacetParser>();
+                try {
+                    int next = 0;
+                    while (next < batches || !queue.isEmpty()) {
+                        TileScheduler.checkCancelled();
+                        while (next < batches && queue.size() < threads) {
+                            FacetParser parser = new FacetParser(fc, next++, faces);
+                            parsers.add(parser);
+                            queue.add(pool.submit(parser));
+                        }
+                        double coord[] = queue.poll().get();
+                        sender.send(coord, parsers.poll().count, tout, aout);
+                    }
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                } catch (ExecutionException e) {
+                    throw new IOException("Cannot parse file: " + path, e.getCause());
+                } finally {
+                    // pool is shared, cancel only own batches
+                    for (Future<double[]> f : queue) f.cancel(true);
                 }
+            }
 
-                out.addAttTri(v0, v1, v2);
+            if (DEBUG)
+                printf("STLReader.readMapped() faces: %d threads: %d done in %d ms\n", faces, threads, (currentTimeMillis() - t0));
 
-                data.skip(2); // unsused stuff
-                faces++;
-            }
+        } catch (IOException e) {
+            throw e;
+        } catch (ExecutionStoppedException e) {
+            throw e;
         } catch (Exception e) {
-            data.close();
+            throw new IOException(e);
+        } finally {
+            fc.close();
+            fis.close();
+        }
+    }
 
-            if (DEBUG)
-                printf("faces read: %d\n", faces);
+    /**
+     * Parse facets into scaled vertex coordinates, 9 per triangle, and apply transform
+     */
+    private void parseFacets(ByteBuffer bb, int offset, int count, double coord[]) {
+
+        double s = scale;
+        VecTransform trans = transform;
+        Vec v = (trans != null) ? new Vec(3) : null;
+
+        for (int i = 0, c = 0; i < count; i++) {
+            // skip normal
+            int pos = offset + i * FACET_SIZE + 12;
+            for (int k = 0; k < 3; k++, c += 3, pos += 12) {
+                coord[c] = bb.getFloat(pos) * s;
+                coord[c + 1] = bb.getFloat(pos + 4) * s;
+                coord[c + 2] = bb.getFloat(pos + 8) * s;
+                if (trans != null) {
+                    v.set(coord[c], coord[c + 1], coord[c + 2]);
+                    trans.transform(v, v);
+                    coord[c] = v.v[0];
+                    coord[c + 1] = v.v[1];
+                    coord[c + 2] = v.v[2];
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps and parses one batch of facets
+     */
+    class FacetParser implements java.util.concurrent.Callable<double[]> {
+        FileChannel fc;
+        int start;
+        int count;
+
+        FacetParser(FileChannel fc, int batch, int faces) {
+            this.fc = fc;
+            this.start = batch * BATCH_SIZE;
+            this.count = Math.min(BATCH_SIZE, faces - start);
         }
-        if (DEBUG)
-            printf("STLReader.read() done in %d ms\n", (currentTimeMillis() - t0));
 
+        public double[] call() throws IOException {
+            ByteBuffer bb = fc.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (long) start * FACET_SIZE, (long) count * FACET_SIZE);
+            bb.order(ByteOrder.LITTLE_ENDIAN);
+            double coord[] = new double[count * 9];
+            parseFacets(bb, 0, count, coord);
+            return coord;
+        }
+    }
+
+    /**
+     * Passes parsed triangles to collector
+     */
+    static class TriangleSender {
+
+        Vector3d dv0 = new Vector3d(), dv1 = new Vector3d(), dv2 = new Vector3d();
+        Vec v0 = new Vec(3), v1 = new Vec(3), v2 = new Vec(3);
+
+        void send(double coord[], int count, TriangleCollector tout, AttributedTriangleCollector aout) {
+
+            for (int i = 0, c = 0; i < count; i++, c += 9) {
+                if (tout != null) {
+                    dv0.set(coord[c], coord[c + 1], coord[c + 2]);
+                    dv1.set(coord[c + 3], coord[c + 4], coord[c + 5]);
+                    dv2.set(coord[c + 6], coord[c + 7], coord[c + 8]);
+                    tout.addTri(dv0, dv1, dv2);
+                } else {
+                    v0.set(coord[c], coord[c + 1], coord[c + 2]);
+                    v1.set(coord[c + 3], coord[c + 4], coord[c + 5]);
+                    v2.set(coord[c + 6], coord[c + 7], coord[c + 8]);
+                    aout.addAttTri(v0, v1, v2);
+                }
+            }
+        }
     }
 
     /**
@@ -50,6 +50,15 @@ public class SVXReader {
     /** The manifest for the last load call */
     private SVXManifest mf;
 
+    private int m_threadCount = 0;
+
+    /**
+     * Set count of threads used to decode slices, 0 - use all available processors
+     */
+    public void setThreadCount(int threadCount) {
+        m_threadCount = threadCount;
+    }
+
     /**
      * Load a SVX file into a grid.
      *
@@ -112,6 +121,7 @@ public class SVXReader {
                     chan.getType().getId() == Channel.Type.BLUE.getId() ||
                     chan.getType().getId() == Channel.Type.DISTANCE_COLOR.getId()) {
                     SlicesReader sr = new SlicesReader();
+                    sr.setThreadCount(m_threadCount);
                     sr.readSlices(grid,zip,chan.getSlicesPath(),0,0,mf.getGridSizeY());
                 }
             }
@@ -19,6 +19,8 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -26,7 +28,9 @@ import javax.imageio.ImageIO;
 
 import abfab3d.core.AttributeGrid;
 import abfab3d.core.Output;
+import abfab3d.util.AbFab3DGlobals;
 import abfab3d.util.ImageUtil;
+import abfab3d.util.TileScheduler;
 
 import static abfab3d.core.Output.printf;
 import static abfab3d.core.Output.fmt;
@@ -48,6 +52,8 @@ public class SlicesReader {
 
     int m_orientation = ORIENTATION_Y;
     String fileTemplate = "slice%04d.png";
+    // count of threads to decode slices from zip, 0 - use all available processors
+    int m_threadCount = 0;
 
     public SlicesReader(){
 
@@ -57,6 +63,13 @@ public class SlicesReader {
 
     }
 
+    /**
+       set count of threads used to decode slices from zip file, 0 - use all available processors
+     */
+    public void setThreadCount(int threadCount){
+        m_threadCount = threadCount;
+    }
+
     /**
      reads a set of PNG image files into a grid
 
@@ -132,6 +145,13 @@ public class SlicesReader {
 
         long t0 = time();
         if (DEBUG) printf("Reading slices: %d\n",count);
+
+        int threads = Math.min(count, AbFab3DGlobals.getThreadCount(m_threadCount));
+        if(threads > 1){
+            readSlicesMT(grid, zip, fileTemplate, firstFile, firstSlice, count, orientation, threads);
+            printf("readSlice %d ms\n",(time() - t0));
+            return 0;
+        }
         for(int i=0; i < count; i++) {
             String fname = Output.fmt(fileTemplate, i+firstFile);
             if(DEBUG) printf("reading: %s\n", fname);
@@ -151,6 +171,45 @@ public class SlicesReader {
         return 0;
     }
 
+    /**
+       decodes slices in parallel by workers of TileScheduler, each slice is written into its own part of the grid 
+     */
+    void readSlicesMT(final AttributeGrid grid, final ZipFile zip, final String fileTemplate,
+                      final int firstFile, final int firstSlice, final int count, final int orientation, int threads) throws IOException {
+
+        final AtomicInteger next = new AtomicInteger(0);
+        // first failure stops all workers 
+        final AtomicReference<IOException> error = new AtomicReference<IOException>();
+        Runnable workers[] = new Runnable[threads];
+        for(int k = 0; k < threads; k++){
+            workers[k] = new Runnable(){
+                    public void run(){
+                        int i;
+                        while(error.get() == null && (i = next.getAndIncrement()) < count){
+                            TileScheduler.checkCancelled();
+                            String fname = Output.fmt(fileTemplate, i+firstFile);
+                            try {
+                                ZipEntry entry = zip.getEntry(fname);
+                                if (entry == null) 
+                                    throw new IOException(fmt("Cannot find slice file: %s",fname));
+                                InputStream is = zip.getInputStream(entry);
+                                try {
+                                    readSlice(is, grid, i + firstSlice, orientation);
+                                } finally {
+                                    is.close();
+                                }
+                            } catch(IOException e){
+                                error.compareAndSet(null, e);
+                            }
+                        }
+                    }
+                };
+        }
+        TileScheduler.runWorkers(workers);
+        if(error.get() != null) 
+            throw error.get();
+    }
+
     /**
        read single slice from input stream
      */
@@ -33,7 +33,6 @@ import abfab3d.grid.ArrayAttributeGridInt;
 import abfab3d.grid.DensityMakerFromDensityChannel;
 import abfab3d.grid.DensityMakerFromDistanceChannel;
 
-import abfab3d.grid.util.ExecutionStoppedException;
 
 import abfab3d.mesh.WingedEdgeTriangleMesh;
 import abfab3d.mesh.IndexedTriangleSetBuilder;
@@ -47,6 +46,7 @@ import abfab3d.core.Bounds;
 import abfab3d.core.Units;
 import abfab3d.core.LongConverter;
 import abfab3d.util.DefaultLongConverter;
+import abfab3d.util.TileScheduler;
 
 
 import java.io.BufferedOutputStream;
@@ -681,7 +681,7 @@ public class GridSaver {
        makes density maker to convert distance grid into density grid 
        
      */
-    DensityMaker getDensityMaker(AttributeGrid grid, double surfaceValue){
+    static DensityMaker getDensityMaker(AttributeGrid grid, double surfaceValue){
         
         GridDataChannel dataChannel = grid.getDataChannel();
         switch(dataChannel.getIType()){
@@ -1059,9 +1059,7 @@ public class GridSaver {
         if(DEBUG)printf("   Original face count: " + fcount);
 
         while (true) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new ExecutionStoppedException();
-            }
+            TileScheduler.checkCancelled();
 
             target = mesh.getTriangleCount() / 2;
             if(DEBUG)printf("   Target face count : %d\n", target);
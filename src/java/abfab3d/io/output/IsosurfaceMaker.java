@@ -19,6 +19,7 @@ import abfab3d.core.AttributeGrid;
 import abfab3d.core.Grid;
 import abfab3d.grid.DensityMaker;
 import abfab3d.grid.DensityMakerSubvoxel;
+import abfab3d.grid.SparseAttributeGrid;
 
 import abfab3d.core.TriangleCollector;
 
@@ -1166,7 +1167,7 @@ public class IsosurfaceMaker {
         double gxmin, gymin, gzmin; // origin of the grid 
         
         double blockData[]; // data of the block 
-        double rowData[];// data for one row for convolution 
+        double blockData2[];// work data for convolution 
 
         // bondary of 3D block of grid 
         // it is larger than actual block of data due to increase by size of the kernel
@@ -1183,6 +1184,10 @@ public class IsosurfaceMaker {
         DensityMaker m_densityMaker = new DensityMakerSubvoxel(1);
 
         boolean containsIsosurface = false;
+        // fast reader of sparse grid 
+        SparseAttributeGrid.Accessor m_accessor;
+        long m_constValue[] = new long[1];
+
         /**
            
          */
@@ -1261,14 +1266,22 @@ public class IsosurfaceMaker {
             if(blockData == null || dataSize > blockData.length){
                 blockData = new double[dataSize];
             }
+            if(kernelSize > 0 && (blockData2 == null || dataSize > blockData2.length)){
+                blockData2 = new double[dataSize];
+            }
             
-            int maxSize = bsizex;
-            if(bsizey > maxSize)maxSize = bsizey;
-            if(bsizez > maxSize)maxSize = bsizez;
-            
-            if(rowData == null || rowData.length < maxSize)
-                rowData = new double[maxSize];
-            
+            if(agrid instanceof SparseAttributeGrid){
+                SparseAttributeGrid sgrid = (SparseAttributeGrid)agrid;
+                if(bxmin >= 0 && bymin >= 0 && bzmin >= 0 && 
+                   bxmin + bsizex <= gnx && bymin + bsizey <= gny && bzmin + bsizez <= gnz && 
+                   sgrid.isConstant(bxmin, bxmin + bsizex-1, bymin, bymin + bsizey-1, bzmin, bzmin + bsizez-1, m_constValue)){
+                    // block made of constant tiles has no isosurface 
+                    containsIsosurface = false;
+                    return;
+                }
+                m_accessor = sgrid.getAccessor();
+            }
+
             boolean hasPlus = false, hasMinus = false;
             
             // fill block with data from grid 
@@ -1308,74 +1321,72 @@ public class IsosurfaceMaker {
 
         }
 
+        /**
+           convolutions along each axis 
+           output value is gathered from input values in the same order as values were scattered 
+           by the original accumulator loop, which gives the same results 
+           X and Y passes process whole contiguous z-rows and xz-planes at once 
+         */
         void convoluteX(double data[], double kernel[]){
             
             int ksize = kernel.length/2;
             int bsizexz = bsizex*bsizez;
+            double in[] = blockData;
+            double out[] = blockData2;
             
             for(int y = 0; y < bsizey; y++){
 
-                int offsetx = y * bsizexz;
+                int offsety = y * bsizexz;
                 
-                for(int z = 0; z < bsizez; z++){
-
-                    // init accumulator array 
-                    Arrays.fill(rowData, 0, bsizex, 0.);
+                for(int x = 0; x < bsizex; x++){
 
-                    for(int x = 0; x < bsizex; x++){
-                        
-                        int offsetz = offsetx + x * bsizez;
-                        double v = blockData[offsetz + z];
-                        // add this value to accumulator
-                        for(int k = 0; k < kernel.length; k++){
-                            int kx = x + k - ksize;
-                            if(kx >= 0 && kx < bsizex)
-                                rowData[kx] += kernel[k] * v;                            
+                    int outOffset = offsety + x * bsizez;
+                    Arrays.fill(out, outOffset, outOffset + bsizez, 0.);
+                    int x0 = Math.max(0, x - ksize);
+                    int x1 = Math.min(bsizex-1, x + ksize);
+                    for(int xx = x0; xx <= x1; xx++){
+                        double w = kernel[x - xx + ksize];
+                        int inOffset = offsety + xx * bsizez;
+                        for(int z = 0; z < bsizez; z++){
+                            out[outOffset + z] += w * in[inOffset + z];
                         }
-                    } 
-                    
-                    for(int x = 0; x < bsizex; x++){
-                        int offsetz = offsetx + x * bsizez;
-                        blockData[offsetz + z] = rowData[x];
-                    }                    
+                    }
                 }
             }
+            swapBlockData();
         }
 
         void convoluteY(double data[], double kernel[]){
 
             int ksize = kernel.length/2;
             int bsizexz = bsizex*bsizez;
+            double in[] = blockData;
+            double out[] = blockData2;
             
-            for(int x = 0; x < bsizex; x++){
-                for(int z = 0; z < bsizez; z++){
-                    // init accumulator array 
-                    Arrays.fill(rowData, 0, bsizey, 0.);
-                    for(int y = 0; y < bsizey; y++){
-                        
-                        int offsetz = y * bsizexz + x * bsizez;
-                        double v = blockData[offsetz + z];
-                        // add this value to accumulator
-                        for(int k = 0; k < kernel.length; k++){
-                            int ky = y + k - ksize;
-                            if(ky >= 0 && ky < bsizey)
-                                rowData[ky] += kernel[k] * v;                            
-                        }
-                    } 
+            for(int y = 0; y < bsizey; y++){
 
-                    for(int y = 0; y < bsizey; y++){
-                        int offsetz = y * bsizexz + x * bsizez;
-                        blockData[offsetz + z] = rowData[y];
-                    }                    
+                int outOffset = y * bsizexz;
+                Arrays.fill(out, outOffset, outOffset + bsizexz, 0.);
+                int y0 = Math.max(0, y - ksize);
+                int y1 = Math.min(bsizey-1, y + ksize);
+                for(int yy = y0; yy <= y1; yy++){
+                    double w = kernel[y - yy + ksize];
+                    int inOffset = yy * bsizexz;
+                    for(int i = 0; i < bsizexz; i++){
+                        out[outOffset + i] += w * in[inOffset + i];
+                    }
                 }
             }
-
+            swapBlockData();
         }
 
         void convoluteZ(double data[], double kernel[]){
             
             int ksize = kernel.length/2;
             int bsizexz = bsizex*bsizez;
+            double in[] = blockData;
+            double out[] = blockData2;
+
             for(int y = 0; y < bsizey; y++){
 
                 int offsetx = y * bsizexz;
@@ -1383,24 +1394,26 @@ public class IsosurfaceMaker {
                 for(int x = 0; x < bsizex; x++){
 
                     int offsetz = offsetx + x * bsizez;
-                    // init accumulator array 
-                    Arrays.fill(rowData, 0, bsizez, 0.);
 
                     for(int z = 0; z < bsizez; z++){
                         
-                        double v = blockData[offsetz + z];
-                        // add this value to accumulator
-                        for(int k = 0; k < kernel.length; k++){
-                            int kz = z + k - ksize;
-                            if(kz >= 0 && kz < bsizez)
-                                rowData[kz] += kernel[k] * v;                            
+                        double sum = 0.;
+                        int z0 = Math.max(0, z - ksize);
+                        int z1 = Math.min(bsizez-1, z + ksize);
+                        for(int zz = z0; zz <= z1; zz++){
+                            sum += kernel[z - zz + ksize] * in[offsetz + zz];
                         }
+                        out[offsetz + z] = sum;
                     } 
-                    for(int z = 0; z < bsizez; z++){
-                        blockData[offsetz + z] = rowData[z];
-                    }                    
                 }
             }
+            swapBlockData();
+        }
+
+        void swapBlockData(){
+            double t[] = blockData;
+            blockData = blockData2;
+            blockData2 = t;
         }
         
         /**
@@ -1482,6 +1495,8 @@ public class IsosurfaceMaker {
                 // -1 - inside 
                 // 1 - outside
                 
+                if(m_accessor != null)
+                    return 1-2*m_densityMaker.makeDensity(m_accessor.getAttribute(gx,gy,gz));
                 return 1-2*m_densityMaker.makeDensity(agrid.getAttribute(gx,gy,gz));
 
             }
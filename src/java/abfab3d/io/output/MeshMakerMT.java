@@ -16,9 +16,6 @@ import java.util.Arrays;
 
 import javax.vecmath.Vector3d;
 import java.util.Vector;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
@@ -30,9 +27,11 @@ import abfab3d.grid.DensityMakerSubvoxel;
 import abfab3d.mesh.EdgeTester;
 import abfab3d.mesh.IndexedTriangleSetBuilder;
 import abfab3d.mesh.MeshDecimator;
+import abfab3d.mesh.MeshDecimatorHeap;
 import abfab3d.mesh.WingedEdgeTriangleMesh;
 
 import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.TileScheduler;
 import abfab3d.core.MathUtil;
 import abfab3d.core.TriangleCollector;
 
@@ -86,6 +85,13 @@ public class MeshMakerMT {
 
     protected int m_maxDecimationCount = 7;
 
+    // edges are selected for collapse via random sampling 
+    public static final int DECIMATION_RANDOM = 0;
+    // edges are selected for collapse via priority queue of collapse errors
+    public static final int DECIMATION_HEAP = 1;
+
+    protected int m_decimationAlgorithm = DECIMATION_RANDOM;
+
     // Maximum allowed triangles.  Will relax maxDecimationError to achieve
     protected int m_maxTriangles = Integer.MAX_VALUE;
     protected EdgeTester m_edgeTester;
@@ -150,6 +156,32 @@ public class MeshMakerMT {
 
     }
 
+    /**
+       set algorithm used for mesh decimation 
+       DECIMATION_RANDOM (MeshDecimator)
+       or 
+       DECIMATION_HEAP (MeshDecimatorHeap)
+     */
+    public void setDecimationAlgorithm(int algorithm) {
+
+        m_decimationAlgorithm = algorithm;
+
+    }
+
+    /**
+       @return new instance of decimator for the current decimation algorithm 
+     */
+    protected MeshDecimator makeDecimator() {
+
+        switch(m_decimationAlgorithm){
+        default: 
+        case DECIMATION_RANDOM:
+            return new MeshDecimator();
+        case DECIMATION_HEAP:
+            return new MeshDecimatorHeap();
+        }
+    }
+
     /**
      * set tester to test edge collapses
      * edge can be collapsed only if tester return true
@@ -198,8 +230,6 @@ public class MeshMakerMT {
                 
         //blocks.dump();
 
-        ExecutorService executor = Executors.newFixedThreadPool(m_threadCount);
-
         BlockProcessor threads[] = new BlockProcessor[m_threadCount];
         double smoothKernel[] = null;
         if (m_smoothingWidth > 0.) {
@@ -211,17 +241,9 @@ public class MeshMakerMT {
             if (m_edgeTester != null) {
                 threads[i].setEdgeTester((EdgeTester) (m_edgeTester.clone()));
             }
-            executor.submit(threads[i]);
-
         }
 
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        TileScheduler.runWorkers(threads);
 
         printf("MESH_EXTRACTION_TIME: %d ms\n", (time() - t0));
 
@@ -242,12 +264,34 @@ public class MeshMakerMT {
      */
     public int makeMesh_v1(Grid grid, TriangleCollector tc) {
 
-        long t0 = time();
+        return makeMesh(grid, 0, grid.getHeight() - 1, tc);
+
+    }
+
+    /**
+       creates mesh of the part of the grid between voxel layers ymin and ymax (inclusive) and feeds it into triangle collector 
+       the grid has to have valid data in layers [ymin - kernelSize, ymax + kernelSize] where kernelSize is half size of smoothing kernel 
 
-        GridBlockSet blocks = makeBlocks(grid.getWidth() - 1, grid.getHeight() - 1, grid.getDepth() - 1, m_blockSize);
+       blocks are processed independently and block boundaries are not decimated, 
+       therefore meshes of adjacent ranges [y0, y1] and [y1, y2] have the same vertices along the common layer y1
+     */
+    public int makeMesh(Grid grid, int ymin, int ymax, TriangleCollector tc) {
 
+        status = StatusType.SUCCESS;
+        if(ymax <= ymin) 
+            return ResultCodes.RESULT_OK;
+
+        long t0 = time();
+
+        GridBlockSet blocks = makeBlocks(grid.getWidth() - 1, ymax - ymin, grid.getDepth() - 1, m_blockSize);
+        if(ymin != 0) {
+            for(int i = 0; i < blocks.size(); i++){
+                GridBlock block = blocks.get(i);
+                block.ymin += ymin;
+                block.ymax += ymin;
+            }
+        }
 
-        ExecutorService executor = Executors.newFixedThreadPool(m_threadCount);
 
         BlockProcessor threads[] = new BlockProcessor[m_threadCount];
         double smoothKernel[] = null;
@@ -260,17 +304,9 @@ public class MeshMakerMT {
             if (m_edgeTester != null) {
                 threads[i].setEdgeTester((EdgeTester) (m_edgeTester.clone()));
             }
-            executor.submit(threads[i]);
-
         }
 
-        executor.shutdown();
-
-        try {
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        TileScheduler.runWorkers(threads);
 
         long num_tris = 0;
         for(int i=0; i < threads.length;i++) {
@@ -308,25 +344,15 @@ public class MeshMakerMT {
             m_maxDecimationError *= 10;
             System.out.println("Count is above max triangle limit: " + finalFaceCount + " new decimationError: " + m_maxDecimationError);
 
-            executor = Executors.newFixedThreadPool(m_threadCount);
-
             BlockDecimator[] workers = new BlockDecimator[m_threadCount];
             for (int i = 0; i < m_threadCount; i++) {
                 workers[i] = new BlockDecimator(blocks);
                 if (m_edgeTester != null) {
                     workers[i].setEdgeTester((EdgeTester) (m_edgeTester.clone()));
                 }
-
-                executor.submit(workers[i]);
             }
 
-            executor.shutdown();
-
-            try {
-                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+            TileScheduler.runWorkers(workers);
 
             blocks.rewind();
 
@@ -662,7 +688,8 @@ public class MeshMakerMT {
 
         void informParent(GridBlockSet blocks){
 
-            blocks.faceCounts[level].addAndGet(finalFaceCount);
+            if(blocks.faceCounts != null)
+                blocks.faceCounts[level].addAndGet(finalFaceCount);
 
             if(parent != null)
                 parent.childFinished(blocks);
@@ -976,7 +1003,7 @@ public class MeshMakerMT {
             //intf("mesh created: %d ms\n", (time() - t0));
 
             if (decimator == null) {
-                decimator = new MeshDecimator();
+                decimator = makeDecimator();
                 if (edgeTester != null) {
                     decimator.setEdgeTester(edgeTester);
                 }
@@ -1175,7 +1202,7 @@ public class MeshMakerMT {
             //intf("mesh created: %d ms\n", (time() - t0));
 
             if (decimator == null) {
-                decimator = new MeshDecimator();
+                decimator = makeDecimator();
                 decimator.setMaxCollapseError(m_maxDecimationError);
                 if (edgeTester != null) {
                     decimator.setEdgeTester(edgeTester);
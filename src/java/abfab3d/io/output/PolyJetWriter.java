@@ -21,13 +21,18 @@ import java.awt.image.DataBufferInt;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import javax.imageio.ImageIO;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors; 
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 
 // external imports
@@ -43,6 +48,7 @@ import abfab3d.core.Initializable;
 import abfab3d.core.MathUtil;
 
 import abfab3d.util.AbFab3DGlobals;
+import abfab3d.util.TileScheduler;
 import abfab3d.util.SliceCalculator;
 import abfab3d.util.SimpleSliceCalculator;
 
@@ -59,8 +65,6 @@ import abfab3d.param.EnumParameter;
 
 
 import abfab3d.util.ImageUtil;
-import abfab3d.util.SliceManager;
-import abfab3d.util.Slice;
 
 
 import abfab3d.grid.op.ImageLoader;
@@ -178,6 +182,7 @@ public class PolyJetWriter extends BaseParameterizable {
     StringListParameter mp_materials = new StringListParameter("materials",new String[]{S_WHITE});
     IntParameter mp_threadCount = new IntParameter("threadCount", 0);
     IntParameter mp_ditheringType = new IntParameter("ditheringType", 0);
+    DoubleParameter mp_ditheringZ = new DoubleParameter("ditheringZ", "fraction of dithering error carried into next slice", 0.);
     IntParameter mp_firstSlice = new IntParameter("firstSlice", -1);
     IntParameter mp_slicesCount = new IntParameter("slicesCount", -1);
     StringParameter mp_outFolder = new StringParameter("outFolder","/tmp/polyjet");
@@ -202,6 +207,7 @@ public class PolyJetWriter extends BaseParameterizable {
         mp_outPrefix,
         mp_materials,
         mp_ditheringType,
+        mp_ditheringZ,
         mp_firstSlice,
         mp_slicesCount,
         mp_mapping,
@@ -263,6 +269,8 @@ public class PolyJetWriter extends BaseParameterizable {
     int m_firstSlice = 0;
 
     int m_ditheringType = DITHERING_FLOYD_STEINBERG;
+    double m_ditheringZ = 0; // fraction of error carried to the next slice 
+    double m_errorZ[]; // error carried from previous slice 
     static final double DUMPING_FACTOR = 0.999;//0.98 error diffusion dumping factor 
 
     static final int DITHERING_NONE = -1;
@@ -345,44 +353,112 @@ public class PolyJetWriter extends BaseParameterizable {
         int threads = AbFab3DGlobals.getThreadCount(mp_threadCount.getValue());
         if(DEBUG) printf(" PolyJetWriter  writing: %d slices threads:%d\n", slicesCount, threads);
 
+        m_ditheringZ = (m_ditheringType == DITHERING_NONE)? 0: clamp(mp_ditheringZ.getValue(), 0., 1.);
+        m_errorZ = (m_ditheringZ > 0)? new double[m_nx*m_ny*m_materialCount]: null;
+
         if(threads == 1) {
             
-            double sliceData[] = new double[m_nx*m_ny*m_materialCount];
-            BufferedImage image =  new BufferedImage(m_nx, m_ny, BufferedImage.TYPE_INT_ARGB);
-            DataBufferInt db = (DataBufferInt)image.getRaster().getDataBuffer();
-            int[] imageData = db.getData();
+            SliceBuffer buffer = new SliceBuffer();
             for(int iz = 0; iz <  slicesCount; iz++){            
-                processSlice(iz, sliceData, imageData, image);
+                processSlice(iz, buffer.sliceData, buffer.imageData, buffer.image);
             }
         } else {
-            SliceManager manager = new SliceManager(slicesCount);            
-            ExecutorService executor = Executors.newFixedThreadPool(threads);
-            
-            for(int i = 0; i < threads; i++){
-                double sliceData[] = new double[m_nx*m_ny*m_materialCount];
-                BufferedImage image =  new BufferedImage(m_nx, m_ny, BufferedImage.TYPE_INT_ARGB);
-                DataBufferInt db = (DataBufferInt)image.getRaster().getDataBuffer();
-                int[] imageData = db.getData();
+            writeMT(slicesCount, threads);
+        }
+        m_errorZ = null;
+        printf("PolyJetWriter write() done %d ms\n", (time()-t0));
+    }
+
+    /**
+       slices pipeline 
+       slice data are calculated in parallel in the shared pool of TileScheduler, up to 2*threads slices are in flight
+       dithering is done in the slices order to keep error carried between slices deterministic
+       png encoding is done in parallel and files are written in the slices order
+     */
+    protected void writeMT(int slicesCount, int threads){
+
+        int maxInFlight = 2*threads;
+        ForkJoinPool executor = TileScheduler.getPool();
+        LinkedBlockingQueue<SliceBuffer> pool = new LinkedBlockingQueue<SliceBuffer>();
+        ArrayDeque<Future<SliceBuffer>> calculated = new ArrayDeque<Future<SliceBuffer>>();
+        ArrayDeque<Future<EncodedSlice>> encoded = new ArrayDeque<Future<EncodedSlice>>();
+        int buffersCount = 0;
+        int nextSlice = 0;
+
+        try {
+            while(true){
                 
-                SliceMaker sliceProcessor = new SliceMaker(manager,sliceData, imageData, image);
+                TileScheduler.checkCancelled();
+                while(nextSlice < slicesCount && calculated.size() < maxInFlight){
+                    SliceBuffer buffer = pool.poll();
+                    if(buffer == null){
+                        if(buffersCount < maxInFlight) {
+                            buffer = new SliceBuffer();
+                            buffersCount++;
+                        } else if(calculated.isEmpty()){
+                            // all buffers are being encoded, encoder returns buffer before it is done 
+                            writeSlice(getResult(encoded.poll()));
+                            buffer = pool.poll();
+                        } else {
+                            break;
+                        }
+                    }
+                    calculated.add(executor.submit(new SliceCalculation(nextSlice++, buffer)));
+                }
                 
-                executor.submit(sliceProcessor);
+                while(!encoded.isEmpty() && (encoded.peek().isDone() || encoded.size() >= maxInFlight)){
+                    writeSlice(getResult(encoded.poll()));
+                }
+
+                if(calculated.isEmpty()) 
+                    break;
+                
+                SliceBuffer buffer = getResult(calculated.poll());
+                ditherSlice(buffer.iz, buffer.sliceData, buffer.imageData);
+                encoded.add(executor.submit(new SliceEncoder(buffer, pool)));
             }
-            executor.shutdown();
             
-            try {
-                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            while(!encoded.isEmpty()){
+                writeSlice(getResult(encoded.poll()));
             }
-            
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            // pool is shared, cancel only own tasks 
+            for(Future<SliceBuffer> f : calculated) f.cancel(true);
+            for(Future<EncodedSlice> f : encoded) f.cancel(true);
         }
-        printf("PolyJetWriter write() done %d ms\n", (time()-t0));
     }
 
+    static <T> T getResult(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch(ExecutionException e){
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) 
+                throw (RuntimeException)cause;
+            throw new RuntimeException(cause);
+        }
+    }
     
     protected void processSlice(int iz, double sliceData[], int imageData[], BufferedImage image){
 
+        calculateSlice(iz, sliceData);
+        ditherSlice(iz, sliceData, imageData);
+        String outPath = getSlicePath(iz);
+        try {
+            ImageIO.write(image, "png", new File(outPath));
+        } catch(Exception e){
+            throw new RuntimeException(fmt("exception while writing to %s", outPath));
+        }        
+    }
+
+    /**
+       calculates material densities of slice iz
+     */
+    protected void calculateSlice(int iz, double sliceData[]){
+
         iz += m_firstSlice;
         if(DEBUG) printf("slice:%d\n",iz);
         Vector3d origin = new Vector3d(m_bounds.xmin,m_bounds.ymin,m_bounds.zmin + m_sliceThickness*(iz+0.5));
@@ -391,28 +467,46 @@ public class PolyJetWriter extends BaseParameterizable {
         } catch(Exception e){
             e.printStackTrace();
         }
+    }
+
+    /**
+       converts slice data into image
+       slices have to be dithered in order if error is carried between slices 
+     */
+    protected void ditherSlice(int iz, double sliceData[], int imageData[]){
+
+        iz += m_firstSlice;
         makeImage(sliceData, imageData); 
         if((iz == 0) && mp_makeMaterialsMarker.getValue()){
             for(int i = 0; i < m_materialMarker.length; i++){
                 imageData[i] = m_materialMarker[i];
             }
         }
-        String outPath = fmt("%s/%s_%d.png", m_outFolder, m_outPrefix, iz);
+    }
 
-        try {
-            ImageIO.write(image, "png", new File(outPath));
-        } catch(Exception e){
-            throw new RuntimeException(fmt("exception while writing to %s", outPath));
-        }        
+    String getSlicePath(int iz){
+        return fmt("%s/%s_%d.png", m_outFolder, m_outPrefix, iz + m_firstSlice);
     }
 
-    /*
-    protected void writeMT(){
+    void writeSlice(EncodedSlice slice){
 
-                
-        if(DEBUG_TIMING) printf("DT3sweep_MT(%d) done %d ms\n", direction, (time() - t0));
+        String outPath = getSlicePath(slice.iz);
+        FileOutputStream fos = null;
+        try {
+            fos = new FileOutputStream(outPath);
+            fos.write(slice.data);
+        } catch(Exception e){
+            throw new RuntimeException(fmt("exception while writing to %s", outPath));
+        } finally {
+            if(fos != null) {
+                try {
+                    fos.close();
+                } catch(IOException e){
+                    throw new RuntimeException(fmt("exception while writing to %s", outPath));
+                }
+            }
+        }
     }
-    */
 
     final int voxelOffset(int ix, int iy){
         return (ix + iy*m_nx)*m_materialCount;
@@ -439,6 +533,7 @@ public class PolyJetWriter extends BaseParameterizable {
         double error[] = new double[m_materialCount];
 
         double voxelError[] = new double[m_materialCount];
+        double errorZ[] = m_errorZ;
 
         for(int iy = 0; iy < m_ny; iy++){
             
@@ -451,12 +546,14 @@ public class PolyJetWriter extends BaseParameterizable {
                 if(voxel.v[0] > 0) {
                     // outside 
                     imageData[imgOffset] = m_backgroundColor;
+                    if(errorZ != null) clearErrorZ(errorZ, voxelOffset(ix, iy));
                     
                 } else {      
                     // interior 
-                    //addError(voxel, voxelError);
+                    if(errorZ != null) addErrorZ(voxel.v, errorZ, voxelOffset(ix, iy));
                     int materialIndex = findClosestMaterial(voxel);
                     getError(voxel.v, m_materialValues[materialIndex], voxelError);
+                    if(errorZ != null) splitErrorZ(voxelError, errorZ, voxelOffset(ix, iy));
                     distributeError(sliceData, ix, iy, voxelError);
                     imageData[imgOffset] = m_materialColors[materialIndex];
                     
@@ -467,6 +564,32 @@ public class PolyJetWriter extends BaseParameterizable {
         
     } // make image 
 
+    /**
+       adds error carried from previous slice to the voxel 
+     */
+    void addErrorZ(double v[], double errorZ[], int offset){
+        for(int i = 1; i < m_materialCount; i++){
+            v[i] += errorZ[offset + i];
+        }
+        normalizeVoxelMM(v);
+    }
+
+    /**
+       moves part of voxel error into error carried to the next slice 
+     */
+    void splitErrorZ(double voxelError[], double errorZ[], int offset){
+        for(int i = 1; i < m_materialCount; i++){
+            errorZ[offset + i] = voxelError[i]*m_ditheringZ;
+            voxelError[i] *= (1-m_ditheringZ);
+        }
+    }
+
+    void clearErrorZ(double errorZ[], int offset){
+        for(int i = 1; i < m_materialCount; i++){
+            errorZ[offset + i] = 0;
+        }
+    }
+
     void distributeError(double sliceData[], int ix, int iy, double voxelError[]){
         
         switch(m_ditheringType){
@@ -690,28 +813,77 @@ public class PolyJetWriter extends BaseParameterizable {
     }   
 
     /**
-       MT runner which makes single slice
+       buffers to make single slice 
      */
-    class SliceMaker implements Runnable{
+    class SliceBuffer {
 
-        SliceManager manager;
+        int iz;
         double sliceData[];
         int imageData[];
         BufferedImage image;
-        SliceMaker(SliceManager manager, double sliceData[], int imageData[], BufferedImage image){
-            this.manager = manager;
-            this.sliceData = sliceData;
-            this.imageData = imageData;
-            this.image = image;
+
+        SliceBuffer(){
+            sliceData = new double[m_nx*m_ny*m_materialCount];
+            image =  new BufferedImage(m_nx, m_ny, BufferedImage.TYPE_INT_ARGB);
+            imageData = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        }
+    }
+
+    /**
+       png data of single slice 
+     */
+    static class EncodedSlice {
+
+        int iz;
+        byte data[];
+
+        EncodedSlice(int iz, byte data[]){
+            this.iz = iz;
+            this.data = data;
+        }
+    }
+
+    /**
+       MT runner which calculates single slice
+     */
+    class SliceCalculation implements Callable<SliceBuffer> {
+
+        int iz;
+        SliceBuffer buffer;
+
+        SliceCalculation(int iz, SliceBuffer buffer){
+            this.iz = iz;
+            this.buffer = buffer;
         }
         
-        public void run(){
-            while(true){
-                Slice slice = manager.getNextSlice();
-                if(slice == null)
-                    break;
-                processSlice(slice.smin, sliceData, imageData, image);
-            } 
+        public SliceBuffer call(){
+            buffer.iz = iz;
+            calculateSlice(iz, buffer.sliceData);
+            return buffer;
+        }       
+    }
+
+    /**
+       MT runner which encodes slice image and returns buffer to the pool 
+     */
+    class SliceEncoder implements Callable<EncodedSlice> {
+
+        SliceBuffer buffer;
+        LinkedBlockingQueue<SliceBuffer> pool;
+
+        SliceEncoder(SliceBuffer buffer, LinkedBlockingQueue<SliceBuffer> pool){
+            this.buffer = buffer;
+            this.pool = pool;
+        }
+        
+        public EncodedSlice call() throws IOException {
+            try {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                ImageIO.write(buffer.image, "png", bos);
+                return new EncodedSlice(buffer.iz, bos.toByteArray());
+            } finally {
+                pool.add(buffer);
+            }
         }       
     }
 
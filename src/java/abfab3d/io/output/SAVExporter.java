@@ -16,9 +16,9 @@ package abfab3d.io.output;
 
 import java.util.*;
 
-import abfab3d.grid.util.ExecutionStoppedException;
 import abfab3d.mesh.*;
 import abfab3d.util.StructMixedData;
+import abfab3d.util.TileScheduler;
 import static abfab3d.core.Output.printf;
 
 import org.web3d.vrml.sav.*;
@@ -192,9 +192,7 @@ public class SAVExporter {
         int color_channel = mesh.getColorChannel();
         int tex0_channel = mesh.getAttributeChannel(abfab3d.util.TriangleMesh.VA_TEXCOORD0);
 
-        if (Thread.currentThread().isInterrupted()) {
-            throw new ExecutionStoppedException();
-        }
+        TileScheduler.checkCancelled();
 
         StructMixedData vertices = mesh.getVertices();
 
@@ -247,9 +245,7 @@ public class SAVExporter {
 
             idx = 0;
 
-            if (Thread.currentThread().isInterrupted()) {
-                throw new ExecutionStoppedException();
-            }
+            TileScheduler.checkCancelled();
 
             if (color_channel == -1 && tex0_channel == -1) {
                 int v = mesh.getStartVertex();
@@ -410,9 +406,7 @@ public class SAVExporter {
 
             idx = 0;
 
-            if (Thread.currentThread().isInterrupted()) {
-                throw new ExecutionStoppedException();
-            }
+            TileScheduler.checkCancelled();
 
             double[] pnt = new double[3];
 
@@ -575,9 +569,7 @@ public class SAVExporter {
         stream.fieldValue(coords, num_coords * 3);
         stream.endNode();   // Coord
 
-        if (Thread.currentThread().isInterrupted()) {
-            throw new ExecutionStoppedException();
-        }
+        TileScheduler.checkCancelled();
 
         if (colors != null) {
             stream.startField("color");
@@ -653,9 +645,7 @@ public class SAVExporter {
         stream.endNode();   // IndexedTriangleSet
         stream.endNode();   // Shape
 
-        if (Thread.currentThread().isInterrupted()) {
-            throw new ExecutionStoppedException();
-        }
+        TileScheduler.checkCancelled();
     }
 
     /**
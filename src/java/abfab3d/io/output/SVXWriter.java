@@ -38,6 +38,7 @@ public class SVXWriter {
 
 
     int m_orientation = DEFAULT_ORIENTATION;
+    int m_threadCount = 0;
 
     public SVXWriter(){
         this(DEFAULT_ORIENTATION);
@@ -47,6 +48,13 @@ public class SVXWriter {
         m_orientation = orientation;
     }
 
+    /**
+     * Set count of threads used to encode slices, 0 - use all available processors
+     */
+    public void setThreadCount(int threadCount){
+        m_threadCount = threadCount;
+    }
+
     /**
      * Writes a grid out to an svx file
      * @param grid
@@ -90,6 +98,7 @@ public class SVXWriter {
             zos.closeEntry();
 
             SlicesWriter sw = new SlicesWriter();
+            sw.setThreadCount(m_threadCount);
             GridDataDesc attDesc = grid.getDataDesc();
 
             for(int i = 0; i < attDesc.size(); i++){
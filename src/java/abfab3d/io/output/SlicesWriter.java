@@ -26,18 +26,30 @@ import java.awt.image.DataBufferByte;
 import java.awt.image.IndexColorModel;
 import java.awt.RenderingHints;
 
+import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
 import abfab3d.core.AttributeGrid;
 import abfab3d.core.Grid;
 import abfab3d.core.LongConverter;
+import abfab3d.util.AbFab3DGlobals;
 import abfab3d.util.DefaultLongConverter;
+import abfab3d.util.TileScheduler;
 
 
 import static abfab3d.core.MathUtil.clamp;
@@ -98,6 +110,9 @@ public class SlicesWriter {
     /** Skip if the slice % modSkip == 0 and modeSkip != 0 */
     int m_modSkip;
 
+    // count of threads to encode slices written to zip stream, 0 - use all available processors
+    int m_threadCount = 0;
+
     public void setBounds(int xmin, int xmax, int ymin, int ymax, int zmin, int zmax){
 
         this.xmin = xmin;
@@ -108,6 +123,13 @@ public class SlicesWriter {
         this.zmax = zmax;
     }
 
+    /**
+       set count of threads used to encode slices written into zip stream, 0 - use all available processors
+     */
+    public void setThreadCount(int threadCount) {
+        m_threadCount = threadCount;
+    }
+
     public void setImageFileType(String ending) {
         m_imageFileType = ending;
     }
@@ -245,6 +267,12 @@ public class SlicesWriter {
 
         if(DEBUG) printf("SlicesWriter.writeSlices(%s)\n",fileTemplate);
 
+        int threads = Math.min(sliceCount, AbFab3DGlobals.getThreadCount(m_threadCount));
+        if(threads > 1 && os instanceof ZipOutputStream){
+            writeSlicesMT((ZipOutputStream)os, grid, fileTemplate, firstSlice, firstFile, sliceCount, orientation, voxelBitCount, voxelDataConverter, threads);
+            return;
+        }
+
         int imgSize[] = getSliceSize(grid, orientation);
         int voxelByteCount = getVoxelByteCount(voxelBitCount);
         int dataBitCount = getDataBitCount(voxelBitCount);
@@ -275,6 +303,93 @@ public class SlicesWriter {
         }        
     }
    
+    /**
+       writes slices into zip stream using several threads 
+       slices are extracted and encoded in the shared pool of TileScheduler, encoded slices are written in order by calling thread 
+       encoded images are already compressed and are stored in zip without recompression 
+     */
+    void writeSlicesMT(ZipOutputStream zos, final AttributeGrid grid, String fileTemplate,
+                       int firstSlice, int firstFile, int sliceCount, final int orientation, final int voxelBitCount, 
+                       final LongConverter voxelDataConverter, int threads) throws IOException {
+
+        final int imgSize[] = getSliceSize(grid, orientation);
+        final int dataBitCount = getDataBitCount(voxelBitCount);
+        // images are reused by slices, their count is limited by count of slices encoded at the same time 
+        final ConcurrentLinkedQueue<BufferedImage> images = new ConcurrentLinkedQueue<BufferedImage>();
+
+        ForkJoinPool pool = TileScheduler.getPool();
+        // count of slices encoded at the same time is limited by count of threads 
+        ArrayDeque<Future<EncodedSlice>> queue = new ArrayDeque<Future<EncodedSlice>>();
+        try {
+            int next = 0;
+            while(next < sliceCount || !queue.isEmpty()){
+                TileScheduler.checkCancelled();
+                while(next < sliceCount && queue.size() < threads){
+                    final int slice = next + firstSlice; 
+                    final String fname = fmt(fileTemplate, next + firstFile);
+                    next++;
+                    queue.add(pool.submit(new Callable<EncodedSlice>(){
+                            public EncodedSlice call() throws IOException {
+                                BufferedImage image = images.poll();
+                                if(image == null) 
+                                    image = makeImage(imgSize[0], imgSize[1], voxelBitCount);
+                                try {
+                                    byte[] sliceData = ((DataBufferByte)image.getRaster().getDataBuffer()).getData();
+                                    makeSliceData(imgSize[0], imgSize[1], slice, orientation, grid, voxelBitCount, voxelDataConverter, sliceData, dataBitCount);
+                                    return new EncodedSlice(fname, image);
+                                } finally {
+                                    images.add(image);
+                                }
+                            }
+                        }));
+                }
+                queue.poll().get().write(zos);
+            }
+        } catch(InterruptedException e){
+            throw new IOException(e);
+        } catch(ExecutionException e){
+            throw new IOException("Cannot encode slice", e.getCause());
+        } finally {
+            // pool is shared, cancel only own slices 
+            for(Future<EncodedSlice> f : queue) f.cancel(true);
+        }
+    }
+
+    /**
+       slice image encoded into byte array 
+     */
+    class EncodedSlice {
+
+        String name;
+        byte data[];
+        long crc;
+
+        EncodedSlice(String name, BufferedImage image) throws IOException {
+
+            this.name = name;
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ImageOutputStream ios = new MemoryCacheImageOutputStream(bos);
+            if(!ImageIO.write(image, m_imageFileType, ios))
+                throw new IOException(fmt("no writer for image type: %s", m_imageFileType));
+            ios.close();
+            data = bos.toByteArray();
+            CRC32 crc32 = new CRC32();
+            crc32.update(data);
+            crc = crc32.getValue();
+        }
+
+        void write(ZipOutputStream zos) throws IOException {
+            ZipEntry ze = new ZipEntry(name);
+            ze.setMethod(ZipEntry.STORED);
+            ze.setSize(data.length);
+            ze.setCompressedSize(data.length);
+            ze.setCrc(crc);
+            zos.putNextEntry(ze);
+            zos.write(data);
+            zos.closeEntry();
+        }
+    }
+
     /**
        convert grid data into single slice 
        
@@ -0,0 +1,316 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.io.output;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import abfab3d.core.AttributeGrid;
+import abfab3d.core.Bounds;
+import abfab3d.core.DataSource;
+import abfab3d.core.GridDataChannel;
+import abfab3d.core.GridDataDesc;
+import abfab3d.core.MathUtil;
+import abfab3d.core.ResultCodes;
+import abfab3d.core.TriangleCollector;
+import abfab3d.core.Units;
+
+import abfab3d.grid.ArrayAttributeGridByte;
+import abfab3d.grid.op.GridMaker;
+import abfab3d.grid.util.ExecutionStoppedException;
+
+import abfab3d.util.TileScheduler;
+
+import static abfab3d.core.Output.fmt;
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.time;
+
+
+/**
+   makes mesh from data source without allocation of the whole grid
+
+   The grid is calculated by GridMaker in slabs of voxel layers orthogonal to Y axis.
+   Each slab is converted into mesh by MeshMakerMT as soon as it is ready and then discarded.
+   Slabs are calculated in separate thread, so calculation of the next slab overlaps with meshing of the current one.
+   Count of ready slabs waiting for meshing is limited by buffer size.
+
+   Adjacent slabs share one layer of voxels and have additional overlap needed for smoothing kernel.
+   Each cell of the grid is polygonized by one slab only and boundaries of slabs are not decimated,
+   therefore triangles are not duplicated and vertices along slab seams coincide.
+   Triangle collector which merges close vertices (like IndexedTriangleSetBuilder) makes connected mesh.
+
+   Peak memory is proportional to the size of slab and the size of buffer instead of size of the whole grid.
+ */
+public class StreamingMeshMaker {
+
+    static final boolean DEBUG = false;
+    // interval of cancel checks while waiting for slab, ms
+    static final long POLL_TIMEOUT = 100;
+
+    DataSource m_source;
+    Bounds m_bounds;
+    double m_voxelSize = 0.1*Units.MM;
+    // count of voxel layers polygonized in one slab
+    int m_slabSize = 64;
+    // max count of ready slabs waiting for meshing
+    int m_bufferSize = 1;
+    // grid used to make slabs
+    AttributeGrid m_gridPrototype;
+
+    double m_surfaceLevel = 0.;
+    double m_meshErrorFactor = 0.1;
+    double m_meshSmoothingWidth = 0.2;
+    int m_maxDecimationCount = 10;
+    int m_blockSize = 20;
+    int m_threadCount = 0;
+
+    public StreamingMeshMaker(){
+    }
+
+    public StreamingMeshMaker(DataSource source, Bounds bounds, double voxelSize){
+        m_source = source;
+        m_bounds = bounds;
+        m_voxelSize = voxelSize;
+    }
+
+    public void setSource(DataSource source){
+        m_source = source;
+    }
+
+    public void setBounds(Bounds bounds){
+        m_bounds = bounds;
+    }
+
+    public void setVoxelSize(double voxelSize){
+        m_voxelSize = voxelSize;
+    }
+
+    /**
+       @param slabSize count of voxel layers in Y direction polygonized in one slab
+     */
+    public void setSlabSize(int slabSize){
+        if(slabSize < 1)
+            throw new IllegalArgumentException(fmt("illegal slab size: %d", slabSize));
+        m_slabSize = slabSize;
+    }
+
+    /**
+       @param bufferSize max count of ready slabs waiting for meshing
+     */
+    public void setBufferSize(int bufferSize){
+        if(bufferSize < 1)
+            throw new IllegalArgumentException(fmt("illegal buffer size: %d", bufferSize));
+        m_bufferSize = bufferSize;
+    }
+
+    /**
+       set grid used as template for slabs. Slabs are created via createEmpty() and use data description of the prototype
+       default prototype is ArrayAttributeGridByte with 8 bit distance channel in range [-1mm, 1mm]
+     */
+    public void setGridPrototype(AttributeGrid grid){
+        m_gridPrototype = grid;
+    }
+
+    public void setSurfaceLevel(double value) {
+        m_surfaceLevel = value;
+    }
+
+    public void setMeshErrorFactor(double value) {
+        m_meshErrorFactor = value;
+    }
+
+    public void setMeshSmoothingWidth(double value) {
+        m_meshSmoothingWidth = value;
+    }
+
+    public void setMaxDecimationCount(int value) {
+        m_maxDecimationCount = value;
+    }
+
+    public void setBlockSize(int value) {
+        m_blockSize = value;
+    }
+
+    public void setThreadCount(int value) {
+        m_threadCount = value;
+    }
+
+    /**
+       makes the mesh and feeds triangles into triangle collector
+       triangles are passed to collector from the calling thread
+     */
+    public int makeMesh(TriangleCollector tc){
+
+        if(m_source == null)
+            throw new RuntimeException("DataSource is not set");
+        if(m_bounds == null)
+            throw new RuntimeException("Bounds are not set");
+
+        long t0 = time();
+        AttributeGrid prototype = m_gridPrototype;
+        if(prototype == null){
+            prototype = new ArrayAttributeGridByte(1, 1, 1, m_voxelSize, m_voxelSize);
+            double maxDist = 1*Units.MM;
+            prototype.setDataDesc(new GridDataDesc(new GridDataChannel(GridDataChannel.DISTANCE, "dist", 8, 0, -maxDist, maxDist)));
+        }
+
+        int nx = m_bounds.getWidthVoxels(m_voxelSize);
+        int ny = m_bounds.getHeightVoxels(m_voxelSize);
+        int nz = m_bounds.getDepthVoxels(m_voxelSize);
+
+        MeshMakerMT meshmaker = new MeshMakerMT();
+        meshmaker.setThreadCount(m_threadCount);
+        meshmaker.setSmoothingWidth(m_meshSmoothingWidth);
+        meshmaker.setMaxDecimationError(m_meshErrorFactor * m_voxelSize * m_voxelSize);
+        meshmaker.setMaxDecimationCount(m_maxDecimationCount);
+        meshmaker.setBlockSize(m_blockSize);
+        meshmaker.setDensityMaker(GridSaver.getDensityMaker(prototype, m_surfaceLevel));
+
+        int overlap = 0;
+        if(m_meshSmoothingWidth > 0.)
+            overlap = (MathUtil.getGaussianKernel(m_meshSmoothingWidth).length + 1)/2;
+
+        SlabMaker slabMaker = new SlabMaker(prototype, nx, ny, nz, overlap);
+        // slabs are made in the shared pool by job nested in the current job 
+        TileScheduler.Job slabJob = TileScheduler.start(slabMaker);
+
+        int slabCount = 0;
+        try {
+            while(true){
+                Slab slab = null;
+                try {
+                    // slab maker does not start if the job is cancelled, so wait with timeout 
+                    while(slab == null){
+                        TileScheduler.checkCancelled();
+                        slab = slabMaker.queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                    }
+                } catch(InterruptedException e){
+                    throw new ExecutionStoppedException();
+                }
+                if(slab.error != null) {
+                    if(slab.error instanceof RuntimeException)
+                        throw (RuntimeException)slab.error;
+                    throw new RuntimeException(slab.error);
+                }
+                if(slab.grid == null)
+                    break;
+                if(DEBUG) printf("StreamingMeshMaker slab [%d,%d] grid: [%d,%d]\n", slab.ymin, slab.ymax, slab.gridYmin, slab.gridYmin + slab.grid.getHeight()-1);
+                meshmaker.makeMesh(slab.grid, slab.ymin - slab.gridYmin, slab.ymax - slab.gridYmin, tc);
+                if(meshmaker.getStatus() != MeshMakerMT.StatusType.SUCCESS)
+                    throw new RuntimeException(fmt("failed to make mesh of slab [%d,%d]", slab.ymin, slab.ymax));
+                slabCount++;
+            }
+        } finally {
+            // stop making slabs if meshing was not completed
+            slabJob.cancel();
+            slabMaker.queue.clear();
+            slabJob.join();
+        }
+        if(DEBUG) printf("StreamingMeshMaker: %d slabs %d ms\n", slabCount, (time() - t0));
+        return ResultCodes.RESULT_OK;
+    }
+
+    /**
+       slab of grid which is used to polygonize voxel layers [ymin, ymax]
+       grid of the slab starts at layer gridYmin
+     */
+    static class Slab {
+
+        AttributeGrid grid;
+        int ymin, ymax, gridYmin;
+        Throwable error;
+
+        Slab(AttributeGrid grid, int ymin, int ymax, int gridYmin){
+            this.grid = grid;
+            this.ymin = ymin;
+            this.ymax = ymax;
+            this.gridYmin = gridYmin;
+        }
+
+        Slab(Throwable error){
+            this.error = error;
+        }
+    } // class Slab
+
+    /**
+       calculates slabs and puts them into queue
+       slab with null grid is put after the last slab
+     */
+    class SlabMaker implements Runnable {
+
+        BlockingQueue<Slab> queue;
+        AttributeGrid prototype;
+        int nx, ny, nz, overlap;
+
+        SlabMaker(AttributeGrid prototype, int nx, int ny, int nz, int overlap){
+
+            this.queue = new ArrayBlockingQueue<Slab>(m_bufferSize);
+            this.prototype = prototype;
+            this.nx = nx;
+            this.ny = ny;
+            this.nz = nz;
+            this.overlap = overlap;
+        }
+
+        public void run(){
+            try {
+                GridMaker gm = new GridMaker();
+                gm.setSource(m_source);
+                gm.setThreadCount(m_threadCount);
+                double vs = m_voxelSize;
+                Bounds b = m_bounds;
+                int ymin = 0;
+                do {
+                    TileScheduler.checkCancelled();
+                    int ymax = Math.min(ymin + m_slabSize, ny-1);
+                    int gymin = Math.max(0, ymin - overlap);
+                    int gymax = Math.min(ny-1, ymax + overlap);
+                    Bounds slabBounds = new Bounds(b.xmin, b.xmin + nx*vs, b.ymin + gymin*vs, b.ymin + (gymax+1)*vs, b.zmin, b.zmin + nz*vs);
+                    AttributeGrid grid = (AttributeGrid)prototype.createEmpty(nx, gymax - gymin + 1, nz, vs, vs);
+                    grid.setGridBounds(slabBounds);
+                    grid.setDataDesc(prototype.getDataDesc());
+                    gm.setBounds(slabBounds);
+                    gm.makeGrid(grid);
+                    put(new Slab(grid, ymin, ymax, gymin));
+                    ymin = ymax;
+                } while(ymin < ny-1);
+                put(new Slab(null, 0, 0, 0));
+            } catch(InterruptedException e){
+                // meshing was stopped
+            } catch(Throwable e){
+                // pass error to the meshing thread
+                queue.clear();
+                queue.offer(new Slab(e));
+            }
+        }
+
+        /**
+           puts slab into queue, the pool may add a thread while this one waits for meshing 
+         */
+        void put(final Slab slab) throws InterruptedException {
+
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker(){
+                    public boolean block() throws InterruptedException {
+                        queue.put(slab);
+                        return true;
+                    }
+                    public boolean isReleasable(){
+                        return false;
+                    }
+                });
+        }
+    } // class SlabMaker
+
+}
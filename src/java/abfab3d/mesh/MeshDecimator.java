@@ -93,7 +93,7 @@ public class MeshDecimator {
 
     StructMixedData quadrics;
 
-    private int m_internalEdges[]; //storage for internal edges 
+    int m_internalEdges[]; //storage for internal edges 
 
     //
     // object, which calculates errors and new vertex placement
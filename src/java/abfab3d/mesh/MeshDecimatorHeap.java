@@ -0,0 +1,380 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+package abfab3d.mesh;
+
+import abfab3d.util.EdgeCollapseResult;
+import abfab3d.util.StructMixedData;
+import abfab3d.util.TriangleMesh;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.time;
+
+/**
+   decimator to reduce face count of triangle mesh
+
+   it uses the same Quadric error function as MeshDecimator, but instead of sampling random candidate edges
+   it keeps all internal edges in indexed min-heap ordered by collapse error.
+   The edge with the smallest error is always collapsed first.
+   After each collapse only errors of edges adjacent to the moved vertex are recalculated and updated in the heap.
+
+   Edge which failed to collapse is removed from the heap and is returned back to heap when one of its vertices is moved.
+   Decimation stops when target face count is reached or when smallest error exceeds max collapse error.
+
+   The heap is stored in primitive arrays indexed by edge index in array of internal edges
+
+
+ */
+public class MeshDecimatorHeap extends MeshDecimator {
+
+    static final boolean DEBUG = false;
+
+    // count of internal edges
+    int m_edgeCount;
+    // heap of edge indices
+    int m_heap[];
+    // position of edge in the heap or NO_DATA if edge is not in the heap
+    int m_heapPos[];
+    // collapse error of each edge
+    double m_error[];
+    int m_heapSize;
+
+    // count of errors calculations
+    int m_errorCount;
+
+    // scratch data
+    EdgeData m_ed;
+
+    /**
+       the instance of the MeshDecimatorHeap can be reused for several meshes
+     */
+    public MeshDecimatorHeap(){
+
+    }
+
+    /**
+       decimates the mesh to have targetFaceCount
+
+       returns final face count of the mesh
+
+     */
+    public int processMesh(TriangleMesh mesh, int targetFaceCount){
+
+        long t0 = time();
+
+        quadrics = new StructMixedData(new Quadric(), mesh.getVertexCount() + RANDOM_CANDIDATES_COUNT);
+
+        this.m_mesh = mesh;
+
+        m_faceCount = m_mesh.getFaceCount();
+
+        m_origFaceCount = m_faceCount;
+        m_surfacePinchCount = 0;
+        m_faceFlipCount = 0;
+        m_longEdgeCount = 0;
+        m_ignoreCount = 0;
+        m_edgeTestCount = 0;
+        m_attemptCount = 0;
+        m_errorCount = 0;
+
+        doInitialization();
+
+        m_edgeCount = m_edgeArray.getDataCount();
+
+        if(m_edgeCount < MINIMAL_EDGE_COUNT) {
+            return m_faceCount;
+        }
+
+        m_ed = m_candidates[0];
+        initHeap();
+
+        if(DEBUG) printf("MeshDecimatorHeap heap: %d edges: %d init: %d ms\n", m_heapSize, m_edgeCount, (time() - t0));
+
+        while(m_faceCount > targetFaceCount && m_heapSize > 0){
+
+            if(m_error[m_heap[0]] > m_maxCollapseError){
+                // all remaining edges have larger error
+                m_ignoreCount += m_heapSize;
+                break;
+            }
+            doIteration();
+        }
+
+        if(DEBUG) printf("MeshDecimatorHeap faces: %d -> %d errors: %d time: %d ms\n", m_origFaceCount, m_faceCount, m_errorCount, (time() - t0));
+
+        int actuallFaceCount = mesh.getFaceCount();
+        if(m_printStat){
+            printStat();
+        }
+
+        // Release variables for faster garbage collection
+        m_errorFunction = null;
+        m_mesh = null;
+
+        return actuallFaceCount;
+    }
+
+    /**
+       collapse edge from the top of the heap
+       return true if collapse was successfull
+       return false otherwise
+     */
+    protected boolean doIteration(){
+
+        int index = m_heap[0];
+        heapRemove(index);
+
+        EdgeData ed = m_ed;
+        ed.edge = m_internalEdges[index];
+        ed.index = index;
+
+        StructMixedData edges = m_mesh.getEdges();
+        if(Edge.getHe(edges, ed.edge) == NO_DATA) {
+            // should not happens
+            return false;
+        }
+
+        // recalculate error to get new vertex position and combined quadric
+        m_errorFunction.calculateError(ed);
+        m_errorCount++;
+
+        if(ed.errorValue > m_maxCollapseError){
+            m_ignoreCount++;
+            return false;
+        }
+        m_errorFunction.calculateVertex(ed);
+
+        m_ecr.reset();
+        m_ecp.maxEdgeLength2 = m_maxEdgeLength2;
+        m_attemptCount++;
+
+        if(!m_mesh.collapseEdge(ed.edge, ed.point, m_ecp, m_ecr)){
+
+            switch(m_ecr.returnCode){
+            case EdgeCollapseResult.FAILURE_SURFACE_PINCH:
+                m_surfacePinchCount++;
+                break;
+            case EdgeCollapseResult.FAILURE_FACE_FLIP:
+                m_faceFlipCount++;
+                break;
+            case EdgeCollapseResult.FAILURE_LONG_EDGE:
+                m_longEdgeCount++;
+                break;
+            }
+            return false;
+        }
+
+        m_faceCount -= m_ecr.faceCount;
+
+        // assign new quadric to moved vertex
+        int v1 = m_ecr.insertedVertex;
+        Quadric.set(quadrics, ed.vertexUserData, quadrics, Vertex.getUserData(m_mesh.getVertices(), v1));
+
+        int[] removedEdges = m_ecr.removedEdges;
+        m_collapseCount += removedEdges.length;
+
+        for(int i = 0; i < removedEdges.length; i++) {
+            int ei = getEdgeIndex(edges, removedEdges[i]);
+            if(ei != NO_DATA){
+                heapRemove(ei);
+            }
+        }
+
+        if(ed.errorValue > m_maxError){
+            m_maxError = ed.errorValue;
+        }
+
+        updateVertexEdges(v1);
+
+        return true;
+
+    }
+
+    /**
+       recalculates errors of all edges adjacent to the vertex
+     */
+    protected void updateVertexEdges(int v){
+
+        StructMixedData halfEdges = m_mesh.getHalfEdges();
+        StructMixedData edges = m_mesh.getEdges();
+
+        int start = Vertex.getLink(m_mesh.getVertices(), v);
+        if(start == NO_DATA)
+            return;
+        int he = start;
+        int maxcount = 1000; // to avoid infinite cycle if cycle is broken
+        do {
+            int ei = getEdgeIndex(edges, HalfEdge.getEdge(halfEdges, he));
+            if(ei != NO_DATA)
+                updateEdge(ei);
+
+            int twin = HalfEdge.getTwin(halfEdges, he);
+            if(twin == NO_DATA)
+                break;
+            he = HalfEdge.getNext(halfEdges, twin);
+
+        } while(he != start && he != NO_DATA && --maxcount > 0);
+    }
+
+    /**
+       @return index of internal edge or NO_DATA if edge is not internal
+     */
+    final int getEdgeIndex(StructMixedData edges, int edge){
+
+        if(edge == NO_DATA)
+            return NO_DATA;
+        int index = Edge.getUserData(edges, edge);
+        if(index < 0 || index >= m_edgeCount || m_internalEdges[index] != edge)
+            return NO_DATA;
+        return index;
+    }
+
+    /**
+       calculates collapse error of internal edge
+       @return error or Double.MAX_VALUE if edge can not be collapsed
+     */
+    protected double calculateError(int index){
+
+        int edge = m_internalEdges[index];
+        if(Edge.getHe(m_mesh.getEdges(), edge) == NO_DATA)
+            return Double.MAX_VALUE;
+
+        if(m_edgeTester != null){
+            if(!m_edgeTester.canCollapse(edge)){
+                return Double.MAX_VALUE;
+            } else {
+                m_edgeTestCount++;
+            }
+        }
+        EdgeData ed = m_ed;
+        ed.edge = edge;
+        ed.index = index;
+        m_errorFunction.calculateError(ed);
+        m_errorCount++;
+        return ed.errorValue;
+    }
+
+    /**
+       initializes heap with all collapsable internal edges
+     */
+    protected void initHeap(){
+
+        int count = m_edgeCount;
+        if(m_heap == null || m_heap.length < count){
+            m_heap = new int[count];
+            m_heapPos = new int[count];
+            m_error = new double[count];
+        }
+        m_heapSize = 0;
+        for(int i = 0; i < count; i++){
+            double err = calculateError(i);
+            m_error[i] = err;
+            if(err < Double.MAX_VALUE){
+                m_heapPos[i] = m_heapSize;
+                m_heap[m_heapSize++] = i;
+            } else {
+                m_heapPos[i] = NO_DATA;
+            }
+        }
+        for(int k = m_heapSize/2-1; k >= 0; k--){
+            siftDown(k);
+        }
+    }
+
+    /**
+       recalculates error of edge and updates it's position in the heap
+     */
+    protected void updateEdge(int index){
+
+        double err = calculateError(index);
+        m_error[index] = err;
+        int pos = m_heapPos[index];
+        if(err == Double.MAX_VALUE){
+            if(pos != NO_DATA)
+                heapRemove(index);
+            return;
+        }
+        if(pos == NO_DATA){
+            // insert new
+            pos = m_heapSize++;
+            m_heap[pos] = index;
+            m_heapPos[index] = pos;
+            siftUp(pos);
+        } else {
+            siftUp(pos);
+            siftDown(m_heapPos[index]);
+        }
+    }
+
+    /**
+       removes edge from the heap
+     */
+    protected void heapRemove(int index){
+
+        int pos = m_heapPos[index];
+        if(pos == NO_DATA)
+            return;
+        m_heapPos[index] = NO_DATA;
+        int last = m_heap[--m_heapSize];
+        if(pos == m_heapSize)
+            return;
+        m_heap[pos] = last;
+        m_heapPos[last] = pos;
+        siftUp(pos);
+        siftDown(m_heapPos[last]);
+    }
+
+    final void siftUp(int pos){
+
+        int index = m_heap[pos];
+        double err = m_error[index];
+        while(pos > 0){
+            int parent = (pos-1) >> 1;
+            int pindex = m_heap[parent];
+            if(m_error[pindex] <= err)
+                break;
+            m_heap[pos] = pindex;
+            m_heapPos[pindex] = pos;
+            pos = parent;
+        }
+        m_heap[pos] = index;
+        m_heapPos[index] = pos;
+    }
+
+    final void siftDown(int pos){
+
+        int index = m_heap[pos];
+        double err = m_error[index];
+        int half = m_heapSize >> 1;
+        while(pos < half){
+            int child = 2*pos + 1;
+            int cindex = m_heap[child];
+            int right = child + 1;
+            if(right < m_heapSize && m_error[m_heap[right]] < m_error[cindex]){
+                child = right;
+                cindex = m_heap[child];
+            }
+            if(err <= m_error[cindex])
+                break;
+            m_heap[pos] = cindex;
+            m_heapPos[cindex] = pos;
+            pos = child;
+        }
+        m_heap[pos] = index;
+        m_heapPos[index] = pos;
+    }
+
+    public void printStat() {
+        super.printStat();
+        printf("   error calculations: %d\n", m_errorCount);
+    }
+
+} // class MeshDecimatorHeap
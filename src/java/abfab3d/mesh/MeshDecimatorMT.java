@@ -318,8 +318,8 @@ public class MeshDecimatorMT extends MeshDecimator {
             printf(" longEdgeCount: %d\n", longEdgeCount);
             printf(" largeErrorCount: %d\n", largeErrorCount);
             printf(" failedToLockCount: %d\n", failedToLockCount);
-            printf(" average edge lock size: %5.1f\n", ((double)lockedEdgesCount/lockCount));
-            printf(" time per collapse: %d ns\n", collapseTime / collapseCount);
+            printf(" average edge lock size: %5.1f\n", ((double)lockedEdgesCount/Math.max(lockCount,1)));
+            printf(" time per collapse: %d ns\n", collapseTime / Math.max(collapseCount,1));
             printf(" collapseTime: %d ms\n", collapseTime/1000000);
             
             edgeSelector.printStat();
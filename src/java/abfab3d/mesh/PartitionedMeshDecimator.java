@@ -0,0 +1,473 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+package abfab3d.mesh;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.vecmath.Vector3d;
+
+import abfab3d.core.Bounds;
+import abfab3d.core.TriangleCollector;
+
+import abfab3d.util.TileScheduler;
+
+import static abfab3d.core.Output.fmt;
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.time;
+
+/**
+   out of core decimator of large meshes
+
+   Triangles passed via addTri() are distributed into spatial partitions (cubes of given size)
+   and are spilled to temporary files in compact indexed format by chunks of limited size.
+
+   decimate() processes partitions in parallel. Each partition is loaded from disk, decimated by MeshDecimatorHeap
+   and distributed into partitions of the next pass. Vertices on partition boundary are boundary vertices of the partition mesh.
+   They are not moved by decimator, therefore adjacent partitions stay connected.
+   Partitions of the next pass are shifted by half of partition size, so seams of previous pass are decimated in the next pass.
+   Result of the last pass is passed to output triangle collector.
+
+   Peak memory is proportional to the size of decimated partitions and count of threads,
+   instead of the size of the whole mesh.
+
+   typical usage:
+   <pre>
+   PartitionedMeshDecimator pmd = new PartitionedMeshDecimator(bounds, 10*MM);
+   streamingMeshMaker.makeMesh(pmd);
+   pmd.decimate(stlWriter);
+   </pre>
+ */
+public class PartitionedMeshDecimator implements TriangleCollector {
+
+    static final boolean DEBUG = false;
+
+    Bounds m_bounds;
+    double m_partitionSize;
+    // count of decimation passes over all partitions
+    int m_passCount = 3;
+    // max count of halving of partition face count in one pass
+    int m_maxDecimationCount = 7;
+    double m_maxCollapseError = 1.e-9;
+    int m_threadCount = 0;
+    // max count of faces in one chunk written to disk
+    int m_chunkSize = 20000;
+    // partitions with smaller face count are not decimated
+    int m_minFaceCount = 100;
+    File m_tempDir = null;
+
+    // partitions of input mesh
+    PartitionSet m_input;
+
+    int m_inputFaceCount;
+    int m_outputFaceCount;
+
+    /**
+       @param bounds bounds of the mesh. Triangles outside of bounds are placed into closest partition
+       @param partitionSize size of cubic partition
+     */
+    public PartitionedMeshDecimator(Bounds bounds, double partitionSize){
+
+        if(partitionSize <= 0.)
+            throw new IllegalArgumentException(fmt("illegal partition size: %s", partitionSize));
+        m_bounds = bounds;
+        m_partitionSize = partitionSize;
+    }
+
+    /**
+       @param count count of decimation passes. Each pass uses partitions shifted relative to the previous pass
+     */
+    public void setPassCount(int count){
+        if(count < 1)
+            throw new IllegalArgumentException(fmt("illegal pass count: %d", count));
+        m_passCount = count;
+    }
+
+    /**
+       @param count max count of halving of face count of each partition in one pass
+     */
+    public void setMaxDecimationCount(int count){
+        m_maxDecimationCount = count;
+    }
+
+    public void setMaxCollapseError(double value){
+        m_maxCollapseError = value;
+    }
+
+    /**
+       @param count count of threads. If count < 1 global max thread count is used
+     */
+    public void setThreadCount(int count){
+        m_threadCount = count;
+    }
+
+    /**
+       @param size max count of faces kept in memory for each partition before it is written to disk
+     */
+    public void setChunkSize(int size){
+        m_chunkSize = size;
+    }
+
+    /**
+       @param dir directory for temporary files. Default is system temporary directory
+     */
+    public void setTempDir(File dir){
+        m_tempDir = dir;
+    }
+
+    public int getInputFaceCount(){
+        return m_inputFaceCount;
+    }
+
+    public int getOutputFaceCount(){
+        return m_outputFaceCount;
+    }
+
+    /**
+       add triangle of input mesh
+     */
+    public synchronized boolean addTri(Vector3d v0,Vector3d v1,Vector3d v2){
+
+        if(m_input == null)
+            m_input = new PartitionSet(0.);
+        m_inputFaceCount++;
+        return m_input.addTri(v0, v1, v2);
+    }
+
+    /**
+       decimates the mesh and passes the result to output collector.
+       Triangles are passed to collector from the calling thread
+       @return count of output faces
+     */
+    public int decimate(TriangleCollector out){
+
+        long t0 = time();
+
+        PartitionSet current;
+        synchronized(this){
+            current = m_input;
+            m_input = null;
+        }
+        if(current == null)
+            return 0;
+
+        try {
+            current.close();
+            for(int pass = 0; pass < m_passCount; pass++){
+
+                PartitionSet next = new PartitionSet(((pass+1)%2)*m_partitionSize/2);
+                boolean completed = false;
+                try {
+                    decimatePartitions(current, next);
+                    next.close();
+                    completed = true;
+                } finally {
+                    current.delete();
+                    // files of failed pass are deleted here, files of completed pass are deleted after next pass 
+                    if(!completed)
+                        next.delete();
+                }
+                current = next;
+                if(DEBUG) printf("PartitionedMeshDecimator pass %d faces: %d time: %d ms\n", pass, current.getFaceCount(), (time() - t0));
+            }
+
+            int faceCount = 0;
+            for(int i = 0; i < current.parts.length; i++){
+                Partition p = current.parts[i];
+                if(p != null)
+                    faceCount += p.read(out);
+            }
+            m_outputFaceCount = faceCount;
+
+        } finally {
+            current.delete();
+        }
+        if(DEBUG) printf("PartitionedMeshDecimator faces: %d -> %d time: %d ms\n", m_inputFaceCount, m_outputFaceCount, (time() - t0));
+        return m_outputFaceCount;
+    }
+
+    /**
+       decimates each partition of input and writes the result into output
+     */
+    protected void decimatePartitions(final PartitionSet input, final PartitionSet output){
+
+        final AtomicInteger nextPart = new AtomicInteger(0);
+
+        int threadCount = m_threadCount;
+        if(threadCount < 1)
+            threadCount = TileScheduler.getMaxThreadCount();
+        threadCount = Math.max(1, Math.min(threadCount, input.getPartitionCount()));
+
+        Runnable workers[] = new Runnable[threadCount];
+        for(int i = 0; i < threadCount; i++){
+            workers[i] = new Runnable(){
+                    MeshDecimator decimator = new MeshDecimatorHeap();
+                    public void run(){
+                        while(true){
+                            int index = nextPart.getAndIncrement();
+                            if(index >= input.parts.length)
+                                break;
+                            Partition p = input.parts[index];
+                            if(p == null)
+                                continue;
+                            TileScheduler.checkCancelled();
+                            decimatePartition(p, decimator, output);
+                        }
+                    }
+                };
+        }
+        TileScheduler.runWorkers(workers);
+    }
+
+    /**
+       decimates single partition and writes the result into output
+     */
+    protected void decimatePartition(Partition part, MeshDecimator decimator, TriangleCollector output){
+
+        IndexedTriangleSetBuilder its = new IndexedTriangleSetBuilder(part.faceCount);
+        part.read(its);
+        part.delete();
+
+        int fcount = its.getFaceCount();
+        if(fcount < m_minFaceCount || m_maxDecimationCount <= 0){
+            its.getTriangles(output);
+            return;
+        }
+
+        WingedEdgeTriangleMesh mesh = new WingedEdgeTriangleMesh(its.getVertices(), its.getFaces());
+        its = null;
+
+        decimator.setMaxCollapseError(m_maxCollapseError);
+        int count = m_maxDecimationCount;
+        while(count-- > 0){
+            decimator.processMesh(mesh, fcount/2);
+            int fc = mesh.getTriangleCount();
+            if(fc > (int)(fcount*0.99))
+                break;
+            fcount = fc;
+        }
+        mesh.getTriangles(output);
+    }
+
+    /**
+       set of partitions covering the bounds
+     */
+    class PartitionSet implements TriangleCollector {
+
+        double xmin, ymin, zmin;
+        int nx, ny, nz;
+        Partition parts[];
+
+        /**
+           @param offset shift of partitions origin relative to the bounds origin
+         */
+        PartitionSet(double offset){
+
+            double size = m_partitionSize;
+            Bounds b = m_bounds;
+            xmin = b.xmin - offset;
+            ymin = b.ymin - offset;
+            zmin = b.zmin - offset;
+            nx = Math.max(1, (int)Math.ceil((b.xmax - xmin)/size));
+            ny = Math.max(1, (int)Math.ceil((b.ymax - ymin)/size));
+            nz = Math.max(1, (int)Math.ceil((b.zmax - zmin)/size));
+            parts = new Partition[nx*ny*nz];
+        }
+
+        int getPartitionCount(){
+            return parts.length;
+        }
+
+        int getFaceCount(){
+            int count = 0;
+            for(int i = 0; i < parts.length; i++){
+                if(parts[i] != null)
+                    count += parts[i].faceCount;
+            }
+            return count;
+        }
+
+        /**
+           adds triangle to partition, which contains triangle centroid
+         */
+        public boolean addTri(Vector3d v0,Vector3d v1,Vector3d v2){
+
+            double size = m_partitionSize;
+            int ix = clamp((int)Math.floor(((v0.x + v1.x + v2.x)/3 - xmin)/size), nx);
+            int iy = clamp((int)Math.floor(((v0.y + v1.y + v2.y)/3 - ymin)/size), ny);
+            int iz = clamp((int)Math.floor(((v0.z + v1.z + v2.z)/3 - zmin)/size), nz);
+            int index = ix + nx*(iy + ny*iz);
+            Partition p;
+            synchronized(this){
+                p = parts[index];
+                if(p == null){
+                    p = new Partition();
+                    parts[index] = p;
+                }
+            }
+            return p.addTri(v0, v1, v2);
+        }
+
+        /**
+           writes all buffered triangles to disk
+         */
+        void close(){
+            for(int i = 0; i < parts.length; i++){
+                if(parts[i] != null)
+                    parts[i].close();
+            }
+        }
+
+        /**
+           deletes all temporary files
+         */
+        void delete(){
+            for(int i = 0; i < parts.length; i++){
+                if(parts[i] != null)
+                    parts[i].delete();
+            }
+        }
+    } // class PartitionSet
+
+    static final int clamp(int i, int n){
+        return (i < 0)? 0: ((i >= n)? (n-1): i);
+    }
+
+    /**
+       partition of mesh stored on disk
+       file consists of chunks. Each chunk is indexed triangle set
+       int vertexCount, int faceCount, double vertices[3*vertexCount], int faces[3*faceCount]
+     */
+    class Partition implements TriangleCollector {
+
+        File file;
+        DataOutputStream out;
+        IndexedTriangleSetBuilder buffer;
+        int faceCount = 0;
+
+        public synchronized boolean addTri(Vector3d v0,Vector3d v1,Vector3d v2){
+
+            if(buffer == null)
+                buffer = new IndexedTriangleSetBuilder(m_chunkSize);
+            if(!buffer.addTri(v0, v1, v2))
+                return false;
+            faceCount++;
+            if(buffer.getFaceCount() >= m_chunkSize)
+                writeChunk();
+            return true;
+        }
+
+        void writeChunk(){
+
+            try {
+                if(out == null){
+                    file = File.createTempFile("partition", ".mesh", m_tempDir);
+                    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+                }
+                double vert[] = buffer.getVertices();
+                int faces[] = buffer.getFaces();
+                out.writeInt(vert.length/3);
+                out.writeInt(faces.length/3);
+                for(int i = 0; i < vert.length; i++)
+                    out.writeDouble(vert[i]);
+                for(int i = 0; i < faces.length; i++)
+                    out.writeInt(faces[i]);
+                buffer.clear();
+            } catch(IOException e){
+                throw new RuntimeException(e);
+            }
+        }
+
+        synchronized void close(){
+
+            if(buffer != null && buffer.getFaceCount() > 0)
+                writeChunk();
+            buffer = null;
+            try {
+                if(out != null)
+                    out.close();
+            } catch(IOException e){
+                throw new RuntimeException(e);
+            }
+            out = null;
+        }
+
+        /**
+           reads all triangles and passes them to collector
+           @return count of triangles read
+         */
+        int read(TriangleCollector tc){
+
+            if(file == null)
+                return 0;
+            int count = 0;
+            Vector3d v0 = new Vector3d(), v1 = new Vector3d(), v2 = new Vector3d();
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+                while(true){
+                    int vcount;
+                    try {
+                        vcount = in.readInt();
+                    } catch(EOFException e){
+                        break;
+                    }
+                    int fcount = in.readInt();
+                    double vert[] = new double[3*vcount];
+                    for(int i = 0; i < vert.length; i++)
+                        vert[i] = in.readDouble();
+                    for(int f = 0; f < fcount; f++){
+                        int i0 = 3*in.readInt(), i1 = 3*in.readInt(), i2 = 3*in.readInt();
+                        v0.set(vert[i0], vert[i0+1], vert[i0+2]);
+                        v1.set(vert[i1], vert[i1+1], vert[i1+2]);
+                        v2.set(vert[i2], vert[i2+1], vert[i2+2]);
+                        tc.addTri(v0, v1, v2);
+                        count++;
+                    }
+                }
+            } catch(IOException e){
+                throw new RuntimeException(e);
+            } finally {
+                try {
+                    if(in != null) in.close();
+                } catch(IOException e){
+                    // ignore
+                }
+            }
+            return count;
+        }
+
+        synchronized void delete(){
+
+            buffer = null;
+            try {
+                if(out != null)
+                    out.close();
+            } catch(IOException e){
+                // ignore
+            }
+            out = null;
+            if(file != null)
+                file.delete();
+            file = null;
+        }
+    } // class Partition
+}
@@ -169,6 +169,7 @@ public class BaseParameterizable implements Parameterizable, SNode {
     }
 
     public void getParamString(StringBuilder sb){
+        initParamArray();
         getParamString(getClass().getSimpleName(),m_paramArray,sb);
     }
 
@@ -204,6 +205,20 @@ public class BaseParameterizable implements Parameterizable, SNode {
         return getParamString(getClass().getSimpleName(),m_paramArray);
     }
 
+    /**
+     * Get 128 bit hash of the params suitable as cache key.  It distinguishes the same params as getParamString()
+     */
+    public String getParamHash() {
+        return ParamHash.getHash(this);
+    }
+
+    /**
+     * Get 128 bit hash suitable as cache key.  It is equivalent to getDataLabel() but does not build the label
+     */
+    public String getDataHash() {
+        return ParamHash.getHash(getClass().getSimpleName(),getParams());
+    }
+
 
     public final static void initialize(Object obj){
         if(obj instanceof Initializable){
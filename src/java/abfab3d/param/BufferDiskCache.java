@@ -4,10 +4,8 @@ import abfab3d.core.CacheConfig;
 import abfab3d.core.LabeledBuffer;
 import org.apache.commons.io.IOUtils;
 //import sun.misc.Unsafe;
-import sun.nio.ch.DirectBuffer;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -25,16 +23,20 @@ import java.nio.ShortBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 
 import static abfab3d.core.Output.fmt;
 import static abfab3d.core.Output.printf;
@@ -47,9 +49,15 @@ import static abfab3d.core.Output.printf;
  * <p/>
  * This class is designed to be thread safe though its not very efficient at it.
  * <p/>
+ * Buffers are stored as independently compressed blocks with an index at the start of the file.
+ * Reader maps the file and decompresses only the blocks it needs, see get(label, start, count).
+ * Blocks are compressed by Deflater at the fastest level, blocks which do not compress are stored as is.
+ * Files written by previous versions (whole file gzip or raw) are still readable.
+ * <p/>
+ * Lazy writes are done by several writer threads from a bounded queue.  Put blocks when the queue is full.
+ * Buffers waiting in the queue are returned by get().
+ * <p/>
  * TODO:
- * Currently using compression seems to make the loading speed slower
- *
  * use unsafe for faster read/write
  *  Look at unsafe to speed this up.   http://mechanical-sympathy.blogspot.de/2012/07/native-cc-like-performance-for-java.html
  * compress data
@@ -70,6 +78,21 @@ public class BufferDiskCache implements Runnable {
     private static boolean DEFAULT_COMPRESS = false;
     private static boolean DEFAULT_LAZY_WRITES = true;
 
+    /** Size of uncompressed block in bytes, multiple of the largest element size */
+    static final int BLOCK_SIZE = 256 * 1024;
+    /** Max count of buffers waiting to be written */
+    static final int WRITE_QUEUE_SIZE = 64;
+    /** Count of lazy writer threads */
+    static final int WRITER_COUNT = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    static final int BLOCK_FILE_MAGIC = 0x41424243;
+    static final int BLOCK_FILE_VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int INDEX_ENTRY_SIZE = 16;
+    // max size of mapped part of block file
+    static final int MAX_MAP_SIZE = 1 << 30;
+    static final String FORMAT_BLOCKS = "blocks";
+
     private boolean compress = false;
     private boolean lazyWrites = true;
     private FileDiskCache diskCache;
@@ -78,9 +101,10 @@ public class BufferDiskCache implements Runnable {
     private static BufferDiskCache cache;
 
     // Lazy write variables
-    private LinkedBlockingQueue<LabeledBuffer> writeQueue;
+    private BlockingQueue<LabeledBuffer<?>> writeQueue;
+    private ConcurrentHashMap<String, LabeledBuffer<?>> pending;
     private volatile boolean terminate;
-    private Thread writeThread;
+    private Thread writeThreads[];
 
 
     static {
@@ -95,7 +119,10 @@ public class BufferDiskCache implements Runnable {
         }
     };
 
-    private BufferDiskCache(long maxSize, String basedir, boolean compress, boolean lazyWrites) {
+    /**
+     * Use getInstance(), separate instances are created only by tests
+     */
+    BufferDiskCache(long maxSize, String basedir, boolean compress, boolean lazyWrites) {
         this.compress = compress;
         this.lazyWrites = lazyWrites;
 
@@ -105,7 +132,8 @@ public class BufferDiskCache implements Runnable {
         this.basedir = diskCache.getCacheDir();
 
         if (lazyWrites) {
-            writeQueue = new LinkedBlockingQueue<>();
+            writeQueue = new ArrayBlockingQueue<>(WRITE_QUEUE_SIZE);
+            pending = new ConcurrentHashMap<>();
             terminate = false;
 
             Runtime.getRuntime().addShutdownHook(new Thread() {
@@ -114,8 +142,11 @@ public class BufferDiskCache implements Runnable {
                     shutdown();
                 }
             });
-            writeThread = new Thread(this);
-            writeThread.start();
+            writeThreads = new Thread[WRITER_COUNT];
+            for (int i = 0; i < WRITER_COUNT; i++) {
+                writeThreads[i] = new Thread(this, "BufferDiskCache.writer" + i);
+                writeThreads[i].start();
+            }
         }
 
         if (!CACHE_ENABLED) {
@@ -191,7 +222,7 @@ public class BufferDiskCache implements Runnable {
     }
 
     /**
-     * Lazy put code, just add to queue
+     * Lazy put code, just add to queue.  Waits if queue is full
      * @param buff
      */
     private void putLazy(LabeledBuffer buff) {
@@ -206,18 +237,27 @@ public class BufferDiskCache implements Runnable {
             return;
         }
 
+        // the same buffer is already waiting
+        if (pending.putIfAbsent(buff.getLabel(), buff) != null) return;
+
         try {
             writeQueue.put(buff);
         } catch(InterruptedException ie) {
-            // ignore
+            pending.remove(buff.getLabel(), buff);
         }
     }
 
     public void run() {
         while(!terminate) {
             try {
-                LabeledBuffer buff = writeQueue.poll(1, TimeUnit.SECONDS);
-                if (buff != null) putDirect(buff);
+                LabeledBuffer<?> buff = writeQueue.poll(1, TimeUnit.SECONDS);
+                if (buff != null) {
+                    try {
+                        putDirect(buff);
+                    } finally {
+                        pending.remove(buff.getLabel(), buff);
+                    }
+                }
             } catch(InterruptedException ie) {
                 // ignore
             }
@@ -230,7 +270,12 @@ public class BufferDiskCache implements Runnable {
 
     public LabeledBuffer get(String label) {
         if (!CACHE_ENABLED) return null;
-        
+
+        if (pending != null) {
+            LabeledBuffer<?> buff = pending.get(label);
+            if (buff != null) return buff;
+        }
+
         ThreadVars tvars = threadVars.get();
         HashMap<String, Object> extra = tvars.extra;
         extra.clear();
@@ -240,6 +285,9 @@ public class BufferDiskCache implements Runnable {
         if (path == null) return null;
 
         try {
+            if (FORMAT_BLOCKS.equals(extra.get("format"))) {
+                return loadBlocks(label, path, 0, -1);
+            }
             return loadFile(label, path, extra);
         } catch (IOException ioe) {
             ioe.printStackTrace();
@@ -249,12 +297,55 @@ public class BufferDiskCache implements Runnable {
         return null;
     }
 
+    /**
+     * Get part of the buffer.  Only blocks containing the requested elements are read and decompressed
+     *
+     * @param label The buffer label
+     * @param start The first element
+     * @param count The count of elements
+     * @return The buffer with requested elements or null if not found
+     */
+    public LabeledBuffer<?> get(String label, int start, int count) {
+        if (!CACHE_ENABLED) return null;
+
+        if (pending != null) {
+            LabeledBuffer<?> buff = pending.get(label);
+            if (buff != null) return sliceBuffer(buff, start, count);
+        }
+
+        ThreadVars tvars = threadVars.get();
+        HashMap<String, Object> extra = tvars.extra;
+        extra.clear();
+
+        String path = diskCache.get(label, extra);
+
+        if (path == null) return null;
+
+        try {
+            if (FORMAT_BLOCKS.equals(extra.get("format"))) {
+                return loadBlocks(label, path, start, count);
+            }
+            LabeledBuffer<?> buff = loadFile(label, path, extra);
+            return sliceBuffer(buff, start, count);
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+
+        return null;
+    }
+
     public void clear() {
         diskCache.clear();
     }
 
     /**
-     * Write a buffer to disk
+     * Write a buffer to disk as independently compressed blocks.  File is written to temporary file and
+     * renamed when complete, so readers never see partial files.
+     *
+     * File layout, big endian:
+     *   header: magic, version, elementSize, numElements, blockSize, blockCount
+     *   index: blockCount entries of (long offset, int compressedLength, int rawLength)
+     *   data: blocks, a block with compressedLength == rawLength is stored uncompressed
      *
      * @param buff
      * @param extra
@@ -266,95 +357,279 @@ public class BufferDiskCache implements Runnable {
         String path = diskCache.convKeyToFilename(buff.getLabel(), "");
 
         File df = new File(basedir, path);
-        df.setReadable(true);
-        df.setWritable(true);
+        File tmp = new File(basedir, path + "." + Thread.currentThread().getId() + ".tmp");
+        ThreadVars tvars = threadVars.get();
         FileChannel fc = null;
         FileOutputStream fos = null;
 
+        LabeledBuffer.Type type = buff.getType();
+        int elementSize = getElementSize(type);
+        int numElements = buff.getNumElements();
+        int blockElements = BLOCK_SIZE / elementSize;
+        int blockCount = (numElements + blockElements - 1) / blockElements;
+        int dataStart = HEADER_SIZE + blockCount * INDEX_ENTRY_SIZE;
+
+        ByteBuffer head = ByteBuffer.allocate(dataStart);
+        head.putInt(BLOCK_FILE_MAGIC).putInt(BLOCK_FILE_VERSION).putInt(elementSize).putInt(numElements).putInt(BLOCK_SIZE).putInt(blockCount);
+
         try {
-            fos = new FileOutputStream(df);
+            fos = new FileOutputStream(tmp);
             fc = fos.getChannel();
-            //Files.setPosixFilePermissions(df.toPath(), PosixFilePermissions.fromString("rw-rw-rw-"));
 
-            switch (buff.getType()) {
-                case BYTE:
-                    if (compress) {
-                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                        GZIPOutputStream gos = new GZIPOutputStream(baos);
-                        try {
-                            gos.write((byte[]) buff.getBuffer());
-                        } finally {
-                            IOUtils.closeQuietly(gos);
-                            IOUtils.closeQuietly(baos);
-                        }
-                        ByteBuffer byteBuffer2 = ByteBuffer.wrap(baos.toByteArray());
-                        fc.write(byteBuffer2);
-                        extra.put("compressed", true);
-                    } else {
-                        ByteBuffer byteBuffer = ByteBuffer.wrap((byte[]) buff.getBuffer());
-                        fc.write(byteBuffer);
-                    }
-                    break;
-                case INT:
-                    if (compress) {
-                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                        GZIPOutputStream gos = new GZIPOutputStream(baos);
-                        try {
-                            ByteBuffer bdata = null;
-
-                            bdata = ByteBuffer.allocate(buff.getSizeBytes());
-                            IntBuffer intBuffer = bdata.asIntBuffer();
-                            intBuffer.put((int[]) buff.getBuffer());
-
-                            gos.write(bdata.array());
-                        } finally {
-                            IOUtils.closeQuietly(gos);
-                            IOUtils.closeQuietly(baos);
-                        }
-                        ByteBuffer byteBuffer2 = ByteBuffer.wrap(baos.toByteArray());
-                        fc.write(byteBuffer2);
-                        extra.put("compressed", true);
-                    } else {
-                        ByteBuffer byteBuffer2 = ByteBuffer.allocate(buff.getSizeBytes());
-                        IntBuffer intBuffer = byteBuffer2.asIntBuffer();
-                        intBuffer.put((int[]) buff.getBuffer());
-                        fc.write(byteBuffer2);
+            long offset = dataStart;
+            fc.position(offset);
+            for (int i = 0; i < blockCount; i++) {
+                int start = i * blockElements;
+                int count = Math.min(blockElements, numElements - start);
+                int rawLen = count * elementSize;
+                byte[] raw = tvars.raw;
+                putElements(type, buff.getBuffer(), start, count, raw);
+
+                ByteBuffer out = ByteBuffer.wrap(raw, 0, rawLen);
+                if (compress) {
+                    Deflater deflater = tvars.deflater;
+                    deflater.reset();
+                    deflater.setInput(raw, 0, rawLen);
+                    deflater.finish();
+                    int len = deflater.deflate(tvars.comp, 0, tvars.comp.length);
+                    if (deflater.finished() && len < rawLen) {
+                        out = ByteBuffer.wrap(tvars.comp, 0, len);
                     }
-                    break;
-                case FLOAT:
-                    ByteBuffer byteBuffer3 = ByteBuffer.allocate(buff.getSizeBytes());
-                    FloatBuffer floatBuffer = byteBuffer3.asFloatBuffer();
-                    floatBuffer.put((float[]) buff.getBuffer());
-                    fc.write(byteBuffer3);
-                    break;
-                case DOUBLE:
-                    ByteBuffer byteBuffer4 = ByteBuffer.allocate(buff.getSizeBytes());
-                    DoubleBuffer doubleBuffer = byteBuffer4.asDoubleBuffer();
-                    doubleBuffer.put((double[]) buff.getBuffer());
-                    fc.write(byteBuffer4);
-                    break;
-                case SHORT:
-                    ByteBuffer byteBuffer5 = ByteBuffer.allocate(buff.getSizeBytes());
-                    ShortBuffer shortBuffer = byteBuffer5.asShortBuffer();
-                    shortBuffer.put((short[]) buff.getBuffer());
-                    fc.write(byteBuffer5);
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unhandled type: " + buff.getType());
+                }
+                int compLen = out.remaining();
+                while (out.hasRemaining()) fc.write(out);
+
+                head.putLong(offset).putInt(compLen).putInt(rawLen);
+                offset += compLen;
             }
+
+            head.flip();
+            fc.position(0);
+            while (head.hasRemaining()) fc.write(head);
         } finally {
             IOUtils.closeQuietly(fc);
             IOUtils.closeQuietly(fos);
         }
 
+        Files.move(tmp.toPath(), df.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        df.setReadable(true);
+        df.setWritable(true);
+        extra.put("format", FORMAT_BLOCKS);
+
         if (DEBUG_TIMING)
             printf("BufferDiskCache.writeFile: %d  ms  type: %s elems: %d size: %d\n", (System.currentTimeMillis() - t0), buff.getType(), buff.getNumElements(), buff.getSizeBytes());
 
         return df.getAbsolutePath();
     }
 
+    /**
+     * Read elements [start, start + count) from block file.  Only blocks containing requested elements are mapped and decompressed.
+     */
+    private LabeledBuffer<?> loadBlocks(String label, String path, int start, int count) throws IOException {
+        long t0 = System.currentTimeMillis();
+
+        ThreadVars tvars = threadVars.get();
+
+        try (FileInputStream fis = new FileInputStream(path);
+             FileChannel fc = fis.getChannel()) {
+            long fileSize = fc.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Invalid cache file: " + path);
+            }
+            MappedByteBuffer head = fc.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
 
-    private LabeledBuffer loadFile(String label, String path, Map<String, Object> extra) throws IOException {
+            if (head.getInt(0) != BLOCK_FILE_MAGIC || head.getInt(4) != BLOCK_FILE_VERSION) {
+                throw new IOException("Invalid cache file: " + path);
+            }
+            int elementSize = head.getInt(8);
+            int numElements = head.getInt(12);
+            int blockSize = head.getInt(16);
+            LabeledBuffer.Type type = getType(elementSize, (String) tvars.extra.get("type"));
+
+            if (count < 0) count = numElements - start;
+            if (start < 0 || start + count > numElements) {
+                throw new IllegalArgumentException(fmt("Invalid range: %d + %d of %d elements", start, count, numElements));
+            }
+
+            Object dest = allocate(type, count);
+            int blockElements = blockSize / elementSize;
+            int firstBlock = start / blockElements;
+            int lastBlock = (count == 0) ? firstBlock - 1 : (start + count - 1) / blockElements;
+            byte[] raw = tvars.raw;
+            if (lastBlock < firstBlock) {
+                return makeBuffer(label, type, dest);
+            }
+
+            // index entries of requested blocks
+            MappedByteBuffer index = fc.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (long) firstBlock * INDEX_ENTRY_SIZE,
+                                            (long) (lastBlock - firstBlock + 1) * INDEX_ENTRY_SIZE);
+            // blocks are stored in order, requested blocks are mapped by windows of up to MAX_MAP_SIZE bytes
+            long rangeEnd = index.getLong((lastBlock - firstBlock) * INDEX_ENTRY_SIZE) + index.getInt((lastBlock - firstBlock) * INDEX_ENTRY_SIZE + 8);
+            if (rangeEnd > fileSize) {
+                throw new IOException("Truncated cache file: " + path);
+            }
+            MappedByteBuffer map = null;
+            long mapStart = 0;
+
+            for (int i = firstBlock; i <= lastBlock; i++) {
+                int entry = (i - firstBlock) * INDEX_ENTRY_SIZE;
+                long offset = index.getLong(entry);
+                int compLen = index.getInt(entry + 8);
+                int rawLen = index.getInt(entry + 12);
+
+                if (map == null || offset < mapStart || offset + compLen > mapStart + map.capacity()) {
+                    mapStart = offset;
+                    map = fc.map(FileChannel.MapMode.READ_ONLY, mapStart, Math.max(compLen, Math.min(rangeEnd - mapStart, MAX_MAP_SIZE)));
+                }
+                ByteBuffer data = map.duplicate();
+                data.position((int) (offset - mapStart));
+                if (compLen == rawLen) {
+                    data.get(raw, 0, rawLen);
+                } else {
+                    byte[] comp = tvars.comp;
+                    data.get(comp, 0, compLen);
+                    Inflater inflater = tvars.inflater;
+                    inflater.reset();
+                    inflater.setInput(comp, 0, compLen);
+                    try {
+                        if (inflater.inflate(raw, 0, rawLen) != rawLen) throw new IOException("Truncated block in: " + path);
+                    } catch (DataFormatException dfe) {
+                        throw new IOException("Corrupted block in: " + path, dfe);
+                    }
+                }
+
+                // part of the block to copy
+                int blockStart = i * blockElements;
+                int from = Math.max(start, blockStart);
+                int to = Math.min(start + count, blockStart + rawLen / elementSize);
+                getElements(type, raw, (from - blockStart) * elementSize, dest, from - start, to - from);
+            }
+
+            return makeBuffer(label, type, dest);
+        } finally {
+            if (DEBUG_TIMING)
+                printf("BufferDiskCache.loadBlocks: %d  ms  elems: %d\n", (System.currentTimeMillis() - t0), count);
+        }
+    }
+
+    /**
+     * Copy part of the array into big endian bytes
+     */
+    private static void putElements(LabeledBuffer.Type type, Object src, int start, int count, byte[] dest) {
+        ByteBuffer bb = ByteBuffer.wrap(dest);
+        switch (type) {
+            case BYTE:
+                System.arraycopy((byte[]) src, start, dest, 0, count);
+                break;
+            case SHORT:
+                bb.asShortBuffer().put((short[]) src, start, count);
+                break;
+            case INT:
+                bb.asIntBuffer().put((int[]) src, start, count);
+                break;
+            case FLOAT:
+                bb.asFloatBuffer().put((float[]) src, start, count);
+                break;
+            case DOUBLE:
+                bb.asDoubleBuffer().put((double[]) src, start, count);
+                break;
+            default:
+                throw new IllegalArgumentException("Unhandled type: " + type);
+        }
+    }
+
+    /**
+     * Copy big endian bytes into part of the array
+     */
+    private static void getElements(LabeledBuffer.Type type, byte[] src, int offset, Object dest, int start, int count) {
+        ByteBuffer bb = ByteBuffer.wrap(src, offset, src.length - offset).slice();
+        switch (type) {
+            case BYTE:
+                System.arraycopy(src, offset, (byte[]) dest, start, count);
+                break;
+            case SHORT:
+                bb.asShortBuffer().get((short[]) dest, start, count);
+                break;
+            case INT:
+                bb.asIntBuffer().get((int[]) dest, start, count);
+                break;
+            case FLOAT:
+                bb.asFloatBuffer().get((float[]) dest, start, count);
+                break;
+            case DOUBLE:
+                bb.asDoubleBuffer().get((double[]) dest, start, count);
+                break;
+            default:
+                throw new IllegalArgumentException("Unhandled type: " + type);
+        }
+    }
+
+    private static int getElementSize(LabeledBuffer.Type type) {
+        switch (type) {
+            case BYTE: return 1;
+            case SHORT: return 2;
+            case INT:
+            case FLOAT: return 4;
+            case DOUBLE: return 8;
+            default:
+                throw new IllegalArgumentException("Unhandled type: " + type);
+        }
+    }
+
+    private static LabeledBuffer.Type getType(int elementSize, String type) {
+        if (type != null) return LabeledBuffer.Type.valueOf(type);
+
+        switch (elementSize) {
+            case 1: return LabeledBuffer.Type.BYTE;
+            case 2: return LabeledBuffer.Type.SHORT;
+            case 8: return LabeledBuffer.Type.DOUBLE;
+            default:
+                throw new IllegalArgumentException("Unknown type of element size: " + elementSize);
+        }
+    }
+
+    private static Object allocate(LabeledBuffer.Type type, int count) {
+        switch (type) {
+            case BYTE: return new byte[count];
+            case SHORT: return new short[count];
+            case INT: return new int[count];
+            case FLOAT: return new float[count];
+            case DOUBLE: return new double[count];
+            default:
+                throw new IllegalArgumentException("Unhandled type: " + type);
+        }
+    }
+
+    private static LabeledBuffer<?> makeBuffer(String label, LabeledBuffer.Type type, Object data) {
+        switch (type) {
+            case BYTE: return new LabeledBuffer<byte[]>(label, (byte[]) data);
+            case SHORT: return new LabeledBuffer<short[]>(label, (short[]) data);
+            case INT: return new LabeledBuffer<int[]>(label, (int[]) data);
+            case FLOAT: return new LabeledBuffer<float[]>(label, (float[]) data);
+            case DOUBLE: return new LabeledBuffer<double[]>(label, (double[]) data);
+            default:
+                throw new IllegalArgumentException("Unhandled type: " + type);
+        }
+    }
+
+    /**
+     * Copy of part of the buffer
+     */
+    private static LabeledBuffer<?> sliceBuffer(LabeledBuffer<?> buff, int start, int count) {
+        int numElements = buff.getNumElements();
+        if (count < 0) count = numElements - start;
+        if (start < 0 || start + count > numElements) {
+            throw new IllegalArgumentException(fmt("Invalid range: %d + %d of %d elements", start, count, numElements));
+        }
+        Object dest = allocate(buff.getType(), count);
+        System.arraycopy(buff.getBuffer(), start, dest, 0, count);
+        return makeBuffer(buff.getLabel(), buff.getType(), dest);
+    }
+
+    /**
+     * Read file written as a whole, either raw or gzipped.  Used for files written by previous versions
+     */
+    private LabeledBuffer<?> loadFile(String label, String path, Map<String, Object> extra) throws IOException {
         long t0 = System.currentTimeMillis();
 
         if (DEBUG) printf("DiskCache reading label: %s from file: %s  type: %s\n", label, path, extra.get("type"));
@@ -397,8 +672,6 @@ public class BufferDiskCache implements Runnable {
                     } else {
                         MappedByteBuffer byteBuffer = fc.map(FileChannel.MapMode.READ_ONLY,0,fc.size());
                         LabeledBuffer buff = convByteArrayToBuffer(label,type,byteBuffer,numElements);
-
-                        ((DirectBuffer)byteBuffer).cleaner().clean();
                         return buff;
                     }
                 case FLOAT:
@@ -413,8 +686,6 @@ public class BufferDiskCache implements Runnable {
                     } else {
                         MappedByteBuffer byteBuffer = fc.map(FileChannel.MapMode.READ_ONLY,0,fc.size());
                         LabeledBuffer buff = convByteArrayToBuffer(label,type,byteBuffer,numElements);
-
-                        ((DirectBuffer)byteBuffer).cleaner().clean();
                         return buff;
                     }
                 case DOUBLE:
@@ -429,8 +700,6 @@ public class BufferDiskCache implements Runnable {
                     } else {
                         MappedByteBuffer byteBuffer = fc.map(FileChannel.MapMode.READ_ONLY,0,fc.size());
                         LabeledBuffer buff = convByteArrayToBuffer(label,type,byteBuffer,numElements);
-
-                        ((DirectBuffer)byteBuffer).cleaner().clean();
                         return buff;
                     }
                 case SHORT:
@@ -445,8 +714,6 @@ public class BufferDiskCache implements Runnable {
                     } else {
                         MappedByteBuffer byteBuffer = fc.map(FileChannel.MapMode.READ_ONLY,0,fc.size());
                         LabeledBuffer buff = convByteArrayToBuffer(label, type, byteBuffer, numElements);
-
-                        ((DirectBuffer)byteBuffer).cleaner().clean();
                         return buff;
                     }
                 default:
@@ -518,10 +785,18 @@ public class BufferDiskCache implements Runnable {
 
     static class ThreadVars {
         public HashMap<String, Object> extra;
-
+        public byte[] raw;
+        public byte[] comp;
+        public Deflater deflater;
+        public Inflater inflater;
 
         public ThreadVars() {
             extra = new HashMap<>();
+            raw = new byte[BLOCK_SIZE];
+            // deflate may expand incompressible data slightly
+            comp = new byte[BLOCK_SIZE + BLOCK_SIZE / 16 + 64];
+            deflater = new Deflater(Deflater.BEST_SPEED, true);
+            inflater = new Inflater(true);
         }
     }
 }
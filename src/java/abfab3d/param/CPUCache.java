@@ -2,14 +2,12 @@ package abfab3d.param;
 
 import abfab3d.core.CacheConfig;
 import abfab3d.core.LabeledBuffer;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
 import com.google.common.cache.CacheStats;
-import com.google.common.cache.LoadingCache;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static abfab3d.core.Output.printf;
@@ -20,6 +18,9 @@ import static abfab3d.core.Output.printf;
  * will attempt to preserve the calculation but the caller should always be prepared to regenerate if the value is lost
  * due to memory pressures.
  *
+ * Buffers are also copied into OffHeapCache which keeps them when soft references are cleared.  Lookup order is
+ * heap, off heap and then disk.
+ *
  * @author Alan Hudson
  */
 public class CPUCache {
@@ -30,7 +31,8 @@ public class CPUCache {
     private static final int JOB_RETAIN_MS = 60 * 60 * 1000;
 
     private static CPUCache instance;
-    private static LoadingCache<String, LabeledBuffer> cache;
+    private static Cache<String, LabeledBuffer<?>> cache;
+    private static OffHeapCache offHeapCache;
     private static BoundedStack<String> misses;
 
     static {
@@ -51,17 +53,11 @@ public class CPUCache {
                 .softValues()
                 .expireAfterAccess(JOB_RETAIN_MS, TimeUnit.MILLISECONDS)
                 .recordStats()
-                .build(
-                        new CacheLoader<String, LabeledBuffer>() {
-                            public LabeledBuffer load(String key) throws ExecutionException {
-                                if (DEBUG_MISSES) {
-                                    misses.push(key);
-                                }
-                                // TODO: Not sure this is the greatest thing performance wise as an exception is expensive to create
-                                throw new ExecutionException("Can't load key: ",null);
-                            }
-                        }
-                );
+                .build();
+
+        if (CacheConfig.OFF_HEAP_CACHE_SIZE > 0) {
+            offHeapCache = new OffHeapCache(CacheConfig.OFF_HEAP_CACHE_SIZE);
+        }
     }
 
     public static CPUCache getInstance() {
@@ -75,40 +71,68 @@ public class CPUCache {
     public LabeledBuffer get(String label) {
         if (!CACHE_ENABLED) return null;
 
-        try {
-            LabeledBuffer co = cache.get(label);
+        LabeledBuffer<?> co = cache.getIfPresent(label);
+        if (co != null) {
             if (DEBUG) printf("CPUCache.get: %s SUCCESS\n", label);
             return co;
-        } catch (ExecutionException ee) {
-            if (DEBUG) printf("CPUCache.get: %s FAILED\n", label);
+        }
+        if (DEBUG) printf("CPUCache.get: %s FAILED\n", label);
 
-            if (DEBUG_MISSES) printf("CPUCache missed: %s\n",label);
-            LabeledBuffer di = BufferDiskCache.getInstance().get(label);
-            if (DEBUG) printf("CPUCache checking DiskCache: %s\n",di);
+        if (DEBUG_MISSES) {
+            printf("CPUCache missed: %s\n",label);
+            misses.push(label);
+        }
+        if (offHeapCache != null) {
+            LabeledBuffer<?> oh = offHeapCache.get(label);
+            if (oh != null) {
+                cache.put(label, oh);
+                if (DEBUG) printf("CPUCache read from off heap cache success\n");
+                return oh;
+            }
+        }
+        long t0 = System.currentTimeMillis();
+        LabeledBuffer<?> di = BufferDiskCache.getInstance().get(label);
+        if (DEBUG) printf("CPUCache checking DiskCache: %s\n",di);
 
-            if (di != null) {
-                put(di,true,false);
+        if (di != null) {
+            // reading from disk is the cost of losing the buffer
+            put(di,true,false,System.currentTimeMillis() - t0);
 
-                if (DEBUG) printf("CPUCache read from disk success\n");
-                return di;
-            }
-            return null;
+            if (DEBUG) printf("CPUCache read from disk success\n");
+            return di;
         }
+        return null;
     }
 
     public void remove(String label) {
         cache.invalidate(label);
+        if (offHeapCache != null) offHeapCache.remove(label);
     }
 
+    /**
+     * Put the buffer into cache.  Buffers of unknown cost are admitted by off heap cache only if they evict nothing
+     * more expensive
+     */
     public void put(LabeledBuffer buffer) {
-        put(buffer,false, false);
+        put(buffer,false, false, 0);
     }
 
     public void put(LabeledBuffer buffer, boolean diskCache) {
-        put(buffer,false, diskCache);
+        put(buffer,false, diskCache, 0);
+    }
+
+    /**
+     * Put the buffer into cache
+     *
+     * @param buffer The buffer
+     * @param diskCache Should the buffer be stored on disk
+     * @param cost The time in ms used to calculate the buffer.  Expensive buffers are preferred by off heap cache
+     */
+    public void put(LabeledBuffer<?> buffer, boolean diskCache, long cost) {
+        put(buffer,false, diskCache, cost);
     }
 
-    private void put(LabeledBuffer buffer, boolean justLoaded, boolean diskCache) {
+    private void put(LabeledBuffer<?> buffer, boolean justLoaded, boolean diskCache, long cost) {
         if (!CACHE_ENABLED) return;
 
         if (DEBUG) {
@@ -116,6 +140,10 @@ public class CPUCache {
         }
         cache.put(buffer.getLabel(), buffer);
 
+        if (offHeapCache != null) {
+            offHeapCache.put(buffer, cost);
+        }
+
         if (USE_DISK_CACHE && !justLoaded && diskCache) {
             if (buffer.getLabel().contains("@")) return;  // Don't store memory references to disk
 
@@ -123,8 +151,30 @@ public class CPUCache {
         }
     }
 
+    /**
+     * Get the combined stats of heap and off heap caches.  Heap misses found in off heap cache are counted as hits
+     */
     public CacheStats getStats() {
-        return cache.stats();
+        CacheStats stats = cache.stats();
+        if (offHeapCache == null) return stats;
+
+        CacheStats ohStats = offHeapCache.getStats();
+        return new CacheStats(stats.hitCount() + ohStats.hitCount(), ohStats.missCount(), stats.loadSuccessCount(),
+                stats.loadExceptionCount(), stats.totalLoadTime(), stats.evictionCount() + ohStats.evictionCount());
+    }
+
+    /**
+     * Get the off heap cache or null if it is disabled.  Use it to get its stats and byte size
+     */
+    public OffHeapCache getOffHeapCache() {
+        return offHeapCache;
+    }
+
+    /**
+     * Replace the off heap cache, null disables it.  Used by tests
+     */
+    void setOffHeapCache(OffHeapCache cache) {
+        offHeapCache = cache;
     }
 
     /**
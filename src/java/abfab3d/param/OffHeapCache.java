@@ -0,0 +1,338 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.param;
+
+import abfab3d.core.LabeledBuffer;
+import com.google.common.cache.CacheStats;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static abfab3d.core.Output.fmt;
+import static abfab3d.core.Output.printf;
+
+/**
+ * Second level cache of LabeledBuffers stored outside of the java heap in direct byte buffers.
+ *
+ * It sits between the soft valued CPUCache and the BufferDiskCache.  Content of buffers is copied to direct memory,
+ * so it is not affected by GC pressure and its size is accounted explicitly in bytes.
+ * Entries are evicted in least recently used order.  A new entry which needs eviction is admitted only if its compute
+ * cost is not less than the total cost of the entries it would evict, so cheap data does not displace expensive data.
+ * Buffers of 2GB or more are not stored.
+ *
+ * Memory of evicted entries is returned when the direct buffers are garbage collected, so direct memory in use may
+ * exceed the cache size until then.  Buffers returned by get() are copied outside of the lock and may still read
+ * data of just evicted entries, so the memory is not freed explicitly.
+ * For this reason the cache is disabled by default, see CacheConfig.OFF_HEAP_CACHE_SIZE.
+ */
+public class OffHeapCache {
+    private static final boolean DEBUG = false;
+
+    /** Entries larger than this fraction of the cache size are not stored */
+    private static final double MAX_ENTRY_FRACTION = 0.5;
+
+    private long m_maxBytes;
+    private long m_bytes;
+
+    /** Entries keyed by label in access order */
+    private LinkedHashMap<String, Entry> m_entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    private long m_hitCount;
+    private long m_missCount;
+    private long m_putCount;
+    private long m_rejectCount;
+    private long m_evictionCount;
+
+    /**
+     * @param maxBytes Max size of stored data in bytes
+     */
+    public OffHeapCache(long maxBytes) {
+        if (maxBytes < 0) throw new IllegalArgumentException(fmt("illegal cache size: %d", maxBytes));
+        m_maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the buffer.  The returned buffer is a new heap copy of the stored data.
+     *
+     * @param label The buffer label
+     * @return The buffer or null if not found
+     */
+    public LabeledBuffer<?> get(String label) {
+
+        Entry entry;
+        synchronized (this) {
+            entry = m_entries.get(label);
+            if (entry == null) {
+                m_missCount++;
+                return null;
+            }
+            m_hitCount++;
+        }
+        // stored data is never modified, evicted entry stays valid while it is referenced
+        return entry.getBuffer(label);
+    }
+
+    /**
+     * Store copy of the buffer.
+     *
+     * @param buffer The buffer
+     * @param cost The cost to calculate the buffer, typically in ms.  Used to decide admission.
+     * @return true if the buffer was stored
+     */
+    public boolean put(LabeledBuffer<?> buffer, long cost) {
+
+        String key = buffer.getLabel();
+        long bytes = getSizeBytes(buffer);
+
+        synchronized (this) {
+            if (m_entries.containsKey(key)) {
+                m_entries.get(key);
+                return true;
+            }
+            if (bytes > m_maxBytes * MAX_ENTRY_FRACTION || bytes > Integer.MAX_VALUE || !isAdmitted(bytes, cost)) {
+                m_rejectCount++;
+                return false;
+            }
+        }
+
+        // copy to direct memory without blocking other threads
+        Entry entry;
+        try {
+            entry = new Entry(buffer, cost);
+        } catch (OutOfMemoryError e) {
+            // direct memory is exhausted
+            printf("OffHeapCache can't allocate %d bytes\n", bytes);
+            synchronized (this) {
+                m_rejectCount++;
+            }
+            return false;
+        }
+
+        synchronized (this) {
+            if (m_entries.containsKey(key)) {
+                // stored by another thread in the mean time
+                return true;
+            }
+            return insert(key, entry);
+        }
+    }
+
+    /**
+     * @return true if the entries to be evicted to free given space cost not more than given cost
+     */
+    private boolean isAdmitted(long bytes, long cost) {
+
+        long free = m_maxBytes - m_bytes;
+        long victimCost = 0;
+        Iterator<Entry> iter = m_entries.values().iterator();
+        while (free < bytes && iter.hasNext()) {
+            Entry e = iter.next();
+            free += e.bytes;
+            victimCost += e.cost;
+        }
+        return victimCost <= cost;
+    }
+
+    /**
+     * Evict least recently used entries to free space and store the new entry
+     */
+    private boolean insert(String key, Entry entry) {
+
+        long bytes = entry.bytes;
+        long cost = entry.cost;
+
+        // find least recently used entries to free space for new one
+        long free = m_maxBytes - m_bytes;
+        long victimCost = 0;
+        List<String> victims = new ArrayList<String>();
+        Iterator<Map.Entry<String, Entry>> iter = m_entries.entrySet().iterator();
+        while (free < bytes && iter.hasNext()) {
+            Map.Entry<String, Entry> me = iter.next();
+            victims.add(me.getKey());
+            free += me.getValue().bytes;
+            victimCost += me.getValue().cost;
+        }
+        if (victimCost > cost) {
+            if (DEBUG) printf("OffHeapCache rejected: %s cost: %d victims cost: %d\n", key, cost, victimCost);
+            m_rejectCount++;
+            return false;
+        }
+        for (String victim : victims) {
+            remove(victim, true);
+        }
+
+        m_entries.put(key, entry);
+        m_bytes += bytes;
+        m_putCount++;
+        if (DEBUG) printf("OffHeapCache.put: %s bytes: %d total: %d\n", key, bytes, m_bytes);
+
+        return true;
+    }
+
+    public synchronized void remove(String label) {
+        remove(label, false);
+    }
+
+    private void remove(String key, boolean evicted) {
+        Entry entry = m_entries.remove(key);
+        if (entry != null) {
+            m_bytes -= entry.bytes;
+            if (evicted) m_evictionCount++;
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public synchronized void clear() {
+        m_entries.clear();
+        m_bytes = 0;
+    }
+
+    /**
+     * Change max size, entries are evicted if needed
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        m_maxBytes = maxBytes;
+        Iterator<Map.Entry<String, Entry>> iter = m_entries.entrySet().iterator();
+        while (m_bytes > m_maxBytes && iter.hasNext()) {
+            m_bytes -= iter.next().getValue().bytes;
+            iter.remove();
+            m_evictionCount++;
+        }
+    }
+
+    public synchronized long getMaxBytes() {
+        return m_maxBytes;
+    }
+
+    /**
+     * @return Size of stored data in bytes
+     */
+    public synchronized long getSizeBytes() {
+        return m_bytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return m_entries.size();
+    }
+
+    /**
+     * @return Count of buffers rejected by admission policy
+     */
+    public synchronized long getRejectCount() {
+        return m_rejectCount;
+    }
+
+    /**
+     * Get the hit, miss and eviction counts.  Load success counts stored buffers
+     */
+    public synchronized CacheStats getStats() {
+        return new CacheStats(m_hitCount, m_missCount, m_putCount, m_rejectCount, 0, m_evictionCount);
+    }
+
+    /**
+     * @return size of buffer data in bytes.  LabeledBuffer.getSizeBytes() overflows for buffers of 2GB or more
+     */
+    static long getSizeBytes(LabeledBuffer<?> buffer) {
+        long size = buffer.getNumElements();
+        switch (buffer.getType()) {
+            case BYTE:
+                return size;
+            case SHORT:
+                return size * 2;
+            case INT:
+            case FLOAT:
+                return size * 4;
+            case DOUBLE:
+                return size * 8;
+            default:
+                throw new IllegalArgumentException("Unknown type");
+        }
+    }
+
+    /**
+     * Buffer data stored in direct memory
+     */
+    static class Entry {
+        final LabeledBuffer.Type type;
+        final int size;
+        final long bytes;
+        final long cost;
+        final ByteBuffer data;
+
+        Entry(LabeledBuffer<?> buffer, long cost) {
+            this.type = buffer.getType();
+            this.size = buffer.getNumElements();
+            this.bytes = getSizeBytes(buffer);
+            this.cost = cost;
+
+            data = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+            Object src = buffer.getBuffer();
+            switch (type) {
+                case BYTE:
+                    data.duplicate().put((byte[]) src);
+                    break;
+                case SHORT:
+                    data.asShortBuffer().put((short[]) src);
+                    break;
+                case INT:
+                    data.asIntBuffer().put((int[]) src);
+                    break;
+                case FLOAT:
+                    data.asFloatBuffer().put((float[]) src);
+                    break;
+                case DOUBLE:
+                    data.asDoubleBuffer().put((double[]) src);
+                    break;
+            }
+        }
+
+        LabeledBuffer<?> getBuffer(String label) {
+            switch (type) {
+                case BYTE: {
+                    byte[] b = new byte[size];
+                    data.duplicate().get(b);
+                    return new LabeledBuffer<byte[]>(label, b);
+                }
+                case SHORT: {
+                    short[] b = new short[size];
+                    data.asShortBuffer().get(b);
+                    return new LabeledBuffer<short[]>(label, b);
+                }
+                case INT: {
+                    int[] b = new int[size];
+                    data.asIntBuffer().get(b);
+                    return new LabeledBuffer<int[]>(label, b);
+                }
+                case FLOAT: {
+                    float[] b = new float[size];
+                    data.asFloatBuffer().get(b);
+                    return new LabeledBuffer<float[]>(label, b);
+                }
+                case DOUBLE: {
+                    double[] b = new double[size];
+                    data.asDoubleBuffer().get(b);
+                    return new LabeledBuffer<double[]>(label, b);
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown type");
+            }
+        }
+    }
+}
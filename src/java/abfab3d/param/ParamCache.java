@@ -6,8 +6,6 @@ import com.google.common.cache.*;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static abfab3d.core.Output.fmt;
@@ -19,6 +17,8 @@ import static abfab3d.core.Output.printf;
  * will attempt to preserve the calculation but the caller should always be prepared to regenerate if the value is lost
  * due to memory pressures.
  *
+ * Keys are used as is.  Use ParamHash to make short keys without building param strings.
+ *
  * @author Alan Hudson
  */
 public class ParamCache {
@@ -30,7 +30,7 @@ public class ParamCache {
     private static final int JOB_RETAIN_MS = 60 * 60 * 1000;
 
     private static ParamCache instance;
-    private static LoadingCache<String, Object> cache;
+    private static Cache<String, Object> cache;
     private static BoundedStack<String> misses;
 
     static {
@@ -55,17 +55,7 @@ public class ParamCache {
                 .softValues()
                 .expireAfterAccess(JOB_RETAIN_MS, TimeUnit.MILLISECONDS)
                 .recordStats()
-                .build(
-                        new CacheLoader<String, Object>() {
-                            public Object load(String key) throws ExecutionException {
-                                if (DEBUG_MISSES) {
-                                    misses.push(key);
-                                }
-                                // TODO: Not sure this is the greatest thing performance wise as an exception is expensive to create
-                                throw new ExecutionException("Can't load key: ",null);
-                            }
-                        }
-                );
+                .build();
     }
 
     public static ParamCache getInstance() {
@@ -82,14 +72,14 @@ public class ParamCache {
             if (key.contains("@")) new IllegalArgumentException(fmt("Key contains @: %s",key)).printStackTrace();
         }
 
-        try {
-            Object co = cache.get(key);
-            if (DEBUG) printf("Cache.get: %s SUCCESS\n", key);
-            return co;
-        } catch (ExecutionException ee) {
+        Object co = cache.getIfPresent(key);
+        if (co == null) {
             if (DEBUG) printf("Cache.get: %s FAILED\n", key);
+            if (DEBUG_MISSES) misses.push(key);
             return null;
         }
+        if (DEBUG) printf("Cache.get: %s SUCCESS\n", key);
+        return co;
     }
 
     /**
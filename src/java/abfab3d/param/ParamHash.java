@@ -0,0 +1,294 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.param;
+
+import java.util.List;
+
+import javax.vecmath.Vector3d;
+
+/**
+   128 bit content hash of parameters to be used as cache key instead of param string
+
+   The hash is calculated by streaming parameter values into MurmurHash3 (x64, 128 bit) without building the param string.
+   Numeric params are hashed by their binary values, children nodes are hashed recursively.
+   Params of other types are hashed via their getParamString(), so the hash distinguishes
+   everything the param string distinguishes.
+   Nodes which override getParamString() to add state not present in their params (like ImageWrapper or Noise)
+   are hashed via their getParamString() as well.
+ */
+public class ParamHash {
+
+    // tags to separate values of different types
+    static final long
+        TAG_NULL = 0,
+        TAG_NODE = 1,
+        TAG_PARAM = 2,
+        TAG_DOUBLE = 3,
+        TAG_INT = 4,
+        TAG_LONG = 5,
+        TAG_BOOLEAN = 6,
+        TAG_STRING = 7,
+        TAG_VECTOR = 8,
+        TAG_LIST = 9,
+        TAG_END = 10;
+
+    static final long C1 = 0x87c37b91114253d5L;
+    static final long C2 = 0x4cf5ad432745937fL;
+    static final char HEX[] = "0123456789abcdef".toCharArray();
+
+    // hash state
+    long m_h1, m_h2;
+    // first half of the block
+    long m_k1;
+    // count of longs added
+    int m_count;
+
+    public ParamHash(){
+    }
+
+    /**
+       @return hash of the node with all its children
+     */
+    public static String getHash(Parameterizable node){
+        ParamHash hash = new ParamHash();
+        hash.putNode(node);
+        return hash.getValue();
+    }
+
+    /**
+       @return hash of params with given name (equivalent of BaseParameterizable.getParamString(name, params))
+     */
+    public static String getHash(String name, Parameter params[]){
+        ParamHash hash = new ParamHash();
+        hash.putParams(name, params);
+        return hash.getValue();
+    }
+
+    /**
+       @return 128 bit hash of arbitrary label
+     */
+    public static String getHash(CharSequence label){
+        ParamHash hash = new ParamHash();
+        hash.putChars(label);
+        return hash.getValue();
+    }
+
+    /**
+       @return hex string of 128 bit hash of all added data
+     */
+    public String getValue(){
+
+        long h1 = m_h1, h2 = m_h2;
+        if((m_count & 1) != 0){
+            // incomplete block
+            h1 ^= mixK1(m_k1);
+        }
+        long len = m_count*8L;
+        h1 ^= len;
+        h2 ^= len;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        char c[] = new char[32];
+        toHex(h1, c, 0);
+        toHex(h2, c, 16);
+        return new String(c);
+    }
+
+    public void putLong(long k){
+
+        if((m_count++ & 1) == 0){
+            m_k1 = k;
+            return;
+        }
+        // process block of two longs
+        long h1 = m_h1, h2 = m_h2;
+
+        h1 ^= mixK1(m_k1);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(k);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        m_h1 = h1;
+        m_h2 = h2;
+    }
+
+    public void putDouble(double value){
+        putLong(Double.doubleToLongBits(value));
+    }
+
+    /**
+       adds chars packed 4 per long
+     */
+    public void putChars(CharSequence s){
+
+        int len = s.length();
+        putLong(len);
+        int i = 0;
+        for(; i + 4 <= len; i += 4){
+            putLong(s.charAt(i) | ((long)s.charAt(i+1) << 16) | ((long)s.charAt(i+2) << 32) | ((long)s.charAt(i+3) << 48));
+        }
+        if(i < len){
+            long k = 0;
+            for(int shift = 0; i < len; i++, shift += 16){
+                k |= ((long)s.charAt(i) << shift);
+            }
+            putLong(k);
+        }
+    }
+
+    public void putParams(String name, Parameter params[]){
+
+        putLong(TAG_NODE);
+        putChars(name);
+        for(int i = 0; i < params.length; i++){
+            putParam(params[i]);
+        }
+        putLong(TAG_END);
+    }
+
+    public void putNode(Parameterizable node){
+
+        if(node instanceof BaseParameterizable && !s_customParamString.get(node.getClass())){
+            putParams(node.getClass().getSimpleName(), node.getParams());
+        } else {
+            // node may have state not represented by params
+            putLong(TAG_STRING);
+            putChars(node.getParamString());
+        }
+    }
+
+    public void putParam(Parameter param){
+
+        putLong(TAG_PARAM);
+        putChars(param.getName());
+        if(param instanceof NumberParameter || param instanceof BooleanParameter ||
+           param instanceof StringParameter || param instanceof SNodeParameter || param instanceof SNodeListParameter){
+            putValue(param.getValue());
+        } else {
+            Object value = param.getValue();
+            if(value instanceof Parameterizable){
+                putNode((Parameterizable)value);
+            } else {
+                putLong(TAG_STRING);
+                putChars(param.getParamString());
+            }
+        }
+    }
+
+    public void putValue(Object value){
+
+        if(value == null){
+            putLong(TAG_NULL);
+        } else if(value instanceof Double){
+            putLong(TAG_DOUBLE);
+            putDouble((Double)value);
+        } else if(value instanceof Integer){
+            putLong(TAG_INT);
+            putLong((Integer)value);
+        } else if(value instanceof Long){
+            putLong(TAG_LONG);
+            putLong((Long)value);
+        } else if(value instanceof Boolean){
+            putLong(TAG_BOOLEAN);
+            putLong(((Boolean)value) ? 1 : 0);
+        } else if(value instanceof String){
+            putLong(TAG_STRING);
+            putChars((String)value);
+        } else if(value instanceof Vector3d){
+            Vector3d v = (Vector3d)value;
+            putLong(TAG_VECTOR);
+            putDouble(v.x);
+            putDouble(v.y);
+            putDouble(v.z);
+        } else if(value instanceof Parameterizable){
+            putNode((Parameterizable)value);
+        } else if(value instanceof SourceWrapper){
+            putLong(TAG_STRING);
+            putChars(((SourceWrapper)value).getParamString());
+        } else if(value instanceof List){
+            List<?> list = (List<?>)value;
+            int size = list.size();
+            putLong(TAG_LIST);
+            putLong(size);
+            for(int i = 0; i < size; i++){
+                putValue(list.get(i));
+            }
+        } else {
+            putLong(TAG_STRING);
+            putChars(value.toString());
+        }
+    }
+
+    /**
+       true if class overrides getParamString() of BaseParameterizable
+     */
+    static final ClassValue<Boolean> s_customParamString = new ClassValue<Boolean>(){
+        protected Boolean computeValue(Class<?> type){
+            for(Class<?> c = type; c != null && c != BaseParameterizable.class; c = c.getSuperclass()){
+                if(declaresMethod(c, "getParamString") || declaresMethod(c, "getParamString", StringBuilder.class))
+                    return Boolean.TRUE;
+            }
+            return Boolean.FALSE;
+        }
+    };
+
+    static boolean declaresMethod(Class<?> c, String name, Class<?>... args){
+        try {
+            c.getDeclaredMethod(name, args);
+            return true;
+        } catch(NoSuchMethodException e){
+            return false;
+        }
+    }
+
+    static final long mixK1(long k1){
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    static final long mixK2(long k2){
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    static final long fmix(long k){
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    static void toHex(long v, char c[], int offset){
+        for(int i = 15; i >= 0; i--){
+            c[offset + i] = HEX[(int)(v & 0xF)];
+            v >>>= 4;
+        }
+    }
+
+} // class ParamHash
@@ -12,6 +12,7 @@
 package abfab3d.shapejs;
 
 import org.mozilla.javascript.*;
+import org.mozilla.javascript.commonjs.module.ModuleScriptProvider;
 import org.mozilla.javascript.commonjs.module.Require;
 import org.mozilla.javascript.commonjs.module.RequireBuilder;
 import org.mozilla.javascript.commonjs.module.provider.SoftCachingModuleScriptProvider;
@@ -21,6 +22,7 @@ import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -39,8 +41,18 @@ public class GlobalScope extends ImporterTopLevel
     private boolean initialized;
     private static ShapeJSGlobal globals;
 
+    /** Module script providers keyed by module path.  Compiled modules are shared between scopes */
+    private static HashMap<String, ModuleScriptProvider> moduleProviders = new HashMap<String, ModuleScriptProvider>();
+
     public GlobalScope(){
     }
+
+    /**
+     * Standard objects of sealed library can not be modified by scripts.  Needed for scopes shared between scripts
+     */
+    public GlobalScope(boolean sealedStdLib){
+        this.sealedStdLib = sealedStdLib;
+    }
     
     //public GlobalScope(Context cx) {        
     //    initShapeJS(cx,null);
@@ -61,6 +73,32 @@ public class GlobalScope extends ImporterTopLevel
     }
 
     public void initShapeJS(Context cx, ArrayList<String> libDirs, boolean sandboxed) {
+
+        initGlobals(cx);
+
+        if (libDirs != null) {
+            installRequire(cx, getModulePath(libDirs), sandboxed);  // TODO: Review sandbox rules and follow
+        } else {
+            printf("No basedir for global scope\n");
+        }
+        initialized = true;
+    }
+
+    /**
+     * Initialize scope without require().  Used for scope shared between scripts, require() is installed into each script scope
+     */
+    public void initShapeJSShared(ContextFactory factory) {
+
+        factory.call(new ContextAction() {
+                public Object run(Context cx){
+                    initGlobals(cx);
+                    initialized = true;
+                    return null;
+                }
+            });
+    }
+
+    private void initGlobals(Context cx) {
         // Define some global functions particular to the shell. Note
         // that these functions are not part of ECMA.
         initStandardObjects(cx, sealedStdLib);
@@ -78,21 +116,16 @@ public class GlobalScope extends ImporterTopLevel
             defineProperty(e.getKey(), e.getValue(),
                     ScriptableObject.DONTENUM);
         }
+    }
 
-        if (libDirs != null) {
-            
-            ArrayList<String> modules = new ArrayList<>();
-            for(int i = 0; i < libDirs.size(); i++){
-                String dir = libDirs.get(i);
-                URI uri = new File(dir).toURI();
-                modules.add(uri.toASCIIString());
-            }
-
-            installRequire(cx, modules, sandboxed);  // TODO: Review sandbox rules and follow
-        } else {
-            printf("No basedir for global scope\n");
+    private static List<String> getModulePath(List<String> libDirs) {
+        ArrayList<String> modules = new ArrayList<>();
+        for(int i = 0; i < libDirs.size(); i++){
+            String dir = libDirs.get(i);
+            URI uri = new File(dir).toURI();
+            modules.add(uri.toASCIIString());
         }
-        initialized = true;
+        return modules;
     }
 
     public ShapeJSGlobal getGlobals() {
@@ -102,6 +135,41 @@ public class GlobalScope extends ImporterTopLevel
     public Require installRequire(Context cx, List<String> modulePath, boolean sandboxed) {
         RequireBuilder rb = new RequireBuilder();
         rb.setSandboxed(sandboxed);
+        rb.setModuleScriptProvider(makeModuleScriptProvider(modulePath));
+        Require require = rb.createRequire(cx, this);
+        require.install(this);
+        return require;
+    }
+
+    /**
+     * Install require() into the script scope.  Modules are evaluated with this scope as global scope,
+     * each script scope gets its own instances of modules.
+     *
+     * @param scope The script scope
+     * @param libDirs The directories to search modules
+     */
+    public Require installRequire(Context cx, Scriptable scope, List<String> libDirs, boolean sandboxed) {
+
+        List<String> modulePath = getModulePath(libDirs);
+        ModuleScriptProvider provider;
+        synchronized(moduleProviders) {
+            String key = modulePath.toString();
+            provider = moduleProviders.get(key);
+            if (provider == null) {
+                provider = makeModuleScriptProvider(modulePath);
+                moduleProviders.put(key, provider);
+            }
+        }
+
+        RequireBuilder rb = new RequireBuilder();
+        rb.setSandboxed(sandboxed);
+        rb.setModuleScriptProvider(provider);
+        Require require = rb.createRequire(cx, this);
+        require.install(scope);
+        return require;
+    }
+
+    private static ModuleScriptProvider makeModuleScriptProvider(List<String> modulePath) {
         List<URI> uris = new ArrayList<URI>();
         if (modulePath != null) {
             for (String path : modulePath) {
@@ -122,12 +190,7 @@ public class GlobalScope extends ImporterTopLevel
                 }
             }
         }
-        rb.setModuleScriptProvider(
-                new SoftCachingModuleScriptProvider(
-                        new UrlModuleSourceProvider(uris, null)));
-        Require require = rb.createRequire(cx, this);
-        require.install(this);
-        return require;
+        return new SoftCachingModuleScriptProvider(new UrlModuleSourceProvider(uris, null));
     }
 }
 
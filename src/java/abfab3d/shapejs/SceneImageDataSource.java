@@ -12,9 +12,11 @@ package abfab3d.shapejs;
 
 import java.util.List;
 
+import abfab3d.core.BatchDataSource;
 import abfab3d.core.DataSource;
 import abfab3d.core.ResultCodes;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 
 import javax.vecmath.Matrix4f;
 import javax.vecmath.Vector3d;
@@ -38,6 +40,8 @@ import abfab3d.param.BaseParameterizable;
 
 import abfab3d.core.MathUtil;
 
+import abfab3d.intersect.ConeTracer;
+
 
 import static abfab3d.core.MathUtil.step01;
 import static java.lang.Math.*;
@@ -46,17 +50,12 @@ import static abfab3d.shapejs.VecUtils.interpolate;
 import static abfab3d.shapejs.VecUtils.normalize;
 import static abfab3d.shapejs.VecUtils.reflect;
 import static abfab3d.shapejs.VecUtils.str;
-import static abfab3d.shapejs.VecUtils.addSet;
 import static abfab3d.shapejs.VecUtils.mul;
 import static abfab3d.shapejs.VecUtils.sub;
 import static abfab3d.shapejs.VecUtils.dot;
 import static abfab3d.shapejs.VecUtils.clamp;
-import static abfab3d.shapejs.VecUtils.mulVV;
-import static abfab3d.shapejs.VecUtils.minVV;
-import static abfab3d.shapejs.VecUtils.maxVV;
 import static abfab3d.shapejs.VecUtils.exp;
 import static abfab3d.shapejs.VecUtils.vec4;
-import static abfab3d.shapejs.VecUtils.vec3;
 import static abfab3d.shapejs.VecUtils.isZero;
 import static abfab3d.shapejs.VecUtils.getLayerTransmittance;
 
@@ -72,14 +71,28 @@ import static abfab3d.core.Output.fmt;
  *  @author Alan Hudson
  *  @author Vladimir Bulatov
  */
-public class SceneImageDataSource extends BaseParameterizable implements DataSource, Initializable {
+public class SceneImageDataSource extends BaseParameterizable implements DataSource, BatchDataSource, Initializable {
 
     static boolean DEBUG = false;
 
     static final Vector3d UNIT3 = new Vector3d(1,1,1);
+    // bounding box in playbox units 
+    static final Vector3d BOX_MIN = new Vector3d(-1,-1,-1);
+    static final Vector3d BOX_MAX = new Vector3d(1,1,1);
 
     static final int NO_INTERSECTION = 1,HAS_INTERSECTION = 2,INSIDE = 3;
 
+    // minimal count of rays in the block to use cone tracing 
+    static final int MIN_CONE_RAYS = 4;
+    // ray starting distance used when there is no common safe distance 
+    static final double NO_SAFE_DISTANCE = -Double.MAX_VALUE;
+    // precision of surface intersection in box units
+    static final double SURFACE_PRECISION = 1.e-4;
+    // minimal step of sphere tracing in box units
+    static final double MIN_STEP = 1.e-3;
+    // maximal step of cone tracing in box units
+    static final double MAX_CONE_STEP = 0.1;
+
     BooleanParameter mp_draftMode = new BooleanParameter("draftMode", true);
     SNodeParameter mp_scene = new SNodeParameter("scene");
     SNodeParameter mp_camera = new SNodeParameter("camera");
@@ -87,6 +100,8 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
     IntParameter mp_raytracingDepth = new IntParameter("raytracingDepth", 0);
     IntParameter mp_maxIntersections = new IntParameter("maxIntersections", 1);
     DoubleParameter mp_surfaceJump = new DoubleParameter("surfaceJump", 0.005);
+    // cone tracing skips empty space faster but changes pixels near silhouettes slightly, so it is opt-in 
+    BooleanParameter mp_coneTracing = new BooleanParameter("coneTracing", false);
 
     DoubleParameter mp_volumeRendererLayerThickness = new DoubleParameter("volumeRendererLayerThickness", 0.1*MM);
     Parameter aparam[]= {
@@ -99,6 +114,7 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
         mp_maxIntersections,
         mp_surfaceJump,
         mp_volumeRendererLayerThickness,
+        mp_coneTracing,
     };
 
     private Scene m_scene;
@@ -121,6 +137,9 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
     int m_raytracingDepth = 0;
     int m_maxIntersections = 1;
     double m_surfaceJump = 0.01;
+    boolean m_coneTracing = false;
+    // distances from eye to the nearest and farthest points of the box
+    double m_eyeBoxMinDistance, m_eyeBoxMaxDistance;
     
 
     // size of playbox [-1,1;-1,1;-1,1]
@@ -130,6 +149,14 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
 
     static Vector4d BAD_COLOR = new Vector4d(00,1,1,1);
 
+    // scratch data of each rendering thread 
+    private ThreadLocal<TracingContext> m_tracingContext = new ThreadLocal<TracingContext>() {
+        @Override
+        protected TracingContext initialValue() {
+            return new TracingContext();
+        }
+    };
+
 
     public SceneImageDataSource(Scene scene, Camera camera) {
 
@@ -172,6 +199,9 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
         m_raytracingDepth = mp_raytracingDepth.getValue();
         m_maxIntersections = mp_maxIntersections.getValue();
         m_surfaceJump = mp_surfaceJump.getValue();
+        m_coneTracing = mp_coneTracing.getValue();
+        m_eyeBoxMinDistance = getBoxMinDistance(m_eyeOrigin, boxMin(), boxMax());
+        m_eyeBoxMaxDistance = getBoxMaxDistance(m_eyeOrigin, boxMin(), boxMax());
 
         return ResultCodes.RESULT_OK;
 
@@ -217,10 +247,96 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
     */
     public int getDataValue(Vec pnt, Vec dataValue) {
 
+        return traceEyeRay(pnt.v[0], pnt.v[1], NO_SAFE_DISTANCE, dataValue, m_tracingContext.get());
+
+    }
+
+    /**
+       calculates colors of block of image pixels 
+       rays of the block are enclosed into cone which is traced first and each ray starts tracing from the common safe distance 
+       @param pnts block of image points (u,v)
+       @param data colors of pixels 
+       @Override
+     */
+    public int getDataValues(VecArray pnts, VecArray data){
 
-        Vector3d direction = getEyeDirection(pnt.v[0], pnt.v[1]);
+        TracingContext ctx = m_tracingContext.get();
+        int n = pnts.size;
+        data.size = n;
+        data.voxelSize = pnts.voxelSize;
         
-        double intersection[] = new double[2];
+        double tSafe = NO_SAFE_DISTANCE;
+        if(m_coneTracing && n >= MIN_CONE_RAYS)
+            tSafe = getConeSafeDistance(pnts, ctx);
+
+        Vec value = ctx.value;
+        double u[] = pnts.v[0], v[] = pnts.v[1];
+        for(int i = 0; i < n; i++){
+            data.result[i] = traceEyeRay(u[i], v[i], tSafe, value, ctx);
+            data.set(i, value);
+        }
+        return ResultCodes.RESULT_OK;
+
+    }
+
+    /**
+       traces cone from eye which encloses all rays of given block of image points 
+       @return distance from eye along each ray of the block which is safe to skip 
+     */
+    double getConeSafeDistance(VecArray pnts, TracingContext ctx){
+
+        int n = pnts.size;
+        double u[] = pnts.v[0], v[] = pnts.v[1];
+        double umin = u[0], umax = u[0], vmin = v[0], vmax = v[0];
+        for(int i = 1; i < n; i++){
+            if(u[i] < umin) umin = u[i];
+            else if(u[i] > umax) umax = u[i];
+            if(v[i] < vmin) vmin = v[i];
+            else if(v[i] > vmax) vmax = v[i];
+        }
+        // cone axis goes through the center of the block 
+        Vector3d axis = ctx.coneAxis;
+        Vector3d dir = ctx.direction;
+        getEyeDirection(0.5*(umin + umax), 0.5*(vmin + vmax), axis);
+        // minimal cosine of angle between the axis and rays via the block corners 
+        getEyeDirection(umin, vmin, dir); double cosa = axis.dot(dir);
+        getEyeDirection(umax, vmin, dir); cosa = min(cosa, axis.dot(dir));
+        getEyeDirection(umin, vmax, dir); cosa = min(cosa, axis.dot(dir));
+        getEyeDirection(umax, vmax, dir); cosa = min(cosa, axis.dot(dir));
+        if(cosa <= 0.) 
+            return NO_SAFE_DISTANCE;
+        double tanAngle = Math.sqrt(max(0., 1 - cosa*cosa))/cosa;
+        
+        // cone is traced in scene units
+        ConeTracer tracer = ctx.getConeTracer(m_root);
+        double scale = m_sceneScale;
+        tracer.setMinStep(MIN_STEP*scale);
+        tracer.setMaxStep(MAX_CONE_STEP*scale);
+        tracer.setMargin(MIN_STEP*scale);
+        Vector3d origin = ctx.coneOrigin;
+        origin.set(m_eyeOrigin.x * scale + m_sceneCenter.x, 
+                   m_eyeOrigin.y * scale + m_sceneCenter.y, 
+                   m_eyeOrigin.z * scale + m_sceneCenter.z);
+        double tStart = m_eyeBoxMinDistance * cosa;
+        double t = tracer.getSafeDistance(origin, axis, 0., tanAngle, tStart*scale, m_eyeBoxMaxDistance*scale)/scale;
+        if(DEBUG) printf("cone tan:%7.4f tStart:%7.4f tSafe:%7.4f evaluations:%d\n", tanAngle, tStart, t, tracer.getEvaluationsCount());
+        if(t <= tStart) 
+            return NO_SAFE_DISTANCE;
+        // distance along the cone axis does not exceed distance along each ray
+        return t;
+
+    }
+
+    /**
+       calculates color of the pixel (u,v) 
+       @param tSafe distance along the ray which has no intersections with the surface 
+     */
+    int traceEyeRay(double u, double v, double tSafe, Vec dataValue, TracingContext ctx){
+
+        Vector3d direction = ctx.direction;
+        getEyeDirection(u, v, direction);
+        
+        double intersection[] = ctx.intersection;
         
         if(!intersectBox(m_eyeOrigin, direction, boxMin(), boxMax(), intersection)){
             // did not hit the box - return background 
@@ -232,10 +348,13 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
             
         } else {
 
-            String f = "%7.3f";            
-            //if(DEBUG)printf("box hit: orig:%s dir:%s tnear:%7.3f tfar:%7.3f\n", str(f,m_eyeOrigin), str(f,direction), intersection[0],intersection[1]);
-            TracingData td = new TracingData(intersection[0], intersection[1], m_eyeOrigin, direction);
-            Vector4d color = raytracePixel(td, m_raytracingDepth);
+            //if(DEBUG)printf("box hit: orig:%s dir:%s tnear:%7.3f tfar:%7.3f\n", str("%7.3f",m_eyeOrigin), str("%7.3f",direction), intersection[0],intersection[1]);
+            TracingData td = ctx.getLevel(m_raytracingDepth).td;
+            double tStart = intersection[0];
+            if(tSafe > tStart) 
+                tStart = min(tSafe, intersection[1]);
+            td.set(tStart, intersection[1], m_eyeOrigin, direction);
+            Vector4d color = raytracePixel(td, m_raytracingDepth, ctx);
             dataValue.v[0] = color.x;
             dataValue.v[1] = color.y;
             dataValue.v[2] = color.z;
@@ -249,12 +368,16 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
     /**
        calculates distance to surface in box coordinates 
      */
-    double getDistance(double x, double y, double z, Vec data){
+    double getDistance(double x, double y, double z, Vec data, TracingContext ctx){
         
-        Vec pnt = new Vec(x * m_sceneScale + m_sceneCenter.x, 
-                          y * m_sceneScale + m_sceneCenter.y, 
-                          z * m_sceneScale + m_sceneCenter.z
-                          );
+        Vec pnt = ctx.pnt;
+        pnt.set(x * m_sceneScale + m_sceneCenter.x, 
+                y * m_sceneScale + m_sceneCenter.y, 
+                z * m_sceneScale + m_sceneCenter.z
+                );
+        // transforms of the previous call have modified the point  
+        pnt.voxelSize = 1;
+        pnt.scaleFactor = 1;
         m_root.getDataValue(pnt, data);
         
         // distance is scaled to box scale 
@@ -262,9 +385,9 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
 
     }
     
-    double getDistance(Vector3d p, Vec data){
+    double getDistance(Vector3d p, Vec data, TracingContext ctx){
 
-        return getDistance(p.x, p.y, p.z, data);
+        return getDistance(p.x, p.y, p.z, data, ctx);
 
     }
     
@@ -284,17 +407,19 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
     /**
        
        return color of pixel generated by ray with given origina and direction 
-       
+       returned color is stored in the context and is valid until the next call with the same tracingDepth
      */
-    Vector4d raytracePixel(TracingData td, int tracingDepth) {
+    Vector4d raytracePixel(TracingData td, int tracingDepth, TracingContext ctx) {
 
         if(DEBUG) printf("raytracePixel(tnear:%7.3f, tfar:%7.3f, origin:%s,direction:%s,depth:%d\n",
                          td.tStart, td.tEnd, str("%5.3f", td.rayOrigin), str("%5.3f", td.rayDirection), tracingDepth);
 
-        Vector3d pos_world = new Vector3d();
-        Vector3d normal = new Vector3d();  // surface normal at the intersection
-        Vector3d pos_box = new Vector3d(); // position in box units
-        Vec data = new Vec(4);    // data value at the intersection point 
+        TracingLevel level = ctx.getLevel(tracingDepth);
+        Vector3d pos_world = level.posWorld;
+        Vector3d normal = level.normal;  // surface normal at the intersection
+        Vector3d pos_box = level.posBox; // position in box units
+        Vec data = level.data;    // data value at the intersection point 
+        clearData(data);
         
         int maxIntersections = m_maxIntersections;
 
@@ -302,14 +427,16 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
         // accumulated color (initally transparent) 
         //
 
-        Vector3d color = new Vector3d(0,0,0); 
-        Vector3d alpha = new Vector3d(0,0,0); 
+        Vector3d color = level.color; 
+        Vector3d alpha = level.alpha; 
+        color.set(0,0,0); 
+        alpha.set(0,0,0); 
 
         for(int i = 0; i < maxIntersections; i++){
 
             if(DEBUG)printf("step:%d tStart: %7.4f\n", i, td.tStart); 
 
-            int res = getIntersection(td, pos_box,pos_world,normal,data);  
+            int res = getIntersection(td, pos_box,pos_world,normal,data, ctx);  
 
             if (res == INSIDE){
                 if(DEBUG)printf("got INSIDE\n"); 
@@ -319,10 +446,8 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
                 } else {
                     //color = color + env_color * env_alpha*(1-alpha)
                     //alpha = alpha  + (1-alpha) * env_alpha
-                    Vector4d ecolor = new Vector4d(0,0,0,0);
-                    Vector3d alpha1 = sub(UNIT3, alpha);
-                    addSet(color, mul(alpha1, mul(vec3(ecolor),ecolor.w)));
-                    addSet(alpha, mul(alpha1, ecolor.w));                
+                    // with transparent env color (0,0,0,0)
+                    composeOver(color, alpha, 0., 0., 0., 0.);
                     break;
                     // this should not happen  
                     //return new Vector4d(0,0,0,1);
@@ -333,11 +458,9 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
                 // nothing found on this step 
                 Vector4d ecolor = getEnviroMapColor(td.rayDirection);  
                 // compose current color over envmap color 
-                Vector3d alpha1 = sub(UNIT3, alpha);
                 //color = color + env_color * env_alpha*(1-alpha)
                 //alpha = alpha  + (1-alpha) * env_alpha
-                addSet(color, mul(alpha1, mul(vec3(ecolor),ecolor.w)));
-                addSet(alpha, mul(alpha1, ecolor.w));                
+                composeOver(color, alpha, ecolor.x*ecolor.w, ecolor.y*ecolor.w, ecolor.z*ecolor.w, ecolor.w);
                 break;
 
             }
@@ -346,7 +469,7 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
 
             // got surface intersection 
             MaterialData mat = getMaterial(data);            
-            Vector4d scolor = shadeSurface(pos_world, pos_box, normal, td.rayDirection, data, tracingDepth);             
+            Vector4d scolor = shadeSurface(pos_world, pos_box, normal, td.rayDirection, data, tracingDepth, ctx);             
             
             if(mat.isOpaque) {
 
@@ -354,20 +477,18 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
                 // compose accumulated color over opaque surface color
                 // color += scolor*(1-alpha)
                 // alpha = UNIT3;
-                addSet(color, mul(vec3(scolor), sub(UNIT3, alpha)));
-                alpha = new Vector3d(UNIT3);
+                composeOver(color, alpha, scolor.x, scolor.y, scolor.z, 1.);
+                alpha.set(UNIT3);
                 break;
                        
             } else {
                 
                 // compose accumulated color over the layer color 
-                Vector3d alpha1 = sub(UNIT3,alpha);
                 double surfaceAlpha = mat.surfaceAlpha; 
-                addSet(color, mul(mul(vec3(scolor),surfaceAlpha),alpha1));
-                addSet(alpha,mul(alpha1, surfaceAlpha));
+                composeOver(color, alpha, scolor.x*surfaceAlpha, scolor.y*surfaceAlpha, scolor.z*surfaceAlpha, surfaceAlpha);
                 
                 td.tStart = td.tCurrent; 
-                renderVolume(td, color, alpha, data);
+                renderVolume(td, color, alpha, data, ctx);
                 if(DEBUG)printf("renderVolume returned: color:[%s] alpha:[%s]\n", str("%5.2f", color), str("%5.2f", alpha)); 
                 
             }
@@ -376,9 +497,38 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
         }
         
         
-        return new Vector4d(color.x, color.y, color.z, (alpha.x+alpha.y+alpha.z)/3);
+        level.result.set(color.x, color.y, color.z, (alpha.x+alpha.y+alpha.z)/3);
+        return level.result;
+        
+    }
 
+    /**
+       compose accumulated color and alpha over the layer with premultiplied color (r,g,b) and opacity a 
+       color = color + (r,g,b)*(1-alpha)
+       alpha = alpha + a*(1-alpha)
+     */
+    static final void composeOver(Vector3d color, Vector3d alpha, double r, double g, double b, double a){
+
+        double ax = 1 - alpha.x, ay = 1 - alpha.y, az = 1 - alpha.z;
+        color.x += ax*r;
+        color.y += ay*g;
+        color.z += az*b;
+        alpha.x += ax*a;
+        alpha.y += ay*a;
+        alpha.z += az*a;
+    }
+
+    /**
+       reset data holder to the state of newly allocated Vec
+     */
+    static final void clearData(Vec data){
         
+        double v[] = data.v;
+        for(int i = 0; i < v.length; i++)
+            v[i] = 0;
+        data.materialIndex = 0;
+        data.voxelSize = 1;
+        data.scaleFactor = 1;
     }
 
     
@@ -398,7 +548,7 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
        marching may terminate if opacity exceeds opacityThreshold (close to 1) which means that the total layer of material along the ray transmitts no light behind it. 
 
      */
-    void renderVolume(TracingData td, Vector3d color, Vector3d alpha, Vec data){
+    void renderVolume(TracingData td, Vector3d color, Vector3d alpha, Vec data, TracingContext ctx){
         
         int iter = 1000;
 
@@ -409,29 +559,27 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
 
         double t0 = tStart, t1 = t0;
         
-        Vector3d pos = new Vector3d();
+        Vector3d pos = ctx.pos;
         interpolate(td.rayOrigin, td.rayDirection, t0, pos);
-        double dist0 = getDistance(pos, data);
+        double dist0 = getDistance(pos, data, ctx);
 
                 
         MaterialData material = getMaterial(data);
         // diffuse color of the layer 
-        Vector3d c_pnt = vec3(material.diffuseColor);
+        Vector4d c_pnt = material.diffuseColor;
         // alpha of the the layer 
         //Vector3d a_pnt = new Vector3d(0.005,0.005,0.005);
         //Vector3d a_pnt = new Vector3d(0.0025,0.0025,0.0025);
         //Vector3d a_pnt = new Vector3d(1,1,1);
         Vector3d a_pnt = material.getLayerAlpha();
 
-        Vector3d unit = new Vector3d(1,1,1);
-
         int hit = 0;
 
         for(int i = 0; i < iter; i++) {
             
             t1 = t0 + dt;
             interpolate(td.rayOrigin, td.rayDirection, t1, pos);
-            double dist1 = getDistance(pos, data);
+            double dist1 = getDistance(pos, data, ctx);
             
             if(dist1 >= 0.) {// we are outside
                 if( dist1 != dist0){
@@ -446,10 +594,16 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
                     break;                 
                 }
             } else {
-                Vector3d alpha1 = sub(UNIT3,alpha);
                 // compose accumulated color over layer color 
-                addSet(color, mul(c_pnt,a_pnt,alpha1));
-                addSet(alpha,mul(a_pnt, alpha1));
+                // color += c_pnt*a_pnt*(1-alpha)
+                // alpha += a_pnt*(1-alpha)
+                double ax = 1 - alpha.x, ay = 1 - alpha.y, az = 1 - alpha.z;
+                color.x += c_pnt.x * a_pnt.x * ax;
+                color.y += c_pnt.y * a_pnt.y * ay;
+                color.z += c_pnt.z * a_pnt.z * az;
+                alpha.x += a_pnt.x * ax;
+                alpha.y += a_pnt.y * ay;
+                alpha.z += a_pnt.z * az;
                 
             }
             
@@ -474,17 +628,17 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
        returns position and gradient at the found intersection 
        
     */
-    int getIntersection(TracingData td, Vector3d boxPos,Vector3d scenePos, Vector3d normal, Vec data){
+    int getIntersection(TracingData td, Vector3d boxPos,Vector3d scenePos, Vector3d normal, Vec data, TracingContext ctx){
 
         //if(DEBUG)printf("getIntersection({tnear:%7.3f, tfar:%7.3f rayOrigin:%s)\n",tnear, tfar, str("%6.3f",rayOrigin),str("%6.3f",rayDirection));
         
         // march along ray from tnear till we hit something
         double t0 = td.tStart;
         double t1 = t0;
-        Vector3d pos = new Vector3d();
+        Vector3d pos = ctx.pos;
         
         interpolate(td.rayOrigin, td.rayDirection, t0, pos);
-        double dist0 = getDistance(pos, data);
+        double dist0 = getDistance(pos, data, ctx);
 
         //if(DEBUG) printf("   pos:%s, dist0:%7.3f\n", str("%7.3f", pos), dist0);
         //if(DEBUG && debugCount > 0) printf("dist0: %7.3f\n", dist0);        
@@ -510,7 +664,7 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
             double dt = max(minStep, min(rayStep,abs(dist0*factor)));                
             t1 = t0 + dt;
             interpolate(td.rayOrigin, td.rayDirection, t1, pos);
-            double dist1 = getDistance(pos, data);
+            double dist1 = getDistance(pos, data, ctx);
             //if(DEBUG && debugCount > 0) printf("i:%d dist1: %7.3f\n", i, dist1); 
             if(dist1 < precision ) {// we are close
                 if( dist1 != dist0){
@@ -539,14 +693,14 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
         
         double dt = m_gradientStep;
         // x
-        double dx0 = getDistance(pos.x + dt, pos.y, pos.z, data);
-        double dx1 = getDistance(pos.x - dt, pos.y, pos.z, data);
+        double dx0 = getDistance(pos.x + dt, pos.y, pos.z, data, ctx);
+        double dx1 = getDistance(pos.x - dt, pos.y, pos.z, data, ctx);
         // y
-        double dy0 = getDistance(pos.x,pos.y + dt, pos.z, data);
-        double dy1 = getDistance(pos.x,pos.y - dt, pos.z, data);
+        double dy0 = getDistance(pos.x,pos.y + dt, pos.z, data, ctx);
+        double dy1 = getDistance(pos.x,pos.y - dt, pos.z, data, ctx);
         // z
-        double dz0 = getDistance(pos.x,pos.y, pos.z + dt, data);
-        double  dz1 = getDistance(pos.x,pos.y, pos.z - dt, data);
+        double dz0 = getDistance(pos.x,pos.y, pos.z + dt, data, ctx);
+        double  dz1 = getDistance(pos.x,pos.y, pos.z - dt, data, ctx);
         
         // second order precision formula for gradient, good for smooth gradients 
         normal.set((dx0-dx1),(dy0-dy1),(dz0-dz1));
@@ -594,18 +748,24 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
     }
 
     /**
-       return view direction in playbox units
+       calculates view direction in playbox units
     */
-    Vector3d getEyeDirection(double u, double v){
-        //
-        return normalize(mul(m_viewMatrix, new Vector3d(u,v,-m_cameraDepth)));
+    void getEyeDirection(double u, double v, Vector3d dir){
+        
+        Matrix4f m = m_viewMatrix;
+        double z = -m_cameraDepth;
+        dir.set(m.m00*u + m.m01*v + m.m02*z,
+                m.m10*u + m.m11*v + m.m12*z,
+                m.m20*u + m.m21*v + m.m22*z);
+        dir.normalize();
     }
 
     
     /**
        return pixel color generated by given surface point 
+       returned color is stored in the context and is valid until the next call with the same tracingDepth
      */
-    Vector4d shadeSurface(Vector3d posWorld, Vector3d posBox, Vector3d normal, Vector3d eyeRay, Vec data, int tracingDepth) {
+    Vector4d shadeSurface(Vector3d posWorld, Vector3d posBox, Vector3d normal, Vector3d eyeRay, Vec data, int tracingDepth, TracingContext ctx) {
     
         Vector3d mat_diffuse;
         Vector4d color = null;
@@ -630,6 +790,8 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
             
         }
         
+        TracingLevel level = ctx.getLevel(tracingDepth);
+
         if(tracingDepth > 0 ){
 
             // combine contribution from reflected, transmitted rays and diffuse color 
@@ -641,38 +803,42 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
 
                 normalize(normal);
                 //if(DEBUG) printf("normal:%s posBox:%s\n", str("%5.3f",normal),str("%5.3f",posBox));
-                Vector3d reflectedRay = reflect(eyeRay, normal);
-                double intersection[] = new double[2];
+                Vector3d reflectedRay = level.reflectedRay;
+                reflect(eyeRay, normal, reflectedRay);
+                double intersection[] = ctx.intersection;
                 if(intersectBox(posBox, reflectedRay, boxMin(), boxMax(), intersection)){
                     double tnear = 0.001; 
                     double tfar = intersection[1];
                     //if(DEBUG) printf("eyeRay:%s reflectedRay:%s\n", str("%5.3f",eyeRay),str("%5.3f",reflectedRay));
-                    TracingData td = new TracingData(tnear, tfar, posBox, reflectedRay);
-                    Vector4d reflectedColor = raytracePixel(td, tracingDepth);             
+                    TracingData td = ctx.getLevel(tracingDepth).td;
+                    td.set(tnear, tfar, posBox, reflectedRay);
+                    Vector4d reflectedColor = raytracePixel(td, tracingDepth, ctx);             
                     return reflectedColor;
                 }
             }
             
             //reflectedRay
 
-            Vector4d surfaceColor = getPhongShading(material,color,posWorld,posBox,normal,eyeRay,data);
+            Vector4d surfaceColor = getPhongShading(material,color,posWorld,posBox,normal,eyeRay,data,ctx,level.shading);
 
             return surfaceColor;
         }  else {
-            return getPhongShading(material,color,posWorld,posBox,normal,eyeRay,data);
+            return getPhongShading(material,color,posWorld,posBox,normal,eyeRay,data,ctx,level.shading);
         }
         
     }
 
     /**
-       
+       calculates phong shading of surface point and stores it in pixel_color 
+       @return pixel_color 
      */
-    Vector4d getPhongShading(MaterialData material, Vector4d diffuseColor, Vector3d posWorld, Vector3d posBox, Vector3d normal, Vector3d eyeRayD, Vec data) {
+    Vector4d getPhongShading(MaterialData material, Vector4d diffuseColor, Vector3d posWorld, Vector3d posBox, Vector3d normal, Vector3d eyeRayD, Vec data, 
+                             TracingContext ctx, Vector4d pixel_color) {
             
         //if(DEBUG)printf("getPhongShading({posWorld:%s,posBox:%snormal:%s})\n", str("%6.3f",posWorld), str("%4.2f",posBox), str("%6.2f",normal));
         if(DEBUG)printf("getPhongShading({normal:%s})\n", str("%5.2f",normal));
                         
-        Vector4d pixel_color = vec4(material.ambientIntensity,material.ambientIntensity,material.ambientIntensity,1.);
+        pixel_color.set(material.ambientIntensity,material.ambientIntensity,material.ambientIntensity,1.);
         
         int lightCount = m_lights.length;
         
@@ -686,12 +852,15 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
                 light_pos = light.position;
             } else {
                 // TODO: Stop doing this every calc
-                light_pos = mul(m_viewMatrix,light.position);
+                light_pos = ctx.lightPos;
+                mul(m_viewMatrix,light.position,light_pos);
             }            
             // TODO area light 
             Vector4d light_color = light.color;
             
-            Vector3d light_dir = normalize(sub(light_pos,posBox));
+            Vector3d light_dir = ctx.lightDir;
+            sub(light_pos,posBox,light_dir);
+            light_dir.normalize();
             double lit = dot(light_dir,normal);
             
             if (lit > 0.) {
@@ -699,19 +868,31 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
                 if (m_shadowsQuality == 0) {
                     shadow = 1;
                 } else if (m_shadowsQuality <= 5) {
-                    shadow = hardShadow(posBox,light_pos);
+                    shadow = hardShadow(posBox,light_pos,ctx);
                 } else {                 
-                    shadow = softShadow(posBox,light_pos,light.angularSize);
+                    shadow = softShadow(posBox,light_pos,light.angularSize,ctx);
                 }
                 if (shadow > 0.) {
                     //if(debugCount-- > 0 && shadow < 1.) printf("shadow: %7.3f\n", shadow);
-                    addSet(pixel_color,mul(mul(light_color,diffuseColor),(shadow * lit * light.intensity)));
+                    double d = shadow * lit * light.intensity;
+                    pixel_color.x += light_color.x*diffuseColor.x*d;
+                    pixel_color.y += light_color.y*diffuseColor.y*d;
+                    pixel_color.z += light_color.z*diffuseColor.z*d;
+                    pixel_color.w += light_color.w*diffuseColor.w*d;
 
                     if (material.shininess > 0.) {
                         // direction to reflected light x
-                        Vector3d ref_light = mul(normalize(reflect(light_dir, normal)),-1);
-                        double s = pow(max(dot(ref_light, mul(eyeRayD,-1)), 0.0), material.shininess * 128);
-                        addSet(pixel_color,  mul(mul(material.specularColor,light_color),(s * light.intensity)));
+                        Vector3d ref_light = ctx.refLight;
+                        reflect(light_dir, normal, ref_light);
+                        ref_light.normalize();
+                        ref_light.negate();
+                        double s = pow(max(-dot(ref_light, eyeRayD), 0.0), material.shininess * 128);
+                        Vector4d spec = material.specularColor;
+                        double si = s * light.intensity;
+                        pixel_color.x += spec.x*light_color.x*si;
+                        pixel_color.y += spec.y*light_color.y*si;
+                        pixel_color.z += spec.z*light_color.z*si;
+                        pixel_color.w += spec.w*light_color.w*si;
                     }
                     clamp(pixel_color, 0., 1.); 
                 }
@@ -723,20 +904,43 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
         
     }
         
+    /**
+       @return distance from point to the nearest point of the box or 0 if point is inside of the box 
+     */
+    static double getBoxMinDistance(Vector3d p, Vector3d boxMin, Vector3d boxMax){
+
+        double dx = max(0., max(boxMin.x - p.x, p.x - boxMax.x));
+        double dy = max(0., max(boxMin.y - p.y, p.y - boxMax.y));
+        double dz = max(0., max(boxMin.z - p.z, p.z - boxMax.z));
+        return Math.sqrt(dx*dx + dy*dy + dz*dz);
+    }
+
+    /**
+       @return distance from point to the farthest point of the box 
+     */
+    static double getBoxMaxDistance(Vector3d p, Vector3d boxMin, Vector3d boxMax){
+
+        double dx = max(abs(boxMin.x - p.x), abs(p.x - boxMax.x));
+        double dy = max(abs(boxMin.y - p.y), abs(p.y - boxMax.y));
+        double dz = max(abs(boxMin.z - p.z), abs(p.z - boxMax.z));
+        return Math.sqrt(dx*dx + dy*dy + dz*dz);
+    }
+
     boolean intersectBox(Vector3d origin, Vector3d dir, Vector3d boxMin, Vector3d boxMax, double inter[]){
 
         // compute intersection of ray with all six bbox planes
-        Vector3d invR = new Vector3d(1./dir.x, 1./dir.y, 1./dir.z);
-        Vector3d tbot = mulVV(sub(boxMin, origin), invR);
-        Vector3d ttop = mulVV(sub(boxMax, origin), invR);
+        double invRx = 1./dir.x, invRy = 1./dir.y, invRz = 1./dir.z;
+        double tbotx = (boxMin.x - origin.x)*invRx;
+        double tboty = (boxMin.y - origin.y)*invRy;
+        double tbotz = (boxMin.z - origin.z)*invRz;
+        double ttopx = (boxMax.x - origin.x)*invRx;
+        double ttopy = (boxMax.y - origin.y)*invRy;
+        double ttopz = (boxMax.z - origin.z)*invRz;
 
         // re-order intersections to find smallest and largest on each axis
-        Vector3d tmin = minVV(ttop, tbot);
-        Vector3d tmax = maxVV(ttop, tbot);
-        
         // find the largest tmin and the smallest tmax
-        double largest_tmin = max(max(tmin.x, tmin.y), tmin.z);
-        double smallest_tmax = min(min(tmax.x, tmax.y), tmax.z);
+        double largest_tmin = max(max(min(ttopx, tbotx), min(ttopy, tboty)), min(ttopz, tbotz));
+        double smallest_tmax = min(min(max(ttopx, tbotx), max(ttopy, tboty)), max(ttopz, tbotz));
         
         inter[0] = largest_tmin;
         inter[1] = smallest_tmax;
@@ -748,18 +952,20 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
 
     /**
        min of bounding box in playbox units 
+       returned vector is shared and should not be modified 
      */
     Vector3d boxMin(){
         //TODO make real box 
-        return new Vector3d(-1, -1, -1);
+        return BOX_MIN;
     }
 
     /**
        max of bounding box in playbox units 
+       returned vector is shared and should not be modified 
      */
     Vector3d boxMax(){
         //TODO make real box 
-        return new Vector3d(1, 1, 1);
+        return BOX_MAX;
     }
 
     Vector4d m_intersectionColor = new Vector4d(1,0,0,1);
@@ -776,11 +982,12 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
        Hard shadows is calculated by casting a ray from point on the surface toward light source
        if distance along the ray became negative - ray intersect the surface 
     */
-    double hardShadow(Vector3d p0, Vector3d p1) {
+    double hardShadow(Vector3d p0, Vector3d p1, TracingContext ctx) {
         
-        Vector3d pos = new Vector3d();
-        Vector3d rayDir = new Vector3d(p1);
-        Vec data = new Vec(4);
+        Vector3d pos = ctx.shadowPos;
+        Vector3d rayDir = ctx.shadowDir;
+        Vec data = ctx.shadowData;
+        rayDir.set(p1);
         rayDir.sub(p0);
         rayDir.normalize();
                 
@@ -795,7 +1002,7 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
         
         interpolate(p0, rayDir, t0, pos);
 
-        double dist0 = getDistance(pos, data);
+        double dist0 = getDistance(pos, data, ctx);
         for(int i = 0; i < iter; i++) {
 
             double dt = min(rayStep,dist0*factor);
@@ -804,7 +1011,7 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
                 return 1.0;
             }
             interpolate(p0, rayDir, t1, pos);
-            double dist1 = getDistance(pos, data);
+            double dist1 = getDistance(pos, data, ctx);
             if(dist1 < 0 || abs(dist1) < precision) {
                 // got intersection 
                 return 0;
@@ -824,12 +1031,13 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
        p1 - directiuomn to the light source 
        lightWidth - visible angular size of the light in radians 
      */
-    double softShadow(Vector3d p0, Vector3d p1, double lightWidth) {
+    double softShadow(Vector3d p0, Vector3d p1, double lightWidth, TracingContext ctx) {
         //printf("softShadow()\n");
         
-        Vector3d pos = new Vector3d();
-        Vector3d rayDir = new Vector3d(p1);
-        Vec data = new Vec(4);
+        Vector3d pos = ctx.shadowPos;
+        Vector3d rayDir = ctx.shadowDir;
+        Vec data = ctx.shadowData;
+        rayDir.set(p1);
         rayDir.sub(p0);
         rayDir.normalize();
         
@@ -847,7 +1055,7 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
 
         double minAngle = 10.;
 
-        double dist0 = getDistance(pos, data);
+        double dist0 = getDistance(pos, data, ctx);
         //if(debugCount-- > 0) printf("--- \n");
         for(int i = 0; i < iter; i++) {
             
@@ -859,7 +1067,7 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
                 break;
             }
             interpolate(p0, rayDir, t1, pos);
-            double dist1 = getDistance(pos, data);
+            double dist1 = getDistance(pos, data, ctx);
             // distance to the surface normalized to light source width 
             //double angle = (dist1/t1)/lightWidth+0.5;
             double angle = (dist1/t1);
@@ -980,14 +1188,86 @@ public class SceneImageDataSource extends BaseParameterizable implements DataSou
         Vector3d rayOrigin;
         Vector3d rayDirection;
 
+        TracingData(){
+        }
+
         TracingData(double tStart, double tEnd, Vector3d rayOrigin, Vector3d rayDirection){
+            set(tStart, tEnd, rayOrigin, rayDirection);
+        }
+
+        void set(double tStart, double tEnd, Vector3d rayOrigin, Vector3d rayDirection){
             this.tStart = tStart;
             this.tEnd = tEnd;
+            this.tCurrent = 0.;
             this.rayOrigin = rayOrigin;
-            this.rayDirection = rayDirection;
-            
+            this.rayDirection = rayDirection;            
         }
 
     } // static class TracingData
 
+    /**
+       scratch data used by tracing of single ray at given tracing depth 
+     */
+    static class TracingLevel {
+
+        TracingData td = new TracingData();
+        Vector3d posWorld = new Vector3d();
+        Vector3d posBox = new Vector3d();
+        Vector3d normal = new Vector3d();
+        Vector3d color = new Vector3d();
+        Vector3d alpha = new Vector3d();
+        Vector3d reflectedRay = new Vector3d();
+        Vec data = new Vec(4);
+        Vector4d shading = new Vector4d();
+        Vector4d result = new Vector4d();
+
+    } // static class TracingLevel 
+
+    /**
+       per thread scratch data used by raytracing 
+       it is reused for every pixel to make rendering allocation free 
+       recursive tracing of reflected rays uses separate level for each tracing depth 
+     */
+    static class TracingContext {
+
+        Vec pnt = new Vec(3); // point in scene units passed to the scene data source 
+        double intersection[] = new double[2];
+        Vector3d direction = new Vector3d();
+        Vector3d pos = new Vector3d();
+        Vector3d lightPos = new Vector3d();
+        Vector3d lightDir = new Vector3d();
+        Vector3d refLight = new Vector3d();
+        Vector3d shadowPos = new Vector3d();
+        Vector3d shadowDir = new Vector3d();
+        Vec shadowData = new Vec(4);
+        Vec value = new Vec(4);
+        Vector3d coneAxis = new Vector3d();
+        Vector3d coneOrigin = new Vector3d();
+        ConeTracer coneTracer;
+        TracingLevel levels[] = new TracingLevel[0];
+
+        /**
+           @return cone tracer for given scene data source 
+         */
+        ConeTracer getConeTracer(DataSource source){
+            
+            if(coneTracer == null || coneTracer.getSource() != source)
+                coneTracer = new ConeTracer(source);
+            return coneTracer;
+        }
+
+        TracingLevel getLevel(int depth){
+
+            if(depth >= levels.length){
+                TracingLevel nl[] = new TracingLevel[depth+1];
+                System.arraycopy(levels, 0, nl, 0, levels.length);
+                for(int i = levels.length; i < nl.length; i++)
+                    nl[i] = new TracingLevel();
+                levels = nl;
+            }
+            return levels[depth];
+        }
+
+    } // static class TracingContext
+
 }
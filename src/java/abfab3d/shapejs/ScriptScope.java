@@ -0,0 +1,95 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+package abfab3d.shapejs;
+
+import org.mozilla.javascript.*;
+import org.mozilla.javascript.commonjs.module.ModuleScope;
+
+import java.net.URI;
+
+/**
+ * Top level scope of a single script.  Uses GlobalScope as prototype and keeps packages and classes imported
+ * by the script.  Imports of the GlobalScope itself are modified by importPackage() and importClass() regardless of
+ * the calling scope, so these functions are redefined here to keep the shared scope unchanged.
+ *
+ * Names are resolved in the script scope first, then in the global scope and then in the script imports.
+ */
+public class ScriptScope extends ModuleScope {
+    static final long serialVersionUID = 7123847529815239874L;
+
+    /** packages and classes imported by the script */
+    private ImporterTopLevel m_imports;
+    private volatile boolean m_hasImports = false;
+
+    public ScriptScope(Scriptable global, URI uri) {
+        super(global, uri, null);
+
+        m_imports = new ImporterTopLevel();
+        m_imports.setParentScope(this);
+
+        defineFunctionProperties(new String[]{"importPackage", "importClass"}, ScriptScope.class,
+                ScriptableObject.DONTENUM);
+    }
+
+    public Object get(String name, Scriptable start) {
+        Object value = super.get(name, start);
+        if (value != NOT_FOUND || !m_hasImports) return value;
+
+        Scriptable global = getPrototype();
+        if (global != null) {
+            value = ScriptableObject.getProperty(global, name);
+            if (value != NOT_FOUND) return value;
+        }
+        return m_imports.get(name, m_imports);
+    }
+
+    public boolean has(String name, Scriptable start) {
+        return super.has(name, start) || (m_hasImports && m_imports.has(name, m_imports));
+    }
+
+    /**
+     * Import java packages into the script scope
+     */
+    @SuppressWarnings("deprecation")
+    public static Object importPackage(Context cx, Scriptable thisObj, Object[] args, Function funObj) {
+        ScriptScope scope = (ScriptScope) funObj.getParentScope();
+
+        // the only public entry to the package import of ImporterTopLevel
+        scope.m_imports.importPackage(cx, scope.m_imports, args, funObj);
+        scope.m_hasImports = true;
+        return Context.getUndefinedValue();
+    }
+
+    /**
+     * Import java classes into the script scope
+     */
+    public static Object importClass(Context cx, Scriptable thisObj, Object[] args, Function funObj) {
+        ScriptScope scope = (ScriptScope) funObj.getParentScope();
+
+        for (int i = 0; i < args.length; i++) {
+            if (!(args[i] instanceof NativeJavaClass)) {
+                throw Context.reportRuntimeError(ScriptRuntime.getMessage1("msg.not.class", Context.toString(args[i])));
+            }
+            NativeJavaClass cl = (NativeJavaClass) args[i];
+            String name = cl.getClassObject().getName();
+            name = name.substring(name.lastIndexOf('.') + 1);
+
+            Object value = ScriptableObject.getProperty(scope, name);
+            if (value != NOT_FOUND && value != cl) {
+                throw Context.reportRuntimeError(ScriptRuntime.getMessage1("msg.prop.defined", name));
+            }
+            scope.m_imports.put(name, scope.m_imports, cl);
+            scope.m_hasImports = true;
+        }
+        return Context.getUndefinedValue();
+    }
+}
@@ -16,12 +16,14 @@ import abfab3d.core.Material;
 import abfab3d.datasources.JavascriptDataSource;
 import abfab3d.param.*;
 import abfab3d.util.Unit;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.reflect.TypeToken;
 import org.mozilla.javascript.*;
-import org.mozilla.javascript.commonjs.module.ModuleScope;
 import org.mozilla.javascript.tools.ToolErrorReporter;
+import org.apache.commons.codec.digest.DigestUtils;
 
 import javax.vecmath.AxisAngle4d;
 import javax.vecmath.Vector3d;
@@ -67,8 +69,26 @@ public class ShapeJSEvaluator implements MaterialMapper {
     /** How many header lines did we add? */
     private static int headerLines;
 
+    /** Max count of compiled scripts to keep */
+    private static final int SCRIPT_CACHE_SIZE = 500;
+
+    /** Should compiled scripts and global scopes be shared between evaluations */
+    private static boolean sm_cacheScripts = true;
+
+    /** Rhino optimization level.  -1 is interpreted mode, 0..9 compile to java bytecode */
+    private static int sm_optimizationLevel = 0;
+
+    /** Compiled scripts keyed by hash of script content and compilation settings */
+    private static Cache<String, org.mozilla.javascript.Script> sm_scriptCache =
+        CacheBuilder.newBuilder().maximumSize(SCRIPT_CACHE_SIZE).softValues().build();
+
+    /** Global scopes with sealed standard library keyed by sandbox mode */
+    private static HashMap<String, GlobalScope> sm_sharedScopes = new HashMap<String, GlobalScope>();
+
     //private GlobalScope scope;
     private TopLevel scope;
+    /** count of default import lines added to the script */
+    private int m_headerLines;
     private ErrorReporterWrapper errors;
     private LinkedHashMap<String, Parameter> types;
     private LinkedHashMap<String, Parameter> defs;
@@ -286,6 +306,83 @@ public class ShapeJSEvaluator implements MaterialMapper {
         matMapper = mm;
     }
 
+    /**
+     * Enable caching of compiled scripts and sharing of global scope between scripts.
+     * Identical scripts are parsed and compiled only once.
+     */
+    public static void setScriptCaching(boolean value) {
+        sm_cacheScripts = value;
+    }
+
+    /**
+     * Set Rhino optimization level used to compile scripts.  -1 for interpreted mode, 0..9 to compile to java bytecode
+     */
+    public static void setOptimizationLevel(int level) {
+        Context.checkOptimizationLevel(level);
+        sm_optimizationLevel = level;
+    }
+
+    public static int getOptimizationLevel() {
+        return sm_optimizationLevel;
+    }
+
+    /**
+     * Remove all compiled scripts and shared scopes
+     */
+    public static void clearScriptCache() {
+        sm_scriptCache.invalidateAll();
+        synchronized (sm_sharedScopes) {
+            sm_sharedScopes.clear();
+        }
+    }
+
+    /**
+     * Get count of compiled scripts in the cache
+     */
+    static long getCachedScriptCount() {
+        return sm_scriptCache.size();
+    }
+
+    /**
+     * Get compiled script from the cache or compile it
+     */
+    private static org.mozilla.javascript.Script compileScript(Context cx, String script) {
+
+        if (!sm_cacheScripts) {
+            return cx.compileString(script, "<cmd>", 1, null);
+        }
+
+        String key = DigestUtils.sha1Hex(script) + ":" + cx.getOptimizationLevel() + ":" + cx.getLanguageVersion();
+        org.mozilla.javascript.Script compiled = sm_scriptCache.getIfPresent(key);
+        if (compiled == null) {
+            compiled = cx.compileString(script, "<cmd>", 1, null);
+            sm_scriptCache.put(key, compiled);
+        } else if (DEBUG) {
+            printf("Using compiled script: %s\n", key);
+        }
+        return compiled;
+    }
+
+    /**
+     * Get global scope shared between scripts.  Standard library of the scope is sealed and default imports are
+     * done once when the scope is created.  Scripts keep their variables and imports in their own ScriptScope
+     * which uses global scope as prototype
+     */
+    private static GlobalScope getSharedScope(Context cx, ContextFactory contextFactory, boolean sandboxed) {
+
+        String key = "sandboxed:" + sandboxed;
+        synchronized (sm_sharedScopes) {
+            GlobalScope gs = sm_sharedScopes.get(key);
+            if (gs == null) {
+                gs = new GlobalScope(true);
+                gs.initShapeJSShared(contextFactory);
+                cx.evaluateString(gs, imports, "<imports>", 1, null);
+                sm_sharedScopes.put(key, gs);
+            }
+            return gs;
+        }
+    }
+
     public static void configureSecurity(List<String> pwl, List<String> cwl, List<String> ci, List<String> si) {
         if (securitySetup) {
             printf("SECURITY: Attempt to configure security twice.");
@@ -364,6 +461,7 @@ public class ShapeJSEvaluator implements MaterialMapper {
         if (DEBUG) printf("prepareScript(this: %s script, sandbox: %b)\n", this, m_sandboxed);
 
         Context cx = Context.enter();
+        cx.setOptimizationLevel(sm_optimizationLevel);
         Object scene = null;
 
         /*
@@ -391,8 +489,15 @@ public class ShapeJSEvaluator implements MaterialMapper {
                 errors = new ErrorReporterWrapper(errorReporter);
                 contextFactory.setErrorReporter(errors);
 
-                GlobalScope gs = new GlobalScope();
-                gs.initShapeJS(contextFactory,m_libDirs,m_sandboxed);
+                GlobalScope gs;
+                if (sm_cacheScripts) {
+                    gs = getSharedScope(cx, contextFactory, m_sandboxed);
+                    m_headerLines = 0;
+                } else {
+                    gs = new GlobalScope();
+                    gs.initShapeJS(contextFactory,m_libDirs,m_sandboxed);
+                    m_headerLines = headerLines;
+                }
 
                 URI uri = null;
                 String baseDir = null;
@@ -402,8 +507,11 @@ public class ShapeJSEvaluator implements MaterialMapper {
                     
                 }
 
-                scope = new ModuleScope(gs, uri, null);
+                scope = new ScriptScope(gs, uri);
                 scope.defineProperty("SHAPEJS_BASEDIR",baseDir,0);
+                if (sm_cacheScripts && m_libDirs != null) {
+                    gs.installRequire(cx, scope, m_libDirs, m_sandboxed);
+                }
             }
 
             if (script == null && this.script == null) {
@@ -413,12 +521,13 @@ public class ShapeJSEvaluator implements MaterialMapper {
             // Only parse the script if a new version was passed in
             if (script != null) {
                 if (DEBUG) printf("Parsing new script\n");
-                this.script = addImports(script);
+                // shared scope already has default imports
+                this.script = (m_headerLines > 0) ? addImports(script) : script;
 
 
                 //printf("Final script:\n%s\n",script);
                 try {
-                    scene = cx.evaluateString(scope, this.script, "<cmd>", 1, null);
+                    scene = compileScript(cx, this.script).exec(cx, scope);
                 } catch (Exception e) {
                     printf("evaluateString() failed: %s\n", e.getMessage());
                     if (false) e.printStackTrace(System.out);
@@ -428,7 +537,7 @@ public class ShapeJSEvaluator implements MaterialMapper {
                         printf("Null error message.  Orig execption: \n");
                         e.printStackTrace();
                     }
-                    m_result = new EvaluatedScript(ShapeJSErrors.ErrorType.PARSING_ERROR, addErrorLine(e.getMessage(), this.script, headerLines), getPrintLogs(cx), time() - t0);
+                    m_result = new EvaluatedScript(ShapeJSErrors.ErrorType.PARSING_ERROR, addErrorLine(e.getMessage(), this.script, m_headerLines), getPrintLogs(cx), time() - t0);
                     return;
                 }
 
@@ -633,7 +742,7 @@ public class ShapeJSEvaluator implements MaterialMapper {
                     msg = e.getMessage();
                 }
 
-                m_result = new EvaluatedScript(ShapeJSErrors.ErrorType.PARSING_ERROR, addErrorLine(msg, this.script, headerLines), getPrintLogs(cx), time() - t0);
+                m_result = new EvaluatedScript(ShapeJSErrors.ErrorType.PARSING_ERROR, addErrorLine(msg, this.script, m_headerLines), getPrintLogs(cx), time() - t0);
                 return m_result;
             }
             if (DEBUG) printf("result of JS evaluation: %s\n", result2);
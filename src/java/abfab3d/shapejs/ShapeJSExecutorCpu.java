@@ -17,6 +17,7 @@ package abfab3d.shapejs;
 import abfab3d.core.Bounds;
 import abfab3d.datasources.Union;
 import abfab3d.grid.op.ImageMaker;
+import abfab3d.grid.util.ExecutionStoppedException;
 import abfab3d.intersect.DataSourceIntersector;
 import abfab3d.param.Parameterizable;
 import abfab3d.param.Shape;
@@ -41,6 +42,22 @@ public class ShapeJSExecutorCpu extends BaseShapeJSExecutor implements ShapeJSEx
     private static final boolean DEBUG = false;
     private long lastRenderTime;
     private long lastImageEncodeTime;
+    // progressive rendering in progress, it is cancelled by the next progressive rendering 
+    private ImageMaker progressiveMaker;
+
+    /**
+     * Receives results of progressive rendering
+     */
+    public interface ProgressiveImageListener {
+        /**
+         * Called after each refinement level of the image is rendered
+         *
+         * @param image The image with rendered level. The same image is updated by each level
+         * @param step  Size of pixel blocks of the level. The final level has step 1
+         * @return true to continue rendering, false to stop it
+         */
+        public boolean imageRendered(BufferedImage image, int step);
+    }
 
     public ShapeJSExecutorCpu() {
         AbFab3DGlobals.put(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY, Runtime.getRuntime().availableProcessors());
@@ -69,17 +86,7 @@ public class ShapeJSExecutorCpu extends BaseShapeJSExecutor implements ShapeJSEx
                 printf("Angle: %6.2f\n", camera.getCameraAngle());
             }
 
-            SceneImageDataSource sids = new SceneImageDataSource(scene, camera);
-            sids.set("shadowsQuality", (int) Math.round(10 * setup.shadowQuality));
-            sids.set("raytracingDepth", setup.maxRayBounces);
-
-            ImageMaker im = new ImageMaker();
-
-            im.set("imgRenderer", sids);
-            im.set("width", setup.getWidth());
-            im.set("height", setup.getHeight());
-
-            im.setBounds(new Bounds(-1, 1, -1, 1, -1, 1));
+            ImageMaker im = makeImageMaker(scene, camera, setup);
 
             BufferedImage image = im.getImage();
             lastRenderTime = nanoTime() - stime;
@@ -112,27 +119,98 @@ public class ShapeJSExecutorCpu extends BaseShapeJSExecutor implements ShapeJSEx
                 printf("Angle: %6.2f\n", camera.getCameraAngle());
             }
 
-            SceneImageDataSource sids = new SceneImageDataSource(scene, camera);
-            sids.set("shadowsQuality", (int) Math.round(10 * setup.shadowQuality));
-            sids.set("raytracingDepth", setup.maxRayBounces);
+            ImageMaker im = makeImageMaker(scene, camera, setup);
 
-            ImageMaker im = new ImageMaker();
+            DataBufferInt db = (DataBufferInt) img.getRaster().getDataBuffer();
+            int[] imageData = db.getData();
 
-            im.set("imgRenderer", sids);
-            im.set("width", setup.getWidth());
-            im.set("height", setup.getHeight());
+            im.renderImage(imageData);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
 
-            im.setBounds(new Bounds(-1, 1, -1, 1, -1, 1));
+        lastRenderTime = nanoTime() - stime;
+    }
 
+    /**
+     * Render a ShapeJS project into a raster image progressively.  The first level is rendered at coarse resolution 
+     * with each pixel replicated into block of initialStep x initialStep pixels.  Each next level halves the block size 
+     * and the final level is the same as renderImage() result.  The listener gets the image after each level.
+     *
+     * Starting a new progressive rendering cancels the one which is in progress.
+     *
+     * @param scene  The scene
+     * @param camera The camera
+     * @param setup  The image setup
+     * @param img    The image to render into, it should be of TYPE_INT_ARGB
+     * @param initialStep Block size of the first level, power of 2 up to 32, for example 8
+     * @param listener The listener to receive each level, may be null
+     * @return true if the final level was rendered, false if the rendering was cancelled or stopped by listener
+     */
+    public boolean renderImageProgressive(Scene scene, Camera camera, ImageSetup setup, final BufferedImage img, 
+                                          int initialStep, final ProgressiveImageListener listener) {
+        long stime = nanoTime();
+
+        ImageMaker im = makeImageMaker(scene, camera, setup);
+        synchronized(this) {
+            if (progressiveMaker != null) {
+                progressiveMaker.cancel();
+            }
+            progressiveMaker = im;
+        }
+
+        final int lastStep[] = new int[]{0};
+        try {
             DataBufferInt db = (DataBufferInt) img.getRaster().getDataBuffer();
             int[] imageData = db.getData();
 
-            im.renderImage(imageData);
+            im.renderImageProgressive(imageData, initialStep, new ImageMaker.ProgressListener() {
+                    public boolean levelRendered(int[] data, int step) {
+                        lastStep[0] = step;
+                        if (DEBUG) printf("progressive level: %d time: %d ms\n", step, (nanoTime() - stime)/1000000);
+                        return (listener == null) || listener.imageRendered(img, step);
+                    }
+                });
+        } catch (ExecutionStoppedException ese) {
+            if (DEBUG) printf("progressive rendering cancelled\n");
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            synchronized(this) {
+                if (progressiveMaker == im) progressiveMaker = null;
+            }
         }
 
         lastRenderTime = nanoTime() - stime;
+        return (lastStep[0] == 1);
+    }
+
+    /**
+     * Cancel progressive rendering which is in progress
+     */
+    public synchronized void cancelProgressiveRendering() {
+        if (progressiveMaker != null) {
+            progressiveMaker.cancel();
+        }
+    }
+
+    /**
+     * Make ImageMaker to render the scene
+     */
+    private ImageMaker makeImageMaker(Scene scene, Camera camera, ImageSetup setup) {
+
+        SceneImageDataSource sids = new SceneImageDataSource(scene, camera);
+        sids.set("shadowsQuality", (int) Math.round(10 * setup.shadowQuality));
+        sids.set("raytracingDepth", setup.maxRayBounces);
+
+        ImageMaker im = new ImageMaker();
+
+        im.set("imgRenderer", sids);
+        im.set("width", setup.getWidth());
+        im.set("height", setup.getHeight());
+
+        im.setBounds(new Bounds(-1, 1, -1, 1, -1, 1));
+        return im;
     }
 
 
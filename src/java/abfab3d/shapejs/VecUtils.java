@@ -60,6 +60,18 @@ public class VecUtils {
                             m.m20*v.x + m.m21*v.y + m.m22*v.z);
     }
 
+    /**
+       result = m*v
+       result should be different from v 
+     */
+    public static Vector3d mul(Matrix4f m, Vector3d v, Vector3d result){
+        result.set(
+                   m.m00*v.x + m.m01*v.y + m.m02*v.z,
+                   m.m10*v.x + m.m11*v.y + m.m12*v.z,
+                   m.m20*v.x + m.m21*v.y + m.m22*v.z);
+        return result;
+    }
+
     public static Vector3d minVV(Vector3d u, Vector3d v){
         return new Vector3d(min(u.x, v.x), min(u.y, v.y), min(u.z, v.z));
     }
@@ -71,6 +83,14 @@ public class VecUtils {
         return new Vector3d(u.x-v.x, u.y-v.y, u.z-v.z);
     }
 
+    /**
+       result = u - v
+     */
+    public static Vector3d sub(Vector3d u, Vector3d v, Vector3d result){
+        result.set(u.x-v.x, u.y-v.y, u.z-v.z);
+        return result;
+    }
+
     public static void clamp(Vector4d v, double vmin, double vmax){
 
         v.x = MathUtil.clamp(v.x,vmin, vmax);
@@ -106,6 +126,18 @@ public class VecUtils {
         return sub(v, mul(n,2*dot(v,n)));        
 
     }
+
+    //
+    // Calculate the reflection of vector v in plane with normal n and store it in result 
+    // result should be different from v and n 
+    //
+    public static Vector3d reflect(Vector3d v, Vector3d n, Vector3d result) {
+        
+        double s = 2*dot(v,n);
+        result.set(v.x - n.x*s, v.y - n.y*s, v.z - n.z*s);
+        return result;
+
+    }
     
     public static Vector3d mulVV(Vector3d u, Vector3d v){
         return new Vector3d(u.x*v.x,u.y*v.y,u.z*v.z);
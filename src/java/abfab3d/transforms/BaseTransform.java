@@ -1,6 +1,9 @@
 package abfab3d.transforms;
 
 import abfab3d.param.BaseParameterizable;
+import abfab3d.core.BatchUtil;
+import abfab3d.core.BatchVecTransform;
+import abfab3d.core.VecArray;
 import abfab3d.core.VecTransform;
 
 /**
@@ -8,8 +11,51 @@ import abfab3d.core.VecTransform;
  *
  * @author Alan Hudson
  */
-public abstract class BaseTransform extends BaseParameterizable implements VecTransform {
+public abstract class BaseTransform extends BaseParameterizable implements VecTransform, BatchVecTransform {
     /**
      * Initialize params common to all Transforms, currently none.
      */
+
+    /**
+       @return true if inverse transform is a composition of isometries and uniform scaling 
+       and the accumulated Vec scale factor equals to the actual scaling of distances.
+       Shapes with such transforms keep their distance functions 1-Lipschitz 
+       @noRefGuide
+     */
+    public boolean isSimilarity(){
+        return false;
+    }
+
+    /**
+       @return true if given transform is null, Identity or similarity 
+       @noRefGuide
+     */
+    public static boolean isSimilarity(VecTransform trans){
+
+        if(trans == null || trans instanceof Identity)
+            return true;
+        if(trans instanceof BaseTransform)
+            return ((BaseTransform)trans).isSimilarity();
+        return false;
+    }
+
+    /**
+       batch version of transform(Vec, Vec).
+       Default implementation transforms each vector separately.
+       Subclasses may override it with more efficient calculation
+       @noRefGuide
+     */
+    public int transform(VecArray in, VecArray out){
+        return BatchUtil.transformPointwise(this, in, out);
+    }
+
+    /**
+       batch version of inverse_transform(Vec, Vec).
+       Default implementation transforms each vector separately.
+       Subclasses may override it with more efficient calculation
+       @noRefGuide
+     */
+    public int inverse_transform(VecArray in, VecArray out){
+        return BatchUtil.inverse_transformPointwise(this, in, out);
+    }
 }
@@ -16,7 +16,10 @@ import java.util.List;
 
 import abfab3d.core.Initializable;
 import abfab3d.core.ResultCodes;
+import abfab3d.core.BatchBuffers;
+import abfab3d.core.BatchUtil;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 import abfab3d.core.VecTransform;
 import abfab3d.param.Parameter;
 import abfab3d.param.Parameterizable;
@@ -36,6 +39,9 @@ public class CompositeTransform extends BaseTransform implements VecTransform, I
         
     private VecTransform aTransforms[]; // array of transforms used in calculations 
 
+    // per thread scratch buffers of batch calculations 
+    private ThreadLocal<BatchBuffers> m_batchBuffers = BatchBuffers.makeThreadLocal();
+
     SNodeListParameter mp_transforms = new SNodeListParameter("transforms");
 
     protected Parameter m_aparams[] = new Parameter[]{
@@ -189,6 +195,80 @@ public class CompositeTransform extends BaseTransform implements VecTransform, I
         
     }
 
+    /**
+       batch version of transform() 
+       each transform of the chain is applied to the whole block 
+       @noRefGuide
+     */
+    public int transform(VecArray in, VecArray out) {
+        
+        int len = aTransforms.length;
+        out.set(in);
+        clearResults(out);
+        if(len < 1){
+            return ResultCodes.RESULT_OK;
+        }
+        int result[] = m_batchBuffers.get().getInts(0, out.size);
+        for(int i = 0; i < len; i++){
+            System.arraycopy(out.result, 0, result, 0, out.size);
+            BatchUtil.transform(aTransforms[i], out, out);
+            keepFirstErrors(result, out);
+        }
+        return ResultCodes.RESULT_OK;
+    }                
+
+    /**
+       batch version of inverse_transform() 
+       each transform of the chain is applied to the whole block in reverse order 
+       @noRefGuide
+     */
+    public int inverse_transform(VecArray in, VecArray out) {
+        
+        int len = aTransforms.length;
+        out.set(in);
+        clearResults(out);
+        if(len < 1){
+            return ResultCodes.RESULT_OK;
+        }
+        int result[] = m_batchBuffers.get().getInts(0, out.size);
+        for(int i = len-1; i >= 0; i--){
+            System.arraycopy(out.result, 0, result, 0, out.size);
+            BatchUtil.inverse_transform(aTransforms[i], out, out);
+            keepFirstErrors(result, out);
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
+    /**
+       @noRefGuide
+     */
+    public boolean isSimilarity(){
+
+        VecTransform ta[] = getTransformsArray();
+        for(int i = 0; i < ta.length; i++){
+            if(!isSimilarity(ta[i]))
+                return false;
+        }
+        return true;
+    }
+
+    static void clearResults(VecArray vec){
+        int res[] = vec.result;
+        for(int k = 0; k < vec.size; k++)
+            res[k] = RESULT_OK;
+    }
+
+    /**
+       vectors which failed in previous transforms keep their first error code 
+     */
+    static void keepFirstErrors(int prevResult[], VecArray vec){
+        int res[] = vec.result;
+        for(int k = 0; k < vec.size; k++){
+            if(prevResult[k] != RESULT_OK)
+                res[k] = prevResult[k];
+        }
+    }
+
     @Override
     public SNode[] getChildren() {
         
@@ -12,9 +12,11 @@
 
 package abfab3d.transforms;
 
+import abfab3d.core.BatchVecTransform;
 import abfab3d.core.ResultCodes;
 import abfab3d.param.BaseParameterizable;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 import abfab3d.core.VecTransform;
 
 import static abfab3d.core.Output.printf;
@@ -27,7 +29,7 @@ import static abfab3d.util.Symmetry.toFundamentalDomain;
    only transfers data 
    
 */
-public class Identity extends BaseParameterizable implements VecTransform {
+public class Identity extends BaseParameterizable implements VecTransform, BatchVecTransform {
     /**
        @noRefGuide
      */
@@ -42,5 +44,23 @@ public class Identity extends BaseParameterizable implements VecTransform {
         out.set(in);
         return ResultCodes.RESULT_OK;
     }
+
+    /**
+       @noRefGuide
+     */
+    public int transform(VecArray in, VecArray out) {
+        out.set(in);
+        CompositeTransform.clearResults(out);
+        return ResultCodes.RESULT_OK;
+    }
+
+    /**
+       @noRefGuide
+     */
+    public int inverse_transform(VecArray in, VecArray out) {
+        out.set(in);
+        CompositeTransform.clearResults(out);
+        return ResultCodes.RESULT_OK;
+    }
     
 }
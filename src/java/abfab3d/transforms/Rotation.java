@@ -21,6 +21,7 @@ import abfab3d.param.AxisAngle4dParameter;
 import abfab3d.param.Parameter;
 import abfab3d.param.Vector3dParameter;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 import abfab3d.core.Initializable;
 import abfab3d.core.VecTransform;
 
@@ -185,4 +186,41 @@ public class Rotation extends BaseTransform implements VecTransform, Initializab
         
     }
 
+    /**
+       @noRefGuide
+     */
+    public boolean isSimilarity(){
+        return true;
+    }
+
+    /**
+       @noRefGuide
+     */
+    public int inverse_transform(VecArray in, VecArray out) {
+        
+        out.set(in);
+        int n = out.size;
+        double 
+            vx[] = out.v[0], 
+            vy[] = out.v[1], 
+            vz[] = out.v[2];
+        double 
+            cx = m_centerx, cy = m_centery, cz = m_centerz,
+            m00 = mat_inv.m00, m01 = mat_inv.m01, m02 = mat_inv.m02,
+            m10 = mat_inv.m10, m11 = mat_inv.m11, m12 = mat_inv.m12,
+            m20 = mat_inv.m20, m21 = mat_inv.m21, m22 = mat_inv.m22;
+        int res[] = out.result;
+        for(int i = 0; i < n; i++){
+            double 
+                x = vx[i] - cx,
+                y = vy[i] - cy,
+                z = vz[i] - cz;
+            vx[i] = m00* x + m01*y + m02*z + cx;
+            vy[i] = m10* x + m11*y + m12*z + cy;
+            vz[i] = m20* x + m21*y + m22*z + cz;
+            res[i] = RESULT_OK;
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
 } // class Rotation
@@ -16,6 +16,7 @@ import abfab3d.param.Parameter;
 import abfab3d.param.Vector3dParameter;
 import abfab3d.core.Initializable;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 import abfab3d.core.VecTransform;
 
 import javax.vecmath.Vector3d;
@@ -173,4 +174,37 @@ public class Scale extends BaseTransform implements VecTransform, Initializable
 
     }
 
+    /**
+     @return true for uniform scaling 
+     @noRefGuide
+     */
+    public boolean isSimilarity(){
+        Vector3d s = mp_scale.getValue();
+        return (s.x == s.y && s.y == s.z);
+    }
+
+    /**
+     @noRefGuide
+     */
+    public int inverse_transform(VecArray in, VecArray out) {
+
+        out.set(in);
+        int n = out.size;
+        double 
+            vx[] = out.v[0], 
+            vy[] = out.v[1], 
+            vz[] = out.v[2],
+            scale[] = out.scaleFactor;
+        int res[] = out.result;
+        double s = 1 / averageScale;
+        for(int i = 0; i < n; i++){
+            vx[i] = (vx[i] - cx)/sx + cx;
+            vy[i] = (vy[i] - cy)/sy + cy;
+            vz[i] = (vz[i] - cz)/sz + cz;
+            scale[i] *= s;
+            res[i] = RESULT_OK;
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
 } // class Scale
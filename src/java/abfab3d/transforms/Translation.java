@@ -16,6 +16,7 @@ import abfab3d.core.ResultCodes;
 import abfab3d.param.Parameter;
 import abfab3d.param.Vector3dParameter;
 import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
 
 import javax.vecmath.Vector3d;
 
@@ -110,6 +111,34 @@ public class Translation extends BaseTransform {
 
     }
 
+    /**
+     * @noRefGuide
+     */
+    public boolean isSimilarity(){
+        return true;
+    }
+
+    /**
+     * @noRefGuide
+     */
+    public int inverse_transform(VecArray in, VecArray out) {
+
+        out.set(in);
+        int n = out.size;
+        double 
+            vx[] = out.v[0], 
+            vy[] = out.v[1], 
+            vz[] = out.v[2];
+        int res[] = out.result;
+        for(int i = 0; i < n; i++){
+            vx[i] -= tx;
+            vy[i] -= ty;
+            vz[i] -= tz;
+            res[i] = RESULT_OK;
+        }
+        return ResultCodes.RESULT_OK;
+    }
+
     /**
      * Implement this as a value
      * @return
@@ -0,0 +1,133 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.util;
+
+import static java.lang.Math.PI;
+
+/**
+   fast sin() and cos()
+
+   argument is reduced to the nearest node of table of TABLE_SIZE values of sin and cos
+   and the remainder d (|d| <= PI/TABLE_SIZE) is handled via angle addition formula
+   with short Taylor polynomials of sin(d) and cos(d)
+
+   absolute error is below |x|*2.5e-16 + 3.e-16, the term proportional to |x| comes from the argument reduction
+ */
+public class FastTrig {
+
+    static final int TABLE_SIZE = 1024;
+    static final int TABLE_MASK = TABLE_SIZE-1;
+    static final double SCALE = TABLE_SIZE/(2*PI);
+    static final double STEP = 2*PI/TABLE_SIZE;
+    // adding and subtracting of ROUND rounds double to nearest integer 
+    static final double ROUND = 1.5*(1L << 52);
+    static final double C3 = 1./6, C5 = 1./120, C2 = 1./2, C4 = 1./24, C6 = 1./720;
+
+    static final double SIN[] = new double[TABLE_SIZE];
+    static final double COS[] = new double[TABLE_SIZE];
+    static {
+        // values are calculated in the first octant and extended by symmetry 
+        // to avoid error of i*STEP for large i 
+        int quarter = TABLE_SIZE/4;
+        for(int i = 0; i < TABLE_SIZE; i++){
+            int n = i % quarter;
+            boolean flip = (n > quarter/2);
+            double a = (flip? (quarter - n): n)*STEP;
+            double s = Math.sin(a), c = Math.cos(a);
+            if(flip) { double t = s; s = c; c = t; }
+            switch(i / quarter){
+            default: 
+            case 0: SIN[i] =  s; COS[i] =  c; break;
+            case 1: SIN[i] =  c; COS[i] = -s; break;
+            case 2: SIN[i] = -s; COS[i] = -c; break;
+            case 3: SIN[i] = -c; COS[i] =  s; break;
+            }
+        }
+    }
+
+    /**
+       @return bound of absolute error of sin(x) and cos(x) 
+     */
+    public static double getErrorBound(double x){
+        return Math.abs(x)*2.5e-16 + 3.e-16;
+    }
+
+    public static final double sin(double x){
+
+        double t = x*SCALE;
+        double k = (t + ROUND) - ROUND;
+        double d = (t - k)*STEP;
+        int i = (int)((long)k & TABLE_MASK);
+        double d2 = d*d;
+        double sd = d*(1 - d2*(C3 - d2*C5));
+        double cd = 1 - d2*(C2 - d2*(C4 - d2*C6));
+        return SIN[i]*cd + COS[i]*sd;
+
+    }
+
+    public static final double cos(double x){
+
+        double t = x*SCALE;
+        double k = (t + ROUND) - ROUND;
+        double d = (t - k)*STEP;
+        int i = (int)((long)k & TABLE_MASK);
+        double d2 = d*d;
+        double sd = d*(1 - d2*(C3 - d2*C5));
+        double cd = 1 - d2*(C2 - d2*(C4 - d2*C6));
+        return COS[i]*cd - SIN[i]*sd;
+
+    }
+
+    /**
+       calculates sin and cos of the same argument
+       @param x argument
+       @param sc storage for result sc[0] = sin(x), sc[1] = cos(x)
+     */
+    public static final void sincos(double x, double sc[]){
+
+        double t = x*SCALE;
+        double k = (t + ROUND) - ROUND;
+        double d = (t - k)*STEP;
+        int i = (int)((long)k & TABLE_MASK);
+        double d2 = d*d;
+        double sd = d*(1 - d2*(C3 - d2*C5));
+        double cd = 1 - d2*(C2 - d2*(C4 - d2*C6));
+        double s = SIN[i], c = COS[i];
+        sc[0] = s*cd + c*sd;
+        sc[1] = c*cd - s*sd;
+
+    }
+
+    /**
+       batch version of sincos()
+       @param x array of arguments
+       @param sin storage for sin(x[i])
+       @param cos storage for cos(x[i])
+       @param count count of values to calculate
+     */
+    public static final void sincos(double x[], double sin[], double cos[], int count){
+
+        for(int j = 0; j < count; j++){
+            double t = x[j]*SCALE;
+            double k = (t + ROUND) - ROUND;
+            double d = (t - k)*STEP;
+            int i = (int)((long)k & TABLE_MASK);
+            double d2 = d*d;
+            double sd = d*(1 - d2*(C3 - d2*C5));
+            double cd = 1 - d2*(C2 - d2*(C4 - d2*C6));
+            double s = SIN[i], c = COS[i];
+            sin[j] = s*cd + c*sd;
+            cos[j] = c*cd - s*sd;
+        }
+    }
+}
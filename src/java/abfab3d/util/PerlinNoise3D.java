@@ -33,10 +33,17 @@ import static abfab3d.core.MathUtil.toInterval;
 public class PerlinNoise3D { 
 
     static final boolean DEBUG = false;
+    // max count of values in the table (256MB)
+    static final long MAX_TABLE_SIZE = 1L << 26;
 
     int nx, ny, nz;
     int nxy;
     double grad[];
+
+    // optional table of precalculated noise values 
+    float table[];
+    int tableResolution = 0;
+    int tnx, tny, tnz, tnxy;
     
     /**
        @param nx size of grid in x direction 
@@ -82,11 +89,95 @@ public class PerlinNoise3D {
         return grad;
     }
 
+    /**
+       precalculates periodic table of noise values with given count of samples per grid cell 
+       noise values are trilinearly interpolated from the table 
+       @param resolution count of samples per grid cell, 0 - table is not used
+       @throws RuntimeException if the table would have more than MAX_TABLE_SIZE values 
+     */
+    public void setTableResolution(int resolution){
+
+        if(resolution <= 0){
+            tableResolution = 0;
+            table = null;
+            return;
+        }
+        long size = (long)nx*ny*nz*resolution*resolution*resolution;
+        if(size > MAX_TABLE_SIZE)
+            throw new RuntimeException(fmt("noise table is too large: (%d x %d x %d)*%d^3 values, max: %d",nx,ny,nz,resolution,MAX_TABLE_SIZE));
+        tableResolution = resolution;
+        tnx = nx*resolution;
+        tny = ny*resolution;
+        tnz = nz*resolution;
+        tnxy = tnx*tny;
+        float t[] = new float[tnxy*tnz];
+        double d = 1./resolution;
+        for(int z = 0; z < tnz; z++){
+            for(int y = 0; y < tny; y++){
+                int offset = y*tnx + z*tnxy;
+                for(int x = 0; x < tnx; x++){
+                    t[offset + x] = (float)getExact(x*d, y*d, z*d);
+                }
+            }
+        }
+        table = t;
+    }
+
     /**
        @return noise value 
      */
     public double get(double x,double y,double z){
 
+        if(table != null) 
+            return getFromTable(x, y, z);
+        else 
+            return getExact(x, y, z);
+    }
+
+    /**
+       @return noise value trilinearly interpolated from the table 
+     */
+    final double getFromTable(double x,double y,double z){
+
+        x = toInterval(x,nx)*tableResolution;
+        y = toInterval(y,ny)*tableResolution;
+        z = toInterval(z,nz)*tableResolution;
+        
+        int 
+            ix = (int)x,
+            iy = (int)y,
+            iz = (int)z;
+        double 
+            dx = x - ix,
+            dy = y - iy,
+            dz = z - iz;
+        // toInterval() may return the interval end because of rounding
+        if(ix >= tnx) ix -= tnx;
+        if(iy >= tny) iy -= tny;
+        if(iz >= tnz) iz -= tnz;
+        int 
+            ix1 = (ix+1 < tnx)? ix+1: 0,
+            iy1 = (iy+1 < tny)? (iy+1)*tnx: 0,
+            iz1 = (iz+1 < tnz)? (iz+1)*tnxy: 0;
+        iy *= tnx;
+        iz *= tnxy;
+
+        float t[] = table;
+        double 
+            v00 = t[ix + iy + iz]   + dx*(t[ix1 + iy + iz]   - t[ix + iy + iz]),
+            v10 = t[ix + iy1 + iz]  + dx*(t[ix1 + iy1 + iz]  - t[ix + iy1 + iz]),
+            v01 = t[ix + iy + iz1]  + dx*(t[ix1 + iy + iz1]  - t[ix + iy + iz1]),
+            v11 = t[ix + iy1 + iz1] + dx*(t[ix1 + iy1 + iz1] - t[ix + iy1 + iz1]),
+            v0 = v00 + dy*(v10 - v00),
+            v1 = v01 + dy*(v11 - v01);
+        return v0 + dz*(v1 - v0);
+    }
+
+    /**
+       @return exact noise value 
+     */
+    public double getExact(double x,double y,double z){
+
         //if(DEBUG) printf("%5.2f, %5.2f, %5.2f )\n", x, y, z);
         x = toInterval(x,nx);
         y = toInterval(y,ny);
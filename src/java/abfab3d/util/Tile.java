@@ -0,0 +1,58 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.util;
+
+import static abfab3d.core.Output.fmt;
+
+/**
+   rectangular block of grid voxels [xmin,xmax] x [ymin,ymax] x [zmin,zmax] to be processed by a thread. 
+   All bounds are inclusive. 
+*/
+public class Tile {
+
+    public int xmin, xmax, ymin, ymax, zmin, zmax;
+    
+    public Tile(int xmin, int xmax, int ymin, int ymax, int zmin, int zmax){
+
+        this.xmin = xmin;
+        this.xmax = xmax;
+        this.ymin = ymin;
+        this.ymax = ymax;
+        this.zmin = zmin;
+        this.zmax = zmax;
+    }
+
+    public final int getSizeX(){
+        return xmax - xmin + 1;
+    }
+
+    public final int getSizeY(){
+        return ymax - ymin + 1;
+    }
+
+    public final int getSizeZ(){
+        return zmax - zmin + 1;
+    }
+
+    /**
+       @return true if tile has no voxels 
+     */
+    public final boolean isEmpty(){
+        return (xmax < xmin || ymax < ymin || zmax < zmin);
+    }
+
+    public String toString(){
+        return fmt("Tile(%d %d %d %d %d %d)", xmin, xmax, ymin, ymax, zmin, zmax);
+    }
+
+}
@@ -0,0 +1,494 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import abfab3d.grid.util.ExecutionStoppedException;
+
+import static abfab3d.core.Output.printf;
+
+
+/**
+   shared scheduler for multithreaded operations 
+
+   All jobs are executed in single long lived ForkJoinPool. Size of the pool is the global cap of 
+   concurrently running threads and is given by AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY. 
+   Concurrent jobs share the pool instead of creating their own threads. 
+
+   Two kinds of jobs are supported 
+   <ul>
+   <li>runTiles() - 3D domain is recursively split into tiles, idle threads steal tiles from busy ones. 
+   If job requests fewer threads than the pool has, the tiles are processed by requested count of workers</li>
+   <li>runWorkers() - legacy workers which pull work from their own queue</li>
+   </ul>
+
+   Each job can be cancelled. Job is cancelled if its thread was interrupted, if Job.cancel() was called 
+   or if one of its tasks failed. Long running code should call checkCancelled() which works the same 
+   way in the pool threads and in ordinary threads. 
+ */
+public class TileScheduler {
+
+    static final boolean DEBUG = false;
+
+    static ForkJoinPool sm_pool;
+    // job executed by the current thread 
+    static final ThreadLocal<Job> sm_currentJob = new ThreadLocal<Job>();
+
+    /**
+       creates processor of tiles. It is called once for each thread which works on the job at the same time
+     */
+    public interface TileProcessorFactory {
+        public TileProcessor makeProcessor();
+    }
+
+    /**
+       processor of single tile. 
+       processor is used by one thread at a time, so it may hold storage for calculations 
+     */
+    public interface TileProcessor {
+        public void processTile(Tile tile);
+    }
+
+    /**
+       @return shared pool. The pool is recreated if the global max thread count was changed 
+     */
+    public static synchronized ForkJoinPool getPool(){
+
+        int count = getMaxThreadCount();
+        if(sm_pool == null || sm_pool.getParallelism() != count){
+            if(sm_pool != null) 
+                sm_pool.shutdown(); // running tasks will be completed 
+            if(DEBUG) printf("TileScheduler new pool: %d threads\n", count);
+            sm_pool = new ForkJoinPool(count);
+        }
+        return sm_pool;
+    }
+
+    /**
+       @return global cap of concurrently running threads 
+     */
+    public static int getMaxThreadCount(){
+
+        int count = ((Number)AbFab3DGlobals.get(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY)).intValue();
+        return Math.max(1, count);
+    }
+
+    /**
+       @return job executed by current thread or null 
+     */
+    public static Job getCurrentJob(){
+        return sm_currentJob.get();
+    }
+
+    /**
+       @return true if the current job was cancelled or current thread was interrupted 
+     */
+    public static boolean isCancelled(){
+
+        Job job = sm_currentJob.get();
+        if(job != null) 
+            return job.isCancelled();
+        return Thread.currentThread().isInterrupted();
+    }
+
+    /**
+       throws ExecutionStoppedException if the current job was cancelled or current thread was interrupted 
+     */
+    public static void checkCancelled(){
+        if(isCancelled())
+            throw new ExecutionStoppedException();
+    }
+
+    /**
+       process all tiles of the domain 
+       @param domain the whole domain to process 
+       @param tileX max tile size in x direction 
+       @param tileY max tile size in y direction 
+       @param tileZ max tile size in z direction 
+       @param threadCount max count of threads to use. If threadCount <= 1 the tiles are processed in the calling thread 
+       @param factory makes tile processors 
+       @throws ExecutionStoppedException if the job was cancelled 
+     */
+    public static void runTiles(Tile domain, int tileX, int tileY, int tileZ, int threadCount, TileProcessorFactory factory){
+
+        if(domain.isEmpty())
+            return;
+
+        final Job job = new Job();
+        final TilesContext context = new TilesContext(job, tileX, tileY, tileZ, factory);
+        
+        if(threadCount <= 1) {
+            Job prevJob = sm_currentJob.get();
+            sm_currentJob.set(job);
+            try {
+                TileProcessor processor = factory.makeProcessor();
+                context.processSequential(domain, processor);
+            } finally {
+                sm_currentJob.set(prevJob);
+            }
+        } else if(threadCount < getMaxThreadCount()){
+            // stealing would spread the tiles over the whole pool 
+            // limited count of workers take tiles from the common list instead 
+            final ArrayList<Tile> tiles = new ArrayList<Tile>();
+            context.collectTiles(domain, tiles);
+            final AtomicInteger next = new AtomicInteger(0);
+            WorkerTask tasks[] = new WorkerTask[Math.min(threadCount, tiles.size())];
+            for(int i = 0; i < tasks.length; i++){
+                tasks[i] = new WorkerTask(job, new Runnable(){
+                        public void run(){
+                            TileProcessor processor = context.takeProcessor();
+                            try {
+                                int k;
+                                while(!job.isCancelled() && (k = next.getAndIncrement()) < tiles.size())
+                                    processor.processTile(tiles.get(k));
+                            } finally {
+                                context.releaseProcessor(processor);
+                            }
+                        }
+                    });
+            }
+            invoke(job, new TasksGroup(tasks));
+        } else {
+            invoke(job, new TileTask(context, domain));
+        }
+        job.finish();
+    }
+
+    /**
+       runs workers concurrently in the shared pool and waits for completion. 
+       Workers are expected to take work from a common queue. 
+       Workers may be executed by fewer threads than count of workers, 
+       therefore workers should not wait for each other. 
+       @throws ExecutionStoppedException if the job was cancelled 
+     */
+    public static void runWorkers(Runnable workers[]){
+
+        final Job job = new Job();
+        if(workers.length == 1){
+            Job prevJob = sm_currentJob.get();
+            sm_currentJob.set(job);
+            try {
+                workers[0].run();
+            } finally {
+                sm_currentJob.set(prevJob);
+            }
+        } else {
+            WorkerTask tasks[] = new WorkerTask[workers.length];
+            for(int i = 0; i < workers.length; i++)
+                tasks[i] = new WorkerTask(job, workers[i]);
+            invoke(job, new TasksGroup(tasks));
+        }
+        job.finish();
+    }
+
+    /**
+       starts the worker in the shared pool and returns without waiting. 
+       The worker runs as a job nested in the current job, it is cancelled together with the current job 
+       or by cancel() of the returned job. 
+       Worker which waits for the caller should do it via ForkJoinPool.managedBlock() 
+       @return job of the worker 
+     */
+    public static Job start(Runnable worker){
+
+        Job job = new Job();
+        job.task = new WorkerTask(job, worker);
+        getPool().execute(job.task);
+        return job;
+    }
+
+    /**
+       invokes the task in the pool or in the current pool thread 
+       waiting for the pool clears interrupted flag of the calling thread, 
+       so interrupt of the waiting thread cancels the job explicitly 
+     */
+    static void invoke(Job job, ForkJoinTask<?> task){
+
+        if(job.isCancelled())
+            return;
+        if(ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+            return;
+        }
+        getPool().execute(task);
+        try {
+            task.get();
+        } catch(InterruptedException e){
+            job.cancel();
+            task.quietlyJoin();
+            Thread.currentThread().interrupt();
+            if(task.isCompletedAbnormally())
+                rethrow(task.getException());
+        } catch(ExecutionException e){
+            rethrow(e.getCause());
+        }
+    }
+
+    static void rethrow(Throwable e){
+
+        if(e instanceof RuntimeException) 
+            throw (RuntimeException)e;
+        if(e instanceof Error) 
+            throw (Error)e;
+        throw new RuntimeException(e);
+    }
+
+    /**
+       cancellable job. 
+       Nested job is cancelled together with the job which started it
+     */
+    public static class Job {
+
+        // job which started this job 
+        Job parent;
+        // thread which started this job 
+        Thread owner;
+        // task of job made by start() 
+        ForkJoinTask<?> task;
+        volatile boolean cancelled = false;
+
+        Job(){
+            parent = sm_currentJob.get();
+            owner = Thread.currentThread();
+        }
+
+        public void cancel(){
+            cancelled = true;
+        }
+
+        public boolean isCancelled(){
+
+            if(cancelled || owner.isInterrupted()) 
+                return true;
+            if(parent != null) 
+                return parent.isCancelled();
+            return false;
+        }
+
+        /**
+           waits for completion of the task of job made by start(). Exceptions of the task are not thrown 
+         */
+        public void join(){
+            if(task != null)
+                task.quietlyJoin();
+        }
+
+        /**
+           called by owner after all tasks are completed 
+         */
+        void finish(){
+            if(isCancelled())
+                throw new ExecutionStoppedException();
+        }
+    }
+
+    /**
+       common data of all tasks of runTiles() 
+     */
+    static class TilesContext {
+
+        Job job;
+        int tileX, tileY, tileZ;
+        TileProcessorFactory factory;
+        // idle processors, each processor is used by one thread at a time 
+        // pool threads are shared and do not keep processors after the job is done 
+        ConcurrentLinkedQueue<TileProcessor> processors = new ConcurrentLinkedQueue<TileProcessor>();
+
+        TilesContext(Job job, int tileX, int tileY, int tileZ, TileProcessorFactory factory){
+            this.job = job;
+            this.tileX = Math.max(1,tileX);
+            this.tileY = Math.max(1,tileY);
+            this.tileZ = Math.max(1,tileZ);
+            this.factory = factory;
+        }
+
+        /**
+           @return idle processor or new one if all processors are busy 
+         */
+        TileProcessor takeProcessor(){
+            TileProcessor processor = processors.poll();
+            if(processor == null)
+                processor = factory.makeProcessor();
+            return processor;
+        }
+
+        void releaseProcessor(TileProcessor processor){
+            processors.add(processor);
+        }
+
+        /**
+           @return true if tile needs to be split 
+         */
+        final boolean isLarge(Tile tile){
+            return (tile.getSizeX() > tileX || tile.getSizeY() > tileY || tile.getSizeZ() > tileZ);
+        }
+
+        /**
+           splits tile in two halves along direction with largest count of tiles. 
+           Split position is aligned to the tile size 
+         */
+        final Tile[] split(Tile tile){
+            
+            int cx = (tile.getSizeX() + tileX - 1)/tileX;
+            int cy = (tile.getSizeY() + tileY - 1)/tileY;
+            int cz = (tile.getSizeZ() + tileZ - 1)/tileZ;
+            
+            Tile t0, t1;
+            if(cx >= cy && cx >= cz){
+                int xm = tile.xmin + (cx/2)*tileX;
+                t0 = new Tile(tile.xmin, xm-1, tile.ymin, tile.ymax, tile.zmin, tile.zmax);
+                t1 = new Tile(xm, tile.xmax, tile.ymin, tile.ymax, tile.zmin, tile.zmax);
+            } else if(cy >= cz){
+                int ym = tile.ymin + (cy/2)*tileY;
+                t0 = new Tile(tile.xmin, tile.xmax, tile.ymin, ym-1, tile.zmin, tile.zmax);
+                t1 = new Tile(tile.xmin, tile.xmax, ym, tile.ymax, tile.zmin, tile.zmax);
+            } else {
+                int zm = tile.zmin + (cz/2)*tileZ;
+                t0 = new Tile(tile.xmin, tile.xmax, tile.ymin, tile.ymax, tile.zmin, zm-1);
+                t1 = new Tile(tile.xmin, tile.xmax, tile.ymin, tile.ymax, zm, tile.zmax);
+            }
+            return new Tile[]{t0, t1};
+        }
+
+        /**
+           splits tile into list of small tiles in the order of sequential processing 
+         */
+        void collectTiles(Tile tile, ArrayList<Tile> tiles){
+
+            if(isLarge(tile)){
+                Tile t[] = split(tile);
+                collectTiles(t[0], tiles);
+                collectTiles(t[1], tiles);
+            } else {
+                tiles.add(tile);
+            }
+        }
+
+        /**
+           process tile in current thread 
+         */
+        void processSequential(Tile tile, TileProcessor processor){
+
+            if(job.isCancelled())
+                return;
+            if(isLarge(tile)){
+                Tile t[] = split(tile);
+                processSequential(t[0], processor);
+                processSequential(t[1], processor);
+            } else {
+                processor.processTile(tile);
+            }
+        }
+
+        void process(Tile tile){
+
+            Job prevJob = sm_currentJob.get();
+            sm_currentJob.set(job);
+            TileProcessor processor = takeProcessor();
+            try {
+                processor.processTile(tile);
+            } catch(RuntimeException e){
+                job.cancel();
+                throw e;
+            } finally {
+                releaseProcessor(processor);
+                sm_currentJob.set(prevJob);
+            }            
+        }
+    }
+
+    /**
+       recursive task which splits the tile until it becomes small enough 
+     */
+    static class TileTask extends RecursiveAction {
+
+        static final long serialVersionUID = 1L;
+
+        TilesContext context;
+        Tile tile;
+
+        TileTask(TilesContext context, Tile tile){
+            this.context = context;
+            this.tile = tile;
+        }
+
+        protected void compute(){
+
+            if(context.job.isCancelled())
+                return;
+            if(context.isLarge(tile)){
+                Tile t[] = context.split(tile);
+                invokeAll(new TileTask(context, t[0]), new TileTask(context, t[1]));
+            } else {
+                context.process(tile);
+            }
+        }
+    }
+
+    /**
+       task to run single legacy worker 
+     */
+    static class WorkerTask extends RecursiveAction {
+
+        static final long serialVersionUID = 1L;
+
+        Job job;
+        Runnable worker;
+        
+        WorkerTask(Job job, Runnable worker){
+            this.job = job;
+            this.worker = worker;
+        }
+
+        protected void compute(){
+
+            if(job.isCancelled())
+                return;
+            Job prevJob = sm_currentJob.get();
+            sm_currentJob.set(job);
+            try {
+                worker.run();
+            } catch(RuntimeException e){
+                job.cancel();
+                throw e;
+            } finally {
+                sm_currentJob.set(prevJob);
+            }            
+        }
+    }
+
+    /**
+       task to run group of tasks concurrently 
+     */
+    static class TasksGroup extends RecursiveAction {
+
+        static final long serialVersionUID = 1L;
+
+        RecursiveAction tasks[];
+
+        TasksGroup(RecursiveAction tasks[]){
+            this.tasks = tasks;
+        }
+
+        protected void compute(){
+            invokeAll(tasks);
+        }
+    }
+
+} // class TileScheduler 
@@ -13,6 +13,7 @@
 package abfab3d.util;
 
 import javax.vecmath.Vector3d;
+import java.util.ArrayList;
 
 import abfab3d.core.Bounds;
 import abfab3d.core.TriangleCollector;
@@ -31,6 +32,10 @@ import static abfab3d.core.MathUtil.clamp;
 
    Each triangle of the mesh is rasterized in the plane orthogonal to the best of 3 possible projections (USE_BEAST_AXIS = true)
 
+   If thread count is more than 1, triangles are stored and rasterized in parallel when points are requested. 
+   Triangles are split into consecutive chunks, each chunk is rasterized into its own set of points 
+   and the sets are concatenated in chunks order, so points are the same as in single thread case. 
+
    @author Vladimir Bulatov
  */
 public class TriangleMeshSurfaceBuilder implements TriangleCollector {
@@ -38,6 +43,9 @@ public class TriangleMeshSurfaceBuilder implements TriangleCollector {
     static final boolean DEBUG = false;
     static final double TOL = 1.e-2;
     static final double HALF = 0.5; // half voxel offset to the center of voxel
+    // min and max count of triangles in the chunk for MT rasterization 
+    static final int MIN_CHUNK_SIZE = 1000;
+    static final int MAX_CHUNK_SIZE = 5000;
 
     protected double m_voxelSize;
     protected Bounds m_bounds;
@@ -60,6 +68,14 @@ public class TriangleMeshSurfaceBuilder implements TriangleCollector {
     protected boolean m_sortPoints = false;
 
     PointSet m_points;
+
+    protected int m_threadCount = 1;
+    // coordinates of stored triangles for MT rasterization 
+    // triangles are rasterized when storage is full, so storage does not grow with the mesh 
+    protected double m_triCoord[];
+    protected int m_storedCount = 0;
+    // points of rasterized chunks in the order of triangles 
+    protected ArrayList<PointSet> m_chunkPoints;
     
 
     /**
@@ -86,10 +102,18 @@ public class TriangleMeshSurfaceBuilder implements TriangleCollector {
         m_sortPoints = value;
     }
 
+    /**
+       set count of threads to rasterize triangles. Should be called before initialize() 
+     */
+    public void setThreadCount(int threadCount) {
+        m_threadCount = threadCount;
+    }
+
     /**
        @return count of points 
      */
     public int getPointCount(){
+        makePoints();
         return m_points.size();
     }
 
@@ -121,6 +145,7 @@ public class TriangleMeshSurfaceBuilder implements TriangleCollector {
        
      */
     private void getPointsInGridUnits(double pntx[],double pnty[],double pntz[]){
+        makePoints();
         if(m_sortPoints){
             // do point sorting in the inreased Y-coordinate wih grid precision 
             getPointsInGridUnitsSorted(pntx, pnty, pntz, m_points, m_ny);
@@ -203,11 +228,19 @@ public class TriangleMeshSurfaceBuilder implements TriangleCollector {
         m_zmin = m_bounds.zmin;
         m_scale = 1/m_voxelSize;
 
-        if(m_estimatedPointCounts <= 0) {
-            // unknow estimation  use surface of the bounding box
-            m_estimatedPointCounts = (m_nx*m_ny + m_ny*m_nz + m_nz*m_nx)*2;
+        if(m_threadCount > 1){
+            // points are made by chunks 
+            m_triCoord = new double[9*MAX_CHUNK_SIZE*4*m_threadCount];
+            m_storedCount = 0;
+            m_chunkPoints = new ArrayList<PointSet>();
+            m_points = new PointSetArray(1);
+        } else {
+            if(m_estimatedPointCounts <= 0) {
+                // unknow estimation  use surface of the bounding box
+                m_estimatedPointCounts = (m_nx*m_ny + m_ny*m_nz + m_nz*m_nx)*2;
+            }
+            m_points = new PointSetArray(m_estimatedPointCounts);
         }
-        m_points = new PointSetArray(m_estimatedPointCounts);
 
         // add unused point to have index start from 1
         m_points.addPoint(0, 0, 0);
@@ -238,6 +271,8 @@ public class TriangleMeshSurfaceBuilder implements TriangleCollector {
        
      */
     public boolean addTri(Vector3d p0, Vector3d p1, Vector3d p2){
+        if(m_triCoord != null)
+            return storeTri(p0,p1,p2);
         if(m_useBestPlane) 
             return addTri_bestPlane(p0,p1,p2);
         else 
@@ -363,6 +398,78 @@ public class TriangleMeshSurfaceBuilder implements TriangleCollector {
         return true;
     }
 
+    /**
+       store triangle for MT rasterization 
+     */
+    protected boolean storeTri(Vector3d p0, Vector3d p1, Vector3d p2){
+
+        int offset = 9*m_storedCount;
+        double c[] = m_triCoord;
+        c[offset  ] = p0.x; c[offset+1] = p0.y; c[offset+2] = p0.z;
+        c[offset+3] = p1.x; c[offset+4] = p1.y; c[offset+5] = p1.z;
+        c[offset+6] = p2.x; c[offset+7] = p2.y; c[offset+8] = p2.z;
+        m_storedCount++;
+        m_triCount++;
+        if(offset + 18 > c.length)
+            rasterizeStored();
+        return true;
+    }
+
+    /**
+       rasterize stored triangles in parallel and empty the storage 
+     */
+    protected void rasterizeStored(){
+
+        int tcount = m_storedCount;
+        int chunkSize = max(MIN_CHUNK_SIZE, (tcount + 4*m_threadCount - 1)/(4*m_threadCount));
+        SliceManager slicer = new SliceManager(tcount, chunkSize);
+        int chunkCount = slicer.getSliceCount();
+        TriangleMeshSurfaceBuilder chunks[] = new TriangleMeshSurfaceBuilder[chunkCount];
+
+        if(chunkCount > 0){
+            Runnable workers[] = new Runnable[min(m_threadCount, chunkCount)];
+            for(int i = 0; i < workers.length; i++){
+                workers[i] = new ChunkRasterizer(slicer, chunkSize, chunks);
+            }
+            TileScheduler.runWorkers(workers);
+        }
+        for(int i = 0; i < chunkCount; i++){
+            m_chunkPoints.add(chunks[i].m_points);
+        }
+        m_storedCount = 0;
+    }
+
+    /**
+       rasterize remaining stored triangles and concatenate points of all chunks 
+     */
+    protected void makePoints(){
+
+        if(m_triCoord == null) 
+            return;
+        long t0 = time();
+        rasterizeStored();
+        // first point of each chunk is unused 
+        int pcount = 1;
+        for(int i = 0; i < m_chunkPoints.size(); i++){
+            pcount += m_chunkPoints.get(i).size()-1;
+        }
+        PointSetArray points = new PointSetArray(pcount);
+        points.addPoint(0, 0, 0);
+        Vector3d pnt = new Vector3d();
+        for(int i = 0; i < m_chunkPoints.size(); i++){
+            PointSet cp = m_chunkPoints.get(i);
+            for(int k = 1; k < cp.size(); k++){
+                cp.getPoint(k, pnt);
+                points.addPoint(pnt.x,pnt.y,pnt.z);
+            }
+            m_chunkPoints.set(i, null);
+        }
+        if(DEBUG) printf("TriangleMeshSurfaceBuilder.makePoints() tris: %d points: %d chunks: %d time: %d ms\n", m_triCount, pcount, m_chunkPoints.size(), time() - t0);
+        m_points = points;
+        m_triCoord = null;
+        m_chunkPoints = null;
+    }
+
     final void toGrid(Vector3d v){
         v.x = toGridX(v.x);
         v.y = toGridY(v.y);
@@ -389,6 +496,53 @@ public class TriangleMeshSurfaceBuilder implements TriangleCollector {
     }
 
         
+    /**
+       rasterizes chunks of stored triangles into separate point sets 
+     */
+    class ChunkRasterizer implements Runnable {
+
+        SliceManager slicer;
+        int chunkSize;
+        TriangleMeshSurfaceBuilder chunks[];
+
+        ChunkRasterizer(SliceManager slicer, int chunkSize, TriangleMeshSurfaceBuilder chunks[]){
+            this.slicer = slicer;
+            this.chunkSize = chunkSize;
+            this.chunks = chunks;
+        }
+
+        public void run(){
+
+            Vector3d 
+                p0 = new Vector3d(),
+                p1 = new Vector3d(),
+                p2 = new Vector3d();
+            double c[] = m_triCoord;
+
+            while(true){
+                Slice slice = slicer.getNextSlice();
+                if(slice == null)
+                    break;
+                TileScheduler.checkCancelled();
+
+                TriangleMeshSurfaceBuilder builder = new TriangleMeshSurfaceBuilder(m_bounds);
+                builder.m_useBestPlane = m_useBestPlane;
+                builder.m_useVertices = m_useVertices;
+                builder.m_estimatedPointCounts = 8*(slice.smax - slice.smin);
+                builder.initialize();
+
+                for(int t = slice.smin; t < slice.smax; t++){
+                    int offset = 9*t;
+                    p0.set(c[offset  ], c[offset+1], c[offset+2]);
+                    p1.set(c[offset+3], c[offset+4], c[offset+5]);
+                    p2.set(c[offset+6], c[offset+7], c[offset+8]);
+                    builder.addTri(p0, p1, p2);
+                }
+                chunks[slice.smin/chunkSize] = builder;
+            }
+        }
+    } // class ChunkRasterizer 
+
     class VoxelRenderer implements TriangleRenderer.PixelRenderer {
 
         double m_ax, m_ay, m_az;
@@ -0,0 +1,161 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.bench;
+
+import abfab3d.core.AttributeGrid;
+import abfab3d.core.Bounds;
+import abfab3d.core.DataSource;
+import abfab3d.core.GridDataChannel;
+import abfab3d.core.GridDataDesc;
+
+import abfab3d.datasources.Box;
+import abfab3d.datasources.Intersection;
+import abfab3d.datasources.Sphere;
+import abfab3d.datasources.Torus;
+import abfab3d.datasources.Union;
+import abfab3d.datasources.VolumePatterns;
+
+import abfab3d.grid.ArrayAttributeGridByte;
+import abfab3d.grid.DensityMakerFromDistanceChannel;
+import abfab3d.grid.op.GridMaker;
+
+import abfab3d.io.output.MeshMakerMT;
+
+import abfab3d.mesh.IndexedTriangleSetBuilder;
+
+import abfab3d.util.AbFab3DGlobals;
+
+import static abfab3d.core.Output.fmt;
+import static abfab3d.core.Units.MM;
+
+/**
+   shapes and grids used by benchmarks
+ */
+public class BenchmarkUtil {
+
+    // half size of benchmark shapes
+    public static final double SIZE = 10*MM;
+
+    /**
+       sets global cap of threads used by multithreaded operations
+     */
+    public static void setThreadCount(int threadCount){
+        AbFab3DGlobals.put(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY, threadCount);
+    }
+
+    /**
+       @return bounds of benchmark shapes
+     */
+    public static Bounds getBounds(){
+        double s = 1.05*SIZE;
+        return new Bounds(-s, s, -s, s, -s, s);
+    }
+
+    /**
+       @param gridSize count of voxels along side of bounds
+       @return voxel size for given grid size
+     */
+    public static double getVoxelSize(int gridSize){
+        Bounds b = getBounds();
+        return (b.xmax - b.xmin)/gridSize;
+    }
+
+    /**
+       representative data source trees
+       @param name one of "sphere", "gyroid", "union"
+     */
+    public static DataSource makeShape(String name){
+
+        if(name.equals("sphere")) {
+            return new Sphere(0.9*SIZE);
+        } else if(name.equals("gyroid")) {
+            Intersection shape = new Intersection(new Sphere(SIZE), new VolumePatterns.Gyroid(SIZE/2, 0.05*SIZE));
+            shape.setBlend(0.02*SIZE);
+            return shape;
+        } else if(name.equals("union")) {
+            Union shape = new Union();
+            shape.setBlend(0.05*SIZE);
+            int n = 3;
+            double r = SIZE/(2*n);
+            for(int i = 0; i < n; i++){
+                for(int j = 0; j < n; j++){
+                    double x = -SIZE + (2*i+1)*r, y = -SIZE + (2*j+1)*r;
+                    shape.add(new Sphere(x, y, 0, 0.9*r));
+                    shape.add(new Torus(x, y, 0.5*SIZE, 0.7*r, 0.2*r));
+                }
+            }
+            shape.add(new Box(0, 0, -0.5*SIZE, 2*SIZE, 2*SIZE, 0.2*SIZE));
+            return shape;
+        }
+        throw new IllegalArgumentException(fmt("unknown shape: %s", name));
+    }
+
+    /**
+       @return empty grid with 8 bit distance channel
+     */
+    public static AttributeGrid makeDistanceGrid(int gridSize){
+
+        double vs = getVoxelSize(gridSize);
+        AttributeGrid grid = new ArrayAttributeGridByte(getBounds(), vs, vs);
+        double maxDist = 2*vs;
+        grid.setDataDesc(new GridDataDesc(new GridDataChannel(GridDataChannel.DISTANCE, "dist", 8, 0, -maxDist, maxDist)));
+        return grid;
+    }
+
+    /**
+       @return distance grid of the shape
+     */
+    public static AttributeGrid makeGrid(String shape, int gridSize){
+
+        AttributeGrid grid = makeDistanceGrid(gridSize);
+        GridMaker gm = new GridMaker();
+        gm.setSource(makeShape(shape));
+        gm.makeGrid(grid);
+        return grid;
+    }
+
+    /**
+       @return non decimated mesh of the grid
+     */
+    public static IndexedTriangleSetBuilder makeMesh(AttributeGrid grid){
+
+        MeshMakerMT mm = new MeshMakerMT();
+        mm.setMaxDecimationCount(0);
+        mm.setDensityMaker(new DensityMakerFromDistanceChannel(grid.getDataChannel(), 0., grid.getVoxelSize()));
+        IndexedTriangleSetBuilder its = new IndexedTriangleSetBuilder();
+        mm.makeMesh(grid, its);
+        return its;
+    }
+
+    /**
+       @return density grid of ball with subvoxel resolution 255
+     */
+    public static AttributeGrid makeDensityBall(int gridSize){
+
+        double vs = getVoxelSize(gridSize);
+        AttributeGrid grid = new ArrayAttributeGridByte(getBounds(), vs, vs);
+        double r = 0.9*SIZE;
+        double c = -getBounds().xmin;
+        for(int y = 0; y < gridSize; y++){
+            for(int x = 0; x < gridSize; x++){
+                for(int z = 0; z < gridSize; z++){
+                    double px = (x + 0.5)*vs - c, py = (y + 0.5)*vs - c, pz = (z + 0.5)*vs - c;
+                    double d = (Math.sqrt(px*px + py*py + pz*pz) - r)/vs;
+                    double density = Math.max(0., Math.min(1., 0.5 - d));
+                    grid.setAttribute(x, y, z, (long)(255*density + 0.5));
+                }
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,100 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import abfab3d.core.AttributeGrid;
+
+import abfab3d.grid.ArrayAttributeGridInt;
+import abfab3d.grid.op.ClosestPointIndexerMT;
+import abfab3d.grid.op.DistanceTransformMultiStep;
+
+/**
+   distance transforms: DistanceTransformMultiStep of density grid and ClosestPointIndexerMT of point cloud
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DistanceBenchmark {
+
+    @Param({"64", "128"})
+    public int gridSize;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    AttributeGrid densityGrid;
+    AttributeGrid indexGrid;
+    double points[][];
+    double pointsOrig[][];
+
+    @Setup(Level.Trial)
+    public void setupTrial(){
+
+        BenchmarkUtil.setThreadCount(threads);
+        densityGrid = BenchmarkUtil.makeDensityBall(gridSize);
+        // points on the surface of the ball, element 0 is ignored
+        int count = 20*gridSize*gridSize;
+        pointsOrig = new double[3][count+1];
+        double r = 0.9*BenchmarkUtil.SIZE;
+        double golden = Math.PI*(3 - Math.sqrt(5));
+        for(int i = 1; i <= count; i++){
+            double z = 1 - (2.*i)/count;
+            double s = Math.sqrt(1 - z*z);
+            pointsOrig[0][i] = r*s*Math.cos(i*golden);
+            pointsOrig[1][i] = r*s*Math.sin(i*golden);
+            pointsOrig[2][i] = r*z;
+        }
+    }
+
+    // points are modified by calculation
+    @Setup(Level.Invocation)
+    public void setupInvocation(){
+        points = new double[3][];
+        for(int k = 0; k < 3; k++)
+            points[k] = pointsOrig[k].clone();
+        double vs = BenchmarkUtil.getVoxelSize(gridSize);
+        indexGrid = new ArrayAttributeGridInt(BenchmarkUtil.getBounds(), vs, vs);
+    }
+
+    @Benchmark
+    public AttributeGrid distanceTransformMultiStep(){
+        double maxDist = 0.3*BenchmarkUtil.SIZE;
+        DistanceTransformMultiStep dt = new DistanceTransformMultiStep(255, maxDist, maxDist);
+        return dt.execute(densityGrid);
+    }
+
+    @Benchmark
+    public AttributeGrid closestPointIndexer(){
+        double maxDist = 0.3*BenchmarkUtil.SIZE;
+        ClosestPointIndexerMT.getClosestPoints(points, maxDist, 2.7, indexGrid, threads);
+        return indexGrid;
+    }
+}
@@ -0,0 +1,72 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import abfab3d.core.AttributeGrid;
+import abfab3d.core.DataSource;
+
+import abfab3d.grid.op.GridMaker;
+
+/**
+   voxelization of data source trees by GridMaker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GridMakerBenchmark {
+
+    @Param({"sphere", "gyroid", "union"})
+    public String shape;
+
+    @Param({"128", "256"})
+    public int gridSize;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    AttributeGrid grid;
+    DataSource source;
+
+    @Setup
+    public void setup(){
+        BenchmarkUtil.setThreadCount(threads);
+        grid = BenchmarkUtil.makeDistanceGrid(gridSize);
+        source = BenchmarkUtil.makeShape(shape);
+    }
+
+    @Benchmark
+    public AttributeGrid makeGrid(){
+        GridMaker gm = new GridMaker();
+        gm.setThreadCount(threads);
+        gm.setSource(source);
+        gm.makeGrid(grid);
+        return grid;
+    }
+}
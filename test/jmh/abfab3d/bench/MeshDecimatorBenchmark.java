@@ -0,0 +1,95 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import abfab3d.mesh.IndexedTriangleSetBuilder;
+import abfab3d.mesh.MeshDecimator;
+import abfab3d.mesh.MeshDecimatorHeap;
+import abfab3d.mesh.MeshDecimatorMT;
+import abfab3d.mesh.WingedEdgeTriangleMesh;
+
+/**
+   decimation of isosurface mesh to half of its faces by MeshDecimator, MeshDecimatorHeap and MeshDecimatorMT
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MeshDecimatorBenchmark {
+
+    @Param({"128", "256"})
+    public int gridSize;
+
+    // random - MeshDecimator, heap - MeshDecimatorHeap, mt - MeshDecimatorMT
+    @Param({"random", "heap", "mt"})
+    public String decimator;
+
+    // count of threads of MeshDecimatorMT
+    @Param({"4"})
+    public int threads;
+
+    double vertices[];
+    int faces[];
+    double maxError;
+    WingedEdgeTriangleMesh mesh;
+
+    @Setup(Level.Trial)
+    public void setupTrial(){
+        BenchmarkUtil.setThreadCount(threads);
+        IndexedTriangleSetBuilder its = BenchmarkUtil.makeMesh(BenchmarkUtil.makeGrid("gyroid", gridSize));
+        vertices = its.getVertices();
+        faces = its.getFaces();
+        double vs = BenchmarkUtil.getVoxelSize(gridSize);
+        maxError = 0.1*vs*vs;
+    }
+
+    // decimation modifies the mesh, each invocation needs fresh mesh
+    @Setup(Level.Invocation)
+    public void setupInvocation(){
+        mesh = new WingedEdgeTriangleMesh(vertices, faces);
+    }
+
+    @Benchmark
+    public int decimate(){
+        MeshDecimator md;
+        if(decimator.equals("heap")) {
+            md = new MeshDecimatorHeap();
+        } else if(decimator.equals("mt")) {
+            MeshDecimatorMT mdmt = new MeshDecimatorMT();
+            mdmt.setThreadCount(threads);
+            md = mdmt;
+        } else {
+            md = new MeshDecimator();
+        }
+        md.setMaxCollapseError(maxError);
+        md.processMesh(mesh, mesh.getTriangleCount()/2);
+        return mesh.getTriangleCount();
+    }
+}
@@ -0,0 +1,85 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import abfab3d.core.AttributeGrid;
+
+import abfab3d.grid.DensityMakerFromDistanceChannel;
+
+import abfab3d.io.output.MeshMakerMT;
+
+import abfab3d.mesh.IndexedTriangleSetBuilder;
+
+/**
+   isosurface extraction and decimation by MeshMakerMT
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MeshMakerBenchmark {
+
+    @Param({"gyroid", "union"})
+    public String shape;
+
+    @Param({"128", "256"})
+    public int gridSize;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    // count of decimation passes, 0 - no decimation
+    @Param({"0", "7"})
+    public int decimation;
+
+    // MeshMakerMT.DECIMATION_RANDOM or MeshMakerMT.DECIMATION_HEAP
+    @Param({"0", "1"})
+    public int decimationAlgorithm;
+
+    AttributeGrid grid;
+
+    @Setup
+    public void setup(){
+        BenchmarkUtil.setThreadCount(threads);
+        grid = BenchmarkUtil.makeGrid(shape, gridSize);
+    }
+
+    @Benchmark
+    public IndexedTriangleSetBuilder makeMesh(){
+        MeshMakerMT mm = new MeshMakerMT();
+        mm.setThreadCount(threads);
+        mm.setMaxDecimationCount(decimation);
+        mm.setDecimationAlgorithm(decimationAlgorithm);
+        mm.setMaxDecimationError(0.1*grid.getVoxelSize()*grid.getVoxelSize());
+        mm.setDensityMaker(new DensityMakerFromDistanceChannel(grid.getDataChannel(), 0., grid.getVoxelSize()));
+        IndexedTriangleSetBuilder its = new IndexedTriangleSetBuilder();
+        mm.makeMesh(grid, its);
+        return its;
+    }
+}
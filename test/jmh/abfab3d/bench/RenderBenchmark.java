@@ -0,0 +1,99 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.bench;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import javax.vecmath.Matrix4f;
+import javax.vecmath.Vector3d;
+import javax.vecmath.Vector3f;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import abfab3d.core.Bounds;
+import abfab3d.core.Color;
+
+import abfab3d.grid.op.ImageMaker;
+
+import abfab3d.param.Shape;
+
+import abfab3d.shapejs.Light;
+import abfab3d.shapejs.MatrixCamera;
+import abfab3d.shapejs.Scene;
+import abfab3d.shapejs.SceneImageDataSource;
+import abfab3d.shapejs.SingleColorMaterial;
+
+/**
+   ray traced rendering of scene by SceneImageDataSource
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"sphere", "gyroid", "union"})
+    public String shape;
+
+    @Param({"256", "512"})
+    public int imageSize;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean coneTracing;
+
+    SceneImageDataSource renderer;
+
+    @Setup
+    public void setup(){
+
+        BenchmarkUtil.setThreadCount(threads);
+        double s = 1.05*BenchmarkUtil.SIZE;
+        Scene scene = new Scene(new Shape(BenchmarkUtil.makeShape(shape), new SingleColorMaterial(new Color(0.5,0.5,1))),
+                                new Bounds(-s, s, -s, s, -s, s));
+        Light light = new Light(new Vector3d(-10,10,20), new Color(1,1,1), 0.1, 1.);
+        scene.setLights(new Light[]{light});
+
+        // scene is rendered in normalized units
+        Matrix4f view = new Matrix4f();
+        view.set(new Vector3f(0, 0, 4), 1.0f);
+        renderer = new SceneImageDataSource(scene, new MatrixCamera(view, Math.atan(0.25)));
+        renderer.set("coneTracing", coneTracing);
+        renderer.initialize();
+    }
+
+    @Benchmark
+    public BufferedImage render(){
+        ImageMaker im = new ImageMaker();
+        im.set("imgRenderer", renderer);
+        im.set("width", imageSize);
+        im.set("height", imageSize);
+        im.set("threadCount", threads);
+        return im.getImage();
+    }
+}
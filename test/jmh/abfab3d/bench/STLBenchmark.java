@@ -0,0 +1,86 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import abfab3d.io.input.STLReader;
+import abfab3d.io.output.STLWriter;
+
+import abfab3d.mesh.AreaCalculator;
+import abfab3d.mesh.IndexedTriangleSetBuilder;
+
+/**
+   export and import of binary STL files
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class STLBenchmark {
+
+    @Param({"128", "256"})
+    public int gridSize;
+
+    IndexedTriangleSetBuilder mesh;
+    File writeFile;
+    File readFile;
+
+    @Setup
+    public void setup() throws IOException {
+        mesh = BenchmarkUtil.makeMesh(BenchmarkUtil.makeGrid("gyroid", gridSize));
+        writeFile = File.createTempFile("bench_write", ".stl");
+        readFile = File.createTempFile("bench_read", ".stl");
+        STLWriter writer = new STLWriter(readFile.getPath(), mesh.getFaceCount());
+        mesh.getTriangles(writer);
+        writer.close();
+    }
+
+    @TearDown
+    public void tearDown(){
+        writeFile.delete();
+        readFile.delete();
+    }
+
+    @Benchmark
+    public File write() throws IOException {
+        STLWriter writer = new STLWriter(writeFile.getPath(), mesh.getFaceCount());
+        mesh.getTriangles(writer);
+        writer.close();
+        return writeFile;
+    }
+
+    @Benchmark
+    public double read() throws IOException {
+        AreaCalculator ac = new AreaCalculator();
+        new STLReader().read(readFile.getPath(), ac);
+        return ac.getArea();
+    }
+}
@@ -0,0 +1,212 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.datasources;
+
+// external imports
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import javax.vecmath.Vector3d;
+
+// Internal Imports
+import abfab3d.core.AttributeGrid;
+import abfab3d.core.BatchUtil;
+import abfab3d.core.DataSource;
+import abfab3d.core.Vec;
+import abfab3d.core.VecArray;
+
+import abfab3d.grid.ArrayAttributeGridByte;
+import abfab3d.grid.op.GridMaker;
+
+import abfab3d.transforms.Rotation;
+import abfab3d.transforms.Scale;
+import abfab3d.transforms.Translation;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Units.MM;
+
+
+/**
+ * Tests that batch evaluation of data sources gives the same result as point by point evaluation
+ *
+ * @version
+ */
+public class TestBatchDataSource extends TestCase {
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestBatchDataSource.class);
+    }
+
+    public void testBatchDistance() {
+        
+        printf("testBatchDistance()\n");
+        checkBatch(makeShape(DataSource.DATA_TYPE_DISTANCE));
+    }
+
+    public void testBatchDensity() {
+        
+        printf("testBatchDensity()\n");
+        checkBatch(makeShape(DataSource.DATA_TYPE_DENSITY));
+    }
+
+    public void testBatchPatterns() {
+        
+        printf("testBatchPatterns()\n");
+        double period = 5*MM, thickness = 0.5*MM;
+        TransformableDataSource patterns[] = new TransformableDataSource[]{
+            new VolumePatterns.Gyroid(period, thickness),
+            new VolumePatterns.SchwarzP(period, thickness),
+            new VolumePatterns.SchwarzD(period, thickness),
+            new VolumePatterns.Lidinoid(period, thickness),
+            new Noise(new Vector3d(4*period, 4*period, 4*period), 4, 4, 4),
+        };
+        for(int i = 0; i < patterns.length; i++){
+            patterns[i].setDataType(DataSource.DATA_TYPE_DENSITY);
+            patterns[i].addTransform(new Rotation(new Vector3d(1,1,0), 0.4));
+            checkBatch(patterns[i]);
+        }
+    }
+
+    /**
+       scratch buffers of the nodes are reused by blocks of different size 
+     */
+    public void testBuffersReuse() {
+        
+        printf("testBuffersReuse()\n");
+        int counts[] = {1000, 100, 2000};
+        int types[] = {DataSource.DATA_TYPE_DENSITY, DataSource.DATA_TYPE_DISTANCE};
+        for(int k = 0; k < types.length; k++){
+            TransformableDataSource shape = makeShape(types[k]);
+            for(int i = 0; i < counts.length; i++){
+                checkBatch(shape, counts[i]);
+            }
+        }
+    }
+
+    public void testGridMakerBatch() {
+
+        printf("testGridMakerBatch()\n");
+        
+        double vs = 0.2*MM;
+        double s = 12*MM;
+        int n = (int)(2*s/vs);
+
+        AttributeGrid grid1 = makeGrid(n, vs, s, false);
+        AttributeGrid grid2 = makeGrid(n, vs, s, true);
+        
+        int diffCount = 0;
+        for(int y = 0; y < n; y++){
+            for(int x = 0; x < n; x++){
+                for(int z = 0; z < n; z++){
+                    if(grid1.getAttribute(x,y,z) != grid2.getAttribute(x,y,z))
+                        diffCount++;
+                }
+            }
+        }
+        assertEquals("voxels which differ in batch and pointwise grids", 0, diffCount);
+    }
+
+    AttributeGrid makeGrid(int n, double vs, double s, boolean batch){
+
+        AttributeGrid grid = new ArrayAttributeGridByte(n, n, n, vs, vs);
+        grid.setGridBounds(new double[]{-s, s, -s, s, -s, s});
+        GridMaker gm = new GridMaker();
+        gm.setSource(makeShape(DataSource.DATA_TYPE_DENSITY));
+        gm.setThreadCount(2);
+        gm.setMargin(1);
+        gm.setBatchEvaluation(batch);
+        gm.makeGrid(grid);
+        return grid;        
+    }
+
+    void checkBatch(TransformableDataSource shape){
+        checkBatch(shape, 1000);
+    }
+
+    void checkBatch(TransformableDataSource shape, int count){
+
+        shape.initialize();
+        
+        double s = 12*MM;
+        double vs = 0.1*MM;
+        VecArray pnts = new VecArray(3, count);
+        pnts.setVoxelSize(vs);
+        VecArray data = new VecArray(4, count);
+        double x[] = pnts.v[0], y[] = pnts.v[1], z[] = pnts.v[2];
+        for(int i = 0; i < count; i++){
+            // deterministic points filling the box
+            x[i] = s*(2*frac(i*0.6180339887) - 1);
+            y[i] = s*(2*frac(i*0.7548776662) - 1);
+            z[i] = s*(2*frac(i*0.5698402910) - 1);
+        }
+        VecArray pnts0 = new VecArray(pnts);
+        BatchUtil.getDataValues(shape, pnts, data);
+
+        Vec pnt = new Vec(3);
+        Vec value = new Vec(4);
+        for(int i = 0; i < count; i++){
+            pnts0.get(i, pnt);
+            int res = shape.getDataValue(pnt, value);
+            assertEquals("result code", res, data.result[i]);
+            assertEquals(value.v[0], data.v[0][i], 1.e-12);
+        }
+    }
+
+    static double frac(double x){
+        return x - Math.floor(x);
+    }
+    
+    static TransformableDataSource makeShape(int dataType){
+
+        Sphere sphere = new Sphere(new Vector3d(2*MM, 0, 0), 5*MM);
+        sphere.setDataType(dataType);
+        sphere.addTransform(new Rotation(new Vector3d(0,0,1), 0.3));
+        sphere.addTransform(new Translation(1*MM, 2*MM, 0));
+
+        Box box = new Box(0, 0, 0, 10*MM, 6*MM, 4*MM, 0.5*MM);
+        box.setDataType(dataType);
+        box.addTransform(new Scale(1.2, 0.8, 1.1));
+
+        Torus torus = new Torus(new Vector3d(0,0,1*MM), new Vector3d(1,1,0), 7*MM, 1.5*MM);
+        torus.setDataType(dataType);
+
+        Cylinder cyl = new Cylinder(new Vector3d(0,-8*MM,0), new Vector3d(0, 8*MM, 1*MM), 2*MM);
+        cyl.setDataType(dataType);
+
+        // legacy data source without batch calculation 
+        Cone cone = new Cone(new Vector3d(0,0,-9*MM), new Vector3d(0,0,1), 0.4);
+        cone.setDataType(dataType);
+
+        Union union = new Union(sphere, torus, cone);
+        union.setDataType(dataType);
+        union.setBlend(0.5*MM);
+
+        Intersection inter = new Intersection(union, box);
+        inter.setDataType(dataType);
+
+        Union union2 = new Union(inter, cyl);
+        union2.setDataType(dataType);
+
+        Sphere hole = new Sphere(new Vector3d(-3*MM,0,0), 3*MM);
+        hole.setDataType(dataType);
+
+        Subtraction sub = new Subtraction(union2, hole);
+        sub.setDataType(dataType);
+        sub.addTransform(new Rotation(new Vector3d(1,0,0), 0.2));
+        return sub;
+    }
+}
@@ -0,0 +1,99 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.geom;
+
+import abfab3d.io.input.MeshReader;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import javax.vecmath.Vector3d;
+import java.util.Arrays;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.fmt;
+import static abfab3d.core.Output.time;
+import static abfab3d.core.Units.MM;
+
+/**
+ * Tests the functionality of TriangleMeshSlicer
+ */
+public class TestTriangleMeshSlicer extends TestCase {
+
+    static final String PATH = "test/models/Deer.stl";
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestTriangleMeshSlicer.class);
+    }
+
+    /**
+       slices made by several threads are the same as slices made by single thread
+     */
+    public void testMT() throws Exception {
+
+        for(int opt = 0; opt < 2; opt++){
+
+            TriangleMeshSlicer st = makeSlices(1, opt == 1, 0);
+            TriangleMeshSlicer mt = makeSlices(4, opt == 1, 0);
+            compare(st, mt);
+        }
+    }
+
+    /**
+       large mesh is sliced in single thread after too many triangles were stored
+     */
+    public void testStoredTrisLimit() throws Exception {
+
+        TriangleMeshSlicer st = makeSlices(1, false, 0);
+        TriangleMeshSlicer mt = makeSlices(4, false, 1000);
+        compare(st, mt);
+    }
+
+    static void compare(TriangleMeshSlicer st, TriangleMeshSlicer mt){
+        assertEquals("slices", st.getSliceCount(), mt.getSliceCount());
+        assertEquals("triangles", st.getTriCount(), mt.getTriCount());
+        assertEquals("empty triangles", st.getEmptyTriCount(), mt.getEmptyTriCount());
+        assertEquals("intersected triangles", st.getInterTriCount(), mt.getInterTriCount());
+        assertEquals("segments", st.getSegmentsCount(), mt.getSegmentsCount());
+        assertEquals("open contours", st.getOpenContouresCount(), mt.getOpenContouresCount());
+        assertEquals("mesh volume", st.getMeshVolume(), mt.getMeshVolume(), 0.);
+        assertEquals("slices volume", st.getSlicesVolume(), mt.getSlicesVolume(), 0.);
+
+        for(int i = 0; i < st.getSliceCount(); i++){
+            Slice s1 = st.getSlice(i);
+            Slice s2 = mt.getSlice(i);
+            assertEquals(fmt("slice %d contours", i), s1.getClosedContourCount(), s2.getClosedContourCount());
+            for(int c = 0; c < s1.getClosedContourCount(); c++){
+                assertTrue(fmt("slice %d contour %d", i, c), Arrays.equals(s1.getClosedContourPoints(c), s2.getClosedContourPoints(c)));
+            }
+        }
+    }
+
+    static TriangleMeshSlicer makeSlices(int threads, boolean optimize, int maxStoredTris) throws Exception {
+
+        SlicingParam sp = new SlicingParam(new Vector3d(0,0,1), 0.1*MM, 0., 0.);
+        if(optimize) sp.setOptimization(true, 0.001*MM, 100);
+        TriangleMeshSlicer slicer = new TriangleMeshSlicer(sp);
+        slicer.setThreadCount(threads);
+        if(maxStoredTris > 0) slicer.m_maxStoredTris = maxStoredTris;
+        long t0 = time();
+        slicer.makeSlices(new MeshReader(PATH));
+        printf("TriangleMeshSlicer threads: %d slices: %d time: %d ms\n", threads, slicer.getSliceCount(), (time() - t0));
+        return slicer;
+    }
+
+}
@@ -0,0 +1,176 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.grid;
+
+// External Imports
+
+import java.io.File;
+
+import abfab3d.core.AttributeGrid;
+import abfab3d.core.Bounds;
+import abfab3d.core.Grid;
+
+import abfab3d.datasources.Sphere;
+
+import abfab3d.grid.op.GridMaker;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import static abfab3d.core.Output.printf;
+
+// Internal Imports
+
+/**
+ * Tests the functionality of a MappedAttributeGrid.
+ */
+public class TestMappedAttributeGrid extends BaseTestAttributeGrid {
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestMappedAttributeGrid.class);
+    }
+
+    /**
+     * Test the constructors and the grid size.
+     */
+    public void testConstructors() {
+        MappedAttributeGrid grid = new MappedAttributeGrid(100, 101, 102, 0.001, 0.001, 2);
+        assertEquals("Array size is not 1030200", 1030200, grid.getWidth() * grid.getHeight() * grid.getDepth());
+        assertEquals("file length", 2*1030200, grid.getFile().length());
+        grid.close();
+        assertFalse("temporary file is not deleted", grid.getFile().exists());
+
+        grid = new MappedAttributeGrid(new Bounds(1.1, 1.1, 1.1), 0.2, 0.1, 1);
+        assertEquals("Array size is not 396", 396, grid.getWidth() * grid.getHeight() * grid.getDepth());
+        grid.close();
+
+        try {
+            new MappedAttributeGrid(10, 10, 10, 0.1, 0.1, 3);
+            fail("bytesPerVoxel check failed");
+        } catch(IllegalArgumentException iae) {
+            // passed
+        }
+    }
+
+    /**
+     * Test creating an empty grid.
+     */
+    public void testCreateEmpty() {
+        AttributeGrid grid = new MappedAttributeGrid(100, 101, 102, 0.001, 0.001, 1);
+
+        createEmpty(grid);
+    }
+
+    /**
+     * Test clone.
+     */
+    public void testClone() {
+        Grid grid = new MappedAttributeGrid(10, 10, 10, 0.002, 0.001, 1);
+        runClone(grid);
+    }
+
+    /**
+     * Test set/get all data points for each attribute size.
+     */
+    public void testSetGetByVoxelCoords() {
+
+        for(int bytes = 1; bytes <= 4; bytes *= 2){
+            setGetAllVoxelCoords(new MappedAttributeGrid(1, 1, 1, 0.001, 0.001, bytes));
+            setGetAllVoxelCoords(new MappedAttributeGrid(3, 2, 2, 0.001, 0.001, bytes));
+            setGetAllVoxelCoords(new MappedAttributeGrid(100, 91, 85, 0.001, 0.001, bytes));
+            setGetAllVoxelByWorldCoords(new MappedAttributeGrid(11, 11, 11, 0.001, 0.001, bytes));
+        }
+    }
+
+    /**
+     * Test attribute ranges of different attribute sizes.
+     */
+    public void testMaterialRange() {
+
+        byteMaterialRange(new MappedAttributeGrid(100, 1, 1, 0.001, 0.001, 1));
+        shortMaterialRange(new MappedAttributeGrid(1100, 1, 1, 0.001, 0.001, 2));
+        intMaterialRange(new MappedAttributeGrid(1100, 1, 1, 0.001, 0.001, 4));
+    }
+
+    /**
+     * Test that the data persist in the given file
+     */
+    public void testFile() throws Exception {
+
+        File file = File.createTempFile("testMappedGrid", ".dat");
+        file.deleteOnExit();
+
+        MappedAttributeGrid grid = new MappedAttributeGrid(20, 30, 40, 0.001, 0.001, 4, file, null);
+        grid.setAttribute(19, 29, 39, 0x12345678L);
+        grid.setAttribute(1, 2, 3, 0xFFFFFFFFL);
+        grid.flush();
+        grid.close();
+        assertTrue("grid file was deleted", file.exists());
+
+        grid = new MappedAttributeGrid(20, 30, 40, 0.001, 0.001, 4, file, null);
+        assertEquals(0x12345678L, grid.getAttribute(19, 29, 39));
+        assertEquals(0xFFFFFFFFL, grid.getAttribute(1, 2, 3));
+        assertEquals(0L, grid.getAttribute(0, 0, 0));
+        grid.close();
+        file.delete();
+    }
+
+    /**
+     * Test that GridMaker makes the same grid as in ArrayAttributeGridByte 
+     */
+    public void testGridMaker() {
+
+        Bounds bounds = new Bounds(-0.01,0.01,-0.01,0.01,-0.01,0.01);
+        double vs = 0.0005;
+        AttributeGrid grid0 = new ArrayAttributeGridByte(bounds, vs, vs);
+        MappedAttributeGrid grid1 = new MappedAttributeGrid(bounds, vs, vs, 1);
+        GridMaker gm = new GridMaker();
+        gm.setBounds(bounds);
+        gm.setSource(new Sphere(0.008));
+        gm.makeGrid(grid0);
+        gm.makeGrid(grid1);
+        for(int y = 0; y < grid0.getHeight(); y++){
+            for(int x = 0; x < grid0.getWidth(); x++){
+                for(int z = 0; z < grid0.getDepth(); z++){
+                    assertEquals("attribute", grid0.getAttribute(x,y,z), grid1.getAttribute(x,y,z));
+                }
+            }
+        }
+        assertTrue("grid is constant", grid1.getAttribute(20,20,20) != grid1.getAttribute(0,0,0));
+        grid1.close();
+    }
+
+    /**
+     * Test grid with more than 2^31 voxels. The file is sparse and only touched pages use disk space
+     */
+    public void testLargeGrid() {
+
+        int n = 1300; // 2.197*10^9 voxels
+        MappedAttributeGrid grid = new MappedAttributeGrid(n, n, n, 0.001, 0.001, 1);
+        printf("large grid file length: %d\n", grid.getFile().length());
+        assertTrue("file length", grid.getFile().length() > Integer.MAX_VALUE);
+
+        int coord[][] = {{0,0,0},{n-1,n-1,n-1},{n/2,n-1,n/3},{n-1,n-2,n-3},{7,1270,1299}};
+        for(int i = 0; i < coord.length; i++){
+            grid.setAttribute(coord[i][0], coord[i][1], coord[i][2], i+1);
+        }
+        for(int i = 0; i < coord.length; i++){
+            assertEquals("attribute", i+1, grid.getAttribute(coord[i][0], coord[i][1], coord[i][2]));
+        }
+        assertEquals("attribute", 0, grid.getAttribute(n-1, n-1, n-2));
+        grid.close();
+    }
+}
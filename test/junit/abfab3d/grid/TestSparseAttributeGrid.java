@@ -0,0 +1,203 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.grid;
+
+// External Imports
+
+import abfab3d.core.AttributeGrid;
+import abfab3d.core.Bounds;
+import abfab3d.core.Grid;
+
+import abfab3d.datasources.Sphere;
+
+import abfab3d.grid.op.GridMaker;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import static abfab3d.core.Output.printf;
+
+// Internal Imports
+
+/**
+ * Tests the functionality of a SparseAttributeGrid.
+ */
+public class TestSparseAttributeGrid extends BaseTestAttributeGrid {
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestSparseAttributeGrid.class);
+    }
+
+    /**
+     * Test the constructors and the grid size.
+     */
+    public void testConstructors() {
+        SparseAttributeGrid grid = new SparseAttributeGrid(100, 101, 102, 0.001, 0.001, 2);
+        assertEquals("Array size is not 1030200", 1030200, grid.getWidth() * grid.getHeight() * grid.getDepth());
+        assertEquals("leaf count", 0, grid.getLeafCount());
+
+        grid = new SparseAttributeGrid(new Bounds(1.1, 1.1, 1.1), 0.2, 0.1, 1);
+        assertEquals("Array size is not 396", 396, grid.getWidth() * grid.getHeight() * grid.getDepth());
+
+        try {
+            new SparseAttributeGrid(10, 10, 10, 0.1, 0.1, 3);
+            fail("bytesPerVoxel check failed");
+        } catch(IllegalArgumentException iae) {
+            // passed
+        }
+    }
+
+    /**
+     * Test creating an empty grid.
+     */
+    public void testCreateEmpty() {
+        AttributeGrid grid = new SparseAttributeGrid(100, 101, 102, 0.001, 0.001, 1);
+
+        createEmpty(grid);
+    }
+
+    /**
+     * Test clone.
+     */
+    public void testClone() {
+        Grid grid = new SparseAttributeGrid(10, 10, 10, 0.002, 0.001, 1);
+        runClone(grid);
+    }
+
+    /**
+     * Test set/get all data points for each attribute size.
+     */
+    public void testSetGetByVoxelCoords() {
+
+        for(int bytes = 1; bytes <= 4; bytes *= 2){
+            setGetAllVoxelCoords(new SparseAttributeGrid(1, 1, 1, 0.001, 0.001, bytes));
+            setGetAllVoxelCoords(new SparseAttributeGrid(3, 2, 2, 0.001, 0.001, bytes));
+            setGetAllVoxelCoords(new SparseAttributeGrid(100, 91, 85, 0.001, 0.001, bytes));
+            setGetAllVoxelByWorldCoords(new SparseAttributeGrid(11, 11, 11, 0.001, 0.001, bytes));
+        }
+    }
+
+    /**
+     * Test attribute ranges of different attribute sizes.
+     */
+    public void testMaterialRange() {
+
+        byteMaterialRange(new SparseAttributeGrid(100, 1, 1, 0.001, 0.001, 1));
+        shortMaterialRange(new SparseAttributeGrid(1100, 1, 1, 0.001, 0.001, 2));
+        intMaterialRange(new SparseAttributeGrid(1100, 1, 1, 0.001, 0.001, 4));
+    }
+
+    /**
+     * Test fill of region, compression and constant regions
+     */
+    public void testFillAndCompress() {
+
+        SparseAttributeGrid grid = new SparseAttributeGrid(100, 100, 100, 0.001, 0.001, 1);
+        grid.fill(5, 90, 3, 70, 8, 15, 7);
+        grid.fill(17, 30, 20, 40, 60, 80, 0);
+        for(int y = 0; y < 100; y++){
+            for(int x = 0; x < 100; x++){
+                for(int z = 0; z < 100; z++){
+                    long v = (x >= 5 && x <= 90 && y >= 3 && y <= 70 && z >= 8 && z <= 15)? 7: 0;
+                    assertEquals("attribute", v, grid.getAttribute(x,y,z));
+                }
+            }
+        }
+        // only boundary leaves are allocated
+        int count = grid.getLeafCount();
+        printf("leaf count: %d\n", count);
+        assertTrue("too many leaves", count < 12*10*2);
+        long value[] = new long[1];
+        assertTrue("constant region", grid.isConstant(8, 87, 8, 63, 8, 15, value));
+        assertEquals("constant value", 7, value[0]);
+        assertFalse("non constant region", grid.isConstant(0, 20, 0, 20, 0, 20, value));
+
+        // voxels set one by one become tile after compression
+        for(int y = 0; y < 8; y++)
+            for(int x = 0; x < 8; x++)
+                for(int z = 0; z < 8; z++)
+                    grid.setAttribute(x+64, y+80, z+40, 3);
+        assertFalse("non compressed region", grid.isConstant(64, 71, 80, 87, 40, 47, value));
+        grid.compress();
+        assertTrue("compressed region", grid.isConstant(64, 71, 80, 87, 40, 47, value));
+        assertEquals("constant value", 3, value[0]);
+        assertEquals("attribute", 3, grid.getAttribute(70, 81, 45));
+        assertEquals("attribute", 7, grid.getAttribute(50, 50, 10));
+
+        SparseAttributeGrid.Accessor acc = grid.getAccessor();
+        for(int y = 0; y < 100; y += 3)
+            for(int x = 0; x < 100; x += 2)
+                for(int z = 0; z < 100; z++)
+                    assertEquals("accessor", grid.getAttribute(x,y,z), acc.getAttribute(x,y,z));
+    }
+
+    /**
+     * Test that GridMaker makes the same grid as in ArrayAttributeGridByte using much less memory
+     */
+    public void testGridMaker() {
+
+        Bounds bounds = new Bounds(-0.02,0.02,-0.02,0.02,-0.02,0.02);
+        double vs = 0.0005;
+        AttributeGrid grid0 = new ArrayAttributeGridByte(bounds, vs, vs);
+        SparseAttributeGrid grid1 = new SparseAttributeGrid(bounds, vs, vs, 1);
+        GridMaker gm = new GridMaker();
+        gm.setBounds(bounds);
+        gm.setSource(new Sphere(0.015));
+        gm.makeGrid(grid0);
+        gm.makeGrid(grid1);
+        for(int y = 0; y < grid0.getHeight(); y++){
+            for(int x = 0; x < grid0.getWidth(); x++){
+                for(int z = 0; z < grid0.getDepth(); z++){
+                    assertEquals("attribute", grid0.getAttribute(x,y,z), grid1.getAttribute(x,y,z));
+                }
+            }
+        }
+        long voxels = (long)grid0.getWidth()*grid0.getHeight()*grid0.getDepth();
+        printf("dense size: %d sparse size: %d leaves: %d\n", voxels, grid1.getDataSize(), grid1.getLeafCount());
+        assertTrue("sparse grid is too large", grid1.getDataSize() < voxels);
+    }
+
+    /**
+     * Test concurrent writes into the same leaves
+     */
+    public void testConcurrentWrites() throws Exception {
+
+        final int n = 50;
+        final SparseAttributeGrid grid = new SparseAttributeGrid(n, n, n, 0.001, 0.001, 2);
+        int threadCount = 4;
+        Thread threads[] = new Thread[threadCount];
+        for(int t = 0; t < threadCount; t++){
+            final int start = t;
+            final int step = threadCount;
+            threads[t] = new Thread(){
+                    public void run(){
+                        for(int y = 0; y < n; y++)
+                            for(int x = 0; x < n; x++)
+                                for(int z = start; z < n; z += step)
+                                    grid.setAttribute(x, y, z, 1 + x + y + z);
+                    }
+                };
+            threads[t].start();
+        }
+        for(int t = 0; t < threadCount; t++)
+            threads[t].join();
+
+        for(int y = 0; y < n; y++)
+            for(int x = 0; x < n; x++)
+                for(int z = 0; z < n; z++)
+                    assertEquals("attribute", 1 + x + y + z, grid.getAttribute(x,y,z));
+    }
+}
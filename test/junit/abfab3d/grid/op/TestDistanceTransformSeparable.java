@@ -0,0 +1,141 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.grid.op;
+
+import abfab3d.core.AttributeGrid;
+import abfab3d.grid.ArrayAttributeGridByte;
+
+import javax.vecmath.Vector3d;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.fmt;
+import static abfab3d.core.Units.MM;
+import static abfab3d.core.MathUtil.L2S;
+
+import static java.lang.Math.abs;
+
+/**
+ * Test the DistanceTransformSeparable class.
+ */
+public class TestDistanceTransformSeparable extends BaseTestDistanceTransform {
+
+    private static final boolean DEBUG = false;
+
+    static int subvoxelResolution = 100;
+    double voxelSize = 0.1*MM;
+
+    /**
+       distances to sphere surface are close to exact values
+     */
+    public void testSphereAccuracy(){
+
+        int nx = 60;
+        double radius = 2.*MM;
+        double maxInDistance = 1*MM;
+        double maxOutDistance = 0.5*MM;
+
+        Vector3d center = new Vector3d(0.3*voxelSize, 0.1*voxelSize, 0);
+        AttributeGrid grid = makeDensitySphere(nx, center, radius);
+
+        DistanceTransformSeparable dt = new DistanceTransformSeparable(subvoxelResolution, maxInDistance, maxOutDistance);
+        AttributeGrid dg = dt.execute(grid);
+
+        long defIn = dt.getInsideDefault();
+        long defOut = dt.getOutsideDefault();
+        assertEquals("inside default", -1000, defIn);
+        assertEquals("outside default", 500, defOut);
+
+        double bounds[] = new double[6];
+        grid.getGridBounds(bounds);
+        Vector3d pnt = new Vector3d();
+        double maxError = 0;
+
+        for(int y = 0; y < nx; y++){
+            for(int x = 0; x < nx; x++){
+                for(int z = 0; z < nx; z++){
+                    pnt.set(bounds[0] + (x + 0.5)*voxelSize, bounds[2] + (y + 0.5)*voxelSize, bounds[4] + (z + 0.5)*voxelSize);
+                    pnt.sub(center);
+                    double exact = (pnt.length() - radius)/voxelSize;
+                    long value = L2S(dg.getAttribute(x,y,z));
+                    if(exact < -(maxInDistance/voxelSize - 1)){
+                        if(exact < -(maxInDistance/voxelSize + 1)) assertEquals("inside default", defIn, value);
+                        continue;
+                    }
+                    if(exact > (maxOutDistance/voxelSize - 1)){
+                        if(exact > (maxOutDistance/voxelSize + 1)) assertEquals("outside default", defOut, value);
+                        continue;
+                    }
+                    double err = abs(exact - (double)value/subvoxelResolution);
+                    if(err > maxError) maxError = err;
+                }
+            }
+        }
+        if(DEBUG)printf("max error: %5.3f voxels\n", maxError);
+        assertTrue(fmt("max error %5.3f voxels is too large", maxError), maxError < 0.45);
+    }
+
+    /**
+       results do not depend on number of threads
+     */
+    public void testMT(){
+
+        int nx = 50;
+        AttributeGrid grid = makeDensitySphere(nx, new Vector3d(0.3*voxelSize, 0.1*voxelSize, 0), 1.5*MM);
+
+        double maxInDistance = 1*MM;
+        double maxOutDistance = 2*MM;
+
+        DistanceTransformSeparable dt_st = new DistanceTransformSeparable(subvoxelResolution, maxInDistance, maxOutDistance);
+        dt_st.setThreadCount(1);
+        AttributeGrid dg_st = dt_st.execute(grid);
+
+        DistanceTransformSeparable dt_mt = new DistanceTransformSeparable(subvoxelResolution, maxInDistance, maxOutDistance);
+        dt_mt.setThreadCount(4);
+        AttributeGrid dg_mt = dt_mt.execute(grid);
+
+        long errors[] = getDiffHistogram(dg_st, dg_mt);
+        for(int k = 1; k < errors.length; k++){
+            assertTrue(fmt("error[%d] = %d (but should be 0)\n", k, errors[k]), (errors[k] == 0));
+        }
+    }
+
+    /**
+       density grid of sphere with linear density profile across the surface
+     */
+    AttributeGrid makeDensitySphere(int nx, Vector3d center, double radius){
+
+        double s = nx*voxelSize/2;
+        AttributeGrid grid = new ArrayAttributeGridByte(nx, nx, nx, voxelSize, voxelSize);
+        grid.setGridBounds(new double[]{-s, s, -s, s, -s, s});
+        Vector3d pnt = new Vector3d();
+        for(int y = 0; y < nx; y++){
+            for(int x = 0; x < nx; x++){
+                for(int z = 0; z < nx; z++){
+                    pnt.set(-s + (x + 0.5)*voxelSize, -s + (y + 0.5)*voxelSize, -s + (z + 0.5)*voxelSize);
+                    pnt.sub(center);
+                    double d = 0.5 - (pnt.length() - radius)/voxelSize;
+                    if(d < 0.) d = 0.;
+                    if(d > 1.) d = 1.;
+                    grid.setAttribute(x, y, z, Math.round(d*subvoxelResolution));
+                }
+            }
+        }
+        return grid;
+    }
+
+    public static void main(String arg[]){
+
+        new TestDistanceTransformSeparable().testSphereAccuracy();
+
+    }
+}
@@ -37,7 +37,11 @@ import junit.framework.TestSuite;
 // Internal Imports
 //import abfab3d.grid.Grid;
 import abfab3d.core.AttributeGrid;
+import abfab3d.core.Bounds;
+import abfab3d.core.DataSource;
+import abfab3d.core.GridDataDesc;
 import abfab3d.grid.ArrayAttributeGridByte;
+import abfab3d.grid.ArrayAttributeGridShort;
 import abfab3d.grid.GridShortIntervals;
 
 import abfab3d.core.Vec;
@@ -55,6 +59,9 @@ import abfab3d.datasources.DataTransformer;
 import abfab3d.datasources.Intersection;
 import abfab3d.datasources.Union;
 import abfab3d.datasources.Subtraction;
+import abfab3d.datasources.Torus;
+import abfab3d.datasources.Cylinder;
+import abfab3d.datasources.TransformableDataSource;
 
 import abfab3d.transforms.RingWrap;
 import abfab3d.transforms.FriezeSymmetry;
@@ -2260,6 +2267,124 @@ public class TestGridMaker extends TestCase {
         }
     }
 
+    /**
+       grids calculated with and without interval culling should be identical 
+     */
+    public void testIntervalCulling() {
+
+        printf("testIntervalCulling()\n");
+        
+        double vs = 0.2*MM;
+        double s = 12*MM;
+        int n = (int)(2*s/vs);
+
+        for(int dataType = 0; dataType < 2; dataType++){
+            long t0 = time();
+            AttributeGrid grid1 = makeCullingGrid(n, vs, s, dataType, false);
+            long t1 = time();
+            AttributeGrid grid2 = makeCullingGrid(n, vs, s, dataType, true);
+            printf("dataType: %d no culling: %d ms culling: %d ms\n", dataType, (t1-t0), (time() - t1));
+            
+            int diffCount = 0;
+            for(int y = 0; y < n; y++){
+                for(int x = 0; x < n; x++){
+                    for(int z = 0; z < n; z++){
+                        if(grid1.getAttribute(x,y,z) != grid2.getAttribute(x,y,z))
+                            diffCount++;
+                    }
+                }
+            }
+            assertEquals(fmt("voxels which differ in grids with and without culling dataType: %d", dataType), 0, diffCount);
+        }
+    }
+
+    /**
+       exception thrown by data source is passed to the caller of makeGrid()
+     */
+    public void testException() {
+
+        double vs = 0.5*MM;
+        double s = 10*MM;
+        int n = (int)(2*s/vs);
+        AttributeGrid grid = new ArrayAttributeGridByte(n, n, n, vs, vs);
+        grid.setGridBounds(new double[]{-s, s, -s, s, -s, s});
+
+        GridMaker gm = new GridMaker();
+        gm.setSource(new DataSource(){
+                public int getDataValue(Vec pnt, Vec data){
+                    if(pnt.v[2] > 0.) 
+                        throw new IllegalStateException("failed voxel");
+                    data.v[0] = 0;
+                    return ResultCodes.RESULT_OK;
+                }
+                public int getChannelsCount(){
+                    return 1;
+                }
+                public Bounds getBounds(){
+                    return null;
+                }
+            });
+        gm.setThreadCount(4);
+        boolean failed = false;
+        try {
+            gm.makeGrid(grid);
+        } catch(IllegalStateException e){
+            failed = true;
+        }
+        assertTrue("IllegalStateException expected", failed);
+    }
+
+    AttributeGrid makeCullingGrid(int n, double vs, double s, int dataType, boolean culling){
+
+        AttributeGrid grid;
+        if(dataType == DataSource.DATA_TYPE_DENSITY){
+            grid = new ArrayAttributeGridByte(n, n, n, vs, vs);
+        } else {
+            grid = new ArrayAttributeGridShort(n, n, n, vs, vs);
+            grid.setDataDesc(GridDataDesc.getDistance(16, 2*MM));
+        }
+        grid.setGridBounds(new double[]{-s, s, -s, s, -s, s});
+
+        GridMaker gm = new GridMaker();
+        gm.setSource(makeCullingShape(dataType));
+        gm.setTransform(new Rotation(new Vector3d(1,1,0), 0.3));
+        gm.setThreadCount(1);
+        gm.setMargin(1);
+        gm.setIntervalCulling(culling);
+        gm.makeGrid(grid);
+        return grid;        
+    }
+
+    static DataSource makeCullingShape(int dataType){
+
+        Sphere sphere = new Sphere(new Vector3d(2*MM, 0, 0), 5*MM);
+        sphere.addTransform(new Translation(1*MM, 2*MM, 0));
+
+        Box box = new Box(0, 0, 0, 10*MM, 6*MM, 4*MM, 0.5*MM);
+        box.addTransform(new Scale(1.2));
+
+        Torus torus = new Torus(new Vector3d(0,0,1*MM), new Vector3d(1,1,0), 7*MM, 1.5*MM);
+
+        Cylinder cyl = new Cylinder(new Vector3d(0,-8*MM,0), new Vector3d(0, 8*MM, 1*MM), 2*MM);
+
+        Union union = new Union(sphere, torus);
+        union.setBlend(0.5*MM);
+
+        Intersection inter = new Intersection(union, box);
+
+        Union union2 = new Union(inter, cyl);
+
+        Sphere hole = new Sphere(new Vector3d(-3*MM,0,0), 3*MM);
+
+        Subtraction sub = new Subtraction(union2, hole);
+        sub.addTransform(new Rotation(new Vector3d(1,0,0), 0.2));
+
+        TransformableDataSource shapes[] = new TransformableDataSource[]{sphere, box, torus, cyl, union, inter, union2, hole, sub};
+        for(int i = 0; i < shapes.length; i++)
+            shapes[i].setDataType(dataType);
+        return sub;
+    }
+
     public static void main(String[] args) {
         //new TestGridMaker().devTestMakeSlice();
     }
@@ -7,9 +7,13 @@ import junit.framework.TestSuite;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import abfab3d.datasources.Constant;
+import abfab3d.datasources.Sphere;
 import abfab3d.core.Bounds;
+import abfab3d.grid.util.ExecutionStoppedException;
 
 import static abfab3d.core.Output.printf;
 import static abfab3d.core.Output.time;
@@ -34,6 +38,77 @@ public class TestImageMaker extends TestCase {
         
     }
 
+    /**
+       the last level of progressive rendering should be the same as regular rendering 
+     */
+    public void testProgressive() {
+
+        int width = 101, height = 67;
+        for(int threads = 1; threads <= 4; threads += 3){
+
+            ImageMaker im = makeSphereImageMaker(width, height, threads);
+            int image[] = new int[width*height];
+            im.renderImage(image);
+
+            int progImage[] = new int[width*height];
+            final ArrayList<Integer> steps = new ArrayList<Integer>();
+            im.renderImageProgressive(progImage, 8, new ImageMaker.ProgressListener(){
+                    public boolean levelRendered(int data[], int step){
+                        steps.add(step);
+                        return true;
+                    }
+                });
+            printf("threads: %d steps: %s\n", threads, steps);
+            assertEquals("progressive levels", Arrays.asList(8,4,2,1), steps);
+            assertTrue("progressive image differs from regular image", Arrays.equals(image, progImage));
+        }
+    }
+
+    public void testProgressiveStop() {
+
+        int width = 64, height = 64;
+        final ImageMaker im = makeSphereImageMaker(width, height, 4);
+        int image[] = new int[width*height];
+        final ArrayList<Integer> steps = new ArrayList<Integer>();
+
+        // stop by listener 
+        im.renderImageProgressive(image, 4, new ImageMaker.ProgressListener(){
+                public boolean levelRendered(int data[], int step){
+                    steps.add(step);
+                    return false;
+                }
+            });
+        assertEquals("progressive levels", Arrays.asList(4), steps);
+
+        // cancel from listener 
+        steps.clear();
+        boolean stopped = false;
+        try {
+            im.renderImageProgressive(image, 4, new ImageMaker.ProgressListener(){
+                    public boolean levelRendered(int data[], int step){
+                        steps.add(step);
+                        im.cancel();
+                        return true;
+                    }
+                });
+        } catch(ExecutionStoppedException e){
+            stopped = true;
+        }
+        assertTrue("ExecutionStoppedException expected", stopped);
+        assertEquals("progressive levels", Arrays.asList(4), steps);
+    }
+
+    static ImageMaker makeSphereImageMaker(int width, int height, int threads){
+
+        ImageMaker im = new ImageMaker();
+        im.set("threadCount", threads);
+        im.set("imgRenderer", new Sphere(0.5));
+        im.set("width", width);
+        im.set("height", height);
+        im.setBounds(new Bounds(-1,1,-1,1,-1,1));
+        return im;
+    }
+
     static void devTestSolidColor() throws Exception {
 
         printf("devTestSolidColor()\n");
@@ -59,7 +59,7 @@ public class TestPointSetShellBuilder extends TestCase {
      * Creates a test suite consisting of all the methods that start with "test".
      */
     public static Test suite() {
-        return new TestSuite(TestDistanceToPointSetVectorIndexer.class);
+        return new TestSuite(TestPointSetShellBuilder.class);
     }
     
     public void testNothing(){
@@ -197,14 +197,15 @@ public class TestPointSetShellBuilder extends TestCase {
         ArrayAttributeGridInt indexGrid = new ArrayAttributeGridInt(new Bounds(x0, x1, y0, y1, z0, z1), vs,vs);
 
         PointSet pnts = new PointSetArray();
-        double cx = indexGrid.getWidth()/2 + 0.5;
-        double cy = indexGrid.getHeight()/2 + 0.5;
-        double cz = indexGrid.getDepth()/2 + 0.5;
+        // points are in world units 
+        double cx = x0 + (indexGrid.getWidth()/2 + 0.5)*vs;
+        double cy = y0 + (indexGrid.getHeight()/2 + 0.5)*vs;
+        double cz = z0 + (indexGrid.getDepth()/2 + 0.5)*vs;
 
         pnts.addPoint(-1., -1., -1.); // dummy point
 
         pnts.addPoint(cx, cy, cz);
-        pnts.addPoint(cx-6, cy-3, cz);
+        pnts.addPoint(cx-6*vs, cy-3*vs, cz);
         
         printf("points count: %d\n", pnts.size()-1);
         
@@ -223,6 +224,48 @@ public class TestPointSetShellBuilder extends TestCase {
 
     }
 
+    /**
+       MT shell is the same as ST shell
+     */
+    public void testMT(){
+
+        double vs = 1*MM;
+        double w = 20*MM;
+        Bounds bounds = new Bounds(-w, w, -w, w, -w, w);
+        
+        Random rnd = new Random(101);
+        PointSet pnts = new PointSetArray();
+        pnts.addPoint(0., 0., 0.); // dummy point
+        for(int i = 0; i < 20000; i++){
+            double x = rnd.nextGaussian(), y = rnd.nextGaussian(), z = rnd.nextGaussian();
+            double r = 15*MM/sqrt(x*x + y*y + z*z);
+            pnts.addPoint(x*r, y*r, z*r);
+        }
+
+        ArrayAttributeGridInt indexGrid1 = new ArrayAttributeGridInt(bounds, vs, vs);
+        PointSetShellBuilder sb = new PointSetShellBuilder(pnts);
+        sb.setShellHalfThickness(2.);
+        sb.execute(indexGrid1);
+
+        ArrayAttributeGridInt indexGrid4 = new ArrayAttributeGridInt(bounds, vs, vs);
+        sb = new PointSetShellBuilder(pnts);
+        sb.setShellHalfThickness(2.);
+        sb.setThreadCount(4);
+        sb.execute(indexGrid4);
+        
+        long count = 0;
+        for(int y = 0; y < indexGrid1.getHeight(); y++){
+            for(int x = 0; x < indexGrid1.getWidth(); x++){
+                for(int z = 0; z < indexGrid1.getDepth(); z++){
+                    long att = indexGrid1.getAttribute(x,y,z);
+                    assertEquals("index", att, indexGrid4.getAttribute(x,y,z));
+                    if(att != 0) count++;
+                }
+            }
+        }
+        assertTrue("shell is empty", count > 0);
+    }
+
     public void devTestTwoPoints() throws Exception{
 
         int imageWidth = 500;
@@ -188,6 +188,59 @@ public class TestSmooth extends TestCase {
 
     }
 
+    /**
+     * Multithreaded smoothing should give the same result as single threaded
+     * @throws Exception
+     */
+    public void testMT() throws Exception {
+        BufferedImage image = ImageIO.read(new File("test/images/letter_R_500.png"));
+
+        Grid2D grid1 = Grid2DShort.convertImageToGrid(image, 0.1 * MM);
+        SmoothOp smooth = new SmoothOp(1*MM);
+        smooth.setThreadCount(1);
+        grid1 = smooth.execute(grid1);
+
+        Grid2D grid4 = Grid2DShort.convertImageToGrid(image, 0.1 * MM);
+        smooth = new SmoothOp(1*MM);
+        smooth.setThreadCount(4);
+        grid4 = smooth.execute(grid4);
+
+        assertEquals("Max difference", 0., getMaxDifference(grid1, grid4), 0.);
+    }
+
+    /**
+     * Box filter should be close to gaussian
+     * @throws Exception
+     */
+    public void testBoxFilter() throws Exception {
+        BufferedImage image = ImageIO.read(new File("test/images/letter_R_500.png"));
+
+        Grid2D grid1 = Grid2DShort.convertImageToGrid(image, 0.1 * MM);
+        grid1 = new SmoothOp(1*MM).execute(grid1);
+
+        Grid2D grid2 = Grid2DShort.convertImageToGrid(image, 0.1 * MM);
+        SmoothOp smooth = new SmoothOp(1*MM);
+        smooth.setBoxFilter(true);
+        grid2 = smooth.execute(grid2);
+
+        double diff = getMaxDifference(grid1, grid2);
+        assertTrue("Box filter difference: " + diff, diff < 0.05);
+    }
+
+    private static double getMaxDifference(Grid2D grid1, Grid2D grid2) {
+        GridDataChannel channel = grid1.getDataDesc().getDefaultChannel();
+        double maxDiff = 0;
+
+        for(int x=0; x < grid1.getWidth(); x++) {
+            for(int y=0; y < grid1.getHeight(); y++) {
+                double diff = Math.abs(channel.getValue(grid1.getAttribute(x,y)) - channel.getValue(grid2.getAttribute(x,y)));
+                if (diff > maxDiff) maxDiff = diff;
+            }
+        }
+
+        return maxDiff;
+    }
+
     private static boolean isConstant(Grid2D src,double expected, double eps) {
         int w = src.getWidth();
         int h = src.getHeight();
@@ -26,6 +26,8 @@ import abfab3d.BaseTestCase;
 
 import abfab3d.core.ResultCodes;
 
+import abfab3d.util.PointSetArray;
+
 import abfab3d.datasources.Sphere;
 import abfab3d.datasources.Box;
 
@@ -55,8 +57,84 @@ public class TestDataSourceIntersector extends BaseTestCase  {
     public void testNothing(){
         
     }
+
+    /**
+       cone tracing should skip empty space without changing the result 
+     */
+    public void testConeTracing() {
+
+        double r = 10*MM;
+        Sphere shape = new Sphere(r);
+        shape.initialize();
+        Sphere probe = new Sphere(3*MM);
+        probe.initialize();
+
+        Vector3d start = new Vector3d(40*MM, 2*MM, 1*MM);
+        Vector3d dir = new Vector3d(-1,0,0);
+        DataSourceIntersector.Result res[] = new DataSourceIntersector.Result[2];
+        DataSourceIntersector.Result pres[] = new DataSourceIntersector.Result[2];
+        for(int k = 0; k < 2; k++){
+            DataSourceIntersector dsi = new DataSourceIntersector();
+            dsi.set("minStep",0.1*MM);
+            dsi.set("voxelSize",0.5*MM);
+            dsi.set("coneTracing", (k == 1));
+            res[k] = dsi.getShapeRayIntersection(shape, start, dir);
+            pres[k] = dsi.getShapesIntersection(shape, probe, new Vector3d(start), new Vector3d(dir));
+            printf("ray: %s\nprobe: %s\n", res[k].toString(MM), pres[k].toString(MM));
+        }
+        assertEquals(DataSourceIntersector.RESULT_INTERSECTION_FOUND, res[1].getCode());
+        assertEquals(res[0].getCode(), res[1].getCode());
+        assertTrue(res[0].getLocation().epsilonEquals(res[1].getLocation(), 1.e-12));
+
+        assertEquals(DataSourceIntersector.RESULT_INTERSECTION_FOUND, pres[1].getCode());
+        assertEquals(pres[0].getCode(), pres[1].getCode());
+        assertTrue(pres[0].getLocation().epsilonEquals(pres[1].getLocation(), 1.e-12));
+        assertTrue(pres[0].getContact().epsilonEquals(pres[1].getContact(), 1.e-12));
+    }
      
 
+    /**
+       cone tracing with non unit direction should not change the result 
+     */
+    public void testConeTracingNonUnitDirection() {
+
+        Sphere shape = new Sphere(10*MM);
+        shape.initialize();
+        Sphere probe = new Sphere(3*MM);
+        probe.initialize();
+
+        Vector3d start = new Vector3d(40*MM, 2*MM, 1*MM);
+        Vector3d dir = new Vector3d(-3,0,0);
+        DataSourceIntersector.Result res[] = new DataSourceIntersector.Result[2];
+        DataSourceIntersector.Result pres[] = new DataSourceIntersector.Result[2];
+        for(int k = 0; k < 2; k++){
+            DataSourceIntersector dsi = new DataSourceIntersector();
+            dsi.set("minStep",0.03*MM);
+            dsi.set("voxelSize",0.5*MM);
+            dsi.set("coneTracing", (k == 1));
+            res[k] = dsi.getShapeRayIntersection(shape, start, dir);
+            pres[k] = dsi.getShapesIntersection(shape, probe, new Vector3d(start), new Vector3d(dir));
+            printf("ray: %s\nprobe: %s\n", res[k].toString(MM), pres[k].toString(MM));
+        }
+        assertEquals(DataSourceIntersector.RESULT_INTERSECTION_FOUND, res[1].getCode());
+        assertTrue(res[0].getLocation().epsilonEquals(res[1].getLocation(), 1.e-12));
+
+        assertEquals(DataSourceIntersector.RESULT_INTERSECTION_FOUND, pres[1].getCode());
+        assertTrue(pres[0].getLocation().epsilonEquals(pres[1].getLocation(), 1.e-12));
+        assertTrue(pres[0].getContact().epsilonEquals(pres[1].getContact(), 1.e-12));
+
+        // safe distance of moving point set is measured in units of direction length 
+        DataSourceIntersector dsi = new DataSourceIntersector();
+        PointSetArray points = new PointSetArray();
+        points.addPoint(new Vector3d(0,0,0));
+        Vector3d from = new Vector3d(40*MM, 0, 0);
+        double d1 = dsi.getSafeDistance(shape, points, from, new Vector3d(-1,0,0), 100*MM);
+        double d3 = dsi.getSafeDistance(shape, points, from, new Vector3d(-3,0,0), 100*MM);
+        printf("safe distance: %7.3f mm, with direction length 3: %7.3f\n", d1/MM, d3/MM);
+        assertTrue(d1 <= 30*MM);
+        assertEquals(d1/3, d3, 1.e-9);
+    }
+
     public void devTestRaySphereIntersection() {
         
         double r = 10*MM;
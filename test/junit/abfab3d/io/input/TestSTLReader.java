@@ -0,0 +1,165 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.io.input;
+
+import abfab3d.core.AttributedTriangleCollector;
+import abfab3d.core.TriangleCollector;
+import abfab3d.core.Vec;
+import abfab3d.grid.util.ExecutionStoppedException;
+import abfab3d.transforms.Rotation;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import javax.vecmath.Vector3d;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.time;
+
+/**
+ * Tests the functionality of STLReader
+ */
+public class TestSTLReader extends TestCase {
+
+    static final String PATH = "test/models/Deer.stl";
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestSTLReader.class);
+    }
+
+    /**
+       mapped file parsed by several threads gives the same triangles in the same order as stream
+     */
+    public void testMappedRead() throws IOException {
+
+        STLReader sreader = new STLReader(new FileInputStream(PATH));
+        CoordCollector stream = new CoordCollector();
+        sreader.getTriangles(stream);
+
+        assertEquals("triangles", 81290, stream.count);
+
+        for(int threads = 1; threads <= 4; threads += 3){
+            STLReader reader = new STLReader(PATH);
+            reader.setThreadCount(threads);
+            CoordCollector mapped = new CoordCollector();
+            reader.getTriangles(mapped);
+
+            assertEquals("triangles", stream.count, mapped.count);
+            assertEquals("checksum", stream.sum, mapped.sum, 0.);
+        }
+    }
+
+    /**
+       transform is applied to triangles of attributed collector
+     */
+    public void testTransform() throws IOException {
+
+        Rotation rot = new Rotation(new Vector3d(1,1,0), 0.5);
+        rot.initialize();
+
+        STLReader sreader = new STLReader(new FileInputStream(PATH));
+        sreader.setTransform(rot);
+        CoordCollector stream = new CoordCollector();
+        sreader.getAttTriangles(stream);
+
+        STLReader reader = new STLReader(PATH);
+        reader.setThreadCount(3);
+        reader.setTransform(rot);
+        CoordCollector mapped = new CoordCollector();
+        reader.getAttTriangles(mapped);
+
+        assertEquals("triangles", stream.count, mapped.count);
+        assertEquals("checksum", stream.sum, mapped.sum, 0.);
+    }
+
+    /**
+       reading stops if the calling thread is interrupted
+     */
+    public void testInterrupt() throws IOException {
+
+        STLReader reader = new STLReader(PATH);
+        reader.setThreadCount(4);
+        CoordCollector mapped = new CoordCollector(){
+                public boolean addTri(Vector3d v0, Vector3d v1, Vector3d v2){
+                    if(count == 1000) Thread.currentThread().interrupt();
+                    return super.addTri(v0, v1, v2);
+                }
+            };
+        boolean stopped = false;
+        try {
+            reader.getTriangles(mapped);
+        } catch(ExecutionStoppedException e){
+            stopped = true;
+        } finally {
+            // clear interrupted flag
+            Thread.interrupted();
+        }
+        assertTrue("ExecutionStoppedException expected", stopped);
+        assertTrue("triangles: " + mapped.count, mapped.count < 81290);
+    }
+
+    /**
+       speed of stream and mapped reading
+     */
+    public void devTestSpeed() throws IOException {
+
+        for(int k = 0; k < 3; k++){
+            long t0 = time();
+            CoordCollector stream = new CoordCollector();
+            new STLReader(new FileInputStream(PATH)).getTriangles(stream);
+            long t1 = time();
+            CoordCollector mapped = new CoordCollector();
+            new STLReader(PATH).getTriangles(mapped);
+            printf("stream: %d ms mapped: %d ms\n", (t1 - t0), (time() - t1));
+        }
+    }
+
+    /**
+       order dependent checksum of triangles
+     */
+    static class CoordCollector implements TriangleCollector, AttributedTriangleCollector {
+
+        int count;
+        double sum;
+
+        public boolean addTri(Vector3d v0, Vector3d v1, Vector3d v2){
+            add(v0.x, v0.y, v0.z);
+            add(v1.x, v1.y, v1.z);
+            add(v2.x, v2.y, v2.z);
+            count++;
+            return true;
+        }
+
+        public boolean addAttTri(Vec v0, Vec v1, Vec v2){
+            add(v0.v[0], v0.v[1], v0.v[2]);
+            add(v1.v[0], v1.v[1], v1.v[2]);
+            add(v2.v[0], v2.v[1], v2.v[2]);
+            count++;
+            return true;
+        }
+
+        void add(double x, double y, double z){
+            sum = sum * 0.999 + x + 2 * y + 3 * z;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        new TestSTLReader().devTestSpeed();
+    }
+}
@@ -18,16 +18,21 @@ import javax.vecmath.Vector3d;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 
+import java.util.Arrays;
 import java.util.Vector;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 
 import javax.imageio.ImageIO;
 
 
 // external imports
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
 
 
 // Internal Imports
@@ -84,12 +89,83 @@ import static java.lang.Math.*;
  *
  * @version
  */
-public class TestPolyJetWriter {
+public class TestPolyJetWriter extends TestCase {
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestPolyJetWriter.class);
+    }
 
     public void testNothing() {
 
     }
 
+    /**
+       slices written with several threads are the same as slices written with single thread
+     */
+    public void testThreadsCount() throws Exception {
+
+        AbFab3DGlobals.put(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY, 4);
+
+        double ditheringZs[] = new double[]{0., 0.5};
+        String folders[] = new String[ditheringZs.length];
+        for(int k = 0; k < ditheringZs.length; k++){
+            double ditheringZ = ditheringZs[k];
+            String folder1 = writeSlices(1, ditheringZ);
+            folders[k] = folder1;
+            String folder4 = writeSlices(4, ditheringZ);
+            File files[] = new File(folder1).listFiles();
+            assertTrue("slices count", files.length > 10);
+            for(int i = 0; i < files.length; i++){
+                byte data1[] = Files.readAllBytes(files[i].toPath());
+                byte data4[] = Files.readAllBytes(new File(folder4, files[i].getName()).toPath());
+                assertTrue(fmt("slice %s differs, ditheringZ: %3.1f", files[i].getName(), ditheringZ), Arrays.equals(data1, data4));
+            }
+            deleteFolder(folder4);
+        }
+        // error carried between slices changes the slices 
+        int diffCount = 0;
+        for(File file: new File(folders[0]).listFiles()){
+            if(!Arrays.equals(Files.readAllBytes(file.toPath()), Files.readAllBytes(new File(folders[1], file.getName()).toPath())))
+                diffCount++;
+        }
+        deleteFolder(folders[0]);
+        deleteFolder(folders[1]);
+        assertTrue("ditheringZ has no effect", diffCount > 0);
+    }
+
+    static void deleteFolder(String folder){
+        for(File file: new File(folder).listFiles()){
+            file.delete();
+        }
+        new File(folder).delete();
+    }
+
+    String writeSlices(int threads, double ditheringZ) throws Exception {
+
+        DataSource model = makeSphere(6*MM);
+        String folder = Files.createTempDirectory("polyjet").toString();
+
+        PolyJetWriter writer = new PolyJetWriter();
+        writer.set("threadCount", threads);
+        writer.setBounds(model.getBounds());
+        writer.set("model", model);
+        writer.set("sliceThickness", 0.2*MM);
+        writer.set("ditheringZ", ditheringZ);
+        writer.set("outFolder", folder);
+        writer.set("mapping", "materials");
+        writer.set("materials",new String[]{PolyJetWriter.S_CLEAR,
+                                            PolyJetWriter.S_MAGENTA,
+                                            PolyJetWriter.S_CYAN,
+                                            PolyJetWriter.S_YELLOW,
+                                            PolyJetWriter.S_BLACK,
+                                            PolyJetWriter.S_WHITE});
+        writer.write();
+        return folder;
+    }
+
     
     void devTestSingleImage()throws Exception {
         
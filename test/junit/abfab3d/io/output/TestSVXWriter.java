@@ -0,0 +1,105 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.io.output;
+
+import abfab3d.core.AttributeGrid;
+import abfab3d.core.GridDataChannel;
+import abfab3d.core.GridDataDesc;
+import abfab3d.grid.ArrayAttributeGridByte;
+import abfab3d.io.input.SVXReader;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.File;
+import java.io.IOException;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.fmt;
+import static abfab3d.core.Output.time;
+import static abfab3d.core.Units.MM;
+
+/**
+ * Tests the functionality of SVXWriter
+ */
+public class TestSVXWriter extends TestCase {
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestSVXWriter.class);
+    }
+
+    /**
+       grid written and read by several threads is the same as original grid
+     */
+    public void testRoundTripMT() throws IOException {
+
+        AttributeGrid grid = makeGrid(40, 30, 20);
+
+        int threads[] = new int[]{1, 4};
+        for(int i = 0; i < threads.length; i++){
+
+            File file = File.createTempFile("testSVXWriter", ".svx");
+            file.deleteOnExit();
+
+            SVXWriter writer = new SVXWriter();
+            writer.setThreadCount(threads[i]);
+            long t0 = time();
+            writer.write(grid, file.getPath());
+            printf("SVXWriter threads: %d  %d ms\n", threads[i], (time() - t0));
+
+            for(int k = 0; k < threads.length; k++){
+                SVXReader reader = new SVXReader();
+                reader.setThreadCount(threads[k]);
+                AttributeGrid rgrid = reader.load(file.getPath());
+                assertEquals("nx", grid.getWidth(), rgrid.getWidth());
+                assertEquals("ny", grid.getHeight(), rgrid.getHeight());
+                assertEquals("nz", grid.getDepth(), rgrid.getDepth());
+                compareGrids(grid, rgrid, fmt("write threads: %d read threads: %d", threads[i], threads[k]));
+            }
+            file.delete();
+        }
+    }
+
+    static AttributeGrid makeGrid(int nx, int ny, int nz){
+
+        double vs = 0.1*MM;
+        AttributeGrid grid = new ArrayAttributeGridByte(nx, ny, nz, vs, vs);
+        grid.setDataDesc(new GridDataDesc(new GridDataChannel(GridDataChannel.DENSITY, "density", 8, 0, 0., 1.)));
+        for(int y = 0; y < ny; y++){
+            for(int x = 0; x < nx; x++){
+                for(int z = 0; z < nz; z++){
+                    grid.setAttribute(x, y, z, (x*7 + y*13 + z*29) & 0xFF);
+                }
+            }
+        }
+        return grid;
+    }
+
+    static void compareGrids(AttributeGrid grid, AttributeGrid rgrid, String msg){
+
+        for(int y = 0; y < grid.getHeight(); y++){
+            for(int x = 0; x < grid.getWidth(); x++){
+                for(int z = 0; z < grid.getDepth(); z++){
+                    long a = grid.getAttribute(x, y, z) & 0xFF;
+                    long b = rgrid.getAttribute(x, y, z) & 0xFF;
+                    if(a != b)
+                        fail(fmt("%s voxel (%d,%d,%d) expected: %d got: %d", msg, x, y, z, a, b));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.io.output;
+
+import abfab3d.core.AttributeGrid;
+import abfab3d.core.Bounds;
+import abfab3d.core.DataSource;
+import abfab3d.core.GridDataChannel;
+import abfab3d.core.GridDataDesc;
+
+import abfab3d.datasources.Sphere;
+import abfab3d.datasources.Torus;
+import abfab3d.datasources.Union;
+
+import abfab3d.grid.ArrayAttributeGridByte;
+import abfab3d.grid.op.GridMaker;
+
+import abfab3d.mesh.AreaCalculator;
+import abfab3d.mesh.IndexedTriangleSetBuilder;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Units.MM;
+
+/**
+ * Tests the functionality of StreamingMeshMaker
+ */
+public class TestStreamingMeshMaker extends TestCase {
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestStreamingMeshMaker.class);
+    }
+
+    static DataSource makeShape(){
+        return new Union(new Sphere(6*MM), new Torus(6*MM, 2*MM));
+    }
+
+    /**
+       streaming mesh has to be the same as mesh of the whole grid
+     */
+    public void testSameAsGrid() {
+
+        Bounds bounds = new Bounds(-10*MM, 10*MM, -10*MM, 10*MM, -10*MM, 10*MM);
+        double vs = 0.25*MM;
+        double smoothing = 0.5;
+
+        GridDataDesc desc = new GridDataDesc(new GridDataChannel(GridDataChannel.DISTANCE, "dist", 8, 0, -2*vs, 2*vs));
+        AttributeGrid grid = new ArrayAttributeGridByte(bounds, vs, vs);
+        grid.setDataDesc(desc);
+        GridMaker gm = new GridMaker();
+        gm.setSource(makeShape());
+        gm.makeGrid(grid);
+
+        MeshMakerMT mm = new MeshMakerMT();
+        mm.setSmoothingWidth(smoothing);
+        mm.setMaxDecimationCount(0);
+        mm.setDensityMaker(GridSaver.getDensityMaker(grid, 0.));
+        AreaCalculator ac0 = new AreaCalculator();
+        mm.makeMesh(grid, ac0);
+
+        for(int slabSize = 7; slabSize <= 30; slabSize += 23){
+
+            StreamingMeshMaker smm = new StreamingMeshMaker(makeShape(), bounds, vs);
+            smm.setGridPrototype(grid);
+            smm.setSlabSize(slabSize);
+            smm.setMeshSmoothingWidth(smoothing);
+            smm.setMaxDecimationCount(0);
+            IndexedTriangleSetBuilder its = new IndexedTriangleSetBuilder();
+            smm.makeMesh(its);
+
+            double av[] = AreaCalculator.getAreaAndVolume(its.getFaces(), its.getVertices());
+            printf("slab: %d faces: %d area: %10.7f (%10.7f) volume: %10.7f (%10.7f)\n", slabSize,
+                   its.getFaceCount(), av[0], ac0.getArea(), av[1], ac0.getVolume());
+            assertEquals("area", ac0.getArea(), av[0], 1.e-6*ac0.getArea());
+            assertEquals("volume", ac0.getVolume(), av[1], 1.e-6*ac0.getVolume());
+            // vertices along seams should be merged 
+            // union of sphere and torus around it is topological sphere 
+            assertEquals("euler characteristic", 2, getEulerCharacteristic(its));
+        }
+    }
+
+    /**
+       streaming mesh of distance grid with decimation
+     */
+    public void testDistanceDecimation() {
+
+        Bounds bounds = new Bounds(-8*MM, 8*MM, -8*MM, 8*MM, -8*MM, 8*MM);
+        double vs = 0.2*MM;
+        Sphere sphere = new Sphere(5*MM);
+        double r = 5*MM;
+
+        StreamingMeshMaker smm = new StreamingMeshMaker(sphere, bounds, vs);
+        smm.setSlabSize(16);
+        smm.setBufferSize(2);
+        IndexedTriangleSetBuilder its = new IndexedTriangleSetBuilder();
+        smm.makeMesh(its);
+
+        double av[] = AreaCalculator.getAreaAndVolume(its.getFaces(), its.getVertices());
+        double volume = 4*Math.PI*r*r*r/3;
+        printf("faces: %d volume: %10.7f (%10.7f)\n", its.getFaceCount(), av[1], volume);
+        assertEquals("volume", volume, av[1], 0.01*volume);
+        assertEquals("euler characteristic", 2, getEulerCharacteristic(its));
+    }
+
+    /**
+       @return euler characteristic V - E + F of closed manifold mesh 
+     */
+    static int getEulerCharacteristic(IndexedTriangleSetBuilder its){
+        return its.getVertexCount() - its.getFaceCount()/2;
+    }
+}
@@ -0,0 +1,179 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.mesh;
+
+import abfab3d.core.AttributeGrid;
+import abfab3d.core.Bounds;
+import abfab3d.core.DataSource;
+import abfab3d.core.GridDataChannel;
+import abfab3d.core.GridDataDesc;
+
+import abfab3d.datasources.Sphere;
+import abfab3d.datasources.Torus;
+import abfab3d.datasources.Union;
+
+import abfab3d.grid.ArrayAttributeGridByte;
+import abfab3d.grid.DensityMakerFromDistanceChannel;
+import abfab3d.grid.op.GridMaker;
+
+import abfab3d.io.output.MeshMakerMT;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.time;
+import static abfab3d.core.Units.MM;
+
+/**
+ * Tests the functionality of MeshDecimatorHeap
+ */
+public class TestMeshDecimatorHeap extends TestCase {
+
+    static final double VOXEL_SIZE = 0.2*MM;
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestMeshDecimatorHeap.class);
+    }
+
+    static DataSource makeShape(){
+        return new Union(new Sphere(6*MM), new Torus(6*MM, 2*MM));
+    }
+
+    static AttributeGrid makeGrid(){
+
+        double vs = VOXEL_SIZE;
+        Bounds bounds = new Bounds(-10*MM, 10*MM, -10*MM, 10*MM, -10*MM, 10*MM);
+        AttributeGrid grid = new ArrayAttributeGridByte(bounds, vs, vs);
+        grid.setDataDesc(new GridDataDesc(new GridDataChannel(GridDataChannel.DISTANCE, "dist", 8, 0, -2*vs, 2*vs)));
+        GridMaker gm = new GridMaker();
+        gm.setSource(makeShape());
+        gm.makeGrid(grid);
+        return grid;
+    }
+
+    static WingedEdgeTriangleMesh makeMesh(){
+
+        AttributeGrid grid = makeGrid();
+        MeshMakerMT mm = new MeshMakerMT();
+        mm.setMaxDecimationCount(0);
+        mm.setDensityMaker(new DensityMakerFromDistanceChannel(grid.getDataChannel(), 0., grid.getVoxelSize()));
+        IndexedTriangleSetBuilder its = new IndexedTriangleSetBuilder();
+        mm.makeMesh(grid, its);
+        return new WingedEdgeTriangleMesh(its.getVertices(), its.getFaces());
+    }
+
+    static double getVolume(WingedEdgeTriangleMesh mesh){
+        AreaCalculator ac = new AreaCalculator();
+        mesh.getTriangles(ac);
+        return ac.getVolume();
+    }
+
+    /**
+       decimation to half of faces keeps mesh manifold and does not change the volume
+     */
+    public void testHalfFaces() {
+
+        WingedEdgeTriangleMesh mesh = makeMesh();
+        double volume0 = getVolume(mesh);
+        int fcount0 = mesh.getFaceCount();
+
+        MeshDecimatorHeap md = new MeshDecimatorHeap();
+        md.setMaxCollapseError(0.1*VOXEL_SIZE*VOXEL_SIZE);
+        int target = fcount0/2;
+        int fcount = md.processMesh(mesh, target);
+        double volume = getVolume(mesh);
+        printf("faces: %d -> %d volume: %10.7f -> %10.7f\n", fcount0, fcount, volume0/(MM*MM*MM), volume/(MM*MM*MM));
+
+        assertEquals("face count", mesh.getFaceCount(), fcount);
+        assertTrue("face count", fcount <= target + 1);
+        assertTrue("manifold", TestWingedEdgeTriangleMesh.isManifold(mesh));
+        assertEquals("volume", volume0, volume, 0.002*volume0);
+    }
+
+    /**
+       zero max error prevents any collapse
+     */
+    public void testMaxError() {
+
+        WingedEdgeTriangleMesh mesh = makeMesh();
+        int fcount0 = mesh.getFaceCount();
+
+        MeshDecimatorHeap md = new MeshDecimatorHeap();
+        md.setMaxCollapseError(0.);
+        int fcount = md.processMesh(mesh, fcount0/2);
+        assertEquals("face count", fcount0, fcount);
+    }
+
+    /**
+       heap decimation is compared with random sampling decimation
+     */
+    public void testCompareRandom() {
+
+        double maxError = 0.1*VOXEL_SIZE*VOXEL_SIZE;
+        MeshDecimator decimators[] = new MeshDecimator[]{new MeshDecimator(), new MeshDecimatorHeap()};
+        double volumeError[] = new double[decimators.length];
+        int faces[] = new int[decimators.length];
+
+        for(int i = 0; i < decimators.length; i++){
+
+            WingedEdgeTriangleMesh mesh = makeMesh();
+            double volume0 = getVolume(mesh);
+            MeshDecimator md = decimators[i];
+            md.setMaxCollapseError(maxError);
+            long t0 = time();
+            int fcount = mesh.getFaceCount();
+            for(int k = 0; k < 4; k++){
+                fcount = md.processMesh(mesh, fcount/2);
+            }
+            faces[i] = fcount;
+            volumeError[i] = Math.abs(getVolume(mesh) - volume0)/volume0;
+            printf("%s faces: %d volume error: %8.6f time: %d ms\n", md.getClass().getSimpleName(), fcount, volumeError[i], (time() - t0));
+            assertTrue("manifold", TestWingedEdgeTriangleMesh.isManifold(mesh));
+        }
+        // heap decimator always collapses the best edge and should reach the same face count
+        assertTrue("face count", faces[1] <= faces[0]*1.05);
+        assertTrue("volume error", volumeError[1] < 0.005);
+    }
+
+    /**
+       heap decimation used by MeshMakerMT
+     */
+    public void testMeshMaker() {
+
+        AttributeGrid grid = makeGrid();
+        int faces[] = new int[2];
+        double volume[] = new double[2];
+        int algorithms[] = new int[]{MeshMakerMT.DECIMATION_RANDOM, MeshMakerMT.DECIMATION_HEAP};
+
+        for(int i = 0; i < algorithms.length; i++){
+
+            MeshMakerMT mm = new MeshMakerMT();
+            mm.setMaxDecimationError(0.1*VOXEL_SIZE*VOXEL_SIZE);
+            mm.setDecimationAlgorithm(algorithms[i]);
+            mm.setDensityMaker(new DensityMakerFromDistanceChannel(grid.getDataChannel(), 0., grid.getVoxelSize()));
+            IndexedTriangleSetBuilder its = new IndexedTriangleSetBuilder();
+            mm.makeMesh(grid, its);
+            double av[] = AreaCalculator.getAreaAndVolume(its.getFaces(), its.getVertices());
+            faces[i] = its.getFaceCount();
+            volume[i] = av[1];
+            printf("algorithm: %d faces: %d volume: %10.7f\n", algorithms[i], faces[i], volume[i]/(MM*MM*MM));
+        }
+        assertTrue("face count", faces[1] <= faces[0]*1.05);
+        assertEquals("volume", volume[0], volume[1], 0.005*volume[0]);
+    }
+}
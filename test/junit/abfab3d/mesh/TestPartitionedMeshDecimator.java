@@ -0,0 +1,148 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.mesh;
+
+import abfab3d.core.Bounds;
+import abfab3d.core.DataSource;
+import abfab3d.core.TriangleCollector;
+
+import abfab3d.datasources.Sphere;
+import abfab3d.datasources.Torus;
+import abfab3d.datasources.Union;
+
+import abfab3d.io.output.StreamingMeshMaker;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import javax.vecmath.Vector3d;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.time;
+import static abfab3d.core.Units.MM;
+
+/**
+ * Tests the functionality of PartitionedMeshDecimator
+ */
+public class TestPartitionedMeshDecimator extends TestCase {
+
+    static final double VOXEL_SIZE = 0.2*MM;
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestPartitionedMeshDecimator.class);
+    }
+
+    static Bounds getBounds(){
+        return new Bounds(-10*MM, 10*MM, -10*MM, 10*MM, -10*MM, 10*MM);
+    }
+
+    static void makeMesh(TriangleCollector tc){
+
+        DataSource shape = new Union(new Sphere(6*MM), new Torus(6*MM, 2*MM));
+        StreamingMeshMaker smm = new StreamingMeshMaker(shape, getBounds(), VOXEL_SIZE);
+        smm.setMaxDecimationCount(0);
+        smm.setSlabSize(20);
+        smm.makeMesh(tc);
+    }
+
+    /**
+       without decimation all triangles are passed through partitions unchanged
+     */
+    public void testNoDecimation() {
+
+        PartitionedMeshDecimator pmd = new PartitionedMeshDecimator(getBounds(), 5*MM);
+        pmd.setMaxDecimationCount(0);
+        pmd.setChunkSize(1000);
+        makeMesh(pmd);
+        IndexedTriangleSetBuilder its = new IndexedTriangleSetBuilder();
+        int fcount = pmd.decimate(its);
+
+        assertEquals("face count", pmd.getInputFaceCount(), fcount);
+        assertEquals("face count", fcount, its.getFaceCount());
+        assertEquals("euler characteristic", 2, its.getVertexCount() - its.getFaceCount()/2);
+    }
+
+    /**
+       decimated mesh stays closed and connected across partition seams
+     */
+    public void testDecimation() {
+
+        AreaCalculator ac0 = new AreaCalculator();
+        makeMesh(ac0);
+
+        for(int passCount = 1; passCount <= 3; passCount += 2){
+
+            PartitionedMeshDecimator pmd = new PartitionedMeshDecimator(getBounds(), 5*MM);
+            pmd.setMaxCollapseError(0.1*VOXEL_SIZE*VOXEL_SIZE);
+            pmd.setPassCount(passCount);
+            pmd.setChunkSize(5000);
+            makeMesh(pmd);
+
+            IndexedTriangleSetBuilder its = new IndexedTriangleSetBuilder();
+            long t0 = time();
+            int fcount = pmd.decimate(its);
+            double av[] = AreaCalculator.getAreaAndVolume(its.getFaces(), its.getVertices());
+            printf("passes: %d faces: %d -> %d volume: %10.7f (%10.7f) time: %d ms\n", passCount, pmd.getInputFaceCount(), fcount,
+                   av[1]/(MM*MM*MM), ac0.getVolume()/(MM*MM*MM), (time() - t0));
+
+            assertEquals("volume", ac0.getVolume(), av[1], 0.005*ac0.getVolume());
+            assertTrue("face count", fcount < pmd.getInputFaceCount()/4);
+            assertEquals("face count", fcount, its.getFaceCount());
+            assertEquals("euler characteristic", 2, its.getVertexCount() - its.getFaceCount()/2);
+            WingedEdgeTriangleMesh mesh = new WingedEdgeTriangleMesh(its.getVertices(), its.getFaces());
+            assertTrue("manifold", TestWingedEdgeTriangleMesh.isManifold(mesh));
+        }
+    }
+
+    /**
+       temporary files are deleted after decimation and after failure
+     */
+    public void testTempFiles() throws Exception {
+
+        File dir = Files.createTempDirectory("TestPartitionedMeshDecimator").toFile();
+        try {
+            for(int k = 0; k < 2; k++){
+                final boolean fail = (k == 1);
+                PartitionedMeshDecimator pmd = new PartitionedMeshDecimator(getBounds(), 5*MM);
+                pmd.setPassCount(2);
+                pmd.setChunkSize(1000);
+                pmd.setTempDir(dir);
+                makeMesh(pmd);
+                assertTrue("partition files", dir.list().length > 0);
+                boolean failed = false;
+                try {
+                    pmd.decimate(new TriangleCollector(){
+                            public boolean addTri(Vector3d v0,Vector3d v1,Vector3d v2){
+                                if(fail)
+                                    throw new IllegalStateException("failed output");
+                                return true;
+                            }
+                        });
+                } catch(IllegalStateException e){
+                    failed = true;
+                }
+                assertEquals("failed", fail, failed);
+                assertEquals("remaining files", 0, dir.list().length);
+            }
+        } finally {
+            dir.delete();
+        }
+    }
+}
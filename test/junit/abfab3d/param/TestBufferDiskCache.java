@@ -280,4 +280,75 @@ public class TestBufferDiskCache extends TestCase {
         }
     }
 
+    /**
+     * Partial reads of buffer spanning several compressed blocks
+     */
+    public void testPartialRead() {
+        BufferDiskCache cache = new BufferDiskCache((int)10e7, dir + "_blocks", true, false);
+        cache.clear();
+
+        int num = 3 * BufferDiskCache.BLOCK_SIZE / 4 + 1000;
+        int[] data = new int[num];
+        for(int i=0; i < num; i++) {
+            data[i] = (i % 1000 == 0) ? -i : i / 16;
+        }
+        cache.put(new LabeledBuffer<int[]>("partial", data));
+
+        int[] all = (int[]) cache.get("partial").getBuffer();
+        assertEquals("size wrong", num, all.length);
+        for(int i=0; i < num; i++) {
+            assertEquals("contents wrong", data[i], all[i]);
+        }
+
+        // range crossing block boundary
+        int start = BufferDiskCache.BLOCK_SIZE / 4 - 10;
+        int[] part = (int[]) cache.get("partial", start, 20000).getBuffer();
+        assertEquals("size wrong", 20000, part.length);
+        for(int i=0; i < part.length; i++) {
+            assertEquals("contents wrong", data[start + i], part[i]);
+        }
+
+        // last elements
+        part = (int[]) cache.get("partial", num - 5, 5).getBuffer();
+        assertEquals("last", data[num - 1], part[4]);
+    }
+
+    /**
+     * Lazy writes from several threads, buffers are available before they are written
+     */
+    public void testLazyWritesThreads() throws Exception {
+        final BufferDiskCache cache = new BufferDiskCache((int)10e7, dir + "_lazy", true, true);
+        cache.clear();
+
+        int threads = 4;
+        final int count = 50;
+        Thread[] workers = new Thread[threads];
+        for(int t=0; t < threads; t++) {
+            final int id = t;
+            workers[t] = new Thread() {
+                public void run() {
+                    for(int i=0; i < count; i++) {
+                        float[] data = new float[10000];
+                        for(int j=0; j < data.length; j++) data[j] = id * count + i + j * 0.5f;
+                        cache.put(new LabeledBuffer<float[]>("lazy_" + id + "_" + i, data));
+                    }
+                }
+            };
+            workers[t].start();
+        }
+        for(int t=0; t < threads; t++) {
+            workers[t].join();
+        }
+
+        for(int t=0; t < threads; t++) {
+            for(int i=0; i < count; i++) {
+                LabeledBuffer buff = cache.get("lazy_" + t + "_" + i, 100, 2);
+                assertNotNull("return null", buff);
+                float[] data = (float[]) buff.getBuffer();
+                assertEquals("contents wrong", t * count + i + 50f, data[0]);
+                assertEquals("contents wrong", t * count + i + 50.5f, data[1]);
+            }
+        }
+        cache.shutdown();
+    }
 }
@@ -0,0 +1,136 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.param;
+
+import abfab3d.core.LabeledBuffer;
+import com.google.common.cache.CacheStats;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.Arrays;
+
+/**
+ * Tests the functionality of OffHeapCache
+ */
+public class TestOffHeapCache extends TestCase {
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestOffHeapCache.class);
+    }
+
+    /**
+     * Buffers of all types are restored unchanged
+     */
+    public void testTypes() {
+        OffHeapCache cache = new OffHeapCache(1000000);
+
+        cache.put(new LabeledBuffer<byte[]>("b", new byte[]{1, -2, 3}), 0);
+        cache.put(new LabeledBuffer<short[]>("s", new short[]{1, -2, 3}), 0);
+        cache.put(new LabeledBuffer<int[]>("i", new int[]{1, -2, 3}), 0);
+        cache.put(new LabeledBuffer<float[]>("f", new float[]{1.5f, -2, 3}), 0);
+        cache.put(new LabeledBuffer<double[]>("d", new double[]{1.5, -2, 3}), 0);
+
+        assertTrue(Arrays.equals(new byte[]{1, -2, 3}, (byte[]) cache.get("b").getBuffer()));
+        assertTrue(Arrays.equals(new short[]{1, -2, 3}, (short[]) cache.get("s").getBuffer()));
+        assertTrue(Arrays.equals(new int[]{1, -2, 3}, (int[]) cache.get("i").getBuffer()));
+        assertTrue(Arrays.equals(new float[]{1.5f, -2, 3}, (float[]) cache.get("f").getBuffer()));
+        assertTrue(Arrays.equals(new double[]{1.5, -2, 3}, (double[]) cache.get("d").getBuffer()));
+        assertEquals("label", "d", cache.get("d").getLabel());
+        assertNull("miss", cache.get("x"));
+
+        assertEquals("bytes", 3 + 6 + 12 + 12 + 24, cache.getSizeBytes());
+        CacheStats stats = cache.getStats();
+        assertEquals("hits", 6, stats.hitCount());
+        assertEquals("misses", 1, stats.missCount());
+    }
+
+    /**
+     * Least recently used entries are evicted
+     */
+    public void testEviction() {
+        OffHeapCache cache = new OffHeapCache(3000);
+
+        cache.put(new LabeledBuffer<byte[]>("a", new byte[1000]), 0);
+        cache.put(new LabeledBuffer<byte[]>("b", new byte[1000]), 0);
+        cache.put(new LabeledBuffer<byte[]>("c", new byte[1000]), 0);
+        assertNotNull(cache.get("a"));
+
+        cache.put(new LabeledBuffer<byte[]>("d", new byte[1000]), 0);
+        assertNull("evicted", cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        assertEquals("bytes", 3000, cache.getSizeBytes());
+        assertEquals("evictions", 1, cache.getStats().evictionCount());
+
+        // too large for the cache
+        assertFalse("large", cache.put(new LabeledBuffer<byte[]>("e", new byte[2000]), 1000));
+    }
+
+    /**
+     * Cheap buffers do not displace expensive ones
+     */
+    public void testAdmission() {
+        OffHeapCache cache = new OffHeapCache(2000);
+
+        assertTrue(cache.put(new LabeledBuffer<byte[]>("a", new byte[1000]), 100));
+        assertTrue(cache.put(new LabeledBuffer<byte[]>("b", new byte[1000]), 100));
+
+        assertFalse("cheap", cache.put(new LabeledBuffer<byte[]>("c", new byte[1000]), 10));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+        assertEquals("rejects", 1, cache.getRejectCount());
+
+        // expensive buffer replaces least recently used one
+        assertTrue("expensive", cache.put(new LabeledBuffer<byte[]>("d", new byte[1000]), 500));
+        assertNull("evicted", cache.get("a"));
+        assertNotNull(cache.get("d"));
+    }
+
+    /**
+     * CPUCache stats include off heap lookups
+     */
+    public void testCPUCacheStats() {
+        CPUCache cache = CPUCache.getInstance();
+        OffHeapCache ohCache0 = cache.getOffHeapCache();
+        OffHeapCache ohCache = new OffHeapCache(1000000);
+        cache.setOffHeapCache(ohCache);
+        try {
+            checkCPUCacheStats(cache, ohCache);
+        } finally {
+            cache.setOffHeapCache(ohCache0);
+        }
+    }
+
+    void checkCPUCacheStats(CPUCache cache, OffHeapCache ohCache) {
+
+        CacheStats stats0 = cache.getStats();
+        CacheStats ohStats0 = ohCache.getStats();
+
+        String label = "TestOffHeapCache.stats." + System.nanoTime();
+        cache.put(new LabeledBuffer<byte[]>(label, new byte[]{1, 2, 3}), false, 10);
+        assertNotNull(cache.get(label));
+        assertNotNull(ohCache.get(label));
+        assertNull(cache.get(label + ".missing"));
+
+        CacheStats stats = cache.getStats().minus(stats0);
+        CacheStats ohStats = ohCache.getStats().minus(ohStats0);
+        assertEquals("off heap hits", 1, ohStats.hitCount());
+        assertEquals("hits", 2, stats.hitCount());
+        assertEquals("misses", 1, stats.missCount());
+    }
+}
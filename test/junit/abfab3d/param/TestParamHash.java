@@ -0,0 +1,139 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.param;
+
+import java.awt.image.BufferedImage;
+
+import abfab3d.datasources.Box;
+import abfab3d.datasources.Image3D;
+import abfab3d.datasources.ImageWrapper;
+import abfab3d.datasources.Intersection;
+import abfab3d.datasources.Sphere;
+import abfab3d.datasources.Torus;
+import abfab3d.datasources.Union;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static abfab3d.core.Output.printf;
+import static abfab3d.core.Output.time;
+import static abfab3d.core.Units.MM;
+
+/**
+ * Tests the functionality of ParamHash
+ */
+public class TestParamHash extends TestCase {
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestParamHash.class);
+    }
+
+    static Union makeTree(double boxSize, double torusRadius){
+        return new Union(new Sphere(5*MM), new Intersection(new Box(boxSize, boxSize, boxSize), new Torus(torusRadius, 1*MM)));
+    }
+
+    /**
+       hash of equal trees are equal and change of any param changes hash
+     */
+    public void testHash() {
+
+        String h1 = ParamHash.getHash(makeTree(10*MM, 4*MM));
+        String h2 = ParamHash.getHash(makeTree(10*MM, 4*MM));
+        assertEquals("hash length", 32, h1.length());
+        assertEquals("equal trees", h1, h2);
+
+        // change of deep child
+        assertFalse("torus changed", h1.equals(ParamHash.getHash(makeTree(10*MM, 4.0001*MM))));
+        assertFalse("box changed", h1.equals(ParamHash.getHash(makeTree(10.0001*MM, 4*MM))));
+
+        // change of node params
+        Union u = makeTree(10*MM, 4*MM);
+        u.set("blend", 1*MM);
+        assertFalse("blend changed", h1.equals(ParamHash.getHash(u)));
+
+        // change of the node class
+        assertFalse("class changed", ParamHash.getHash(new Sphere(5*MM)).equals(ParamHash.getHash(new Box(5*MM, 5*MM, 5*MM))));
+
+        assertEquals("param hash", h1, makeTree(10*MM, 4*MM).getParamHash());
+    }
+
+    /**
+       nodes with state outside of params are distinguished by hash
+     */
+    public void testCustomParamString() {
+
+        ImageWrapper w1 = new ImageWrapper(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+        ImageWrapper w2 = new ImageWrapper(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+        assertFalse("param strings differ", w1.getParamString().equals(w2.getParamString()));
+        assertFalse("wrappers of different images", ParamHash.getHash(w1).equals(ParamHash.getHash(w2)));
+        assertFalse("param hash", w1.getParamHash().equals(w2.getParamHash()));
+        assertEquals("same wrapper", ParamHash.getHash(w1), ParamHash.getHash(w1));
+
+        // wrappers as children of other nodes
+        Image3D i1 = new Image3D(w1.getImage(), 10*MM, 10*MM, 1*MM);
+        Image3D i2 = new Image3D(w2.getImage(), 10*MM, 10*MM, 1*MM);
+        assertFalse("images with different wrappers", ParamHash.getHash(i1).equals(ParamHash.getHash(i2)));
+        assertFalse("data hash", i1.getDataHash().equals(i2.getDataHash()));
+    }
+
+    /**
+       miss returns null, put and get use the same key
+     */
+    public void testCache() {
+
+        ParamCache cache = ParamCache.getInstance();
+        String key = ParamHash.getHash(makeTree(11*MM, 3*MM));
+        assertNull("miss", cache.get(key));
+        Object value = new Object();
+        cache.put(key, value);
+        assertSame("hit", value, cache.get(ParamHash.getHash(makeTree(11*MM, 3*MM))));
+        cache.remove(key);
+        assertNull("removed", cache.get(key));
+    }
+
+    /**
+       compare speed of param string and param hash
+     */
+    public void devTestSpeed() {
+
+        Union tree = makeTree(10*MM, 4*MM);
+        for(int i = 0; i < 5; i++){
+            Union u = new Union();
+            u.add(tree);
+            u.add(makeTree(10*MM + i, 4*MM));
+            tree = u;
+        }
+        int count = 20000;
+        for(int k = 0; k < 3; k++){
+            long t0 = time();
+            int len = 0;
+            for(int i = 0; i < count; i++){
+                len += tree.getParamString().length();
+            }
+            long t1 = time();
+            for(int i = 0; i < count; i++){
+                len += ParamHash.getHash(tree).length();
+            }
+            long t2 = time();
+            printf("string: %d ms hash: %d ms (%d)\n", (t1 - t0), (t2 - t1), len);
+        }
+    }
+
+    public static void main(String[] args) {
+        new TestParamHash().devTestSpeed();
+    }
+}
@@ -3,9 +3,9 @@ package abfab3d.shapejs;
 import java.awt.image.BufferedImage;
 
 /**
- *
+ * Image comparison helpers used by tests
  */
-public class ImageUtilTest {
+public class ImageTestUtil {
     /**
      * Determines image equality based on size and color of each pixel.
      *
@@ -50,6 +50,34 @@ public class ImageUtilTest {
         return true;
     }
 
+    /**
+     * Counts pixels of images of the same size which differ by more than tolerance in any of red, green, blue channels
+     *
+     * @param image1 The first image
+     * @param image2 The second image
+     * @param tolerance max allowed difference of color channels
+     * @return count of different pixels
+     */
+    public static int getDifferentPixelsCount(BufferedImage image1, BufferedImage image2, int tolerance) {
+        int width = image1.getWidth();
+        int height = image1.getHeight();
+        int count = 0;
+
+        for (int x=0; x<width; x++) {
+            for (int y=0; y<height; y++) {
+                int color1 = image1.getRGB(x, y);
+                int color2 = image2.getRGB(x, y);
+                for (int shift = 0; shift < 24; shift += 8) {
+                    if (Math.abs(((color1 >> shift) & 0xff) - ((color2 >> shift) & 0xff)) > tolerance) {
+                        count++;
+                        break;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
     // Check that the image is not totally one color
     public static boolean isConstantImage(BufferedImage image) {
         int width = image.getWidth();
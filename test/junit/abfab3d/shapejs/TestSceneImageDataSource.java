@@ -86,6 +86,34 @@ public class TestSceneImageDataSource extends TestCase {
         
     }
 
+    /**
+       cone tracing of pixel blocks should give the same image 
+     */
+    public void testConeTracing() {
+
+        int width = 128, height = 96;
+        double s = (double)width/height;
+        BufferedImage images[] = new BufferedImage[2];
+        long times[] = new long[2];
+        for(int k = 0; k < 2; k++){
+            SceneImageDataSource sids = makeSceneImageDataSource(makeSceneGyroid());
+            sids.set("shadowsQuality",0);
+            sids.set("coneTracing", (k == 1));
+            ImageMaker im = new ImageMaker();
+            im.set("imgRenderer",sids);
+            im.set("width", width);
+            im.set("height", height);
+            im.setBounds(new Bounds(-s,s,-1,1,-1,1));
+            long t0 = time();
+            images[k] = im.getImage();
+            times[k] = time() - t0;
+        }
+        int diffCount = ImageTestUtil.getDifferentPixelsCount(images[0], images[1], 2);
+        printf("render time: %d ms, with cone tracing: %d ms, different pixels: %d\n", times[0], times[1], diffCount);
+        // rays may converge to slightly different points at silhouettes 
+        assertTrue(fmt("different pixels: %d", diffCount), diffCount <= width*height/100);
+    }
+
 
     static int sm_raytracingDepth  = 4;
     static int sm_maxIntersections  = 10;
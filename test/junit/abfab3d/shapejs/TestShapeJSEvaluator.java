@@ -57,6 +57,78 @@ public class TestShapeJSEvaluator extends TestCase {
         assertNotNull("Period param missing", params.get("period"));
     }
 
+    /**
+     * Identical scripts are compiled once and do not share variables
+     */
+    public void testScriptCaching() {
+        String code =
+                "if (typeof counter == 'undefined') counter = 0;\n" +
+                "counter++;\n" +
+                "function main(args) {\n" +
+                "    print('counter: ' + counter);\n" +
+                "    return new Scene(new Sphere(10*MM));\n" +
+                "}\n";
+
+        ShapeJSEvaluator.clearScriptCache();
+
+        for(int i=0; i < 2; i++) {
+            ShapeJSEvaluator eval = new ShapeJSEvaluator();
+            eval.prepareScript(code, null);
+            assertTrue("Not success", eval.getResult().isSuccess());
+
+            EvaluatedScript result = eval.executeScript("main");
+            assertTrue("Not success", result.isSuccess());
+
+            String[] prints = result.getPrintLogs();
+            assertTrue("Must contain one print",prints.length == 1);
+            assertTrue("Variable shared between scripts: " + prints[0], prints[0].contains("counter: 1"));
+        }
+
+        assertEquals("Compiled scripts", 1, ShapeJSEvaluator.getCachedScriptCount());
+    }
+
+    /**
+     * Imports of one script are not visible to other scripts
+     */
+    public void testImportsIsolation() {
+        String codeA =
+                "importClass(java.util.ArrayList);\n" +
+                "importPackage(java.util);\n" +
+                "function main(args) {\n" +
+                "    var list = new ArrayList();\n" +
+                "    var map = new HashMap();\n" +
+                "    print('size: ' + (list.size() + map.size()));\n" +
+                "    return new Scene(new Sphere(10*MM));\n" +
+                "}\n";
+        String codeB =
+                "function main(args) {\n" +
+                "    var list = new %s();\n" +
+                "    return new Scene(new Sphere(10*MM));\n" +
+                "}\n";
+
+        ShapeJSEvaluator.clearScriptCache();
+
+        ShapeJSEvaluator evalA = new ShapeJSEvaluator();
+        evalA.prepareScript(codeA, null);
+        assertTrue("Not success", evalA.getResult().isSuccess());
+        EvaluatedScript result = evalA.executeScript("main");
+        assertTrue("Imports not resolved", result.isSuccess());
+
+        for (String name : new String[]{"ArrayList", "HashMap"}) {
+            ShapeJSEvaluator evalB = new ShapeJSEvaluator();
+            evalB.prepareScript(String.format(codeB, name), null);
+            assertTrue("Not success", evalB.getResult().isSuccess());
+            result = evalB.executeScript("main");
+            assertFalse("Import leaked to other script: " + name, result.isSuccess());
+        }
+
+        // default imports are still available
+        ShapeJSEvaluator evalC = new ShapeJSEvaluator();
+        evalC.prepareScript(String.format(codeB, "Vector"), null);
+        assertTrue("Not success", evalC.getResult().isSuccess());
+        assertTrue("Default import missing", evalC.executeScript("main").isSuccess());
+    }
+
     public void testUndefined() {
         URI uri = new File("test/scripts/undefined.js").toURI();
         Script s = new Script(uri);
@@ -10,6 +10,8 @@ import javax.vecmath.Matrix4f;
 import javax.vecmath.Vector3f;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -51,7 +53,7 @@ public class TestShapeJSExecutorCpu {
                 ImageIO.write(image1, "png", fout);
             }
 
-            Assert.assertFalse("Image is constant",ImageUtilTest.isConstantImage(image1));
+            Assert.assertFalse("Image is constant",ImageTestUtil.isConstantImage(image1));
 
             // Change the params and make sure the results are different
 
@@ -71,7 +73,7 @@ public class TestShapeJSExecutorCpu {
                 ImageIO.write(image2, "png", fout);
             }
 
-            Assert.assertFalse("Image is constant",ImageUtilTest.isImageEqual(image1,image2));
+            Assert.assertFalse("Image is constant",ImageTestUtil.isImageEqual(image1,image2));
 
         } catch (IOException ioe) {
             ioe.printStackTrace();
@@ -111,7 +113,56 @@ public class TestShapeJSExecutorCpu {
                 ImageIO.write(image,"png",fout);
             }
 
-            Assert.assertFalse("Image is constant",ImageUtilTest.isConstantImage(image));
+            Assert.assertFalse("Image is constant",ImageTestUtil.isConstantImage(image));
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            fail("IOException: " + ioe.getMessage());
+        }
+    }
+
+    @Test
+    public void testRenderImageProgressive() {
+
+        final ShapeJSExecutorCpu impl = new ShapeJSExecutorCpu();
+        try {
+            Scene scene = loadScript("test/scripts/gyrosphere_params.js", null, false);
+            int w = 256;
+            int h = 256;
+
+            MatrixCamera camera = new MatrixCamera(getView());
+
+            ImageSetup setup = new ImageSetup(w, h, getView(), ImageSetup.IMAGE_JPEG, 0.5f, AntiAliasingType.NONE, false, 0f, 1);
+
+            BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            impl.renderImage(scene, camera, setup, image);
+
+            BufferedImage progImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            final ArrayList<Integer> steps = new ArrayList<Integer>();
+            boolean completed = impl.renderImageProgressive(scene, camera, setup, progImage, 8, 
+                    new ShapeJSExecutorCpu.ProgressiveImageListener() {
+                        public boolean imageRendered(BufferedImage img, int step) {
+                            steps.add(step);
+                            return true;
+                        }
+                    });
+
+            Assert.assertTrue("Rendering is not completed", completed);
+            Assert.assertEquals("Progressive levels", Arrays.asList(8, 4, 2, 1), steps);
+            Assert.assertTrue("Progressive image differs from regular image", ImageTestUtil.isImageEqual(image, progImage));
+
+            // cancel after the first level 
+            steps.clear();
+            completed = impl.renderImageProgressive(scene, camera, setup, progImage, 8, 
+                    new ShapeJSExecutorCpu.ProgressiveImageListener() {
+                        public boolean imageRendered(BufferedImage img, int step) {
+                            steps.add(step);
+                            impl.cancelProgressiveRendering();
+                            return true;
+                        }
+                    });
+            Assert.assertFalse("Rendering is not cancelled", completed);
+            Assert.assertEquals("Progressive levels", Arrays.asList(8), steps);
+
         } catch (IOException ioe) {
             ioe.printStackTrace();
             fail("IOException: " + ioe.getMessage());
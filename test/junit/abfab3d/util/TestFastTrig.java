@@ -0,0 +1,70 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.util;
+
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import static abfab3d.core.Output.fmt;
+
+/**
+ * Tests the functionality of FastTrig
+ */
+public class TestFastTrig extends TestCase {
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestFastTrig.class);
+    }
+
+    /**
+       error relative to Math.sin() and Math.cos() is within documented bound for positive, negative and large arguments
+     */
+    public void testAccuracy() {
+
+        Random rnd = new Random(101);
+        double sc[] = new double[2];
+        int count = 100000;
+        double x[] = new double[count];
+        double sin[] = new double[count];
+        double cos[] = new double[count];
+
+        for(double range = 1; range <= 1.e8; range *= 10){
+            for(int i = 0; i < count; i++)
+                x[i] = (2*rnd.nextDouble() - 1)*range;
+            FastTrig.sincos(x, sin, cos, count);
+
+            for(int i = 0; i < count; i++){
+                double s = Math.sin(x[i]), c = Math.cos(x[i]);
+                double bound = FastTrig.getErrorBound(x[i]);
+                FastTrig.sincos(x[i], sc);
+                check(x[i], "sin", s, FastTrig.sin(x[i]), bound);
+                check(x[i], "cos", c, FastTrig.cos(x[i]), bound);
+                check(x[i], "sincos", s, sc[0], bound);
+                check(x[i], "sincos", c, sc[1], bound);
+                check(x[i], "batch sin", s, sin[i], bound);
+                check(x[i], "batch cos", c, cos[i], bound);
+            }
+        }
+    }
+
+    static void check(double x, String name, double expected, double value, double bound){
+        if(Math.abs(value - expected) > bound)
+            fail(fmt("%s(%s): %s expected: %s error: %s bound: %s", name, x, value, expected, Math.abs(value - expected), bound));
+    }
+}
@@ -104,6 +104,56 @@ public class TestPerlinNoise3D extends TestCase {
     }
 
 
+    /**
+       noise interpolated from table is close to exact noise 
+     */
+    public void testTable(){
+
+        int nx = 10, ny = 10, nz = 10;
+        int seed = 11;
+        int resolution = 8;
+
+        PerlinNoise3D exact = new PerlinNoise3D(nx, ny, nz, seed);
+        PerlinNoise3D table = new PerlinNoise3D(nx, ny, nz, seed);
+        table.setTableResolution(resolution);
+
+        int N = 200000;
+        double coord[] = new double[3*N];
+        java.util.Random rnd = new java.util.Random(seed);
+        for(int i = 0; i < coord.length; i++){
+            coord[i] = 40*(rnd.nextDouble()-0.5);
+        }
+        double maxError = 0;
+        for(int i = 0; i < N; i++){
+            double x = coord[3*i], y = coord[3*i+1], z = coord[3*i+2];
+            maxError = Math.max(maxError, abs(exact.get(x,y,z) - table.get(x,y,z)));
+        }
+        assertTrue("table max error: " + maxError, maxError < 0.05);
+
+        // values at the table nodes 
+        for(int i = 0; i < 100; i++){
+            double x = 0.125*i, y = 0.25*i - 7, z = 0.5*i + 3;
+            assertEquals("node value", exact.get(x,y,z), table.get(x,y,z), 1.e-6);
+        }
+    }
+
+    /**
+       too large table is rejected and previous table is kept 
+     */
+    public void testTableSizeLimit(){
+
+        PerlinNoise3D noise = new PerlinNoise3D(100, 100, 100, 11);
+        noise.setTableResolution(2);
+        boolean rejected = false;
+        try {
+            noise.setTableResolution(2000);
+        } catch(RuntimeException e){
+            rejected = true;
+        }
+        assertTrue("table size is checked", rejected);
+        assertEquals("table resolution", 2, noise.tableResolution);
+    }
+
     public static void main(String arg[]){
 
         //new TestPerlinNoise3D().testRemainder();
@@ -0,0 +1,238 @@
+/*****************************************************************************
+ *                        Shapeways, Inc Copyright (c) 2026
+ *                               Java Source
+ *
+ * This source is licensed under the GNU LGPL v2.1
+ * Please read http://www.gnu.org/copyleft/lgpl.html for more information
+ *
+ * This software comes with the standard NO WARRANTY disclaimer for any
+ * purpose. Use it at your own risk. If there's a problem you get to fix it.
+ *
+ ****************************************************************************/
+
+package abfab3d.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import abfab3d.grid.util.ExecutionStoppedException;
+
+import static abfab3d.core.Output.printf;
+
+/**
+ * Tests the functionality of TileScheduler
+ */
+public class TestTileScheduler extends TestCase {
+
+    /**
+     * Creates a test suite consisting of all the methods that start with "test".
+     */
+    public static Test suite() {
+        return new TestSuite(TestTileScheduler.class);
+    }
+
+    /**
+       each voxel of the domain has to be processed exactly once
+     */
+    public void testTilesCoverage() {
+
+        int nx = 37, ny = 21, nz = 13;
+        for(int threads = 1; threads <= 4; threads += 3){
+            final AtomicIntegerArray counts = new AtomicIntegerArray(nx*ny*nz);
+            final int fnx = nx, fny = ny;
+            TileScheduler.runTiles(new Tile(0, nx-1, 0, ny-1, 0, nz-1), 8, 5, 4, threads,
+                                   new TileScheduler.TileProcessorFactory(){
+                                       public TileScheduler.TileProcessor makeProcessor(){
+                                           return new TileScheduler.TileProcessor(){
+                                               public void processTile(Tile tile){
+                                                   assertTrue(tile.getSizeX() <= 8 && tile.getSizeY() <= 5 && tile.getSizeZ() <= 4);
+                                                   for(int z = tile.zmin; z <= tile.zmax; z++)
+                                                       for(int y = tile.ymin; y <= tile.ymax; y++)
+                                                           for(int x = tile.xmin; x <= tile.xmax; x++)
+                                                               counts.incrementAndGet(x + fnx*(y + fny*z));
+                                               }
+                                           };
+                                       }
+                                   });
+            for(int i = 0; i < counts.length(); i++){
+                assertEquals("voxel processing count", 1, counts.get(i));
+            }
+        }
+    }
+
+    /**
+       job should not use more threads than requested 
+     */
+    public void testThreadCountLimit() {
+
+        Object maxCount = AbFab3DGlobals.get(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY);
+        AbFab3DGlobals.put(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY, 8);
+        try {
+            int threads = 2;
+            final AtomicInteger active = new AtomicInteger(0);
+            final AtomicInteger maxActive = new AtomicInteger(0);
+            final AtomicInteger processed = new AtomicInteger(0);
+            TileScheduler.runTiles(new Tile(0, 99, 0, 99, 0, 0), 10, 10, 1, threads,
+                                   new TileScheduler.TileProcessorFactory(){
+                                       public TileScheduler.TileProcessor makeProcessor(){
+                                           return new TileScheduler.TileProcessor(){
+                                               public void processTile(Tile tile){
+                                                   int a = active.incrementAndGet();
+                                                   int m;
+                                                   while((m = maxActive.get()) < a && !maxActive.compareAndSet(m, a));
+                                                   try {
+                                                       Thread.sleep(1);
+                                                   } catch(InterruptedException e){
+                                                       throw new ExecutionStoppedException();
+                                                   }
+                                                   processed.incrementAndGet();
+                                                   active.decrementAndGet();
+                                               }
+                                           };
+                                       }
+                                   });
+            printf("max active threads: %d\n", maxActive.get());
+            assertEquals("processed tiles", 100, processed.get());
+            assertTrue("max active threads: " + maxActive.get(), maxActive.get() <= threads);
+        } finally {
+            AbFab3DGlobals.put(AbFab3DGlobals.MAX_PROCESSOR_COUNT_KEY, maxCount);
+        }
+    }
+
+    public void testWorkers() {
+
+        final AtomicInteger next = new AtomicInteger(0);
+        final AtomicInteger sum = new AtomicInteger(0);
+        final int count = 1000;
+        Runnable workers[] = new Runnable[5];
+        for(int i = 0; i < workers.length; i++){
+            workers[i] = new Runnable(){
+                    public void run(){
+                        int k;
+                        while((k = next.getAndIncrement()) < count)
+                            sum.addAndGet(k);
+                    }
+                };
+        }
+        TileScheduler.runWorkers(workers);
+        assertEquals("sum of processed items", count*(count-1)/2, sum.get());
+    }
+
+    /**
+       job should stop if its thread is interrupted
+     */
+    public void testInterrupt() {
+
+        final AtomicInteger processed = new AtomicInteger(0);
+        Thread.currentThread().interrupt();
+        boolean stopped = false;
+        try {
+            TileScheduler.runTiles(new Tile(0, 99, 0, 99, 0, 0), 10, 10, 1, 4,
+                                   new TileScheduler.TileProcessorFactory(){
+                                       public TileScheduler.TileProcessor makeProcessor(){
+                                           return new TileScheduler.TileProcessor(){
+                                               public void processTile(Tile tile){
+                                                   processed.incrementAndGet();
+                                               }
+                                           };
+                                       }
+                                   });
+        } catch(ExecutionStoppedException e){
+            stopped = true;
+        } finally {
+            // clear interrupted flag
+            Thread.interrupted();
+        }
+        printf("processed tiles: %d\n", processed.get());
+        assertTrue("ExecutionStoppedException expected", stopped);
+        assertEquals("processed tiles", 0, processed.get());
+    }
+
+    /**
+       interrupt of the waiting caller stops the running job
+     */
+    public void testInterruptWhileRunning() {
+
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger processed = new AtomicInteger(0);
+        boolean stopped = false;
+        try {
+            TileScheduler.runTiles(new Tile(0, 99, 0, 99, 0, 9), 10, 10, 1, 4,
+                                   new TileScheduler.TileProcessorFactory(){
+                                       public TileScheduler.TileProcessor makeProcessor(){
+                                           return new TileScheduler.TileProcessor(){
+                                               public void processTile(Tile tile){
+                                                   if(processed.incrementAndGet() == 10)
+                                                       caller.interrupt();
+                                                   try {
+                                                       Thread.sleep(1);
+                                                   } catch(InterruptedException e){
+                                                       throw new ExecutionStoppedException();
+                                                   }
+                                               }
+                                           };
+                                       }
+                                   });
+        } catch(ExecutionStoppedException e){
+            stopped = true;
+        } finally {
+            // clear interrupted flag
+            Thread.interrupted();
+        }
+        printf("processed tiles: %d\n", processed.get());
+        assertTrue("ExecutionStoppedException expected", stopped);
+        assertTrue("processed tiles: " + processed.get(), processed.get() < 1000);
+    }
+
+    /**
+       exception in one tile cancels the job and is passed to the caller
+     */
+    public void testException() {
+
+        final AtomicInteger processed = new AtomicInteger(0);
+        boolean failed = false;
+        try {
+            TileScheduler.runTiles(new Tile(0, 999, 0, 0, 0, 0), 1, 1, 1, 1,
+                                   new TileScheduler.TileProcessorFactory(){
+                                       public TileScheduler.TileProcessor makeProcessor(){
+                                           return new TileScheduler.TileProcessor(){
+                                               public void processTile(Tile tile){
+                                                   if(processed.incrementAndGet() == 10)
+                                                       throw new IllegalStateException("failed tile");
+                                                   TileScheduler.checkCancelled();
+                                               }
+                                           };
+                                       }
+                                   });
+        } catch(IllegalStateException e){
+            failed = true;
+        }
+        assertTrue("IllegalStateException expected", failed);
+        assertEquals("processed tiles", 10, processed.get());
+    }
+
+    /**
+       started worker stops when its job is cancelled
+     */
+    public void testStartCancel() {
+
+        final AtomicInteger state = new AtomicInteger(0);
+        TileScheduler.Job job = TileScheduler.start(new Runnable(){
+                public void run(){
+                    state.set(1);
+                    while(!TileScheduler.isCancelled())
+                        Thread.yield();
+                    state.set(2);
+                }
+            });
+        while(state.get() == 0)
+            Thread.yield();
+        job.cancel();
+        job.join();
+        assertEquals("worker state", 2, state.get());
+    }
+}
@@ -227,6 +227,45 @@ public class TestTriangleMeshSurfaceBuilder extends TestCase {
     }    
 
 
+    /**
+       MT rasterization gives the same points in the same order 
+     */
+    public void testMT()throws Exception{
+        checkMT(5);
+        // more triangles than storage holds, rasterized in several batches 
+        checkMT(7);
+    }
+
+    void checkMT(int subdivision){
+
+        double w = 25*MM;
+        Bounds bounds = new Bounds(-w,w,-w,w,-w,w, 0.5*MM);
+        TriangulatedModels.Sphere sphere = new TriangulatedModels.Sphere(20*MM, new Vector3d(0.1*MM, 0.2*MM, 0.3*MM), subdivision);
+
+        TriangleMeshSurfaceBuilder sb1 = new TriangleMeshSurfaceBuilder(bounds);
+        sb1.initialize();
+        sphere.getTriangles(sb1);
+
+        TriangleMeshSurfaceBuilder sb4 = new TriangleMeshSurfaceBuilder(bounds);
+        sb4.setThreadCount(4);
+        sb4.initialize();
+        sphere.getTriangles(sb4);
+
+        assertEquals("triCount", sb1.getTriCount(), sb4.getTriCount());
+        int pcount = sb1.getPointCount();
+        assertEquals("pointCount", pcount, sb4.getPointCount());
+
+        double pnt1[][] = new double[3][pcount];
+        double pnt4[][] = new double[3][pcount];
+        sb1.getPoints(pnt1[0], pnt1[1], pnt1[2]);
+        sb4.getPoints(pnt4[0], pnt4[1], pnt4[2]);
+        for(int k = 0; k < 3; k++){
+            for(int i = 0; i < pcount; i++){
+                assertEquals("point", pnt1[k][i], pnt4[k][i], 0.);
+            }
+        }
+    }
+
     static void writeFrame(AttributeGrid indexGrid, double thickness, TriangleCollector tc){
         
         Bounds bounds = indexGrid.getGridBounds();